@@ -1,12 +1,16 @@
 package com.netease.nim.camellia.core.api;
 
 import feign.Feign;
+import feign.FeignException;
 import feign.Request;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  *
  * Created by caojiajun on 2019/11/25.
@@ -30,6 +34,63 @@ public class CamelliaApiUtil {
                     }
                 })
                 .options(new Request.Options(connectTimeoutMillis, readTimeoutMillis))
-                .target(CamelliaApi.class, url);
+                .target(CamelliaBatchApi.class, url);
+    }
+
+    public static CamelliaWatchApi initWatchApi(String url, int connectTimeoutMillis, int readTimeoutMillis) {
+        return Feign.builder()
+                .encoder(new JacksonEncoder())
+                .decoder(new JacksonDecoder())
+                .requestInterceptor(new RequestInterceptor() {
+                    @Override
+                    public void apply(RequestTemplate template) {
+                        if (CamelliaApiEnv.source != null) {
+                            template.header(CamelliaApiEnv.REQUEST_SOURCE, CamelliaApiEnv.source);
+                        }
+                    }
+                })
+                .options(new Request.Options(connectTimeoutMillis, readTimeoutMillis))
+                .target(CamelliaWatchApi.class, url);
+    }
+
+    /**
+     * 批量拉取资源表，CamelliaApi实现了CamelliaBatchApi则使用批量接口，否则逐个调用getResourceTable
+     */
+    public static ResourceTableBatchResponse getResourceTables(CamelliaApi api, ResourceTableBatchRequest request) {
+        if (api instanceof CamelliaBatchApi) {
+            return ((CamelliaBatchApi) api).getResourceTables(request);
+        }
+        return getResourceTablesOneByOne(api, request);
+    }
+
+    /**
+     * 异常是否说明dashboard不支持该接口（如老版本的dashboard没有批量接口，返回404/405）
+     */
+    public static boolean isApiNotSupported(Throwable e) {
+        while (e != null) {
+            if (e instanceof FeignException) {
+                int status = ((FeignException) e).status();
+                return status == 404 || status == 405;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 不支持批量接口的CamelliaApi实现（如本地配置），逐个调用getResourceTable
+     */
+    public static ResourceTableBatchResponse getResourceTablesOneByOne(CamelliaApi api, ResourceTableBatchRequest request) {
+        ResourceTableBatchResponse response = new ResourceTableBatchResponse();
+        List<ResourceTableBatchResponse.Item> items = new ArrayList<>();
+        if (request.getTables() != null) {
+            for (ResourceTableMd5 table : request.getTables()) {
+                CamelliaApiResponse apiResponse = api.getResourceTable(table.getBid(), table.getBgroup(), table.getMd5());
+                items.add(new ResourceTableBatchResponse.Item(table.getBid(), table.getBgroup(), apiResponse));
+            }
+        }
+        response.setCode(CamelliaApiCode.SUCCESS.getCode());
+        response.setItems(items);
+        return response;
     }
 }
@@ -0,0 +1,15 @@
+package com.netease.nim.camellia.core.api;
+
+import feign.Headers;
+import feign.RequestLine;
+
+/**
+ * 支持批量拉取资源表的CamelliaApi，CamelliaApiUtil.init返回的实例实现了该接口
+ * 单独定义成子接口，已有的CamelliaApi实现不需要修改，不支持的实现见CamelliaApiUtil.getResourceTables
+ */
+@Headers({"Content-Type: application/json","Accept: application/json"})
+public interface CamelliaBatchApi extends CamelliaApi {
+
+    @RequestLine("POST /camellia/api/resourceTables")
+    ResourceTableBatchResponse getResourceTables(ResourceTableBatchRequest request);
+}
@@ -0,0 +1,15 @@
+package com.netease.nim.camellia.core.api;
+
+import feign.Headers;
+import feign.RequestLine;
+
+/**
+ * 长轮询的资源表变更监听接口，一个连接覆盖所有bid/bgroup，替代逐个bid/bgroup的定时轮询
+ * 因为请求会被服务器hold住，read超时需要大于ResourceTableWatchRequest的timeoutMillis，见CamelliaApiUtil.initWatchApi
+ */
+@Headers({"Content-Type: application/json","Accept: application/json"})
+public interface CamelliaWatchApi {
+
+    @RequestLine("POST /camellia/api/resourceTable/watch")
+    ResourceTableWatchResponse watchResourceTable(ResourceTableWatchRequest request);
+}
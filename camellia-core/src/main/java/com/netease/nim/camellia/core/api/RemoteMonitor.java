@@ -1,39 +1,41 @@
 package com.netease.nim.camellia.core.api;
 
 
-import com.netease.nim.camellia.core.client.env.Monitor;
+import com.netease.nim.camellia.core.client.env.CounterMonitor;
 import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.core.util.StripedCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
  * Created by caojiajun on 2019/6/5.
  */
-public class RemoteMonitor implements Monitor {
+public class RemoteMonitor implements CounterMonitor {
 
     private static final Logger logger = LoggerFactory.getLogger(RemoteMonitor.class);
 
-    private final ConcurrentHashMap<DetailUniqueKey, AtomicLong> readMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<DetailUniqueKey, AtomicLong> writeMap = new ConcurrentHashMap<>();
+    private final ResourceStatsCollector collector = new ResourceStatsCollector();
 
     private final Long bid;
     private final String bgroup;
     private final CamelliaApi service;
 
     public RemoteMonitor(Long bid, String bgroup, CamelliaApi service) {
+        this(bid, bgroup, service, true);
+    }
+
+    /**
+     * @param schedule 是否使用自带的线程定时上报，为false时由子类自行调度calcAndReport
+     */
+    protected RemoteMonitor(Long bid, String bgroup, CamelliaApi service, boolean schedule) {
         this.bid = bid;
         this.bgroup = bgroup;
         this.service = service;
+        if (!schedule) return;
         Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(RemoteMonitor.class)).scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
@@ -46,19 +48,20 @@ public class RemoteMonitor implements Monitor {
         }, 1, 1, TimeUnit.MINUTES);
     }
 
+    @Override
+    public StripedCounter writeCounter(String resource, String className, String methodName) {
+        return collector.writeCounter(resource, className, methodName);
+    }
+
+    @Override
+    public StripedCounter readCounter(String resource, String className, String methodName) {
+        return collector.readCounter(resource, className, methodName);
+    }
+
     @Override
     public void incrWrite(String resource, String className, String methodName) {
         try {
-            DetailUniqueKey uniqueKey = new DetailUniqueKey(resource, className, methodName, ResourceStats.OPE_WRITE);
-            AtomicLong count = writeMap.get(uniqueKey);
-            if (count == null) {
-                count = new AtomicLong(0);
-                AtomicLong oldCount = writeMap.putIfAbsent(uniqueKey, count);
-                if (oldCount != null) {
-                    count = oldCount;
-                }
-            }
-            count.incrementAndGet();
+            collector.writeCounter(resource, className, methodName).increment();
         } catch (Exception e) {
             logger.error("incrWrite error", e);
         } finally {
@@ -72,16 +75,7 @@ public class RemoteMonitor implements Monitor {
     @Override
     public void incrRead(String resource, String className, String methodName) {
         try {
-            DetailUniqueKey uniqueKey = new DetailUniqueKey(resource, className, methodName, ResourceStats.OPE_READ);
-            AtomicLong count = readMap.get(uniqueKey);
-            if (count == null) {
-                count = new AtomicLong(0);
-                AtomicLong oldCount = readMap.putIfAbsent(uniqueKey, count);
-                if (oldCount != null) {
-                    count = oldCount;
-                }
-            }
-            count.incrementAndGet();
+            collector.readCounter(resource, className, methodName).increment();
         } catch (Exception e) {
             logger.error("incrRead error", e);
         } finally {
@@ -92,179 +86,14 @@ public class RemoteMonitor implements Monitor {
         }
     }
 
-    private void calcAndReport() {
-        ResourceStats resourceStats = new ResourceStats();
-        Map<UniqueKey, ResourceStats.Stats> map = new HashMap<>();
-        Map<DetailUniqueKey, ResourceStats.StatsDetail> detailMap = new HashMap<>();
-        for (Map.Entry<DetailUniqueKey, AtomicLong> entry : readMap.entrySet()) {
-            DetailUniqueKey key = entry.getKey();
-            long read = entry.getValue().getAndSet(0);
-            UniqueKey uniqueKey = new UniqueKey(key.getResource(), key.getOpe());
-            ResourceStats.Stats stats = map.get(uniqueKey);
-            if (stats == null) {
-                stats = new ResourceStats.Stats(key.getResource(), key.getOpe());
-                map.put(uniqueKey, stats);
-            }
-            stats.setCount(stats.getCount() + read);
-
-            ResourceStats.StatsDetail detail = detailMap.get(key);
-            if (detail == null) {
-                detail = new ResourceStats.StatsDetail(key.getResource(), key.getClassName(), key.getMethodName(), ResourceStats.OPE_READ);
-                detailMap.put(key, detail);
-            }
-            detail.setCount(read);
-        }
-
-        for (Map.Entry<DetailUniqueKey, AtomicLong> entry : writeMap.entrySet()) {
-            DetailUniqueKey key = entry.getKey();
-            long write = entry.getValue().getAndSet(0);
-            UniqueKey uniqueKey = new UniqueKey(key.getResource(), key.getOpe());
-            ResourceStats.Stats stats = map.get(uniqueKey);
-            if (stats == null) {
-                stats = new ResourceStats.Stats(key.getResource(), key.getOpe());
-                map.put(uniqueKey, stats);
-            }
-            stats.setCount(stats.getCount() + write);
-
-            ResourceStats.StatsDetail detail = detailMap.get(key);
-            if (detail == null) {
-                detail = new ResourceStats.StatsDetail(key.getResource(), key.getClassName(), key.getMethodName(), ResourceStats.OPE_WRITE);
-                detailMap.put(key, detail);
-            }
-            detail.setCount(write);
-        }
-        List<ResourceStats.Stats> statsList = new ArrayList<>();
-        List<ResourceStats.StatsDetail> statsDetailList = new ArrayList<>();
-        for (ResourceStats.Stats stats : map.values()) {
-            if (stats.getCount() != 0) {
-                statsList.add(stats);
-            }
-        }
-        for (ResourceStats.StatsDetail detail : detailMap.values()) {
-            if (detail.getCount() != 0) {
-                statsDetailList.add(detail);
-            }
+    protected void calcAndReport() {
+        ResourceStats resourceStats = collector.collect();
+        if (resourceStats.getStatsList().isEmpty() && resourceStats.getStatsDetailList().isEmpty()) {
+            return;
         }
-        resourceStats.setStatsList(statsList);
-        resourceStats.setStatsDetailList(statsDetailList);
         resourceStats.setBid(bid);
         resourceStats.setBgroup(bgroup);
         resourceStats.setSource(CamelliaApiEnv.source);
-        if (statsList.isEmpty() && statsDetailList.isEmpty()) {
-            return;
-        }
         service.reportStats(resourceStats);
     }
-
-    private static class UniqueKey {
-        private String resource;
-        private String ope;
-
-        public UniqueKey(String resource, String ope) {
-            this.resource = resource;
-            this.ope = ope;
-        }
-
-        public String getResource() {
-            return resource;
-        }
-
-        public void setResource(String resource) {
-            this.resource = resource;
-        }
-
-        public String getOpe() {
-            return ope;
-        }
-
-        public void setOpe(String ope) {
-            this.ope = ope;
-        }
-
-        @Override
-        public boolean equals(Object object) {
-            if (this == object) return true;
-            if (object == null || getClass() != object.getClass()) return false;
-
-            UniqueKey uniqueKey = (UniqueKey) object;
-
-            if (resource != null ? !resource.equals(uniqueKey.resource) : uniqueKey.resource != null) return false;
-            return ope != null ? ope.equals(uniqueKey.ope) : uniqueKey.ope == null;
-        }
-
-        @Override
-        public int hashCode() {
-            int result = resource != null ? resource.hashCode() : 0;
-            result = 31 * result + (ope != null ? ope.hashCode() : 0);
-            return result;
-        }
-    }
-
-    private static class DetailUniqueKey {
-        private String resource;
-        private String className;
-        private String methodName;
-        private String ope;
-
-        public DetailUniqueKey(String resource, String className, String methodName, String ope) {
-            this.resource = resource;
-            this.className = className;
-            this.methodName = methodName;
-            this.ope = ope;
-        }
-
-        public String getResource() {
-            return resource;
-        }
-
-        public void setResource(String resource) {
-            this.resource = resource;
-        }
-
-        public String getClassName() {
-            return className;
-        }
-
-        public void setClassName(String className) {
-            this.className = className;
-        }
-
-        public String getMethodName() {
-            return methodName;
-        }
-
-        public void setMethodName(String methodName) {
-            this.methodName = methodName;
-        }
-
-        public String getOpe() {
-            return ope;
-        }
-
-        public void setOpe(String ope) {
-            this.ope = ope;
-        }
-
-        @Override
-        public boolean equals(Object object) {
-            if (this == object) return true;
-            if (object == null || getClass() != object.getClass()) return false;
-
-            DetailUniqueKey that = (DetailUniqueKey) object;
-
-            if (resource != null ? !resource.equals(that.resource) : that.resource != null) return false;
-            if (className != null ? !className.equals(that.className) : that.className != null) return false;
-            if (methodName != null ? !methodName.equals(that.methodName) : that.methodName != null) return false;
-            return ope != null ? ope.equals(that.ope) : that.ope == null;
-        }
-
-        @Override
-        public int hashCode() {
-            int result = resource != null ? resource.hashCode() : 0;
-            result = 31 * result + (className != null ? className.hashCode() : 0);
-            result = 31 * result + (methodName != null ? methodName.hashCode() : 0);
-            result = 31 * result + (ope != null ? ope.hashCode() : 0);
-            return result;
-        }
-    }
 }
@@ -0,0 +1,95 @@
+package com.netease.nim.camellia.core.api;
+
+import com.netease.nim.camellia.core.util.StripedCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按resource/className/methodName分层保存计数器，RemoteMonitor和FastRemoteMonitor共用
+ * 1）查找时逐层用原始的字符串做key，不需要每次都拼接字符串或者创建组合key对象
+ * 2）计数器使用StripedCounter，减少多线程并发计数时的竞争
+ * 3）上报时遍历计数器汇总并清零，计数器本身保留复用，调用方缓存的计数器不会失效
+ */
+public class ResourceStatsCollector {
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>>> readMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>>> writeMap = new ConcurrentHashMap<>();
+
+    public StripedCounter writeCounter(String resource, String className, String methodName) {
+        return counter(writeMap, resource, className, methodName);
+    }
+
+    public StripedCounter readCounter(String resource, String className, String methodName) {
+        return counter(readMap, resource, className, methodName);
+    }
+
+    /**
+     * 汇总并清零，返回的ResourceStats只包含计数不为0的统计项，bid/bgroup/source由调用方设置
+     */
+    public ResourceStats collect() {
+        List<ResourceStats.Stats> statsList = new ArrayList<>();
+        List<ResourceStats.StatsDetail> statsDetailList = new ArrayList<>();
+        collect(readMap, ResourceStats.OPE_READ, statsList, statsDetailList);
+        collect(writeMap, ResourceStats.OPE_WRITE, statsList, statsDetailList);
+        ResourceStats resourceStats = new ResourceStats();
+        resourceStats.setStatsList(statsList);
+        resourceStats.setStatsDetailList(statsDetailList);
+        return resourceStats;
+    }
+
+    private void collect(ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>>> map, String ope,
+                         List<ResourceStats.Stats> statsList, List<ResourceStats.StatsDetail> statsDetailList) {
+        for (Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>>> resourceEntry : map.entrySet()) {
+            String resource = resourceEntry.getKey();
+            long total = 0;
+            for (Map.Entry<String, ConcurrentHashMap<String, StripedCounter>> classEntry : resourceEntry.getValue().entrySet()) {
+                String className = classEntry.getKey();
+                for (Map.Entry<String, StripedCounter> methodEntry : classEntry.getValue().entrySet()) {
+                    long count = methodEntry.getValue().sumThenReset();
+                    if (count == 0) continue;
+                    ResourceStats.StatsDetail detail = new ResourceStats.StatsDetail(resource, className, methodEntry.getKey(), ope);
+                    detail.setCount(count);
+                    statsDetailList.add(detail);
+                    total += count;
+                }
+            }
+            if (total != 0) {
+                ResourceStats.Stats stats = new ResourceStats.Stats(resource, ope);
+                stats.setCount(total);
+                statsList.add(stats);
+            }
+        }
+    }
+
+    private StripedCounter counter(ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>>> map,
+                                   String resource, String className, String methodName) {
+        ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>> classMap = map.get(resource);
+        if (classMap == null) {
+            classMap = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, ConcurrentHashMap<String, StripedCounter>> oldClassMap = map.putIfAbsent(resource, classMap);
+            if (oldClassMap != null) {
+                classMap = oldClassMap;
+            }
+        }
+        ConcurrentHashMap<String, StripedCounter> methodMap = classMap.get(className);
+        if (methodMap == null) {
+            methodMap = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, StripedCounter> oldMethodMap = classMap.putIfAbsent(className, methodMap);
+            if (oldMethodMap != null) {
+                methodMap = oldMethodMap;
+            }
+        }
+        StripedCounter counter = methodMap.get(methodName);
+        if (counter == null) {
+            counter = new StripedCounter();
+            StripedCounter oldCounter = methodMap.putIfAbsent(methodName, counter);
+            if (oldCounter != null) {
+                counter = oldCounter;
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,20 @@
+package com.netease.nim.camellia.core.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量获取资源表，md5不为空时，没有变更的资源表不会返回内容
+ */
+public class ResourceTableBatchRequest {
+
+    private List<ResourceTableMd5> tables = new ArrayList<>();
+
+    public List<ResourceTableMd5> getTables() {
+        return tables;
+    }
+
+    public void setTables(List<ResourceTableMd5> tables) {
+        this.tables = tables;
+    }
+}
@@ -0,0 +1,98 @@
+package com.netease.nim.camellia.core.api;
+
+import com.netease.nim.camellia.core.model.ResourceTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量获取资源表的结果，每个bid/bgroup一项，code的含义同CamelliaApiResponse
+ */
+public class ResourceTableBatchResponse {
+
+    private int code;
+    private List<Item> items = new ArrayList<>();
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public static class Item {
+        private Long bid;
+        private String bgroup;
+        private int code;
+        private String md5;
+        private ResourceTable resourceTable;
+
+        public Item() {
+        }
+
+        public Item(Long bid, String bgroup, CamelliaApiResponse response) {
+            this.bid = bid;
+            this.bgroup = bgroup;
+            this.code = response.getCode();
+            this.md5 = response.getMd5();
+            this.resourceTable = response.getResourceTable();
+        }
+
+        public CamelliaApiResponse toResponse() {
+            CamelliaApiResponse response = new CamelliaApiResponse();
+            response.setCode(code);
+            response.setMd5(md5);
+            response.setResourceTable(resourceTable);
+            return response;
+        }
+
+        public Long getBid() {
+            return bid;
+        }
+
+        public void setBid(Long bid) {
+            this.bid = bid;
+        }
+
+        public String getBgroup() {
+            return bgroup;
+        }
+
+        public void setBgroup(String bgroup) {
+            this.bgroup = bgroup;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public void setCode(int code) {
+            this.code = code;
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+
+        public void setMd5(String md5) {
+            this.md5 = md5;
+        }
+
+        public ResourceTable getResourceTable() {
+            return resourceTable;
+        }
+
+        public void setResourceTable(ResourceTable resourceTable) {
+            this.resourceTable = resourceTable;
+        }
+    }
+}
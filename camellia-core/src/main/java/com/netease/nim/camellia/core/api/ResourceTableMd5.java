@@ -0,0 +1,44 @@
+package com.netease.nim.camellia.core.api;
+
+/**
+ * 某个bid/bgroup的资源表对应的md5
+ */
+public class ResourceTableMd5 {
+
+    private Long bid;
+    private String bgroup;
+    private String md5;
+
+    public ResourceTableMd5() {
+    }
+
+    public ResourceTableMd5(Long bid, String bgroup, String md5) {
+        this.bid = bid;
+        this.bgroup = bgroup;
+        this.md5 = md5;
+    }
+
+    public Long getBid() {
+        return bid;
+    }
+
+    public void setBid(Long bid) {
+        this.bid = bid;
+    }
+
+    public String getBgroup() {
+        return bgroup;
+    }
+
+    public void setBgroup(String bgroup) {
+        this.bgroup = bgroup;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+}
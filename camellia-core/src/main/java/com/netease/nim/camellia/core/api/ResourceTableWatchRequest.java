@@ -0,0 +1,30 @@
+package com.netease.nim.camellia.core.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 资源表变更监听请求，一次性提交所有关注的bid/bgroup及其当前md5
+ */
+public class ResourceTableWatchRequest {
+
+    //服务器最多hold住请求的时间，超时后即使没有变更也会返回
+    private long timeoutMillis;
+    private List<ResourceTableMd5> tables = new ArrayList<>();
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public List<ResourceTableMd5> getTables() {
+        return tables;
+    }
+
+    public void setTables(List<ResourceTableMd5> tables) {
+        this.tables = tables;
+    }
+}
@@ -0,0 +1,30 @@
+package com.netease.nim.camellia.core.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 资源表变更监听的结果，changedTables是md5发生变化的bid/bgroup（md5为最新值，若bid/bgroup已不存在则为null）
+ * 如果超时仍没有变更，则code=NOT_MODIFY
+ */
+public class ResourceTableWatchResponse {
+
+    private int code;
+    private List<ResourceTableMd5> changedTables = new ArrayList<>();
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public List<ResourceTableMd5> getChangedTables() {
+        return changedTables;
+    }
+
+    public void setChangedTables(List<ResourceTableMd5> changedTables) {
+        this.changedTables = changedTables;
+    }
+}
@@ -20,6 +20,6 @@ public class DynamicProxyCallback<T> implements MethodInterceptor {
 
     @Override
     public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) throws Throwable {
-        return method.invoke(factory.getProxy(), args);
+        return FastMethodInvoker.invoke(proxy, factory.getProxy(), args);
     }
 }
@@ -0,0 +1,21 @@
+package com.netease.nim.camellia.core.client.callback;
+
+import net.sf.cglib.proxy.MethodProxy;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * 通过cglib的MethodProxy（基于FastClass，按方法下标直接调用）调用目标对象的方法，替代Method.invoke的反射调用
+ * 目标对象需要是被代理的类（或其子类）的实例
+ * 异常仍然包装成InvocationTargetException，和Method.invoke的行为保持一致
+ */
+public class FastMethodInvoker {
+
+    public static Object invoke(MethodProxy methodProxy, Object target, Object[] args) throws InvocationTargetException {
+        try {
+            return methodProxy.invoke(target, args);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.netease.nim.camellia.core.client.callback;
+
+import com.netease.nim.camellia.core.client.env.MultiWriteAsyncListener;
+import com.netease.nim.camellia.core.client.env.MultiWriteAsyncFullPolicy;
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多写模式为FIRST_RESOURCE_ONLY时，第一个资源之外的写操作在这里异步执行
+ * 1）按资源url分配到固定的threadsPerResource个单线程队列，threadsPerResource=1（默认）时同一个资源上的写操作保持提交顺序
+ * 2）队列有界，满了之后按fullPolicy处理：丢弃（默认）、阻塞业务线程、或者在业务线程中执行
+ * 3）提供堆积、丢弃、失败、延迟等指标，丢弃、失败、延迟超过阈值的事件同时回调MultiWriteAsyncListener（不计入Monitor的写统计）
+ * 注意：异步任务会在业务调用返回之后才使用方法参数，调用方不能复用或者修改传入的参数对象（如Put、byte[]等）
+ */
+public class MultiWriteAsyncExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiWriteAsyncExecutor.class);
+
+    //从提交到开始执行超过该值时回调一次延迟
+    private static final long LAG_REPORT_THRESHOLD_MILLIS = 1000;
+
+    private final int poolSize;
+    private final int queueSize;
+    private final int threadsPerResource;
+    private final MultiWriteAsyncFullPolicy fullPolicy;
+    private final MultiWriteAsyncListener listener;
+    private final ThreadPoolExecutor[] executors;
+    private final AtomicLong submitCount = new AtomicLong();
+    private final AtomicLong dropCount = new AtomicLong();
+    private final AtomicLong failCount = new AtomicLong();
+    //最近一次执行的任务从提交到开始执行的耗时
+    private volatile long lagMillis;
+
+    public MultiWriteAsyncExecutor(int poolSize, int queueSize) {
+        this(poolSize, queueSize, 1, MultiWriteAsyncFullPolicy.DROP, null);
+    }
+
+    public MultiWriteAsyncExecutor(int poolSize, int queueSize, int threadsPerResource,
+                                   MultiWriteAsyncFullPolicy fullPolicy, MultiWriteAsyncListener listener) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize <= 0");
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize <= 0");
+        }
+        if (threadsPerResource <= 0) {
+            throw new IllegalArgumentException("threadsPerResource <= 0");
+        }
+        if (fullPolicy == null) {
+            throw new IllegalArgumentException("fullPolicy is null");
+        }
+        this.poolSize = poolSize;
+        this.queueSize = queueSize;
+        this.threadsPerResource = Math.min(threadsPerResource, poolSize);
+        this.fullPolicy = fullPolicy;
+        this.listener = listener;
+        this.executors = new ThreadPoolExecutor[poolSize];
+        CamelliaThreadFactory threadFactory = new CamelliaThreadFactory(MultiWriteAsyncExecutor.class);
+        for (int i=0; i<poolSize; i++) {
+            executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * 提交一个异步写操作
+     * task会在调用方返回之后才执行，task引用的参数对象在执行完之前不能被修改
+     * @param url 资源url，决定在哪些队列中执行
+     * @param task 写操作
+     * @return 队列满被丢弃时返回false
+     */
+    public boolean submit(final String url, final Callable<?> task) {
+        final long submitTime = System.currentTimeMillis();
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                long lag = System.currentTimeMillis() - submitTime;
+                lagMillis = lag;
+                if (lag >= LAG_REPORT_THRESHOLD_MILLIS && listener != null) {
+                    try {
+                        listener.onLag(url, lag);
+                    } catch (Exception e) {
+                        logger.error("multi write async listener onLag error, url = {}", url, e);
+                    }
+                }
+                try {
+                    task.call();
+                } catch (Throwable e) {
+                    failCount.incrementAndGet();
+                    logger.error("multi write async error, url = {}", url, e);
+                    if (listener != null) {
+                        try {
+                            listener.onFail(url, e);
+                        } catch (Exception ex) {
+                            logger.error("multi write async listener onFail error, url = {}", url, ex);
+                        }
+                    }
+                }
+            }
+        };
+        ThreadPoolExecutor executor = select(url);
+        try {
+            executor.execute(runnable);
+            submitCount.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            switch (fullPolicy) {
+                case BLOCK:
+                    try {
+                        executor.getQueue().put(runnable);
+                        submitCount.incrementAndGet();
+                        return true;
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                case CALLER_RUNS:
+                    submitCount.incrementAndGet();
+                    runnable.run();
+                    return true;
+                default:
+                    break;
+            }
+            long drop = dropCount.incrementAndGet();
+            if (listener != null) {
+                try {
+                    listener.onDrop(url);
+                } catch (Exception ex) {
+                    logger.error("multi write async listener onDrop error, url = {}", url, ex);
+                }
+            }
+            //丢弃可能是持续的，避免刷屏
+            if ((drop & (drop - 1)) == 0) {
+                logger.error("multi write async queue full, drop, url = {}, dropCount = {}", url, drop);
+            }
+            return false;
+        }
+    }
+
+    //同一个资源固定在从hash位置开始的threadsPerResource个队列中，多个队列时选堆积最少的
+    private ThreadPoolExecutor select(String url) {
+        int index = (url.hashCode() & 0x7fffffff) % executors.length;
+        ThreadPoolExecutor executor = executors[index];
+        if (threadsPerResource == 1) {
+            return executor;
+        }
+        int minSize = executor.getQueue().size();
+        for (int i=1; i<threadsPerResource && minSize > 0; i++) {
+            ThreadPoolExecutor next = executors[(index + i) % executors.length];
+            int size = next.getQueue().size();
+            if (size < minSize) {
+                executor = next;
+                minSize = size;
+            }
+        }
+        return executor;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getThreadsPerResource() {
+        return threadsPerResource;
+    }
+
+    public MultiWriteAsyncFullPolicy getFullPolicy() {
+        return fullPolicy;
+    }
+
+    public MultiWriteAsyncListener getListener() {
+        return listener;
+    }
+
+    public long getSubmitCount() {
+        return submitCount.get();
+    }
+
+    public long getDropCount() {
+        return dropCount.get();
+    }
+
+    public long getFailCount() {
+        return failCount.get();
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    //队列中还没有执行的写操作个数
+    public int getPendingCount() {
+        int pending = 0;
+        for (ThreadPoolExecutor executor : executors) {
+            pending += executor.getQueue().size();
+        }
+        return pending;
+    }
+}
@@ -2,14 +2,20 @@ package com.netease.nim.camellia.core.client.callback;
 
 import com.netease.nim.camellia.core.client.annotation.ReadOp;
 import com.netease.nim.camellia.core.client.annotation.WriteOp;
+import com.netease.nim.camellia.core.client.env.CounterMonitor;
+import com.netease.nim.camellia.core.client.env.Monitor;
+import com.netease.nim.camellia.core.client.env.MultiWriteMode;
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
 import com.netease.nim.camellia.core.model.Resource;
 import com.netease.nim.camellia.core.model.operation.ResourceOperation;
 import com.netease.nim.camellia.core.model.operation.ResourceReadOperation;
 import com.netease.nim.camellia.core.model.operation.ResourceWriteOperation;
 import com.netease.nim.camellia.core.util.CheckUtil;
+import com.netease.nim.camellia.core.util.StripedCounter;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
 import java.util.*;
@@ -21,6 +27,8 @@ import java.util.concurrent.*;
  */
 public class OperationCallback<T> implements MethodInterceptor {
 
+    private static final Logger logger = LoggerFactory.getLogger(OperationCallback.class);
+
     private final ResourceOperation resourceOperation;
     private final Map<Resource, T> clientMap;
     private final String className;
@@ -52,7 +60,7 @@ public class OperationCallback<T> implements MethodInterceptor {
     private static final byte WRITE = 1;
     private static final byte READ = 2;
     private static final byte UNKNOWN = 3;
-    private Map<Method, Byte> annotationCache = new HashMap<>();
+    private final Map<Method, Byte> annotationCache = new ConcurrentHashMap<>();
 
     private byte operationType(Method method) {
         if (method == null) return UNKNOWN;
@@ -76,22 +84,22 @@ public class OperationCallback<T> implements MethodInterceptor {
     public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
         Byte operationType = operationType(method);
         if (Objects.equals(operationType, WRITE)) {
-            return write(objects, method);
+            return write(objects, method, methodProxy);
         }
         if (Objects.equals(operationType, READ)) {
-            return read(objects, method);
+            return read(objects, method, methodProxy);
         }
         return methodProxy.invokeSuper(o, objects);
     }
 
-    private Object write(final Object[] objects, final Method method) throws Throwable {
+    private Object write(final Object[] objects, final Method method, final MethodProxy methodProxy) throws Throwable {
         ResourceOperation.Type type = resourceOperation.getType();
         switch (type) {
             case SIMPLE:
                 Resource resource1 = resourceOperation.getResource();
                 T client = clientMap.get(resource1);
                 incrWrite(resource1, method);
-                return method.invoke(client, objects);
+                return FastMethodInvoker.invoke(methodProxy, client, objects);
             case RW_SEPARATE:
                 ResourceWriteOperation writeOperation = resourceOperation.getWriteOperation();
                 switch (writeOperation.getType()) {
@@ -99,45 +107,15 @@ public class OperationCallback<T> implements MethodInterceptor {
                         Resource resource2 = writeOperation.getWriteResource();
                         T client1 = clientMap.get(resource2);
                         incrWrite(resource2, method);
-                        return method.invoke(client1, objects);
+                        return FastMethodInvoker.invoke(methodProxy, client1, objects);
                     case MULTI:
-                        if (env.isMultiWriteConcurrentEnable()) {
-                            List<Future> futureList = new ArrayList<>();
-                            for (final Resource resource : writeOperation.getWriteResources()) {
-                                final T client2 = clientMap.get(resource);
-                                Future<Object> future = env.getMultiWriteConcurrentExec().submit(new Callable<Object>() {
-                                    @Override
-                                    public Object call() throws Exception {
-                                        incrWrite(resource, method);
-                                        return method.invoke(client2, objects);
-                                    }
-                                });
-                                futureList.add(future);
-                            }
-                            Object ret = null;
-                            boolean isRetSet = false;
-                            for (Future future : futureList) {
-                                Object ret1 = future.get();
-                                if (!isRetSet) {
-                                    ret = ret1;
-                                    isRetSet = true;
-                                }
-                            }
-                            return ret;
-                        } else {
-                            Object ret = null;
-                            boolean isRetSet = false;
-                            for (Resource resource : writeOperation.getWriteResources()) {
-                                T client2 = clientMap.get(resource);
-                                incrWrite(resource, method);
-                                Object ret1 = method.invoke(client2, objects);
-                                if (!isRetSet) {
-                                    ret = ret1;
-                                    isRetSet = true;
-                                }
-                            }
-                            return ret;
+                        List<Resource> writeResources = writeOperation.getWriteResources();
+                        MultiWriteMode multiWriteMode = env.getMultiWriteMode();
+                        if (multiWriteMode == MultiWriteMode.FIRST_RESOURCE_ONLY) {
+                            return multiWriteFirstResourceOnly(writeResources, objects, method, methodProxy);
                         }
+                        return multiWriteAllResources(writeResources, objects, method, methodProxy,
+                                multiWriteMode != MultiWriteMode.ALL_RESOURCES_NO_CHECK);
                     default:
                         throw new RuntimeException("unknown operation write type");
                 }
@@ -146,14 +124,96 @@ public class OperationCallback<T> implements MethodInterceptor {
         }
     }
 
-    private Object read(Object[] objects, Method method) throws Throwable {
+    //第一个资源同步写，成功后其他资源提交到异步队列，不等待结果
+    //异步任务直接引用objects，调用返回后参数对象仍可能未被使用完，调用方不能复用或者修改
+    private Object multiWriteFirstResourceOnly(List<Resource> writeResources, final Object[] objects,
+                                               final Method method, final MethodProxy methodProxy) throws Throwable {
+        Resource first = writeResources.get(0);
+        incrWrite(first, method);
+        Object ret = FastMethodInvoker.invoke(methodProxy, clientMap.get(first), objects);
+        for (int i=1; i<writeResources.size(); i++) {
+            final Resource resource = writeResources.get(i);
+            final T client = clientMap.get(resource);
+            env.getMultiWriteAsyncExec().submit(resource.getUrl(), new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    incrWrite(resource, method);
+                    return FastMethodInvoker.invoke(methodProxy, client, objects);
+                }
+            });
+        }
+        return ret;
+    }
+
+    //所有资源都写完再返回第一个资源的结果，checkError=false时第一个资源之外的异常只记录日志
+    private Object multiWriteAllResources(List<Resource> writeResources, final Object[] objects,
+                                          final Method method, final MethodProxy methodProxy, boolean checkError) throws Throwable {
+        if (env.isMultiWriteConcurrentEnable()) {
+            List<Future> futureList = new ArrayList<>();
+            for (final Resource resource : writeResources) {
+                final T client = clientMap.get(resource);
+                Future<Object> future = env.getMultiWriteConcurrentExec().submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        incrWrite(resource, method);
+                        return FastMethodInvoker.invoke(methodProxy, client, objects);
+                    }
+                });
+                futureList.add(future);
+            }
+            Object ret = null;
+            boolean isRetSet = false;
+            for (int i=0; i<futureList.size(); i++) {
+                Object ret1;
+                try {
+                    ret1 = futureList.get(i).get();
+                } catch (Throwable e) {
+                    if (checkError || i == 0) {
+                        throw e;
+                    }
+                    logger.error("multi write error, url = {}", writeResources.get(i).getUrl(), e);
+                    continue;
+                }
+                if (!isRetSet) {
+                    ret = ret1;
+                    isRetSet = true;
+                }
+            }
+            return ret;
+        } else {
+            Object ret = null;
+            boolean isRetSet = false;
+            for (int i=0; i<writeResources.size(); i++) {
+                Resource resource = writeResources.get(i);
+                T client = clientMap.get(resource);
+                incrWrite(resource, method);
+                Object ret1;
+                try {
+                    ret1 = FastMethodInvoker.invoke(methodProxy, client, objects);
+                } catch (Throwable e) {
+                    if (checkError || i == 0) {
+                        throw e;
+                    }
+                    logger.error("multi write error, url = {}", resource.getUrl(), e);
+                    continue;
+                }
+                if (!isRetSet) {
+                    ret = ret1;
+                    isRetSet = true;
+                }
+            }
+            return ret;
+        }
+    }
+
+    private Object read(Object[] objects, Method method, MethodProxy methodProxy) throws Throwable {
         ResourceOperation.Type type = resourceOperation.getType();
         switch (type) {
             case SIMPLE:
                 Resource resource1 = resourceOperation.getResource();
                 T client = clientMap.get(resource1);
                 incrRead(resource1, method);
-                return method.invoke(client, objects);
+                return FastMethodInvoker.invoke(methodProxy, client, objects);
             case RW_SEPARATE:
                 ResourceReadOperation readOperation = resourceOperation.getReadOperation();
                 switch (readOperation.getType()) {
@@ -161,14 +221,14 @@ public class OperationCallback<T> implements MethodInterceptor {
                         Resource resource2 = readOperation.getReadResource();
                         T client1 = clientMap.get(resource2);
                         incrRead(resource2, method);
-                        return method.invoke(client1, objects);
+                        return FastMethodInvoker.invoke(methodProxy, client1, objects);
                     case ORDER:
                         Throwable ex = null;
                         for (Resource resource : readOperation.getReadResources()) {
                             T client2 = clientMap.get(resource);
                             try {
                                 incrRead(resource, method);
-                                return method.invoke(client2, objects);
+                                return FastMethodInvoker.invoke(methodProxy, client2, objects);
                             } catch (Throwable throwable) {
                                 ex = throwable;
                             }
@@ -183,7 +243,7 @@ public class OperationCallback<T> implements MethodInterceptor {
                         Resource resource = list.get(index);
                         T client3 = clientMap.get(resource);
                         incrRead(resource, method);
-                        return method.invoke(client3, objects);
+                        return FastMethodInvoker.invoke(methodProxy, client3, objects);
                     default:
                         throw new RuntimeException("unknown operation read type");
                 }
@@ -192,7 +252,7 @@ public class OperationCallback<T> implements MethodInterceptor {
         }
     }
 
-    private Map<Method, String> fullNameCache = new HashMap<>();
+    private final Map<Method, String> fullNameCache = new ConcurrentHashMap<>();
 
     private String getMethodName(Method method) {
         String string = fullNameCache.get(method);
@@ -223,16 +283,52 @@ public class OperationCallback<T> implements MethodInterceptor {
         return string;
     }
 
+    //monitor是CounterMonitor时，每个方法在每个resource上的计数器只获取一次，之后直接计数
+    private final Map<Method, Map<Resource, StripedCounter>> writeCounterCache = new ConcurrentHashMap<>();
+    private final Map<Method, Map<Resource, StripedCounter>> readCounterCache = new ConcurrentHashMap<>();
+
     private void incrWrite(Resource resource, Method method) {
         if (env != null && env.getMonitor() != null) {
-            env.getMonitor().incrWrite(resource.getUrl(), className, getMethodName(method));
+            Monitor monitor = env.getMonitor();
+            if (monitor instanceof CounterMonitor) {
+                counter(writeCounterCache, (CounterMonitor) monitor, resource, method, true).increment();
+            } else {
+                monitor.incrWrite(resource.getUrl(), className, getMethodName(method));
+            }
         }
     }
 
     private void incrRead(Resource resource, Method method) {
         if (env != null && env.getMonitor() != null) {
-            env.getMonitor().incrRead(resource.getUrl(), className, getMethodName(method));
+            Monitor monitor = env.getMonitor();
+            if (monitor instanceof CounterMonitor) {
+                counter(readCounterCache, (CounterMonitor) monitor, resource, method, false).increment();
+            } else {
+                monitor.incrRead(resource.getUrl(), className, getMethodName(method));
+            }
+        }
+    }
+
+    private StripedCounter counter(Map<Method, Map<Resource, StripedCounter>> cache, CounterMonitor monitor,
+                                   Resource resource, Method method, boolean write) {
+        Map<Resource, StripedCounter> counterMap = cache.get(method);
+        if (counterMap == null) {
+            //clientMap中的resource是固定的，第一次调用时一次性获取该方法在所有resource上的计数器
+            counterMap = new HashMap<>();
+            String methodName = getMethodName(method);
+            for (Resource r : clientMap.keySet()) {
+                counterMap.put(r, write ? monitor.writeCounter(r.getUrl(), className, methodName)
+                        : monitor.readCounter(r.getUrl(), className, methodName));
+            }
+            cache.put(method, counterMap);
+        }
+        StripedCounter counter = counterMap.get(resource);
+        if (counter == null) {
+            String methodName = getMethodName(method);
+            counter = write ? monitor.writeCounter(resource.getUrl(), className, methodName)
+                    : monitor.readCounter(resource.getUrl(), className, methodName);
         }
+        return counter;
     }
 
     private void check(ResourceOperation resourceOperation, Map<Resource, T> clientMap) {
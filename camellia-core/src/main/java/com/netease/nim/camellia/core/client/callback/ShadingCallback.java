@@ -11,6 +11,7 @@ import net.sf.cglib.proxy.MethodProxy;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.*;
@@ -36,7 +37,7 @@ public class ShadingCallback<T> implements MethodInterceptor {
     }
 
     @Override
-    public Object intercept(Object o, final Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
+    public Object intercept(Object o, final Method method, Object[] objects, final MethodProxy methodProxy) throws Throwable {
         if (!isOpMethod(method)) {
             return methodProxy.invokeSuper(o, objects);
         }
@@ -45,252 +46,264 @@ public class ShadingCallback<T> implements MethodInterceptor {
         if (collectionType == CollectionType.NOT_COLLECTION) {
             byte[][] key = parseShadingSimple(method, objects);
             T proxy = proxyHub.chooseProxy(key);
-            return method.invoke(proxy, objects);
+            return FastMethodInvoker.invoke(methodProxy, proxy, objects);
         } else {
-            Map<T, List<Object[]>> proxyMap = new HashMap<>();
-            Map<byte[][], Object[]> map;
-            switch (collectionType) {
-                case LIST:
-                    map = parseShadingListParam(method, objects);
-                    break;
-                case SET:
-                    map = parseShadingSetParam(method, objects);
-                    break;
-                case Map:
-                    map = parseShadingMapParam(method, objects);
-                    break;
-                case ARRAY:
-                    map = parseShadingArrayParam(method, objects);
-                    break;
-                default:
-                    throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
-            }
-            for (Map.Entry<byte[][], Object[]> entry : map.entrySet()) {
-                byte[][] key = entry.getKey();
-                Object[] param = entry.getValue();
-                T proxy = proxyHub.chooseProxy(key);
-                List<Object[]> list = proxyMap.get(proxy);
-                if (list == null) {
-                    list = new ArrayList<>();
-                    proxyMap.put(proxy, list);
-                }
-                list.add(param);
-            }
-            Map<T, Object[]> finalProxyMap;
-            switch (collectionType) {
-                case LIST:
-                    finalProxyMap = mergeProxyMapOfList(proxyMap, method, objects);
-                    break;
-                case SET:
-                    finalProxyMap = mergeProxyMapOfSet(proxyMap, method, objects);
-                    break;
-                case Map:
-                    finalProxyMap = mergeProxyMapOfMap(proxyMap, method, objects);
-                    break;
-                case ARRAY:
-                    finalProxyMap = mergeProxyMapOfArray(proxyMap, method, objects);
-                    break;
-                default:
-                    throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
-            }
-
-            if (finalProxyMap.size() == 1) {
+            Map<T, Object[]> finalProxyMap = splitByProxy(collectionType, method, objects);
+            int size = finalProxyMap.size();
+            if (size == 1) {
                 for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
-                    T proxy = entry.getKey();
-                    Object[] params = entry.getValue();
-                    return method.invoke(proxy, params);
+                    return FastMethodInvoker.invoke(methodProxy, entry.getKey(), entry.getValue());
                 }
                 throw new RuntimeException("will not invoke here");
-            } else {
-                if (env.isShadingConcurrentEnable()) {
-                    final AtomicBoolean isInvokeError = new AtomicBoolean(false);
-                    final Throwable[] invokeError = new Throwable[1];
-                    List<Object> results = new ArrayList<>();
-                    List<Future<Object>> futureList = new ArrayList<>();
-                    for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
-                        final T proxy = entry.getKey();
-                        final Object[] params = entry.getValue();
-                        Future<Object> future = env.getShadingConcurrentExec().submit(new Callable<Object>() {
-                            @Override
-                            public Object call() throws Exception {
-                                try {
-                                    return method.invoke(proxy, params);
-                                } catch (Throwable e) {
-                                    invokeError[0] = e;
-                                    isInvokeError.set(true);
-                                    throw e;
-                                }
+            }
+            Object[] proxies = new Object[size];
+            Object[][] paramsArray = new Object[size][];
+            int n = 0;
+            for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
+                proxies[n] = entry.getKey();
+                paramsArray[n] = entry.getValue();
+                n ++;
+            }
+            Object[] results = new Object[size];
+            if (env.isShadingConcurrentEnable()) {
+                final AtomicBoolean isInvokeError = new AtomicBoolean(false);
+                final Throwable[] invokeError = new Throwable[1];
+                Future[] futures = new Future[size];
+                //第一个分组在当前线程执行，其他的提交到线程池，少一次线程切换
+                for (int i=1; i<size; i++) {
+                    final Object proxy = proxies[i];
+                    final Object[] params = paramsArray[i];
+                    futures[i] = env.getShadingConcurrentExec().submit(new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            try {
+                                return FastMethodInvoker.invoke(methodProxy, proxy, params);
+                            } catch (Throwable e) {
+                                invokeError[0] = e;
+                                isInvokeError.set(true);
+                                throw e;
                             }
-                        });
-                        futureList.add(future);
-                    }
-                    for (Future<Object> future : futureList) {
-                        if (isInvokeError.get() && invokeError[0] != null) {
-                            throw invokeError[0];
                         }
-                        Object result = future.get();
-                        results.add(result);
-                    }
-                    return mergeResult(results, method);
-                } else {
-                    List<Object> results = new ArrayList<>();
-                    for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
-                        T proxy = entry.getKey();
-                        Object[] params = entry.getValue();
-                        Object result = method.invoke(proxy, params);
-                        results.add(result);
+                    });
+                }
+                results[0] = FastMethodInvoker.invoke(methodProxy, proxies[0], paramsArray[0]);
+                for (int i=1; i<size; i++) {
+                    if (isInvokeError.get() && invokeError[0] != null) {
+                        throw invokeError[0];
                     }
-                    return mergeResult(results, method);
+                    results[i] = futures[i].get();
+                }
+            } else {
+                for (int i=0; i<size; i++) {
+                    results[i] = FastMethodInvoker.invoke(methodProxy, proxies[i], paramsArray[i]);
                 }
             }
+            return mergeResult(results, method);
         }
     }
 
-    private Map<T, Object[]> mergeProxyMapOfArray(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) throws Throwable {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShadingIndex = getShadingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-
-            Object arrayParam;
-            String name = getShadingCollectionParamArrayParamType(method);
-            switch (name) {
-                case "java.lang.String":
-                    String[] strArrayParam = new String[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        String[] obj = (String[]) (value.get(i)[collectionShadingIndex]);
-                        strArrayParam[i] = obj[0];
-                    }
-                    arrayParam = strArrayParam;
-                    break;
-                case "java.lang.Long": {
-                    Long[] longArrayParam = new Long[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        Long[] obj = (Long[]) (value.get(i)[collectionShadingIndex]);
-                        longArrayParam[i] = obj[0];
-                    }
-                    arrayParam = longArrayParam;
-                    break;
-                }
-                case "java.lang.Integer": {
-                    Integer[] integerArrayParam = new Integer[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        Integer[] obj = (Integer[]) (value.get(i)[collectionShadingIndex]);
-                        integerArrayParam[i] = obj[0];
+    /**
+     * 把集合参数按分片拆开，每个proxy对应一组参数
+     * 1）分片key中除了集合元素之外的部分（prefix和其他分片参数）只计算一次，逐个元素替换后选择proxy
+     * 2）List和数组保持元素的原始顺序，proxy按第一次出现的顺序排列
+     */
+    private Map<T, Object[]> splitByProxy(CollectionType collectionType, Method method, Object[] objects) throws Throwable {
+        int collectionIndex = getShadingCollectionParamIndex(method);
+        List<Integer> paramIndex = getShadingParamIndex(method);
+        byte[] prefix = getPrefix(method);
+        boolean hasPrefix = prefix != null && prefix.length > 0;
+        byte[][] key = new byte[paramIndex.size() + (hasPrefix ? 1 : 0)][];
+        int elementPos = -1;
+        int pos = 0;
+        if (hasPrefix) {
+            key[pos++] = prefix;
+        }
+        for (Integer index : paramIndex) {
+            if (index == collectionIndex) {
+                elementPos = pos;
+            } else {
+                key[pos] = toBytes(objects[index]);
+            }
+            pos ++;
+        }
+        Map<T, Object[]> finalProxyMap = new LinkedHashMap<>();
+        Object collection = objects[collectionIndex];
+        switch (collectionType) {
+            case LIST:
+            case SET: {
+                boolean isList = collectionType == CollectionType.LIST;
+                Map<T, Collection<Object>> groups = new LinkedHashMap<>();
+                for (Object element : (Collection<?>) collection) {
+                    key[elementPos] = toBytes(element);
+                    T proxy = proxyHub.chooseProxy(key);
+                    Collection<Object> group = groups.get(proxy);
+                    if (group == null) {
+                        group = isList ? new ArrayList<>() : new HashSet<>();
+                        groups.put(proxy, group);
                     }
-                    arrayParam = integerArrayParam;
-                    break;
+                    group.add(element);
                 }
-                case "java.lang.Byte": {
-                    Byte[] integerArrayParam = new Byte[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        Byte[] obj = (Byte[]) (value.get(i)[collectionShadingIndex]);
-                        integerArrayParam[i] = obj[0];
-                    }
-                    arrayParam = integerArrayParam;
-                    break;
+                for (Map.Entry<T, Collection<Object>> entry : groups.entrySet()) {
+                    Object[] param = copy(objects);
+                    param[collectionIndex] = entry.getValue();
+                    finalProxyMap.put(entry.getKey(), param);
                 }
-                case "long": {
-                    long[] longArrayParam = new long[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        long[] obj = (long[]) (value.get(i)[collectionShadingIndex]);
-                        longArrayParam[i] = obj[0];
+                return finalProxyMap;
+            }
+            case Map: {
+                Map<T, Map<Object, Object>> groups = new LinkedHashMap<>();
+                for (Map.Entry<?, ?> element : ((Map<?, ?>) collection).entrySet()) {
+                    key[elementPos] = toBytes(element.getKey());
+                    T proxy = proxyHub.chooseProxy(key);
+                    Map<Object, Object> group = groups.get(proxy);
+                    if (group == null) {
+                        group = new HashMap<>();
+                        groups.put(proxy, group);
                     }
-                    arrayParam = longArrayParam;
-                    break;
+                    group.put(element.getKey(), element.getValue());
                 }
-                case "int": {
-                    int[] intArrayParam = new int[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        int[] obj = (int[]) (value.get(i)[collectionShadingIndex]);
-                        intArrayParam[i] = obj[0];
-                    }
-                    arrayParam = intArrayParam;
-                    break;
+                for (Map.Entry<T, Map<Object, Object>> entry : groups.entrySet()) {
+                    Object[] param = copy(objects);
+                    param[collectionIndex] = entry.getValue();
+                    finalProxyMap.put(entry.getKey(), param);
                 }
-                case "byte": {
-                    byte[] byteArrayParam = new byte[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        byte[] obj = (byte[]) (value.get(i)[collectionShadingIndex]);
-                        byteArrayParam[i] = obj[0];
+                return finalProxyMap;
+            }
+            case ARRAY: {
+                //数组只记录下标，按组拷贝成同类型的数组
+                String name = getShadingCollectionParamArrayParamType(method);
+                int length = Array.getLength(collection);
+                Map<T, IndexList> groups = new LinkedHashMap<>();
+                for (int i=0; i<length; i++) {
+                    key[elementPos] = toBytes(arrayElement(name, collection, i));
+                    T proxy = proxyHub.chooseProxy(key);
+                    IndexList group = groups.get(proxy);
+                    if (group == null) {
+                        group = new IndexList();
+                        groups.put(proxy, group);
                     }
-                    arrayParam = byteArrayParam;
-                    break;
+                    group.add(i);
                 }
-                case "[B": {
-                    byte[][] byte2ArrayParam = new byte[value.size()][0];
-                    for (int i = 0; i < value.size(); i++) {
-                        byte[][] obj = (byte[][]) (value.get(i)[collectionShadingIndex]);
-                        byte2ArrayParam[i] = obj[0];
-                    }
-                    arrayParam = byte2ArrayParam;
-                    break;
+                for (Map.Entry<T, IndexList> entry : groups.entrySet()) {
+                    Object[] param = copy(objects);
+                    param[collectionIndex] = subArray(name, collection, entry.getValue());
+                    finalProxyMap.put(entry.getKey(), param);
                 }
-                default:
-                    throw new UnsupportedOperationException("Unsupported array param type");
+                return finalProxyMap;
             }
-
-            param[collectionShadingIndex] = arrayParam;
-            finalProxyMap.put(proxy, param);
+            default:
+                throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
         }
-        return finalProxyMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfSet(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) throws Throwable {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShadingIndex = getShadingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-            Set<Object> set = new HashSet<>();
-            for (Object[] obj : value) {
-                set.addAll((Set) obj[collectionShadingIndex]);
-            }
-            param[collectionShadingIndex] = set;
-            finalProxyMap.put(proxy, param);
+    //分片key只需要元素的字符串或者byte[]形式，byte[][]之外的类型都取装箱后的对象
+    private Object arrayElement(String name, Object array, int index) {
+        switch (name) {
+            case "[B":
+                return ((byte[][]) array)[index];
+            case "java.lang.String":
+            case "java.lang.Long":
+            case "java.lang.Integer":
+            case "java.lang.Byte":
+                return ((Object[]) array)[index];
+            case "long":
+                return ((long[]) array)[index];
+            case "int":
+                return ((int[]) array)[index];
+            case "byte":
+                return ((byte[]) array)[index];
+            default:
+                throw new UnsupportedOperationException("Unsupported array param type");
         }
-        return finalProxyMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfMap(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) throws Throwable {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShadingIndex = getShadingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-            Map<Object, Object> map1 = new HashMap<>();
-            for (Object[] obj : value) {
-                map1.putAll((Map) obj[collectionShadingIndex]);
+    private Object subArray(String name, Object array, IndexList indexList) {
+        int size = indexList.size;
+        int[] indexes = indexList.indexes;
+        switch (name) {
+            case "java.lang.String": {
+                String[] src = (String[]) array;
+                String[] dest = new String[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            case "java.lang.Long": {
+                Long[] src = (Long[]) array;
+                Long[] dest = new Long[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            case "java.lang.Integer": {
+                Integer[] src = (Integer[]) array;
+                Integer[] dest = new Integer[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            case "java.lang.Byte": {
+                Byte[] src = (Byte[]) array;
+                Byte[] dest = new Byte[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            case "long": {
+                long[] src = (long[]) array;
+                long[] dest = new long[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
             }
-            param[collectionShadingIndex] = map1;
-            finalProxyMap.put(proxy, param);
+            case "int": {
+                int[] src = (int[]) array;
+                int[] dest = new int[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            case "byte": {
+                byte[] src = (byte[]) array;
+                byte[] dest = new byte[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            case "[B": {
+                byte[][] src = (byte[][]) array;
+                byte[][] dest = new byte[size][];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[indexes[i]];
+                }
+                return dest;
+            }
+            default:
+                throw new UnsupportedOperationException("Unsupported array param type");
         }
-        return finalProxyMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfList(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) throws Throwable {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShadingIndex = getShadingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-            List<Object> list = new ArrayList<>();
-            for (Object[] obj : value) {
-                list.addAll((List) obj[collectionShadingIndex]);
+    private static class IndexList {
+        private int[] indexes = new int[16];
+        private int size;
+
+        void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
             }
-            param[collectionShadingIndex] = list;
-            finalProxyMap.put(proxy, param);
+            indexes[size++] = index;
         }
-        return finalProxyMap;
     }
 
-    private Object mergeResult(List<Object> results, Method method) {
-        if (results.size() == 1) return results.get(0);
+    private Object mergeResult(Object[] results, Method method) {
+        if (results.length == 1) return results[0];
         Class<?> returnType = method.getReturnType();
         if (Boolean.class.isAssignableFrom(returnType) || boolean.class.isAssignableFrom(returnType)) {
             for (Object result : results) {
@@ -337,9 +350,9 @@ public class ShadingCallback<T> implements MethodInterceptor {
             }
             return list;
         } else if (void.class.isAssignableFrom(returnType)) {
-            return results.get(0);
+            return results[0];
         } else {
-            return results.get(0);
+            return results[0];
         }
     }
 
@@ -349,212 +362,6 @@ public class ShadingCallback<T> implements MethodInterceptor {
         return copy;
     }
 
-    private Map<byte[][], Object[]> parseShadingArrayParam(Method method, Object[] objects) {
-        List<Integer> shadingParamIndex = getShadingParamIndex(method);
-        int shadingCollectionParamIndex = getShadingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        List<Object> arrayParamList = new ArrayList<>();
-        List<Object> arrayParamInnerList = new ArrayList<>();
-        Object arrayParam = objects[shadingCollectionParamIndex];
-        String name = getShadingCollectionParamArrayParamType(method);
-        switch (name) {
-            case "java.lang.String":
-                String[] strArr = (String[]) arrayParam;
-                for (String s : strArr) {
-                    arrayParamList.add(new String[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "java.lang.Integer":
-                Integer[] integerArr = (Integer[]) arrayParam;
-                for (Integer s : integerArr) {
-                    arrayParamList.add(new Integer[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "java.lang.Long":
-                Long[] longArr = (Long[]) arrayParam;
-                for (Long s : longArr) {
-                    arrayParamList.add(new Long[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "java.lang.Byte":
-                Byte[] byteArr = (Byte[]) arrayParam;
-                for (Byte s : byteArr) {
-                    arrayParamList.add(new Byte[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "int":
-                int[] intArr2 = (int[]) arrayParam;
-                for (int s : intArr2) {
-                    arrayParamList.add(new int[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "long":
-                long[] longArr2 = (long[]) arrayParam;
-                for (long s : longArr2) {
-                    arrayParamList.add(new long[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "byte":
-                byte[] byteArr2 = (byte[]) arrayParam;
-                for (byte s : byteArr2) {
-                    arrayParamList.add(new byte[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "[B":
-                byte[][] byteArr3 = (byte[][]) arrayParam;
-                for (byte[] s : byteArr3) {
-                    arrayParamList.add(new byte[][] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            default:
-                throw new UnsupportedOperationException("Unsupported array param type");
-        }
-        for (int i=0; i<arrayParamList.size(); i++) {
-            Object c = arrayParamList.get(i);
-            List<byte[]> shadingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shadingKey.add(prefix);
-            }
-            for (Integer index : shadingParamIndex) {
-                if (index == shadingCollectionParamIndex) {
-                    shadingKey.add(toBytes(arrayParamInnerList.get(i)));
-                } else {
-                    shadingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shadingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int j=0; j<objects.length; j++) {
-                if (j != shadingCollectionParamIndex) {
-                    param[j] = objects[j];
-                } else {
-                    param[j] = c;
-                }
-            }
-            map.put(key, param);
-        }
-        return map;
-    }
-
-    private Map<byte[][], Object[]> parseShadingSetParam(Method method, Object[] objects) {
-        List<Integer> shadingParamIndex = getShadingParamIndex(method);
-        int shadingCollectionParamIndex = getShadingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        Set setParam = (Set) objects[shadingCollectionParamIndex];
-        for (Object c : setParam) {
-            List<byte[]> shadingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shadingKey.add(prefix);
-            }
-            for (Integer index : shadingParamIndex) {
-                if (index == shadingCollectionParamIndex) {
-                    shadingKey.add(toBytes(c));
-                } else {
-                    shadingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shadingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int i=0; i<objects.length; i++) {
-                if (i != shadingCollectionParamIndex) {
-                    param[i] = objects[i];
-                } else {
-                    Set<Object> set = new HashSet<>();
-                    set.add(c);
-                    param[i] = set;
-                }
-            }
-            map.put(key, param);
-        }
-        return map;
-    }
-
-    private Map<byte[][], Object[]> parseShadingMapParam(Method method, Object[] objects) {
-        List<Integer> shadingParamIndex = getShadingParamIndex(method);
-        int shadingCollectionParamIndex = getShadingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        Map mapParam = (Map) objects[shadingCollectionParamIndex];
-        for (Object k : mapParam.keySet()) {
-            List<byte[]> shadingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shadingKey.add(prefix);
-            }
-            for (Integer index : shadingParamIndex) {
-                if (index == shadingCollectionParamIndex) {
-                    shadingKey.add(toBytes(k));
-                } else {
-                    shadingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shadingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int i=0; i<objects.length; i++) {
-                if (i != shadingCollectionParamIndex) {
-                    param[i] = objects[i];
-                } else {
-                    Map<Object, Object> map1 = new HashMap<>();
-                    map1.put(k, mapParam.get(k));
-                    param[i] = map1;
-                }
-            }
-            map.put(key, param);
-        }
-        return map;
-    }
-
-    private Map<byte[][], Object[]> parseShadingListParam(Method method, Object[] objects) {
-        List<Integer> shadingParamIndex = getShadingParamIndex(method);
-        int shadingCollectionParamIndex = getShadingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        List listParam = (List) objects[shadingCollectionParamIndex];
-        for (Object c : listParam) {
-            List<byte[]> shadingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shadingKey.add(prefix);
-            }
-            for (Integer index : shadingParamIndex) {
-                if (index == shadingCollectionParamIndex) {
-                    shadingKey.add(toBytes(c));
-                } else {
-                    shadingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shadingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int i=0; i<objects.length; i++) {
-                if (i != shadingCollectionParamIndex) {
-                    param[i] = objects[i];
-                } else {
-                    List<Object> list = new ArrayList<>();
-                    list.add(c);
-                    param[i] = list;
-                }
-            }
-            map.put(key, param);
-        }
-        return map;
-    }
-
     private byte[][] parseShadingSimple(Method method, Object[] objects) {
         List<Integer> paramIndex = getShadingParamIndex(method);
         List<byte[]> shadingKey = new ArrayList<>();
@@ -581,12 +388,12 @@ public class ShadingCallback<T> implements MethodInterceptor {
         }
     }
 
-    private Map<Method, List<Integer>> shadingParamIndex = new HashMap<>();
-    private Map<Method, Integer> shadingCollectionParamIndex = new HashMap<>();
-    private Map<Method, CollectionType> collectionTypeMap = new HashMap<>();
-    private Map<Method, byte[]> prefixCache = new HashMap<>();
-    private Map<Method, Boolean> isOpMethodCache = new HashMap<>();
-    private Map<Method, String> shadingCollectionParamArrayParamType = new HashMap<>();
+    private final Map<Method, List<Integer>> shadingParamIndex = new ConcurrentHashMap<>();
+    private final Map<Method, Integer> shadingCollectionParamIndex = new ConcurrentHashMap<>();
+    private final Map<Method, CollectionType> collectionTypeMap = new ConcurrentHashMap<>();
+    private final Map<Method, byte[]> prefixCache = new ConcurrentHashMap<>();
+    private final Map<Method, Boolean> isOpMethodCache = new ConcurrentHashMap<>();
+    private final Map<Method, String> shadingCollectionParamArrayParamType = new ConcurrentHashMap<>();
 
     private byte[] getPrefix(Method method) {
         byte[] prefix = prefixCache.get(method);
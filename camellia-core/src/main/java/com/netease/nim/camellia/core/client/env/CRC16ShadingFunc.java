@@ -0,0 +1,48 @@
+package com.netease.nim.camellia.core.client.env;
+
+/**
+ * 和redis-cluster一致的分片函数（CRC16-XMODEM），支持{hashtag}
+ * 配合bucketSize=16384使用时，key所属的分片和redis-cluster的slot一致
+ */
+public class CRC16ShadingFunc extends AbstractSimpleShadingFunc {
+
+    private static final int[] LOOKUP_TABLE = new int[256];
+
+    static {
+        for (int i=0; i<256; i++) {
+            int crc = i << 8;
+            for (int j=0; j<8; j++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            LOOKUP_TABLE[i] = crc & 0xffff;
+        }
+    }
+
+    @Override
+    public int shadingCode(byte[] key) {
+        if (key == null) return 0;
+        int s = -1;
+        int e = -1;
+        for (int i=0; i<key.length; i++) {
+            if (key[i] == '{' && s == -1) {
+                s = i;
+            } else if (key[i] == '}' && s != -1) {
+                e = i;
+                break;
+            }
+        }
+        //和redis-cluster一样，{}中间为空时使用整个key
+        if (s > -1 && e > s + 1) {
+            return crc16(key, s + 1, e);
+        }
+        return crc16(key, 0, key.length);
+    }
+
+    private static int crc16(byte[] bytes, int s, int e) {
+        int crc = 0x0000;
+        for (int i = s; i < e; i++) {
+            crc = ((crc << 8) ^ LOOKUP_TABLE[((crc >>> 8) ^ (bytes[i] & 0xFF)) & 0xFF]);
+        }
+        return crc & 0xFFFF;
+    }
+}
@@ -0,0 +1,14 @@
+package com.netease.nim.camellia.core.client.env;
+
+import com.netease.nim.camellia.core.util.StripedCounter;
+
+/**
+ * 支持预先获取计数器的Monitor
+ * 调用方对同一个(resource, className, methodName)只获取一次计数器并缓存，之后直接计数，不需要每次都查找
+ */
+public interface CounterMonitor extends Monitor {
+
+    StripedCounter writeCounter(String resource, String className, String methodName);
+
+    StripedCounter readCounter(String resource, String className, String methodName);
+}
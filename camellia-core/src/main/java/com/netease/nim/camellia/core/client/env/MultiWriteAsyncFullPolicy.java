@@ -0,0 +1,23 @@
+package com.netease.nim.camellia.core.client.env;
+
+/**
+ * FIRST_RESOURCE_ONLY模式下，异步写队列满时的处理策略
+ */
+public enum MultiWriteAsyncFullPolicy {
+
+    /**
+     * 直接丢弃并计数，不阻塞业务线程，默认
+     */
+    DROP,
+
+    /**
+     * 阻塞业务线程直到队列有空位，不丢数据，但副本变慢时会拖慢业务
+     */
+    BLOCK,
+
+    /**
+     * 在业务线程中同步执行，不丢数据，但同一个资源上的写入顺序不再保证
+     */
+    CALLER_RUNS,
+    ;
+}
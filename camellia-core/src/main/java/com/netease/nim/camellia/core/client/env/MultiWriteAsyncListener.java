@@ -0,0 +1,28 @@
+package com.netease.nim.camellia.core.client.env;
+
+/**
+ * FIRST_RESOURCE_ONLY模式下异步写的事件回调，和Monitor的读写统计分开，不会被计为资源上的写请求
+ * 回调在业务线程或者异步写线程中执行，需要尽快返回
+ */
+public interface MultiWriteAsyncListener {
+
+    /**
+     * 队列满，写操作被丢弃
+     * @param resource 资源url
+     */
+    void onDrop(String resource);
+
+    /**
+     * 写操作执行失败
+     * @param resource 资源url
+     * @param e 异常
+     */
+    void onFail(String resource, Throwable e);
+
+    /**
+     * 写操作从提交到开始执行的耗时超过1s
+     * @param resource 资源url
+     * @param lagMillis 耗时
+     */
+    void onLag(String resource, long lagMillis);
+}
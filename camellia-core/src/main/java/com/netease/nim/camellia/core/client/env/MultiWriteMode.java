@@ -0,0 +1,25 @@
+package com.netease.nim.camellia.core.client.env;
+
+/**
+ * 多写（ResourceWriteOperation.Type.MULTI）的一致性策略，和camellia-redis-proxy的multi-write-mode含义一致
+ */
+public enum MultiWriteMode {
+
+    /**
+     * 同步写第一个资源，成功后其他资源放到异步队列中写，只返回第一个资源的结果
+     * 队列满时默认丢弃（可以配置为阻塞或者在业务线程中执行），异步写失败只记录日志和计数，见MultiWriteAsyncExecutor
+     * 方法参数在返回之后仍会被异步线程使用，调用方不能复用或者修改
+     */
+    FIRST_RESOURCE_ONLY,
+
+    /**
+     * 所有资源都写完再返回第一个资源的结果，第一个资源之外的写失败只记录日志
+     */
+    ALL_RESOURCES_NO_CHECK,
+
+    /**
+     * 所有资源都写完再返回第一个资源的结果，任意一个资源写失败都抛出异常，默认
+     */
+    ALL_RESOURCES_CHECK_ERROR,
+    ;
+}
@@ -0,0 +1,15 @@
+package com.netease.nim.camellia.core.client.env;
+
+import com.netease.nim.camellia.core.util.MurmurHash3;
+
+/**
+ * 基于murmur3_32的分片函数，分布比DefaultShadingFunc更均匀
+ */
+public class Murmur3ShadingFunc extends AbstractSimpleShadingFunc {
+
+    @Override
+    public int shadingCode(byte[] key) {
+        if (key == null) return 0;
+        return MurmurHash3.hash32(key) & 0x7fffffff;
+    }
+}
@@ -13,4 +13,9 @@ public class ProxyConstants {
     public static final int shadingConcurrentExecPoolSize = SysUtils.getCpuNum() * 16;
     public static final boolean multiWriteConcurrentEnable = true;
     public static final int multiWriteConcurrentExecPoolSize = SysUtils.getCpuNum() * 16;
+    public static final MultiWriteMode multiWriteMode = MultiWriteMode.ALL_RESOURCES_CHECK_ERROR;
+    public static final int multiWriteAsyncExecPoolSize = SysUtils.getCpuNum();
+    public static final int multiWriteAsyncQueueSize = 100000;
+    public static final int multiWriteAsyncThreadsPerResource = 1;
+    public static final MultiWriteAsyncFullPolicy multiWriteAsyncFullPolicy = MultiWriteAsyncFullPolicy.DROP;
 }
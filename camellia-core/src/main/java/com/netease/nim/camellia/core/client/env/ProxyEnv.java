@@ -1,5 +1,6 @@
 package com.netease.nim.camellia.core.client.env;
 
+import com.netease.nim.camellia.core.client.callback.MultiWriteAsyncExecutor;
 import com.netease.nim.camellia.core.client.callback.OperationCallback;
 import com.netease.nim.camellia.core.client.callback.ShadingCallback;
 import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
@@ -28,6 +29,20 @@ public class ProxyEnv {
     private int multiWriteConcurrentExecPoolSize = ProxyConstants.multiWriteConcurrentExecPoolSize;
     //多写操作的并发线程池
     private ExecutorService multiWriteConcurrentExec;
+    //多写的一致性策略，默认ALL_RESOURCES_CHECK_ERROR
+    private MultiWriteMode multiWriteMode = ProxyConstants.multiWriteMode;
+    //FIRST_RESOURCE_ONLY模式下异步写的线程数，每个线程一个队列，同一个资源固定在一个队列中
+    private int multiWriteAsyncExecPoolSize = ProxyConstants.multiWriteAsyncExecPoolSize;
+    //FIRST_RESOURCE_ONLY模式下每个异步写队列的大小
+    private int multiWriteAsyncQueueSize = ProxyConstants.multiWriteAsyncQueueSize;
+    //FIRST_RESOURCE_ONLY模式下每个资源可以使用的异步写线程数，默认1，大于1时同一个资源上的写入顺序不再保证
+    private int multiWriteAsyncThreadsPerResource = ProxyConstants.multiWriteAsyncThreadsPerResource;
+    //FIRST_RESOURCE_ONLY模式下异步写队列满时的处理策略，默认丢弃
+    private MultiWriteAsyncFullPolicy multiWriteAsyncFullPolicy = ProxyConstants.multiWriteAsyncFullPolicy;
+    //FIRST_RESOURCE_ONLY模式下异步写的丢弃、失败、延迟事件回调，若为null，表示不回调
+    private MultiWriteAsyncListener multiWriteAsyncListener;
+    //FIRST_RESOURCE_ONLY模式下的异步写线程池
+    private MultiWriteAsyncExecutor multiWriteAsyncExec;
 
     //监控bean，若为null，表示不监控
     private Monitor monitor;
@@ -40,11 +55,19 @@ public class ProxyEnv {
     }
 
     private ProxyEnv(boolean shadingConcurrentEnable, int shadingConcurrentExecPoolSize, boolean multiWriteConcurrentEnable,
-                    int multiWriteConcurrentExecPoolSize, Monitor monitor, ShadingFunc shadingFunc) {
+                    int multiWriteConcurrentExecPoolSize, MultiWriteMode multiWriteMode, int multiWriteAsyncExecPoolSize,
+                    int multiWriteAsyncQueueSize, int multiWriteAsyncThreadsPerResource, MultiWriteAsyncFullPolicy multiWriteAsyncFullPolicy,
+                    MultiWriteAsyncListener multiWriteAsyncListener, Monitor monitor, ShadingFunc shadingFunc) {
         this.shadingConcurrentEnable = shadingConcurrentEnable;
         this.shadingConcurrentExecPoolSize = shadingConcurrentExecPoolSize;
         this.multiWriteConcurrentEnable = multiWriteConcurrentEnable;
         this.multiWriteConcurrentExecPoolSize = multiWriteConcurrentExecPoolSize;
+        this.multiWriteMode = multiWriteMode;
+        this.multiWriteAsyncExecPoolSize = multiWriteAsyncExecPoolSize;
+        this.multiWriteAsyncQueueSize = multiWriteAsyncQueueSize;
+        this.multiWriteAsyncThreadsPerResource = multiWriteAsyncThreadsPerResource;
+        this.multiWriteAsyncFullPolicy = multiWriteAsyncFullPolicy;
+        this.multiWriteAsyncListener = multiWriteAsyncListener;
         this.monitor = monitor;
         this.shadingFunc = shadingFunc;
         initExec();
@@ -55,6 +78,12 @@ public class ProxyEnv {
                 new SynchronousQueue<Runnable>(), new CamelliaThreadFactory(ShadingCallback.class), new ThreadPoolExecutor.CallerRunsPolicy());
         multiWriteConcurrentExec = new ThreadPoolExecutor(multiWriteConcurrentExecPoolSize, multiWriteConcurrentExecPoolSize, 0, TimeUnit.SECONDS,
                 new SynchronousQueue<Runnable>(), new CamelliaThreadFactory(OperationCallback.class), new ThreadPoolExecutor.CallerRunsPolicy());
+        multiWriteAsyncExec = newMultiWriteAsyncExec();
+    }
+
+    private MultiWriteAsyncExecutor newMultiWriteAsyncExec() {
+        return new MultiWriteAsyncExecutor(multiWriteAsyncExecPoolSize, multiWriteAsyncQueueSize,
+                multiWriteAsyncThreadsPerResource, multiWriteAsyncFullPolicy, multiWriteAsyncListener);
     }
 
     public static ProxyEnv defaultProxyEnv() {
@@ -77,6 +106,14 @@ public class ProxyEnv {
         return multiWriteConcurrentExec;
     }
 
+    public MultiWriteMode getMultiWriteMode() {
+        return multiWriteMode;
+    }
+
+    public MultiWriteAsyncExecutor getMultiWriteAsyncExec() {
+        return multiWriteAsyncExec;
+    }
+
     public Monitor getMonitor() {
         return monitor;
     }
@@ -95,9 +132,12 @@ public class ProxyEnv {
 
         public Builder(ProxyEnv proxyEnv) {
             this.proxyEnv = new ProxyEnv(proxyEnv.shadingConcurrentEnable, proxyEnv.shadingConcurrentExecPoolSize, proxyEnv.multiWriteConcurrentEnable,
-                    proxyEnv.multiWriteConcurrentExecPoolSize, proxyEnv.monitor, proxyEnv.shadingFunc);
+                    proxyEnv.multiWriteConcurrentExecPoolSize, proxyEnv.multiWriteMode, proxyEnv.multiWriteAsyncExecPoolSize,
+                    proxyEnv.multiWriteAsyncQueueSize, proxyEnv.multiWriteAsyncThreadsPerResource, proxyEnv.multiWriteAsyncFullPolicy,
+                    proxyEnv.multiWriteAsyncListener, proxyEnv.monitor, proxyEnv.shadingFunc);
             this.proxyEnv.shadingConcurrentExec = proxyEnv.shadingConcurrentExec;
             this.proxyEnv.multiWriteConcurrentExec = proxyEnv.multiWriteConcurrentExec;
+            this.proxyEnv.multiWriteAsyncExec = proxyEnv.multiWriteAsyncExec;
         }
 
         public Builder shadingConcurrentEnable(boolean shadingConcurrentEnable) {
@@ -124,6 +164,48 @@ public class ProxyEnv {
             return this;
         }
 
+        public Builder multiWriteMode(MultiWriteMode multiWriteMode) {
+            if (multiWriteMode != null) {
+                proxyEnv.multiWriteMode = multiWriteMode;
+            }
+            return this;
+        }
+
+        public Builder multiWriteAsyncExecPoolSize(int multiWriteAsyncExecPoolSize) {
+            if (multiWriteAsyncExecPoolSize > 0) {
+                proxyEnv.multiWriteAsyncExecPoolSize = multiWriteAsyncExecPoolSize;
+            }
+            return this;
+        }
+
+        public Builder multiWriteAsyncQueueSize(int multiWriteAsyncQueueSize) {
+            if (multiWriteAsyncQueueSize > 0) {
+                proxyEnv.multiWriteAsyncQueueSize = multiWriteAsyncQueueSize;
+            }
+            return this;
+        }
+
+        public Builder multiWriteAsyncThreadsPerResource(int multiWriteAsyncThreadsPerResource) {
+            if (multiWriteAsyncThreadsPerResource > 0) {
+                proxyEnv.multiWriteAsyncThreadsPerResource = multiWriteAsyncThreadsPerResource;
+            }
+            return this;
+        }
+
+        public Builder multiWriteAsyncFullPolicy(MultiWriteAsyncFullPolicy multiWriteAsyncFullPolicy) {
+            if (multiWriteAsyncFullPolicy != null) {
+                proxyEnv.multiWriteAsyncFullPolicy = multiWriteAsyncFullPolicy;
+            }
+            return this;
+        }
+
+        public Builder multiWriteAsyncListener(MultiWriteAsyncListener multiWriteAsyncListener) {
+            if (multiWriteAsyncListener != null) {
+                proxyEnv.multiWriteAsyncListener = multiWriteAsyncListener;
+            }
+            return this;
+        }
+
         public Builder monitor(Monitor monitor) {
             if (monitor != null) {
                 proxyEnv.monitor = monitor;
@@ -139,6 +221,13 @@ public class ProxyEnv {
         }
 
         public ProxyEnv build() {
+            MultiWriteAsyncExecutor asyncExec = proxyEnv.multiWriteAsyncExec;
+            //异步写线程池持有配置和listener，任意一个变化都需要重建
+            if (asyncExec.getPoolSize() != proxyEnv.multiWriteAsyncExecPoolSize || asyncExec.getQueueSize() != proxyEnv.multiWriteAsyncQueueSize
+                    || asyncExec.getThreadsPerResource() != Math.min(proxyEnv.multiWriteAsyncThreadsPerResource, proxyEnv.multiWriteAsyncExecPoolSize)
+                    || asyncExec.getFullPolicy() != proxyEnv.multiWriteAsyncFullPolicy || asyncExec.getListener() != proxyEnv.multiWriteAsyncListener) {
+                proxyEnv.multiWriteAsyncExec = proxyEnv.newMultiWriteAsyncExec();
+            }
             return proxyEnv;
         }
     }
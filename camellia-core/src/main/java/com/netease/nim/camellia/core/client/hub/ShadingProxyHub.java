@@ -2,7 +2,8 @@ package com.netease.nim.camellia.core.client.hub;
 
 
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
-import com.netease.nim.camellia.core.util.MathUtil;
+import com.netease.nim.camellia.core.model.ResourceTable;
+import com.netease.nim.camellia.core.util.ShadingBucketChooser;
 
 import java.util.Map;
 
@@ -12,12 +13,15 @@ import java.util.Map;
  */
 public class ShadingProxyHub<T> implements IProxyHub<T> {
 
-    private int bucketSize;
     private Object[] proxyArray;
-    private boolean is2Power;
+    private ShadingBucketChooser bucketChooser;
     private ProxyEnv env;
 
     public ShadingProxyHub(int bucketSize, Map<Integer, T> proxyMap, ProxyEnv env) {
+        this(bucketSize, ResourceTable.BucketFunc.MOD, proxyMap, env);
+    }
+
+    public ShadingProxyHub(int bucketSize, ResourceTable.BucketFunc bucketFunc, Map<Integer, T> proxyMap, ProxyEnv env) {
         if (env == null) {
             throw new IllegalArgumentException("env is null");
         }
@@ -38,18 +42,14 @@ public class ShadingProxyHub<T> implements IProxyHub<T> {
             }
             proxyArray[i] = proxy;
         }
-        this.bucketSize = bucketSize;
-        this.is2Power = MathUtil.is2Power(bucketSize);
+        this.bucketChooser = new ShadingBucketChooser(bucketSize, bucketFunc);
         this.env = env;
     }
 
     @Override
     public T chooseProxy(byte[]... key) {
         int code = env.getShadingFunc().shadingCode(key);
-        if (code < 0) {
-            code = -code;
-        }
-        int index = MathUtil.mod(is2Power, code, bucketSize);
+        int index = bucketChooser.chooseBucket(code);
         return (T) proxyArray[index];
     }
 
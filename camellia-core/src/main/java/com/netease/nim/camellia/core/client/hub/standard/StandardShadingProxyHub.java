@@ -54,7 +54,7 @@ public class StandardShadingProxyHub<T> implements IProxyHub<T> {
                 map.put(resourceOperation, proxy);
             }
             int bucketSize = shadingTable.getBucketSize();
-            this.shadingProxyHub = new ShadingProxyHub<>(bucketSize, proxyMap, env);
+            this.shadingProxyHub = new ShadingProxyHub<>(bucketSize, shadingTable.getBucketFunc(), proxyMap, env);
         } catch (Exception e) {
             throw new IllegalArgumentException(e);
         }
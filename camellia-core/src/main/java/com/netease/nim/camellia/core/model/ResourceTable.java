@@ -58,8 +58,19 @@ public class ResourceTable {
         }
     }
 
+    //分片哈希值到分片下标的映射方式
+    public static enum BucketFunc {
+        //取余，默认
+        MOD,
+        //jump consistent hash，分片只在末尾增减时，只有约1/bucketSize的key需要迁移
+        JUMP_HASH,
+        ;
+    }
+
     public static class ShadingTable {
         private int bucketSize;
+        //为null表示MOD
+        private BucketFunc bucketFunc;
         private Map<Integer, ResourceOperation> resourceOperationMap = new HashMap<>();
 
         public int getBucketSize() {
@@ -70,6 +81,14 @@ public class ResourceTable {
             this.bucketSize = bucketSize;
         }
 
+        public BucketFunc getBucketFunc() {
+            return bucketFunc;
+        }
+
+        public void setBucketFunc(BucketFunc bucketFunc) {
+            this.bucketFunc = bucketFunc;
+        }
+
         public Map<Integer, ResourceOperation> getResourceOperationMap() {
             return resourceOperationMap;
         }
@@ -0,0 +1,53 @@
+package com.netease.nim.camellia.core.util;
+
+/**
+ * murmur3_32的实现，用于分片函数（Murmur3ShadingFunc）
+ */
+public class MurmurHash3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    public static int hash32(byte[] data) {
+        return hash32(data, 0, data.length, 0);
+    }
+
+    public static int hash32(byte[] data, int offset, int len, int seed) {
+        int h1 = seed;
+        int roundedEnd = offset + (len & 0xfffffffc);
+        for (int i = offset; i < roundedEnd; i += 4) {
+            int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            k1 *= C1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        int k1 = 0;
+        switch (len & 0x03) {
+            case 3:
+                k1 = (data[roundedEnd + 2] & 0xff) << 16;
+            case 2:
+                k1 |= (data[roundedEnd + 1] & 0xff) << 8;
+            case 1:
+                k1 |= (data[roundedEnd] & 0xff);
+                k1 *= C1;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= C2;
+                h1 ^= k1;
+        }
+        h1 ^= len;
+        return fmix32(h1);
+    }
+
+    //murmur3的最终混淆步骤，单独使用时可以把分布不均匀的int打散
+    public static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -44,6 +44,10 @@ public class ReadableResourceTableUtil {
             ResourceTable.ShadingTable shadingTable = new ResourceTable.ShadingTable();
             JSONObject operation = jsonObject.getJSONObject("operation");
             shadingTable.setBucketSize(operation.getInteger("bucketSize"));
+            String bucketFunc = operation.getString("bucketFunc");
+            if (bucketFunc != null) {
+                shadingTable.setBucketFunc(ResourceTable.BucketFunc.valueOf(bucketFunc.toUpperCase()));
+            }
             JSONObject operationMap = operation.getJSONObject("operationMap");
             Map<Integer, ResourceOperation> map = new HashMap<>();
             for (Map.Entry<String, Object> entry : operationMap.entrySet()) {
@@ -80,6 +84,10 @@ public class ReadableResourceTableUtil {
             ResourceTable.ShadingTable shadingTable = resourceTable.getShadingTable();
             JSONObject shadingJson = new JSONObject();
             shadingJson.put("bucketSize", shadingTable.getBucketSize());
+            ResourceTable.BucketFunc bucketFunc = shadingTable.getBucketFunc();
+            if (bucketFunc != null && bucketFunc != ResourceTable.BucketFunc.MOD) {
+                shadingJson.put("bucketFunc", bucketFunc.name().toLowerCase());
+            }
             Map<ResourceOperation, List<Integer>> map = new HashMap<>();
             for (Map.Entry<Integer, ResourceOperation> entry : shadingTable.getResourceOperationMap().entrySet()) {
                 List<Integer> list = map.get(entry.getValue());
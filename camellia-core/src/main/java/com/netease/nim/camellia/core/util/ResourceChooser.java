@@ -18,11 +18,14 @@ public class ResourceChooser {
     private final ResourceTable resourceTable;
     private final ProxyEnv proxyEnv;
 
-    private ReadResourceBean readResourceBean = null;
-    private Resource readResource = null;
-    private List<Resource> writeResources = null;
+    //simple
+    private ReadResourceBean readResourceBean;
+    private List<Resource> writeResources;
 
-    private boolean bucketSizeIs2Power = false;
+    //shading，构造时按分片下标预先展开，选路只需要计算分片下标后取数组元素
+    private ShadingBucketChooser bucketChooser;
+    private ReadResourceBean[] readResourceBeans;
+    private List<Resource>[] writeResourcesArray;
 
     private final Set<Resource> allResources;
 
@@ -32,9 +35,35 @@ public class ResourceChooser {
         this.resourceTable = resourceTable;
         this.proxyEnv = proxyEnv;
         ResourceTable.Type type = resourceTable.getType();
-        if (type == ResourceTable.Type.SHADING) {
-            int bucketSize = resourceTable.getShadingTable().getBucketSize();
-            bucketSizeIs2Power = MathUtil.is2Power(bucketSize);
+        if (type == ResourceTable.Type.SIMPLE) {
+            ResourceOperation resourceOperation = resourceTable.getSimpleTable().getResourceOperation();
+            this.readResourceBean = getReadResourcesFromOperation(resourceOperation);
+            this.writeResources = getWriteResourcesFromOperation(resourceOperation);
+        } else if (type == ResourceTable.Type.SHADING) {
+            ResourceTable.ShadingTable shadingTable = resourceTable.getShadingTable();
+            this.bucketChooser = new ShadingBucketChooser(shadingTable);
+            int bucketSize = shadingTable.getBucketSize();
+            Map<Integer, ResourceOperation> operationMap = shadingTable.getResourceOperationMap();
+            this.readResourceBeans = new ReadResourceBean[bucketSize];
+            this.writeResourcesArray = new List[bucketSize];
+            //多个分片往往指向同一个ResourceOperation，复用展开结果
+            Map<ResourceOperation, ReadResourceBean> readCache = new HashMap<>();
+            Map<ResourceOperation, List<Resource>> writeCache = new HashMap<>();
+            for (int i=0; i<bucketSize; i++) {
+                ResourceOperation resourceOperation = operationMap.get(i);
+                ReadResourceBean readBean = readCache.get(resourceOperation);
+                if (readBean == null) {
+                    readBean = getReadResourcesFromOperation(resourceOperation);
+                    readCache.put(resourceOperation, readBean);
+                }
+                List<Resource> writeList = writeCache.get(resourceOperation);
+                if (writeList == null) {
+                    writeList = getWriteResourcesFromOperation(resourceOperation);
+                    writeCache.put(resourceOperation, writeList);
+                }
+                readResourceBeans[i] = readBean;
+                writeResourcesArray[i] = writeList;
+            }
         }
         this.allResources = ResourceUtil.getAllResources(resourceTable);
     }
@@ -56,70 +85,31 @@ public class ResourceChooser {
     }
 
     public Resource getReadResource(byte[]... shadingParam) {
-        if (readResource != null) {
-            return readResource;
-        }
-        ResourceTable.Type type = resourceTable.getType();
-        if (type == ResourceTable.Type.SIMPLE) {
-            ReadResourceBean readResourceBean = _getReadResources(shadingParam);
-            if (readResourceBean == null) return null;
-            if (!readResourceBean.needRandom || readResourceBean.resources.size() == 1) {
-                readResource = readResourceBean.resources.get(0);
-                return readResource;
-            } else {
-                int index = ThreadLocalRandom.current().nextInt(readResourceBean.resources.size());
-                return readResourceBean.resources.get(index);
-            }
-        } else {
-            ReadResourceBean readResourceBean = _getReadResources(shadingParam);
-            if (readResourceBean == null) return null;
-            if (!readResourceBean.needRandom || readResourceBean.resources.size() == 1) {
-                return readResourceBean.resources.get(0);
-            } else {
-                int index = ThreadLocalRandom.current().nextInt(readResourceBean.resources.size());
-                return readResourceBean.resources.get(index);
-            }
+        ReadResourceBean readResourceBean = _getReadResources(shadingParam);
+        if (readResourceBean == null) return null;
+        List<Resource> resources = readResourceBean.resources;
+        if (!readResourceBean.needRandom || resources.size() == 1) {
+            return resources.get(0);
         }
+        int index = ThreadLocalRandom.current().nextInt(resources.size());
+        return resources.get(index);
     }
 
     private ReadResourceBean _getReadResources(byte[]... shadingParam) {
         if (readResourceBean != null) {
             return readResourceBean;
         }
-        ResourceTable.Type type = resourceTable.getType();
-        if (type == ResourceTable.Type.SIMPLE) {
-            ResourceTable.SimpleTable simpleTable = resourceTable.getSimpleTable();
-            ResourceOperation resourceOperation = simpleTable.getResourceOperation();
-            this.readResourceBean = getReadResourcesFromOperation(resourceOperation);
-            return this.readResourceBean;
-        } else {
-            int shadingCode = proxyEnv.getShadingFunc().shadingCode(shadingParam);
-            ResourceTable.ShadingTable shadingTable = resourceTable.getShadingTable();
-            int bucketSize = shadingTable.getBucketSize();
-            Map<Integer, ResourceOperation> operationMap = shadingTable.getResourceOperationMap();
-            int index = MathUtil.mod(bucketSizeIs2Power, Math.abs(shadingCode), bucketSize);
-            ResourceOperation resourceOperation = operationMap.get(index);
-            return getReadResourcesFromOperation(resourceOperation);
-        }
+        int shadingCode = proxyEnv.getShadingFunc().shadingCode(shadingParam);
+        return readResourceBeans[bucketChooser.chooseBucket(shadingCode)];
     }
 
+    /**
+     * 返回的list是构造时预先计算好的，不可修改
+     */
     public List<Resource> getWriteResources(byte[]... shadingParam) {
         if (writeResources != null) return writeResources;
-        ResourceTable.Type type = resourceTable.getType();
-        if (type == ResourceTable.Type.SIMPLE) {
-            ResourceTable.SimpleTable simpleTable = resourceTable.getSimpleTable();
-            ResourceOperation resourceOperation = simpleTable.getResourceOperation();
-            this.writeResources = getWriteResourcesFromOperation(resourceOperation);
-            return this.writeResources;
-        } else {
-            int shadingCode = proxyEnv.getShadingFunc().shadingCode(shadingParam);
-            ResourceTable.ShadingTable shadingTable = resourceTable.getShadingTable();
-            int bucketSize = shadingTable.getBucketSize();
-            Map<Integer, ResourceOperation> operationMap = shadingTable.getResourceOperationMap();
-            int index = MathUtil.mod(bucketSizeIs2Power, Math.abs(shadingCode), bucketSize);
-            ResourceOperation resourceOperation = operationMap.get(index);
-            return getWriteResourcesFromOperation(resourceOperation);
-        }
+        int shadingCode = proxyEnv.getShadingFunc().shadingCode(shadingParam);
+        return writeResourcesArray[bucketChooser.chooseBucket(shadingCode)];
     }
 
     private ReadResourceBean getReadResourcesFromOperation(ResourceOperation resourceOperation) {
@@ -133,10 +123,10 @@ public class ResourceChooser {
                 return new ReadResourceBean(false, Collections.singletonList(readOperation.getReadResource()));
             } else if (readOperationType == ResourceReadOperation.Type.ORDER) {
                 List<Resource> readResources = readOperation.getReadResources();
-                return new ReadResourceBean(false, readResources);
+                return new ReadResourceBean(false, Collections.unmodifiableList(new ArrayList<>(readResources)));
             } else if (readOperationType == ResourceReadOperation.Type.RANDOM) {
                 List<Resource> readResources = readOperation.getReadResources();
-                return new ReadResourceBean(true, readResources);
+                return new ReadResourceBean(true, Collections.unmodifiableList(new ArrayList<>(readResources)));
             }
         }
         throw new IllegalArgumentException();
@@ -153,7 +143,7 @@ public class ResourceChooser {
                 return Collections.singletonList(writeOperation.getWriteResource());
             } else if (writeOperationType == ResourceWriteOperation.Type.MULTI) {
                 List<Resource> writeResources = writeOperation.getWriteResources();
-                return new ArrayList<>(writeResources);
+                return Collections.unmodifiableList(new ArrayList<>(writeResources));
             }
         }
         throw new IllegalArgumentException();
@@ -40,6 +40,7 @@ public class ResourceTransferUtil {
             ResourceTable.ShadingTable shadingTable = resourceTable.getShadingTable();
             ResourceTable.ShadingTable newShadingTable = new ResourceTable.ShadingTable();
             newShadingTable.setBucketSize(shadingTable.getBucketSize());
+            newShadingTable.setBucketFunc(shadingTable.getBucketFunc());
             Map<Integer, ResourceOperation> map = new HashMap<>();
             for (Map.Entry<Integer, ResourceOperation> entry : shadingTable.getResourceOperationMap().entrySet()) {
                 Integer key = entry.getKey();
@@ -0,0 +1,74 @@
+package com.netease.nim.camellia.core.util;
+
+import com.netease.nim.camellia.core.model.ResourceTable;
+
+/**
+ * 根据分片函数算出来的哈希值计算分片下标
+ * 1）MOD，取余，bucketSize变化时绝大部分key都会迁移
+ * 2）JUMP_HASH，jump consistent hash（Lamping & Veach），不占用内存，bucketSize从N变成N+1时只有约1/(N+1)的key迁移到新分片
+ *   分片下标要求是连续的0~bucketSize-1，本身就只能在末尾增减分片
+ */
+public class ShadingBucketChooser {
+
+    private final int bucketSize;
+    private final ResourceTable.BucketFunc bucketFunc;
+    private final boolean is2Power;
+
+    public ShadingBucketChooser(int bucketSize, ResourceTable.BucketFunc bucketFunc) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("bucketSize <= 0");
+        }
+        this.bucketSize = bucketSize;
+        this.bucketFunc = bucketFunc == null ? ResourceTable.BucketFunc.MOD : bucketFunc;
+        this.is2Power = MathUtil.is2Power(bucketSize);
+    }
+
+    public ShadingBucketChooser(ResourceTable.ShadingTable shadingTable) {
+        this(shadingTable.getBucketSize(), shadingTable.getBucketFunc());
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    public ResourceTable.BucketFunc getBucketFunc() {
+        return bucketFunc;
+    }
+
+    /**
+     * 计算分片下标
+     * @param shadingCode 分片函数的返回值
+     * @return [0, bucketSize)
+     */
+    public int chooseBucket(int shadingCode) {
+        switch (bucketFunc) {
+            case JUMP_HASH:
+                return jumpHash(shadingCode, bucketSize);
+            case MOD:
+            default:
+                int code = shadingCode;
+                if (code < 0) {
+                    code = -code;
+                }
+                //Integer.MIN_VALUE取反后仍然是负数
+                if (code < 0) {
+                    code = 0;
+                }
+                return MathUtil.mod(is2Power, code, bucketSize);
+        }
+    }
+
+    //jump consistent hash，分片函数的返回值只有31位且可能分布不均匀，先打散成64位的key
+    static int jumpHash(int shadingCode, int buckets) {
+        long key = (shadingCode & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+        key ^= key >>> 31;
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+}
@@ -0,0 +1,63 @@
+package com.netease.nim.camellia.core.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器，类似jdk8的LongAdder（core需要兼容jdk7）
+ * 不同线程按线程id落到不同的分段上，减少多线程高频计数时的cas竞争，读取时再汇总
+ */
+public class StripedCounter {
+
+    //每个分段占一个缓存行（8个long，64字节），避免伪共享
+    private static final int PAD = 8;
+    //分段数取cpu核数向上取整到2的N次幂，最多16个，单个计数器最多占用1k内存
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long x) {
+        cells.getAndAdd(index(), x);
+    }
+
+    /**
+     * 当前的计数值，并发修改时不保证是精确的快照
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i=0; i<STRIPES; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * 汇总并清零，每个分段原子的取出并置0，不会丢失计数
+     */
+    public long sumThenReset() {
+        long sum = 0;
+        for (int i=0; i<STRIPES; i++) {
+            sum += cells.getAndSet(i * PAD, 0);
+        }
+        return sum;
+    }
+
+    private static int index() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32));
+        h ^= h >>> 16;
+        return (h & (STRIPES - 1)) * PAD;
+    }
+
+    private static int stripes() {
+        int n = 1;
+        int cpuNum = SysUtils.getCpuNum();
+        while (n < cpuNum && n < 16) {
+            n <<= 1;
+        }
+        return n;
+    }
+}
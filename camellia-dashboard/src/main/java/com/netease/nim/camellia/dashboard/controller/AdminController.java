@@ -18,6 +18,7 @@ import com.netease.nim.camellia.dashboard.service.TableRefService;
 import com.netease.nim.camellia.dashboard.service.TableService;
 import com.netease.nim.camellia.dashboard.util.LogBean;
 import com.netease.nim.camellia.core.util.ReadableResourceTableUtil;
+import com.netease.nim.camellia.core.util.ShadingBucketChooser;
 import com.netease.nim.camellia.dashboard.model.RwStats;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -246,10 +247,9 @@ public class AdminController {
             return WebResult.success(ret);
         } else if (type == ResourceTable.Type.SHADING) {
             ResourceTable.ShadingTable shadingTable = resourceTable.getShadingTable();
-            int bucketSize = shadingTable.getBucketSize();
             DefaultShadingFunc shadingFunc = new DefaultShadingFunc();
             int shadingCode = shadingFunc.shadingCode(key.getBytes("utf-8"));
-            int index = Math.abs(shadingCode) % bucketSize;
+            int index = new ShadingBucketChooser(shadingTable).chooseBucket(shadingCode);
             ResourceOperation resourceOperation = shadingTable.getResourceOperationMap().get(index);
             Object ret = ReadableResourceTableUtil.readableResourceOperation(resourceOperation);
             LogBean.get().addProps("ret", ret);
@@ -1,10 +1,15 @@
 package com.netease.nim.camellia.dashboard.controller;
 
-import com.netease.nim.camellia.core.api.CamelliaApi;
+import com.netease.nim.camellia.core.api.CamelliaBatchApi;
 import com.netease.nim.camellia.core.api.CamelliaApiResponse;
 import com.netease.nim.camellia.core.api.ResourceStats;
+import com.netease.nim.camellia.core.api.ResourceTableBatchRequest;
+import com.netease.nim.camellia.core.api.ResourceTableBatchResponse;
+import com.netease.nim.camellia.core.api.ResourceTableWatchRequest;
+import com.netease.nim.camellia.core.api.ResourceTableWatchResponse;
 import com.netease.nim.camellia.dashboard.conf.DashboardProperties;
 import com.netease.nim.camellia.dashboard.service.ResourceTableService;
+import com.netease.nim.camellia.dashboard.service.ResourceTableWatchService;
 import com.netease.nim.camellia.dashboard.service.StatsService;
 import com.netease.nim.camellia.dashboard.util.LogBean;
 import io.swagger.annotations.Api;
@@ -12,6 +17,7 @@ import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 
 /**
@@ -22,11 +28,14 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @ConditionalOnClass(DashboardProperties.class)
 @RequestMapping(value = "/camellia/api")
-public class ApiController implements CamelliaApi {
+public class ApiController implements CamelliaBatchApi {
 
     @Autowired
     private ResourceTableService resourceTableService;
 
+    @Autowired
+    private ResourceTableWatchService resourceTableWatchService;
+
     @Autowired
     private StatsService statsService;
 
@@ -43,6 +52,23 @@ public class ApiController implements CamelliaApi {
         return response;
     }
 
+    @ApiOperation(value = "批量获取资源表", notes = "一次获取多个bid/bgroup的资源表，每一项通过各自的MD5值判断是否有更新，适用于服务大量bgroup的proxy")
+    @PostMapping(value = "/resourceTables")
+    public ResourceTableBatchResponse getResourceTables(@RequestBody ResourceTableBatchRequest request) {
+        LogBean.get().addProps("size", request.getTables() == null ? 0 : request.getTables().size());
+        ResourceTableBatchResponse response = resourceTableService.batchGet(request);
+        LogBean.get().addProps("code", response.getCode());
+        return response;
+    }
+
+    @ApiOperation(value = "监听资源表变更", notes = "长轮询接口，客户端一次性提交所有关注的bid/bgroup及其md5，任意一个发生变更或者超时才返回，用于替代逐个bid/bgroup的定时拉取")
+    @PostMapping(value = "/resourceTable/watch")
+    public DeferredResult<ResourceTableWatchResponse> watchResourceTable(@RequestBody ResourceTableWatchRequest request) {
+        LogBean.get().addProps("size", request.getTables() == null ? 0 : request.getTables().size());
+        LogBean.get().addProps("timeoutMillis", request.getTimeoutMillis());
+        return resourceTableWatchService.watch(request);
+    }
+
     @ApiOperation(value = "汇报资源读写统计数据", notes = "客户端定时汇报，服务器会将统计数据汇总存储在缓存中")
     @PostMapping("/reportStats")
     public boolean reportStats(@RequestBody ResourceStats resourceStats) {
@@ -2,6 +2,9 @@ package com.netease.nim.camellia.dashboard.service;
 
 import com.netease.nim.camellia.core.api.CamelliaApiCode;
 import com.netease.nim.camellia.core.api.CamelliaApiResponse;
+import com.netease.nim.camellia.core.api.ResourceTableBatchRequest;
+import com.netease.nim.camellia.core.api.ResourceTableBatchResponse;
+import com.netease.nim.camellia.core.api.ResourceTableMd5;
 import com.netease.nim.camellia.core.model.ResourceTable;
 import com.netease.nim.camellia.core.util.MD5Util;
 import com.netease.nim.camellia.core.util.ReadableResourceTableUtil;
@@ -15,6 +18,9 @@ import com.netease.nim.camellia.redis.toolkit.localcache.LocalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  *
  * Created by caojiajun on 2019/5/17.
@@ -56,6 +62,43 @@ public class ResourceTableService {
         return response;
     }
 
+    /**
+     * 批量获取资源表，每一项按各自的md5判断是否变更，未变更的只返回NOT_MODIFY
+     */
+    public ResourceTableBatchResponse batchGet(ResourceTableBatchRequest request) {
+        ResourceTableBatchResponse response = new ResourceTableBatchResponse();
+        List<ResourceTableMd5> tables = request.getTables();
+        if (tables == null || tables.isEmpty() || tables.size() > dashboardProperties.getBatchMaxSize()) {
+            response.setCode(CamelliaApiCode.PARAM_ERROR.getCode());
+            return response;
+        }
+        List<ResourceTableBatchResponse.Item> items = new ArrayList<>(tables.size());
+        int modifyCount = 0;
+        for (ResourceTableMd5 table : tables) {
+            if (table.getBid() == null || table.getBgroup() == null) continue;
+            CamelliaApiResponse apiResponse = get(table.getBid(), table.getBgroup(), table.getMd5());
+            if (apiResponse.getCode() == CamelliaApiCode.SUCCESS.getCode()) {
+                modifyCount ++;
+            }
+            items.add(new ResourceTableBatchResponse.Item(table.getBid(), table.getBgroup(), apiResponse));
+        }
+        LogBean.get().addProps("modify.count", modifyCount);
+        response.setCode(CamelliaApiCode.SUCCESS.getCode());
+        response.setItems(items);
+        return response;
+    }
+
+    /**
+     * 获取资源表当前的md5，bid/bgroup不存在或者无效则返回null
+     */
+    public String md5(long bid, String bgroup) {
+        try {
+            return MD5Util.md5(getTableString(bid, bgroup));
+        } catch (AppException e) {
+            return null;
+        }
+    }
+
     private String getTableString(long bid, String bgroup) {
         String cacheKey = bid + "|" + bgroup;
         String cacheValue = localCache.get(TAG, cacheKey, String.class);
@@ -0,0 +1,140 @@
+package com.netease.nim.camellia.dashboard.service;
+
+import com.netease.nim.camellia.core.api.CamelliaApiCode;
+import com.netease.nim.camellia.core.api.ResourceTableMd5;
+import com.netease.nim.camellia.core.api.ResourceTableWatchRequest;
+import com.netease.nim.camellia.core.api.ResourceTableWatchResponse;
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.dashboard.conf.DashboardProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源表变更的长轮询
+ * 客户端一次提交所有关注的bid/bgroup，服务器hold住请求，定时统一检查一轮md5（同一个bid/bgroup每轮只计算一次，不论有多少个客户端在监听），
+ * 有变更或者超时即返回
+ */
+@Service
+public class ResourceTableWatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceTableWatchService.class);
+
+    @Autowired
+    private ResourceTableService resourceTableService;
+
+    @Autowired
+    private DashboardProperties dashboardProperties;
+
+    private final ConcurrentLinkedQueue<Watcher> watchers = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(ResourceTableWatchService.class));
+
+    @PostConstruct
+    private void init() {
+        long interval = dashboardProperties.getWatchCheckIntervalMillis();
+        scheduledExecutor.scheduleAtFixedRate(this::check, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("ResourceTableWatchService init success, watchCheckIntervalMillis = {}", interval);
+    }
+
+    public DeferredResult<ResourceTableWatchResponse> watch(ResourceTableWatchRequest request) {
+        long timeoutMillis = request.getTimeoutMillis();
+        if (timeoutMillis <= 0 || timeoutMillis > dashboardProperties.getWatchMaxTimeoutMillis()) {
+            timeoutMillis = dashboardProperties.getWatchMaxTimeoutMillis();
+        }
+        //servlet的超时要比业务超时长一点，由check统一返回NOT_MODIFY
+        DeferredResult<ResourceTableWatchResponse> result = new DeferredResult<>(timeoutMillis + dashboardProperties.getWatchCheckIntervalMillis() * 2);
+        List<ResourceTableMd5> tables = request.getTables();
+        if (tables == null || tables.isEmpty()) {
+            ResourceTableWatchResponse response = new ResourceTableWatchResponse();
+            response.setCode(CamelliaApiCode.PARAM_ERROR.getCode());
+            result.setResult(response);
+            return result;
+        }
+        Watcher watcher = new Watcher(tables, System.currentTimeMillis() + timeoutMillis, result);
+        //先检查一次，如果已经有变更了，直接返回
+        List<ResourceTableMd5> changed = changedTables(watcher, new HashMap<>());
+        if (!changed.isEmpty()) {
+            result.setResult(changedResponse(changed));
+            return result;
+        }
+        result.onTimeout(() -> watchers.remove(watcher));
+        result.onCompletion(() -> watchers.remove(watcher));
+        watchers.add(watcher);
+        return result;
+    }
+
+    private void check() {
+        try {
+            if (watchers.isEmpty()) return;
+            long now = System.currentTimeMillis();
+            //本轮的md5缓存，key=bid|bgroup
+            Map<String, Optional<String>> md5Map = new HashMap<>();
+            Iterator<Watcher> iterator = watchers.iterator();
+            while (iterator.hasNext()) {
+                Watcher watcher = iterator.next();
+                if (watcher.result.isSetOrExpired()) {
+                    iterator.remove();
+                    continue;
+                }
+                List<ResourceTableMd5> changed = changedTables(watcher, md5Map);
+                if (!changed.isEmpty()) {
+                    watcher.result.setResult(changedResponse(changed));
+                    iterator.remove();
+                } else if (now >= watcher.expireTime) {
+                    ResourceTableWatchResponse response = new ResourceTableWatchResponse();
+                    response.setCode(CamelliaApiCode.NOT_MODIFY.getCode());
+                    watcher.result.setResult(response);
+                    iterator.remove();
+                }
+            }
+        } catch (Exception e) {
+            logger.error("resource table watch check error", e);
+        }
+    }
+
+    private List<ResourceTableMd5> changedTables(Watcher watcher, Map<String, Optional<String>> md5Map) {
+        List<ResourceTableMd5> changed = new ArrayList<>();
+        for (ResourceTableMd5 table : watcher.tables) {
+            if (table.getBid() == null || table.getBgroup() == null) continue;
+            String key = table.getBid() + "|" + table.getBgroup();
+            Optional<String> md5 = md5Map.get(key);
+            if (md5 == null) {
+                md5 = Optional.ofNullable(resourceTableService.md5(table.getBid(), table.getBgroup()));
+                md5Map.put(key, md5);
+            }
+            String newMd5 = md5.orElse(null);
+            if (!Objects.equals(newMd5, table.getMd5())) {
+                changed.add(new ResourceTableMd5(table.getBid(), table.getBgroup(), newMd5));
+            }
+        }
+        return changed;
+    }
+
+    private ResourceTableWatchResponse changedResponse(List<ResourceTableMd5> changed) {
+        ResourceTableWatchResponse response = new ResourceTableWatchResponse();
+        response.setCode(CamelliaApiCode.SUCCESS.getCode());
+        response.setChangedTables(changed);
+        return response;
+    }
+
+    private static class Watcher {
+        private final List<ResourceTableMd5> tables;
+        private final long expireTime;
+        private final DeferredResult<ResourceTableWatchResponse> result;
+
+        Watcher(List<ResourceTableMd5> tables, long expireTime, DeferredResult<ResourceTableWatchResponse> result) {
+            this.tables = tables;
+            this.expireTime = expireTime;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.netease.nim.camellia.hbase;
+
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.hbase.exception.CamelliaHBaseException;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 异步的CamelliaHBaseTemplate
+ * 1）hbase-client（1.x）没有异步接口，因此由独立的有界线程池执行同步操作，调用方（如proxy的业务线程）不再阻塞，可以注册回调或者按需get
+ * 2）底层委托给ICamelliaHBaseTemplate，因此单写、读写分离、双写、分片等路由规则和同步接口完全一致，配置的在线修改也同样生效
+ * 3）线程池和队列都是有界的，满了之后直接返回失败的future（CamelliaHBaseException），不会退化成在调用线程中执行
+ */
+public class CamelliaHBaseAsyncTemplate implements ICamelliaHBaseAsyncTemplate {
+
+    private static final int defaultPoolSize = Runtime.getRuntime().availableProcessors() * 8;
+    private static final int defaultQueueSize = 100000;
+
+    private final ICamelliaHBaseTemplate template;
+    private final ExecutorService executor;
+
+    public CamelliaHBaseAsyncTemplate(ICamelliaHBaseTemplate template, ExecutorService executor) {
+        if (template == null) {
+            throw new IllegalArgumentException("template is null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        this.template = template;
+        this.executor = executor;
+    }
+
+    public CamelliaHBaseAsyncTemplate(ICamelliaHBaseTemplate template, int poolSize, int queueSize) {
+        this(template, new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueSize), new CamelliaThreadFactory(CamelliaHBaseAsyncTemplate.class),
+                new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    public CamelliaHBaseAsyncTemplate(ICamelliaHBaseTemplate template) {
+        this(template, defaultPoolSize, defaultQueueSize);
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Void> put(final String tableName, final Put put) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                template.put(tableName, put);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Void> put(final String tableName, final List<Put> puts) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                template.put(tableName, puts);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Void> delete(final String tableName, final Delete delete) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                template.delete(tableName, delete);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Void> delete(final String tableName, final List<Delete> deletes) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                template.delete(tableName, deletes);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Void> batchWriteOpe(final String tableName, final List<? extends Row> actions, final Object[] results) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                template.batchWriteOpe(tableName, actions, results);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Boolean> checkAndDelete(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final byte[] value, final Delete delete) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.checkAndDelete(tableName, row, family, qualifier, value, delete);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Boolean> checkAndDelete(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final CompareFilter.CompareOp compareOp, final byte[] value, final Delete delete) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.checkAndDelete(tableName, row, family, qualifier, compareOp, value, delete);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Result> get(final String tableName, final Get get) {
+        return submit(new Callable<Result>() {
+            @Override
+            public Result call() {
+                return template.get(tableName, get);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Result[]> get(final String tableName, final List<Get> gets) {
+        return submit(new Callable<Result[]>() {
+            @Override
+            public Result[] call() {
+                return template.get(tableName, gets);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Result[]> parallelGet(final String tableName, final List<Get> gets) {
+        return submit(new Callable<Result[]>() {
+            @Override
+            public Result[] call() {
+                if (template instanceof ICamelliaHBaseParallelTemplate) {
+                    return ((ICamelliaHBaseParallelTemplate) template).parallelGet(tableName, gets);
+                }
+                //不支持并行读的实现退化为普通的批量get
+                return template.get(tableName, gets);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Boolean> checkAndPut(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final byte[] value, final Put put) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.checkAndPut(tableName, row, family, qualifier, value, put);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Boolean> checkAndPut(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final CompareFilter.CompareOp compareOp, final byte[] value, final Put put) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.checkAndPut(tableName, row, family, qualifier, compareOp, value, put);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Boolean> exists(final String tableName, final Get get) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.exists(tableName, get);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<boolean[]> existsAll(final String tableName, final List<Get> gets) {
+        return submit(new Callable<boolean[]>() {
+            @Override
+            public boolean[] call() {
+                return template.existsAll(tableName, gets);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Boolean> checkAndMutate(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final CompareFilter.CompareOp compareOp, final byte[] value, final RowMutations mutation) {
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.checkAndMutate(tableName, row, family, qualifier, compareOp, value, mutation);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Void> mutateRow(final String tableName, final RowMutations rm) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                template.mutateRow(tableName, rm);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Result> append(final String tableName, final Append append) {
+        return submit(new Callable<Result>() {
+            @Override
+            public Result call() {
+                return template.append(tableName, append);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Result> increment(final String tableName, final Increment increment) {
+        return submit(new Callable<Result>() {
+            @Override
+            public Result call() {
+                return template.increment(tableName, increment);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Long> incrementColumnValue(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final long amount) {
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return template.incrementColumnValue(tableName, row, family, qualifier, amount);
+            }
+        });
+    }
+
+    @Override
+    public CamelliaHBaseFuture<Long> incrementColumnValue(final String tableName, final byte[] row, final byte[] family, final byte[] qualifier, final long amount, final Durability durability) {
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return template.incrementColumnValue(tableName, row, family, qualifier, amount, durability);
+            }
+        });
+    }
+
+    private <T> CamelliaHBaseFuture<T> submit(Callable<T> callable) {
+        CamelliaHBaseFuture<T> future = new CamelliaHBaseFuture<>(callable);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future = new CamelliaHBaseFuture<>(new Callable<T>() {
+                @Override
+                public T call() {
+                    throw new CamelliaHBaseException("camellia hbase async executor is busy");
+                }
+            });
+            future.run();
+        }
+        return future;
+    }
+}
@@ -0,0 +1,11 @@
+package com.netease.nim.camellia.hbase;
+
+/**
+ * 异步操作的回调
+ */
+public interface CamelliaHBaseCallback<T> {
+
+    void onSuccess(T result);
+
+    void onError(Throwable e);
+}
@@ -26,13 +26,14 @@ public class CamelliaHBaseClientImpl {
 
     private static final Logger logger = LoggerFactory.getLogger(CamelliaHBaseClientImpl.class);
 
+    private CamelliaHBaseEnv env;
     private CamelliaHBaseConnectionFactory connectionFactory;
     private HBaseResource resource;
 
     public CamelliaHBaseClientImpl(Resource resource) {
         if (resource == null) return;
         if (resource instanceof HBaseResourceWrapper) {
-            CamelliaHBaseEnv env = ((HBaseResourceWrapper) resource).getEnv();
+            this.env = ((HBaseResourceWrapper) resource).getEnv();
             this.connectionFactory = env.getConnectionFactory();
             this.resource = HBaseResourceUtil.parseResourceByUrl(resource);
             this.connectionFactory.getHBaseConnection(this.resource);
@@ -105,6 +106,70 @@ public class CamelliaHBaseClientImpl {
         }
     }
 
+    @WriteOp
+    public void bufferedPut(String tableName, Put put) {
+        try {
+            connectionFactory.getHBaseConnection(resource).bufferedMutate(tableName, put);
+        } catch (IOException e) {
+            throw new CamelliaHBaseException(e);
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} bufferedPut, resource = {}, rowKey = {}",
+                        tableName, resource.getUrl(), Bytes.toHex(put.getRow()));
+            }
+        }
+    }
+
+    @WriteOp
+    public void bufferedPut(String tableName, List<Put> puts) {
+        List<Put> list = new ArrayList<>(puts);
+        try {
+            connectionFactory.getHBaseConnection(resource).bufferedMutate(tableName, list);
+        } catch (IOException e) {
+            throw new CamelliaHBaseException(e);
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} bufferedPut, resource = {}, size = {}", tableName, resource.getUrl(), puts.size());
+            }
+        }
+    }
+
+    @WriteOp
+    public void bufferedDelete(String tableName, Delete delete) {
+        try {
+            connectionFactory.getHBaseConnection(resource).bufferedMutate(tableName, delete);
+        } catch (IOException e) {
+            throw new CamelliaHBaseException(e);
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} bufferedDelete, resource = {}, rowKey = {}",
+                        tableName, resource.getUrl(), Bytes.toHex(delete.getRow()));
+            }
+        }
+    }
+
+    @WriteOp
+    public void bufferedDelete(String tableName, List<Delete> deletes) {
+        List<Delete> list = new ArrayList<>(deletes);
+        try {
+            connectionFactory.getHBaseConnection(resource).bufferedMutate(tableName, list);
+        } catch (IOException e) {
+            throw new CamelliaHBaseException(e);
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} bufferedDelete, resource = {}, size = {}", tableName, resource.getUrl(), deletes.size());
+            }
+        }
+    }
+
+    @WriteOp
+    public void flushBuffered(String tableName) {
+        connectionFactory.getHBaseConnection(resource).flushBufferedMutator(tableName);
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} flushBuffered, resource = {}", tableName, resource.getUrl());
+        }
+    }
+
     @WriteOp
     public void batchWriteOpe(String tableName, List<? extends Row> actions, Object[] results) {
         for (Row action : actions) {
@@ -207,6 +272,30 @@ public class CamelliaHBaseClientImpl {
         }
     }
 
+    @ReadOp
+    public Result[] parallelGet(String tableName, List<Get> gets) {
+        List<Get> list = new ArrayList<>(gets);
+        try {
+            return new HBaseParallelReader(env, resource, connectionFactory.getHBaseConnection(resource)).get(tableName, list);
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} parallelGet, resource = {}, size = {}", tableName, resource.getUrl(), gets.size());
+            }
+        }
+    }
+
+    @ReadOp
+    public ResultScanner parallelScan(String tableName, Scan scan) {
+        try {
+            return new HBaseParallelReader(env, resource, connectionFactory.getHBaseConnection(resource)).scan(tableName, scan);
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} parallelScan, resource = {}, startRow = {}, stopRow = {}",
+                        tableName, resource.getUrl(), Bytes.toHex(scan.getStartRow()), Bytes.toHex(scan.getStopRow()));
+            }
+        }
+    }
+
     @WriteOp
     public boolean checkAndPut(String tableName, byte[] row, byte[] family, byte[] qualifier, byte[] value, Put put) {
         try {
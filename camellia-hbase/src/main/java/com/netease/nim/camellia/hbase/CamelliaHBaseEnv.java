@@ -1,8 +1,19 @@
 package com.netease.nim.camellia.hbase;
 
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.core.util.SysUtils;
+import com.netease.nim.camellia.hbase.cache.CamelliaHBaseCacheConfig;
 import com.netease.nim.camellia.hbase.connection.CamelliaHBaseConnectionFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  *
  * Created by caojiajun on 2020/3/20.
@@ -12,6 +23,21 @@ public class CamelliaHBaseEnv {
     private CamelliaHBaseConnectionFactory connectionFactory = CamelliaHBaseConnectionFactory.DEFAULT;
     private ProxyEnv proxyEnv = ProxyEnv.defaultProxyEnv();
 
+    //parallelGet/parallelScan的线程池，满了之后get在调用线程中执行，scan在调用线程中按region顺序读取
+    private ExecutorService parallelExec;
+    //parallelGet时每个region的get超过该值会再拆分
+    private int parallelGetBatch = 500;
+    //parallelScan时同时进行的region个数
+    private int parallelScanConcurrency = 8;
+    //parallelScan时每个region预读的行数
+    private int parallelScanPrefetchRows = 1000;
+    //parallelScan时调用方超过该时长不读取（如没有close就丢弃了scanner），后台的预读会放弃，避免一直占用线程池
+    private long parallelScanIdleTimeoutMillis = 60000;
+    //parallelGet/parallelScan的按region统计
+    private CamelliaHBaseRegionMonitor regionMonitor = CamelliaHBaseRegionMonitor.DEFAULT;
+    //本地缓存的配置，key是表名，没有配置的表不走缓存
+    private Map<String, CamelliaHBaseCacheConfig> cacheConfigMap = new HashMap<>();
+
     private CamelliaHBaseEnv() {
     }
 
@@ -32,6 +58,43 @@ public class CamelliaHBaseEnv {
         return proxyEnv;
     }
 
+    public ExecutorService getParallelExec() {
+        if (parallelExec == null) {
+            return DefaultParallelExecHolder.exec;
+        }
+        return parallelExec;
+    }
+
+    public int getParallelGetBatch() {
+        return parallelGetBatch;
+    }
+
+    public int getParallelScanConcurrency() {
+        return parallelScanConcurrency;
+    }
+
+    public int getParallelScanPrefetchRows() {
+        return parallelScanPrefetchRows;
+    }
+
+    public long getParallelScanIdleTimeoutMillis() {
+        return parallelScanIdleTimeoutMillis;
+    }
+
+    public CamelliaHBaseRegionMonitor getRegionMonitor() {
+        return regionMonitor;
+    }
+
+    public Map<String, CamelliaHBaseCacheConfig> getCacheConfigMap() {
+        return cacheConfigMap;
+    }
+
+    //默认的线程池，用到时才初始化
+    private static class DefaultParallelExecHolder {
+        private static final ExecutorService exec = new ThreadPoolExecutor(SysUtils.getCpuNum() * 16, SysUtils.getCpuNum() * 16, 0, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new CamelliaThreadFactory(CamelliaHBaseEnv.class), new ThreadPoolExecutor.AbortPolicy());
+    }
+
     public static class Builder {
         private CamelliaHBaseEnv env;
 
@@ -41,6 +104,13 @@ public class CamelliaHBaseEnv {
 
         public Builder(CamelliaHBaseEnv env) {
             this.env = new CamelliaHBaseEnv(env.connectionFactory, env.proxyEnv);
+            this.env.parallelExec = env.parallelExec;
+            this.env.parallelGetBatch = env.parallelGetBatch;
+            this.env.parallelScanConcurrency = env.parallelScanConcurrency;
+            this.env.parallelScanPrefetchRows = env.parallelScanPrefetchRows;
+            this.env.parallelScanIdleTimeoutMillis = env.parallelScanIdleTimeoutMillis;
+            this.env.regionMonitor = env.regionMonitor;
+            this.env.cacheConfigMap = new HashMap<>(env.cacheConfigMap);
         }
 
         public Builder connectionFactory(CamelliaHBaseConnectionFactory connectionFactory) {
@@ -57,6 +127,48 @@ public class CamelliaHBaseEnv {
             return this;
         }
 
+        public Builder parallelExec(ExecutorService parallelExec) {
+            if (parallelExec == null) return this;
+            env.parallelExec = parallelExec;
+            return this;
+        }
+
+        public Builder parallelGetBatch(int parallelGetBatch) {
+            if (parallelGetBatch <= 0) return this;
+            env.parallelGetBatch = parallelGetBatch;
+            return this;
+        }
+
+        public Builder parallelScanConcurrency(int parallelScanConcurrency) {
+            if (parallelScanConcurrency <= 0) return this;
+            env.parallelScanConcurrency = parallelScanConcurrency;
+            return this;
+        }
+
+        public Builder parallelScanPrefetchRows(int parallelScanPrefetchRows) {
+            if (parallelScanPrefetchRows <= 0) return this;
+            env.parallelScanPrefetchRows = parallelScanPrefetchRows;
+            return this;
+        }
+
+        public Builder parallelScanIdleTimeoutMillis(long parallelScanIdleTimeoutMillis) {
+            if (parallelScanIdleTimeoutMillis <= 0) return this;
+            env.parallelScanIdleTimeoutMillis = parallelScanIdleTimeoutMillis;
+            return this;
+        }
+
+        public Builder regionMonitor(CamelliaHBaseRegionMonitor regionMonitor) {
+            if (regionMonitor == null) return this;
+            env.regionMonitor = regionMonitor;
+            return this;
+        }
+
+        public Builder cacheConfig(String tableName, CamelliaHBaseCacheConfig cacheConfig) {
+            if (tableName == null || cacheConfig == null) return this;
+            env.cacheConfigMap.put(tableName, cacheConfig);
+            return this;
+        }
+
         public CamelliaHBaseEnv build() {
             return env;
         }
@@ -0,0 +1,68 @@
+package com.netease.nim.camellia.hbase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 异步操作的结果，除了Future的get之外，还可以注册回调，避免调用方阻塞等待
+ * 回调在执行hbase操作的线程中执行（若注册时已经完成，则在注册的线程中直接执行），回调中不要有耗时操作
+ */
+public class CamelliaHBaseFuture<T> extends FutureTask<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaHBaseFuture.class);
+
+    private final List<CamelliaHBaseCallback<T>> callbackList = new ArrayList<>();
+
+    public CamelliaHBaseFuture(Callable<T> callable) {
+        super(callable);
+    }
+
+    /**
+     * 注册回调
+     */
+    public void addCallback(CamelliaHBaseCallback<T> callback) {
+        synchronized (callbackList) {
+            if (!isDone()) {
+                callbackList.add(callback);
+                return;
+            }
+        }
+        invoke(callback);
+    }
+
+    @Override
+    protected void done() {
+        List<CamelliaHBaseCallback<T>> list;
+        synchronized (callbackList) {
+            list = new ArrayList<>(callbackList);
+            callbackList.clear();
+        }
+        for (CamelliaHBaseCallback<T> callback : list) {
+            invoke(callback);
+        }
+    }
+
+    private void invoke(CamelliaHBaseCallback<T> callback) {
+        try {
+            T result;
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                callback.onError(e.getCause() == null ? e : e.getCause());
+                return;
+            } catch (Throwable e) {
+                callback.onError(e);
+                return;
+            }
+            callback.onSuccess(result);
+        } catch (Throwable e) {
+            logger.error("camellia hbase callback error", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.netease.nim.camellia.hbase;
+
+/**
+ * parallelGet/parallelScan按region统计耗时
+ */
+public interface CamelliaHBaseRegionMonitor {
+
+    /**
+     * 一个region（parallelGet时可能是region的一部分）的读取完成
+     * @param url hbase地址
+     * @param tableName 表名
+     * @param regionName region名
+     * @param method parallelGet或者parallelScan
+     * @param rows 行数
+     * @param spendMillis 耗时
+     * @param success 是否成功
+     */
+    void onRegionRead(String url, String tableName, String regionName, String method, int rows, long spendMillis, boolean success);
+
+    /**
+     * 一个默认实现，什么也不做
+     */
+    CamelliaHBaseRegionMonitor DEFAULT = new CamelliaHBaseRegionMonitor() {
+        @Override
+        public void onRegionRead(String url, String tableName, String regionName, String method, int rows, long spendMillis, boolean success) {
+        }
+    };
+}
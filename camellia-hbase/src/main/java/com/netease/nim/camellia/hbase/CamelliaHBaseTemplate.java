@@ -5,19 +5,21 @@ import com.netease.nim.camellia.core.model.Resource;
 import com.netease.nim.camellia.core.model.ResourceTable;
 import com.netease.nim.camellia.core.util.ResourceTableUtil;
 import com.netease.nim.camellia.core.util.ResourceTransferUtil;
+import com.netease.nim.camellia.hbase.cache.CamelliaHBaseCache;
 import com.netease.nim.camellia.hbase.resource.HBaseResource;
 import com.netease.nim.camellia.hbase.resource.HBaseResourceWrapper;
 import com.netease.nim.camellia.hbase.util.CamelliaHBaseInitUtil;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.filter.CompareFilter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  *
  * Created by caojiajun on 2020/3/20.
  */
-public class CamelliaHBaseTemplate implements ICamelliaHBaseTemplate {
+public class CamelliaHBaseTemplate implements ICamelliaHBaseBufferedTemplate, ICamelliaHBaseParallelTemplate {
 
     private static final long defaultBid = -1;
     private static final String defaultBgroup = "local";
@@ -25,6 +27,7 @@ public class CamelliaHBaseTemplate implements ICamelliaHBaseTemplate {
     private static final boolean defaultMonitorEnable = false;
 
     private final ReloadableProxyFactory<CamelliaHBaseClientImpl> factory;
+    private final CamelliaHBaseCache cache;
 
     public CamelliaHBaseTemplate(CamelliaHBaseEnv env, CamelliaApi service, long bid, String bgroup,
                                  boolean monitorEnable, long checkIntervalMillis) {
@@ -37,6 +40,7 @@ public class CamelliaHBaseTemplate implements ICamelliaHBaseTemplate {
                 .checkIntervalMillis(checkIntervalMillis)
                 .proxyEnv(env.getProxyEnv())
                 .build();
+        this.cache = new CamelliaHBaseCache(env.getCacheConfigMap(), factory.getEnv().getMonitor(), CamelliaHBaseTemplate.class.getName());
     }
 
     public CamelliaHBaseTemplate(CamelliaHBaseEnv env, String url, long bid, String bgroup,
@@ -123,49 +127,172 @@ public class CamelliaHBaseTemplate implements ICamelliaHBaseTemplate {
         }
     }
 
+    /**
+     * 获取本地缓存，可以查看命中率
+     * @return CamelliaHBaseCache
+     */
+    public CamelliaHBaseCache getCache() {
+        return cache;
+    }
+
     @Override
     public void put(String tableName, Put put) {
-        factory.getProxy().put(tableName, put);
+        try {
+            factory.getProxy().put(tableName, put);
+        } finally {
+            cache.invalidate(tableName, put.getRow());
+        }
     }
 
     @Override
     public void put(String tableName, List<Put> puts) {
-        factory.getProxy().put(tableName, puts);
+        try {
+            factory.getProxy().put(tableName, puts);
+        } finally {
+            cache.invalidate(tableName, puts);
+        }
     }
 
     @Override
     public void delete(String tableName, Delete delete) {
-        factory.getProxy().delete(tableName, delete);
+        try {
+            factory.getProxy().delete(tableName, delete);
+        } finally {
+            cache.invalidate(tableName, delete.getRow());
+        }
     }
 
     @Override
     public void delete(String tableName, List<Delete> deletes) {
-        factory.getProxy().delete(tableName, deletes);
+        try {
+            factory.getProxy().delete(tableName, deletes);
+        } finally {
+            cache.invalidate(tableName, deletes);
+        }
+    }
+
+    //开启了本地缓存的表，缓冲写改为同步写
+    //缓冲区中的数据提交前读到的还是旧数据，如果此时回填缓存，本进程的写在缓存过期前都不可见
+    @Override
+    public void bufferedPut(String tableName, Put put) {
+        if (cache.enable(tableName)) {
+            put(tableName, put);
+            return;
+        }
+        factory.getProxy().bufferedPut(tableName, put);
+    }
+
+    @Override
+    public void bufferedPut(String tableName, List<Put> puts) {
+        if (cache.enable(tableName)) {
+            put(tableName, puts);
+            return;
+        }
+        factory.getProxy().bufferedPut(tableName, puts);
+    }
+
+    @Override
+    public void bufferedDelete(String tableName, Delete delete) {
+        if (cache.enable(tableName)) {
+            delete(tableName, delete);
+            return;
+        }
+        factory.getProxy().bufferedDelete(tableName, delete);
+    }
+
+    @Override
+    public void bufferedDelete(String tableName, List<Delete> deletes) {
+        if (cache.enable(tableName)) {
+            delete(tableName, deletes);
+            return;
+        }
+        factory.getProxy().bufferedDelete(tableName, deletes);
+    }
+
+    @Override
+    public void flushBuffered(String tableName) {
+        factory.getProxy().flushBuffered(tableName);
     }
 
     @Override
     public void batchWriteOpe(String tableName, List<? extends Row> actions, Object[] results) {
-        factory.getProxy().batchWriteOpe(tableName, actions, results);
+        try {
+            factory.getProxy().batchWriteOpe(tableName, actions, results);
+        } finally {
+            cache.invalidate(tableName, actions);
+        }
     }
 
     @Override
     public boolean checkAndDelete(String tableName, byte[] row, byte[] family, byte[] qualifier, byte[] value, Delete delete) {
-        return factory.getProxy().checkAndDelete(tableName, row, family, qualifier, value, delete);
+        try {
+            return factory.getProxy().checkAndDelete(tableName, row, family, qualifier, value, delete);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 
     @Override
     public boolean checkAndDelete(String tableName, byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp, byte[] value, Delete delete) {
-        return factory.getProxy().checkAndDelete(tableName, row, family, qualifier, compareOp, value, delete);
+        try {
+            return factory.getProxy().checkAndDelete(tableName, row, family, qualifier, compareOp, value, delete);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 
     @Override
     public Result get(String tableName, Get get) {
-        return factory.getProxy().get(tableName, get);
+        if (!cache.cacheable(tableName, get)) {
+            return factory.getProxy().get(tableName, get);
+        }
+        Result result = cache.getResult(tableName, get);
+        if (result != null) {
+            return result;
+        }
+        long stamp = cache.stamp(tableName, get.getRow());
+        result = factory.getProxy().get(tableName, get);
+        cache.putResult(tableName, get, result, stamp);
+        return result;
     }
 
     @Override
     public Result[] get(String tableName, List<Get> gets) {
-        return factory.getProxy().get(tableName, gets);
+        if (!cache.enable(tableName)) {
+            return factory.getProxy().get(tableName, gets);
+        }
+        Result[] results = new Result[gets.size()];
+        List<Integer> missIndexList = new ArrayList<>();
+        List<Get> missGets = new ArrayList<>();
+        for (int i=0; i<gets.size(); i++) {
+            Get get = gets.get(i);
+            if (cache.cacheable(tableName, get)) {
+                results[i] = cache.getResult(tableName, get);
+            }
+            if (results[i] == null) {
+                missIndexList.add(i);
+                missGets.add(get);
+            }
+        }
+        if (missGets.isEmpty()) {
+            return results;
+        }
+        long[] stamps = new long[missGets.size()];
+        for (int i=0; i<missGets.size(); i++) {
+            Get get = missGets.get(i);
+            if (cache.cacheable(tableName, get)) {
+                stamps[i] = cache.stamp(tableName, get.getRow());
+            }
+        }
+        Result[] missResults = factory.getProxy().get(tableName, missGets);
+        for (int i=0; i<missResults.length; i++) {
+            Get get = missGets.get(i);
+            results[missIndexList.get(i)] = missResults[i];
+            if (cache.cacheable(tableName, get)) {
+                cache.putResult(tableName, get, missResults[i], stamps[i]);
+            }
+        }
+        return results;
     }
 
     @Override
@@ -173,19 +300,47 @@ public class CamelliaHBaseTemplate implements ICamelliaHBaseTemplate {
         return factory.getProxy().scan(tableName, scan);
     }
 
+    @Override
+    public Result[] parallelGet(String tableName, List<Get> gets) {
+        return factory.getProxy().parallelGet(tableName, gets);
+    }
+
+    @Override
+    public ResultScanner parallelScan(String tableName, Scan scan) {
+        return factory.getProxy().parallelScan(tableName, scan);
+    }
+
     @Override
     public boolean checkAndPut(String tableName, byte[] row, byte[] family, byte[] qualifier, byte[] value, Put put) {
-        return factory.getProxy().checkAndPut(tableName, row, family, qualifier, value, put);
+        try {
+            return factory.getProxy().checkAndPut(tableName, row, family, qualifier, value, put);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 
     @Override
     public boolean checkAndPut(String tableName, byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp, byte[] value, Put put) {
-        return factory.getProxy().checkAndPut(tableName, row, family, qualifier, compareOp, value, put);
+        try {
+            return factory.getProxy().checkAndPut(tableName, row, family, qualifier, compareOp, value, put);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 
     @Override
     public boolean exists(String tableName, Get get) {
-        return factory.getProxy().exists(tableName, get);
+        if (!cache.cacheable(tableName, get)) {
+            return factory.getProxy().exists(tableName, get);
+        }
+        Boolean exists = cache.getExists(tableName, get);
+        if (exists != null) {
+            return exists;
+        }
+        long stamp = cache.stamp(tableName, get.getRow());
+        boolean ret = factory.getProxy().exists(tableName, get);
+        cache.putExists(tableName, get, ret, stamp);
+        return ret;
     }
 
     @Override
@@ -195,31 +350,55 @@ public class CamelliaHBaseTemplate implements ICamelliaHBaseTemplate {
 
     @Override
     public boolean checkAndMutate(String tableName, byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp, byte[] value, RowMutations mutation) {
-        return factory.getProxy().checkAndMutate(tableName, row, family, qualifier, compareOp, value, mutation);
+        try {
+            return factory.getProxy().checkAndMutate(tableName, row, family, qualifier, compareOp, value, mutation);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 
     @Override
     public void mutateRow(String tableName, RowMutations rm) {
-        factory.getProxy().mutateRow(tableName, rm);
+        try {
+            factory.getProxy().mutateRow(tableName, rm);
+        } finally {
+            cache.invalidate(tableName, rm.getRow());
+        }
     }
 
     @Override
     public Result append(String tableName, Append append) {
-        return factory.getProxy().append(tableName, append);
+        try {
+            return factory.getProxy().append(tableName, append);
+        } finally {
+            cache.invalidate(tableName, append.getRow());
+        }
     }
 
     @Override
     public Result increment(String tableName, Increment increment) {
-        return factory.getProxy().increment(tableName, increment);
+        try {
+            return factory.getProxy().increment(tableName, increment);
+        } finally {
+            cache.invalidate(tableName, increment.getRow());
+        }
     }
 
     @Override
     public long incrementColumnValue(String tableName, byte[] row, byte[] family, byte[] qualifier, long amount) {
-        return factory.getProxy().incrementColumnValue(tableName, row, family, qualifier, amount);
+        try {
+            return factory.getProxy().incrementColumnValue(tableName, row, family, qualifier, amount);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 
     @Override
     public long incrementColumnValue(String tableName, byte[] row, byte[] family, byte[] qualifier, long amount, Durability durability) {
-        return factory.getProxy().incrementColumnValue(tableName, row, family, qualifier, amount, durability);
+        try {
+            return factory.getProxy().incrementColumnValue(tableName, row, family, qualifier, amount, durability);
+        } finally {
+            cache.invalidate(tableName, row);
+        }
     }
 }
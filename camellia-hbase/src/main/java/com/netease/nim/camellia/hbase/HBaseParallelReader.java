@@ -0,0 +1,198 @@
+package com.netease.nim.camellia.hbase;
+
+import com.netease.nim.camellia.hbase.connection.CamelliaHBaseConnection;
+import com.netease.nim.camellia.hbase.exception.CamelliaHBaseException;
+import com.netease.nim.camellia.hbase.resource.HBaseResource;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 按region拆分的并行读
+ * 1）parallelGet：按row所在的region分组（过大的组再按parallelGetBatch拆分），并行执行，结果按原始顺序返回
+ * 2）parallelScan：按region边界拆分成多个子scan，同时最多读parallelScanConcurrency个region，结果按row顺序流式返回
+ * 线程池满了之后不会阻塞等待，get直接在调用线程中执行，scan的该region留到调用方读到时再在调用线程中读取
+ */
+class HBaseParallelReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(HBaseParallelReader.class);
+
+    private final CamelliaHBaseEnv env;
+    private final HBaseResource resource;
+    private final CamelliaHBaseConnection connection;
+
+    HBaseParallelReader(CamelliaHBaseEnv env, HBaseResource resource, CamelliaHBaseConnection connection) {
+        this.env = env;
+        this.resource = resource;
+        this.connection = connection;
+    }
+
+    Result[] get(final String tableName, final List<Get> gets) {
+        final Result[] results = new Result[gets.size()];
+        if (gets.isEmpty()) return results;
+        Map<String, List<Integer>> regionMap = new LinkedHashMap<>();
+        try (RegionLocator locator = connection.getRegionLocator(tableName)) {
+            for (int i=0; i<gets.size(); i++) {
+                HRegionLocation location = locator.getRegionLocation(gets.get(i).getRow());
+                String regionName = location.getRegionInfo().getRegionNameAsString();
+                List<Integer> indexList = regionMap.get(regionName);
+                if (indexList == null) {
+                    indexList = new ArrayList<>();
+                    regionMap.put(regionName, indexList);
+                }
+                indexList.add(i);
+            }
+        } catch (IOException e) {
+            throw new CamelliaHBaseException(e);
+        }
+        int batch = env.getParallelGetBatch();
+        List<Future<?>> futureList = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : regionMap.entrySet()) {
+            final String regionName = entry.getKey();
+            List<Integer> indexList = entry.getValue();
+            for (int from = 0; from < indexList.size(); from += batch) {
+                final List<Integer> subIndexList = indexList.subList(from, Math.min(from + batch, indexList.size()));
+                FutureTask<Void> task = new FutureTask<>(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<Get> subGets = new ArrayList<>(subIndexList.size());
+                        for (Integer index : subIndexList) {
+                            subGets.add(gets.get(index));
+                        }
+                        long startTime = System.currentTimeMillis();
+                        boolean success = false;
+                        try (Table table = connection.getTable(tableName)) {
+                            Result[] subResults = table.get(subGets);
+                            for (int i=0; i<subResults.length; i++) {
+                                results[subIndexList.get(i)] = subResults[i];
+                            }
+                            success = true;
+                        } catch (IOException e) {
+                            throw new CamelliaHBaseException(e);
+                        } finally {
+                            onRegionRead(tableName, regionName, "parallelGet", subGets.size(), startTime, success);
+                        }
+                    }
+                }, null);
+                try {
+                    env.getParallelExec().execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.run();
+                }
+                futureList.add(task);
+            }
+        }
+        for (Future<?> future : futureList) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CamelliaHBaseException) {
+                    throw (CamelliaHBaseException) cause;
+                }
+                throw new CamelliaHBaseException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CamelliaHBaseException(e);
+            }
+        }
+        return results;
+    }
+
+    ResultScanner scan(String tableName, Scan scan) {
+        List<Scan> scanList = new ArrayList<>();
+        List<String> regionNameList = new ArrayList<>();
+        try (RegionLocator locator = connection.getRegionLocator(tableName)) {
+            if (scan.isReversed()) {
+                //反向scan不拆分
+                scanList.add(scan);
+                regionNameList.add("reversed");
+            } else {
+                for (HRegionLocation location : locator.getAllRegionLocations()) {
+                    byte[] regionStart = location.getRegionInfo().getStartKey();
+                    byte[] regionEnd = location.getRegionInfo().getEndKey();
+                    Pair<byte[], byte[]> range = intersect(scan.getStartRow(), scan.getStopRow(), regionStart, regionEnd);
+                    if (range == null) continue;
+                    Scan subScan = new Scan(scan);
+                    subScan.setStartRow(range.getFirst());
+                    subScan.setStopRow(range.getSecond());
+                    scanList.add(subScan);
+                    regionNameList.add(location.getRegionInfo().getRegionNameAsString());
+                }
+            }
+        } catch (IOException e) {
+            throw new CamelliaHBaseException(e);
+        }
+        //region按startKey排序，保证结果有序
+        List<Integer> order = new ArrayList<>();
+        for (int i=0; i<scanList.size(); i++) {
+            order.add(i);
+        }
+        final List<Scan> finalScanList = scanList;
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Bytes.compareTo(finalScanList.get(o1).getStartRow(), finalScanList.get(o2).getStartRow());
+            }
+        });
+        List<HBaseParallelResultScanner.RegionScan> regionScans = new ArrayList<>();
+        for (Integer index : order) {
+            regionScans.add(new HBaseParallelResultScanner.RegionScan(this, tableName, regionNameList.get(index), scanList.get(index),
+                    env.getParallelScanPrefetchRows(), env.getParallelScanIdleTimeoutMillis()));
+        }
+        return new HBaseParallelResultScanner(env.getParallelExec(), regionScans, env.getParallelScanConcurrency());
+    }
+
+    Table getTable(String tableName) {
+        return connection.getTable(tableName);
+    }
+
+    void onRegionRead(String tableName, String regionName, String method, int rows, long startTime, boolean success) {
+        long spendMillis = System.currentTimeMillis() - startTime;
+        try {
+            env.getRegionMonitor().onRegionRead(resource.getUrl(), tableName, regionName, method, rows, spendMillis, success);
+        } catch (Exception e) {
+            logger.error("region monitor error", e);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} {}, resource = {}, region = {}, rows = {}, spend = {}ms, success = {}",
+                    tableName, method, resource.getUrl(), regionName, rows, spendMillis, success);
+        }
+    }
+
+    //[scanStart, scanStop)和[regionStart, regionEnd)的交集，空数组表示不限制，没有交集返回null
+    private static Pair<byte[], byte[]> intersect(byte[] scanStart, byte[] scanStop, byte[] regionStart, byte[] regionEnd) {
+        byte[] start;
+        if (scanStart == null || scanStart.length == 0) {
+            start = regionStart;
+        } else if (regionStart == null || regionStart.length == 0) {
+            start = scanStart;
+        } else {
+            start = Bytes.compareTo(scanStart, regionStart) >= 0 ? scanStart : regionStart;
+        }
+        byte[] stop;
+        if (scanStop == null || scanStop.length == 0) {
+            stop = regionEnd;
+        } else if (regionEnd == null || regionEnd.length == 0) {
+            stop = scanStop;
+        } else {
+            stop = Bytes.compareTo(scanStop, regionEnd) <= 0 ? scanStop : regionEnd;
+        }
+        if (start == null) start = new byte[0];
+        if (stop == null) stop = new byte[0];
+        if (stop.length > 0 && Bytes.compareTo(start, stop) >= 0) {
+            return null;
+        }
+        return new Pair<>(start, stop);
+    }
+}
@@ -0,0 +1,282 @@
+package com.netease.nim.camellia.hbase;
+
+import com.netease.nim.camellia.hbase.exception.CamelliaHBaseException;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * parallelScan的结果，按region顺序返回
+ * 同时最多预读concurrency个region，每个region预读的行数有上限，调用方读得慢时后台线程会暂停读取
+ * 调用方超过idleTimeoutMillis不读取时后台线程放弃该region的读取，之后再读到该region会抛异常
+ */
+class HBaseParallelResultScanner implements ResultScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(HBaseParallelResultScanner.class);
+
+    private final ExecutorService exec;
+    private final List<RegionScan> regionScans;
+    private final int concurrency;
+    private int current = 0;
+    private int submitted = 0;
+    private volatile boolean closed = false;
+
+    HBaseParallelResultScanner(ExecutorService exec, List<RegionScan> regionScans, int concurrency) {
+        this.exec = exec;
+        this.regionScans = regionScans;
+        this.concurrency = Math.max(concurrency, 1);
+        submit();
+    }
+
+    @Override
+    public Result next() throws IOException {
+        while (current < regionScans.size()) {
+            if (closed) return null;
+            Result result = regionScans.get(current).next();
+            if (result != null) {
+                return result;
+            }
+            current ++;
+            submit();
+        }
+        return null;
+    }
+
+    @Override
+    public Result[] next(int nbRows) throws IOException {
+        List<Result> list = new ArrayList<>(nbRows);
+        for (int i=0; i<nbRows; i++) {
+            Result result = next();
+            if (result == null) break;
+            list.add(result);
+        }
+        return list.toArray(new Result[0]);
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        for (RegionScan regionScan : regionScans) {
+            regionScan.close();
+        }
+    }
+
+    public boolean renewLease() {
+        return false;
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return new Iterator<Result>() {
+            private Result next = null;
+            private boolean fetched = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!fetched) {
+                    try {
+                        next = HBaseParallelResultScanner.this.next();
+                    } catch (IOException e) {
+                        throw new CamelliaHBaseException(e);
+                    }
+                    fetched = true;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Result next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                fetched = false;
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    //保持[current, current + concurrency)范围内的region都已经提交
+    private void submit() {
+        while (submitted < regionScans.size() && submitted < current + concurrency) {
+            RegionScan regionScan = regionScans.get(submitted);
+            try {
+                exec.execute(regionScan);
+            } catch (RejectedExecutionException e) {
+                //线程池满了，读到该region时在调用线程中直接读取
+                if (logger.isDebugEnabled()) {
+                    logger.debug("parallel scan exec is busy, region = {} will be read in caller thread", regionScan.regionName);
+                }
+            }
+            submitted ++;
+        }
+    }
+
+    static class RegionScan implements Runnable {
+
+        private static final Object END = new Object();
+        private static final int INIT = 0;
+        private static final int ASYNC = 1;
+        private static final int CALLER = 2;
+
+        private final HBaseParallelReader reader;
+        private final String tableName;
+        private final String regionName;
+        private final Scan scan;
+        private final LinkedBlockingQueue<Object> queue;
+        private final long idleTimeoutMillis;
+        //后台线程和调用线程谁先开始读，该region就由谁读
+        private final AtomicInteger mode = new AtomicInteger(INIT);
+        private volatile boolean closed = false;
+        private volatile boolean aborted = false;
+        private volatile Throwable error;
+
+        //线程池满时，在调用线程中直接读取
+        private Table table;
+        private ResultScanner scanner;
+        private boolean finished;
+        private int rows;
+        private long startTime;
+
+        RegionScan(HBaseParallelReader reader, String tableName, String regionName, Scan scan, int prefetchRows, long idleTimeoutMillis) {
+            this.reader = reader;
+            this.tableName = tableName;
+            this.regionName = regionName;
+            this.scan = scan;
+            this.queue = new LinkedBlockingQueue<>(prefetchRows);
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        @Override
+        public void run() {
+            if (!mode.compareAndSet(INIT, ASYNC)) return;
+            long begin = System.currentTimeMillis();
+            int count = 0;
+            try (Table table = reader.getTable(tableName); ResultScanner scanner = table.getScanner(scan)) {
+                for (Result result : scanner) {
+                    if (!offer(result)) {
+                        if (aborted) {
+                            error = new CamelliaHBaseException("parallel scan aborted, caller idle for " + idleTimeoutMillis + "ms, region = " + regionName);
+                        }
+                        return;
+                    }
+                    count ++;
+                }
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                reader.onRegionRead(tableName, regionName, "parallelScan", count, begin, error == null);
+                try {
+                    if (!closed && !aborted) {
+                        offer(END);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        //队列满时等待调用方读取，scanner被关闭或者调用方超过idleTimeoutMillis没有读取时返回false
+        private boolean offer(Object obj) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + idleTimeoutMillis;
+            while (!queue.offer(obj, 100, TimeUnit.MILLISECONDS)) {
+                if (closed) return false;
+                if (System.currentTimeMillis() > deadline) {
+                    aborted = true;
+                    logger.warn("parallel scan aborted, caller idle for {}ms, tableName = {}, region = {}", idleTimeoutMillis, tableName, regionName);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Result next() throws IOException {
+            if (mode.get() == CALLER || mode.compareAndSet(INIT, CALLER)) {
+                return nextInCallerThread();
+            }
+            try {
+                Object obj;
+                while ((obj = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    //后台线程已经放弃读取，队列中剩余的结果读完之后不会再有新的结果
+                    if (aborted && queue.isEmpty()) {
+                        throw new CamelliaHBaseException("parallel scan aborted, caller idle for " + idleTimeoutMillis + "ms, region = " + regionName);
+                    }
+                }
+                if (obj == END) {
+                    //END只会出现一次，放回去保证重复调用时结果一致
+                    queue.offer(END);
+                    if (error != null) {
+                        throw new CamelliaHBaseException("parallel scan error, region = " + regionName, error);
+                    }
+                    return null;
+                }
+                return (Result) obj;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CamelliaHBaseException(e);
+            }
+        }
+
+        private Result nextInCallerThread() throws IOException {
+            if (finished) return null;
+            if (scanner == null) {
+                startTime = System.currentTimeMillis();
+                table = reader.getTable(tableName);
+                scanner = table.getScanner(scan);
+            }
+            Result result;
+            try {
+                result = scanner.next();
+            } catch (IOException e) {
+                finished = true;
+                reader.onRegionRead(tableName, regionName, "parallelScan", rows, startTime, false);
+                close();
+                throw e;
+            }
+            if (result == null) {
+                finished = true;
+                reader.onRegionRead(tableName, regionName, "parallelScan", rows, startTime, true);
+                close();
+                return null;
+            }
+            rows ++;
+            return result;
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+            if (scanner != null) {
+                scanner.close();
+                scanner = null;
+            }
+            if (table != null) {
+                try {
+                    table.close();
+                } catch (IOException e) {
+                    logger.error("close table error, tableName = {}", tableName, e);
+                }
+                table = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.netease.nim.camellia.hbase;
+
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+
+import java.util.List;
+
+/**
+ * ICamelliaHBaseTemplate的异步版本，方法含义一致，返回值包装成CamelliaHBaseFuture
+ * 不包括scan，ResultScanner本身是按需分批拉取的
+ */
+public interface ICamelliaHBaseAsyncTemplate {
+
+    CamelliaHBaseFuture<Void> put(String tableName, Put put);
+
+    CamelliaHBaseFuture<Void> put(String tableName, List<Put> puts);
+
+    CamelliaHBaseFuture<Void> delete(String tableName, Delete delete);
+
+    CamelliaHBaseFuture<Void> delete(String tableName, List<Delete> deletes);
+
+    CamelliaHBaseFuture<Void> batchWriteOpe(String tableName, List<? extends Row> actions, Object[] results);
+
+    CamelliaHBaseFuture<Boolean> checkAndDelete(String tableName, byte[] row, byte[] family, byte[] qualifier, byte[] value, Delete delete);
+
+    CamelliaHBaseFuture<Boolean> checkAndDelete(String tableName, byte[] row, byte[] family, byte[] qualifier,
+                                                CompareFilter.CompareOp compareOp, byte[] value, Delete delete);
+
+    CamelliaHBaseFuture<Result> get(String tableName, Get get);
+
+    CamelliaHBaseFuture<Result[]> get(String tableName, List<Get> gets);
+
+    CamelliaHBaseFuture<Result[]> parallelGet(String tableName, List<Get> gets);
+
+    CamelliaHBaseFuture<Boolean> checkAndPut(String tableName, byte[] row, byte[] family, byte[] qualifier, byte[] value, Put put);
+
+    CamelliaHBaseFuture<Boolean> checkAndPut(String tableName, byte[] row, byte[] family, byte[] qualifier,
+                                             CompareFilter.CompareOp compareOp, byte[] value, Put put);
+
+    CamelliaHBaseFuture<Boolean> exists(String tableName, Get get);
+
+    CamelliaHBaseFuture<boolean[]> existsAll(String tableName, List<Get> gets);
+
+    CamelliaHBaseFuture<Boolean> checkAndMutate(String tableName, byte[] row, byte[] family, byte[] qualifier,
+                                                CompareFilter.CompareOp compareOp, byte[] value, RowMutations mutation);
+
+    CamelliaHBaseFuture<Void> mutateRow(String tableName, RowMutations rm);
+
+    CamelliaHBaseFuture<Result> append(String tableName, Append append);
+
+    CamelliaHBaseFuture<Result> increment(String tableName, Increment increment);
+
+    CamelliaHBaseFuture<Long> incrementColumnValue(String tableName, byte[] row, byte[] family, byte[] qualifier, long amount);
+
+    CamelliaHBaseFuture<Long> incrementColumnValue(String tableName, byte[] row, byte[] family, byte[] qualifier, long amount, Durability durability);
+}
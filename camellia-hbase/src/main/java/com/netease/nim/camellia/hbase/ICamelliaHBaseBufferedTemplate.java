@@ -0,0 +1,29 @@
+package com.netease.nim.camellia.hbase;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+
+import java.util.List;
+
+/**
+ * 支持BufferedMutator批量异步写的ICamelliaHBaseTemplate
+ * 单独定义成子接口，已有的ICamelliaHBaseTemplate实现不需要修改
+ */
+public interface ICamelliaHBaseBufferedTemplate extends ICamelliaHBaseTemplate {
+
+    /**
+     * 写入BufferedMutator的缓冲区，异步批量提交，失败时回调CamelliaHBaseBufferedMutatorListener
+     */
+    void bufferedPut(String tableName, Put put);
+
+    void bufferedPut(String tableName, List<Put> puts);
+
+    void bufferedDelete(String tableName, Delete delete);
+
+    void bufferedDelete(String tableName, List<Delete> deletes);
+
+    /**
+     * 立即提交BufferedMutator缓冲区中的数据
+     */
+    void flushBuffered(String tableName);
+}
@@ -0,0 +1,26 @@
+package com.netease.nim.camellia.hbase;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+
+import java.util.List;
+
+/**
+ * 支持按region并行读的ICamelliaHBaseTemplate
+ * 单独定义成子接口，已有的ICamelliaHBaseTemplate实现不需要修改
+ */
+public interface ICamelliaHBaseParallelTemplate extends ICamelliaHBaseTemplate {
+
+    /**
+     * 按region分组并行get，结果顺序和gets一致
+     */
+    Result[] parallelGet(String tableName, List<Get> gets);
+
+    /**
+     * 按region边界拆分后并行scan，结果按row有序（反向scan不拆分）
+     * 过滤器和每次scan的行数限制等是按region分别生效的
+     */
+    ResultScanner parallelScan(String tableName, Scan scan);
+}
@@ -0,0 +1,296 @@
+package com.netease.nim.camellia.hbase.cache;
+
+import com.netease.nim.camellia.core.client.env.Monitor;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CamelliaHBaseTemplate的本地缓存，只对配置了的表生效
+ * 1）只缓存简单的get（没有filter、只取最新版本、不限制时间范围），缓存key是row+要读取的列
+ * 2）按row分段，每段一个LRU，内存按cell大小估算，超过maxBytes后淘汰最久没有访问的row
+ * 3）经过同一个template的写操作会失效该row的所有缓存；读hbase期间该row被写过的话，读到的结果不会放入缓存，避免缓存旧值
+ * 4）其他进程的写不会失效本地缓存，只能等缓存过期
+ * 5）命中/未命中次数通过Monitor上报，resource为hbase-cache://表名
+ */
+public class CamelliaHBaseCache {
+
+    private static final int SEGMENTS = 16;
+    //每个缓存项额外的估算开销
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Map<String, TableCache> tableCacheMap = new HashMap<>();
+    private final Monitor monitor;
+    private final String className;
+
+    public CamelliaHBaseCache(Map<String, CamelliaHBaseCacheConfig> configMap, Monitor monitor, String className) {
+        if (configMap != null) {
+            for (Map.Entry<String, CamelliaHBaseCacheConfig> entry : configMap.entrySet()) {
+                tableCacheMap.put(entry.getKey(), new TableCache(entry.getValue()));
+            }
+        }
+        this.monitor = monitor;
+        this.className = className;
+    }
+
+    /**
+     * 该表是否开启了缓存
+     */
+    public boolean enable(String tableName) {
+        return !tableCacheMap.isEmpty() && tableCacheMap.containsKey(tableName);
+    }
+
+    /**
+     * 是否可以走缓存
+     */
+    public boolean cacheable(String tableName, Get get) {
+        if (!enable(tableName)) return false;
+        return get.getFilter() == null && get.getMaxVersions() == 1 && get.getTimeRange().isAllTime()
+                && !get.isCheckExistenceOnly() && get.getMaxResultsPerColumnFamily() < 0 && get.getRowOffsetPerColumnFamily() == 0;
+    }
+
+    /**
+     * 读取缓存，null表示未命中
+     */
+    public Result getResult(String tableName, Get get) {
+        TableCache tableCache = tableCacheMap.get(tableName);
+        Object value = tableCache.get(get.getRow(), signature(get));
+        report(tableName, "get", value != null);
+        return (Result) value;
+    }
+
+    /**
+     * 读取exists的缓存，相同的get有缓存的话也可以直接判断，null表示未命中
+     */
+    public Boolean getExists(String tableName, Get get) {
+        TableCache tableCache = tableCacheMap.get(tableName);
+        String signature = signature(get);
+        Object value = tableCache.get(get.getRow(), signature);
+        if (value == null) {
+            value = tableCache.get(get.getRow(), "exists|" + signature);
+        }
+        report(tableName, "exists", value != null);
+        if (value == null) return null;
+        if (value instanceof Result) {
+            return !((Result) value).isEmpty();
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * 读hbase之前获取，放入缓存时用于判断期间是否被写过
+     */
+    public long stamp(String tableName, byte[] row) {
+        Segment segment = tableCacheMap.get(tableName).segment(row);
+        synchronized (segment) {
+            return segment.stamp;
+        }
+    }
+
+    public void putResult(String tableName, Get get, Result result, long stamp) {
+        if (result == null) return;
+        TableCache tableCache = tableCacheMap.get(tableName);
+        if (result.isEmpty()) {
+            if (!tableCache.config.isCacheNull()) return;
+            tableCache.put(get.getRow(), signature(get), result, ENTRY_OVERHEAD, tableCache.config.getNullExpireMillis(), stamp);
+        } else {
+            tableCache.put(get.getRow(), signature(get), result, estimateSize(result), tableCache.config.getExpireMillis(), stamp);
+        }
+    }
+
+    public void putExists(String tableName, Get get, boolean exists, long stamp) {
+        TableCache tableCache = tableCacheMap.get(tableName);
+        if (exists) {
+            tableCache.put(get.getRow(), "exists|" + signature(get), Boolean.TRUE, ENTRY_OVERHEAD, tableCache.config.getExpireMillis(), stamp);
+        } else if (tableCache.config.isCacheNull()) {
+            tableCache.put(get.getRow(), "exists|" + signature(get), Boolean.FALSE, ENTRY_OVERHEAD, tableCache.config.getNullExpireMillis(), stamp);
+        }
+    }
+
+    public void invalidate(String tableName, byte[] row) {
+        if (tableCacheMap.isEmpty()) return;
+        TableCache tableCache = tableCacheMap.get(tableName);
+        if (tableCache == null) return;
+        tableCache.invalidate(row);
+    }
+
+    public void invalidate(String tableName, List<? extends Row> rows) {
+        if (tableCacheMap.isEmpty()) return;
+        TableCache tableCache = tableCacheMap.get(tableName);
+        if (tableCache == null) return;
+        for (Row row : rows) {
+            tableCache.invalidate(row.getRow());
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount(String tableName) {
+        TableCache tableCache = tableCacheMap.get(tableName);
+        return tableCache == null ? 0 : tableCache.hit.get();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount(String tableName) {
+        TableCache tableCache = tableCacheMap.get(tableName);
+        return tableCache == null ? 0 : tableCache.miss.get();
+    }
+
+    private void report(String tableName, String method, boolean hit) {
+        TableCache tableCache = tableCacheMap.get(tableName);
+        if (hit) {
+            tableCache.hit.incrementAndGet();
+        } else {
+            tableCache.miss.incrementAndGet();
+        }
+        if (monitor != null) {
+            monitor.incrRead("hbase-cache://" + tableName, className, hit ? method + "(hit)" : method + "(miss)");
+        }
+    }
+
+    //要读取的列，所有列用*表示
+    private static String signature(Get get) {
+        if (!get.hasFamilies()) return "*";
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry : get.getFamilyMap().entrySet()) {
+            builder.append(Bytes.toStringBinary(entry.getKey())).append(":");
+            if (entry.getValue() == null) {
+                builder.append("*");
+            } else {
+                for (byte[] qualifier : entry.getValue()) {
+                    builder.append(Bytes.toStringBinary(qualifier)).append(",");
+                }
+            }
+            builder.append(";");
+        }
+        return builder.toString();
+    }
+
+    private static long estimateSize(Result result) {
+        long size = ENTRY_OVERHEAD;
+        Cell[] cells = result.rawCells();
+        if (cells != null) {
+            for (Cell cell : cells) {
+                size += CellUtil.estimatedSerializedSizeOf(cell);
+            }
+        }
+        return size;
+    }
+
+    private static class TableCache {
+        private final CamelliaHBaseCacheConfig config;
+        private final Segment[] segments = new Segment[SEGMENTS];
+        private final AtomicLong hit = new AtomicLong();
+        private final AtomicLong miss = new AtomicLong();
+
+        TableCache(CamelliaHBaseCacheConfig config) {
+            this.config = config;
+            for (int i=0; i<SEGMENTS; i++) {
+                segments[i] = new Segment(Math.max(config.getMaxBytes() / SEGMENTS, 1));
+            }
+        }
+
+        Segment segment(byte[] row) {
+            return segments[(Bytes.hashCode(row) & 0x7fffffff) % SEGMENTS];
+        }
+
+        Object get(byte[] row, String signature) {
+            Segment segment = segment(row);
+            synchronized (segment) {
+                RowEntry rowEntry = segment.map.get(ByteBuffer.wrap(row));
+                if (rowEntry == null) return null;
+                Entry entry = rowEntry.entries.get(signature);
+                if (entry == null) return null;
+                if (entry.expireTime < System.currentTimeMillis()) {
+                    rowEntry.entries.remove(signature);
+                    rowEntry.size -= entry.size;
+                    segment.size -= entry.size;
+                    if (rowEntry.entries.isEmpty()) {
+                        segment.map.remove(ByteBuffer.wrap(row));
+                    }
+                    return null;
+                }
+                return entry.value;
+            }
+        }
+
+        void put(byte[] row, String signature, Object value, long size, long expireMillis, long stamp) {
+            if (expireMillis <= 0) return;
+            Segment segment = segment(row);
+            synchronized (segment) {
+                //读hbase期间被写过
+                if (segment.stamp != stamp) return;
+                if (size > segment.maxBytes) return;
+                RowEntry rowEntry = segment.map.get(ByteBuffer.wrap(row));
+                if (rowEntry == null) {
+                    //复制一份row，避免调用方修改
+                    ByteBuffer key = ByteBuffer.wrap(Arrays.copyOf(row, row.length));
+                    rowEntry = new RowEntry();
+                    segment.map.put(key, rowEntry);
+                }
+                Entry old = rowEntry.entries.put(signature, new Entry(value, size, System.currentTimeMillis() + expireMillis));
+                if (old != null) {
+                    rowEntry.size -= old.size;
+                    segment.size -= old.size;
+                }
+                rowEntry.size += size;
+                segment.size += size;
+                Iterator<Map.Entry<ByteBuffer, RowEntry>> iterator = segment.map.entrySet().iterator();
+                while (segment.size > segment.maxBytes && iterator.hasNext()) {
+                    Map.Entry<ByteBuffer, RowEntry> eldest = iterator.next();
+                    segment.size -= eldest.getValue().size;
+                    iterator.remove();
+                }
+            }
+        }
+
+        void invalidate(byte[] row) {
+            Segment segment = segment(row);
+            synchronized (segment) {
+                segment.stamp ++;
+                RowEntry rowEntry = segment.map.remove(ByteBuffer.wrap(row));
+                if (rowEntry != null) {
+                    segment.size -= rowEntry.size;
+                }
+            }
+        }
+    }
+
+    private static class Segment {
+        private final long maxBytes;
+        private final LinkedHashMap<ByteBuffer, RowEntry> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long size;
+        private long stamp;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    private static class RowEntry {
+        private final Map<String, Entry> entries = new HashMap<>();
+        private long size;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long size;
+        private final long expireTime;
+
+        Entry(Object value, long size, long expireTime) {
+            this.value = value;
+            this.size = size;
+            this.expireTime = expireTime;
+        }
+    }
+}
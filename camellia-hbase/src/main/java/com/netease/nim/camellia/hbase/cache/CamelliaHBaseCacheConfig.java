@@ -0,0 +1,63 @@
+package com.netease.nim.camellia.hbase.cache;
+
+/**
+ * 单个表的本地缓存配置
+ */
+public class CamelliaHBaseCacheConfig {
+
+    //缓存占用的最大内存（估算值），超过后按LRU淘汰
+    private long maxBytes = 64 * 1024 * 1024L;
+    //缓存时间
+    private long expireMillis = 10000L;
+    //是否缓存不存在的row
+    private boolean cacheNull = false;
+    //不存在的row的缓存时间
+    private long nullExpireMillis = 1000L;
+
+    public CamelliaHBaseCacheConfig() {
+    }
+
+    public CamelliaHBaseCacheConfig(long maxBytes, long expireMillis) {
+        this.maxBytes = maxBytes;
+        this.expireMillis = expireMillis;
+    }
+
+    public CamelliaHBaseCacheConfig(long maxBytes, long expireMillis, boolean cacheNull, long nullExpireMillis) {
+        this.maxBytes = maxBytes;
+        this.expireMillis = expireMillis;
+        this.cacheNull = cacheNull;
+        this.nullExpireMillis = nullExpireMillis;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getExpireMillis() {
+        return expireMillis;
+    }
+
+    public void setExpireMillis(long expireMillis) {
+        this.expireMillis = expireMillis;
+    }
+
+    public boolean isCacheNull() {
+        return cacheNull;
+    }
+
+    public void setCacheNull(boolean cacheNull) {
+        this.cacheNull = cacheNull;
+    }
+
+    public long getNullExpireMillis() {
+        return nullExpireMillis;
+    }
+
+    public void setNullExpireMillis(long nullExpireMillis) {
+        this.nullExpireMillis = nullExpireMillis;
+    }
+}
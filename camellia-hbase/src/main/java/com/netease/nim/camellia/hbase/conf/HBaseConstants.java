@@ -8,4 +8,10 @@ public class HBaseConstants {
 
     public static final String ZK = "hbase.zookeeper.quorum";
     public static final String ZK_PARENT = "zookeeper.znode.parent";
+
+    //BufferedMutator的写缓冲大小，不配置则使用hbase.client.write.buffer
+    public static final String BUFFERED_MUTATOR_WRITE_BUFFER_SIZE = "camellia.hbase.buffered.mutator.write.buffer.size";
+    //BufferedMutator定时flush的间隔，小于等于0表示不定时flush，只在写缓冲满时flush
+    public static final String BUFFERED_MUTATOR_FLUSH_INTERVAL_MILLIS = "camellia.hbase.buffered.mutator.flush.interval.millis";
+    public static final long DEFAULT_BUFFERED_MUTATOR_FLUSH_INTERVAL_MILLIS = 1000;
 }
@@ -0,0 +1,28 @@
+package com.netease.nim.camellia.hbase.connection;
+
+import com.netease.nim.camellia.hbase.resource.HBaseResource;
+import org.apache.hadoop.hbase.client.Row;
+
+/**
+ * BufferedMutator异步写失败时的回调
+ */
+public interface CamelliaHBaseBufferedMutatorListener {
+
+    /**
+     * 写失败（已经重试过）
+     * @param hBaseResource hbase地址
+     * @param tableName 表名
+     * @param row 写失败的Put/Delete
+     * @param cause 失败原因
+     */
+    void onException(HBaseResource hBaseResource, String tableName, Row row, Throwable cause);
+
+    /**
+     * 一个默认实现，什么也不做（失败的日志在CamelliaHBaseConnection中统一打印）
+     */
+    CamelliaHBaseBufferedMutatorListener DEFAULT = new CamelliaHBaseBufferedMutatorListener() {
+        @Override
+        public void onException(HBaseResource hBaseResource, String tableName, Row row, Throwable cause) {
+        }
+    };
+}
@@ -1,20 +1,24 @@
 package com.netease.nim.camellia.hbase.connection;
 
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
 import com.netease.nim.camellia.hbase.conf.CamelliaHBaseConf;
 import com.netease.nim.camellia.hbase.conf.HBaseConstants;
 import com.netease.nim.camellia.hbase.exception.CamelliaHBaseException;
 import com.netease.nim.camellia.hbase.resource.HBaseResource;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.Connection;
-import org.apache.hadoop.hbase.client.ConnectionFactory;
-import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  *
@@ -24,17 +28,42 @@ public class CamelliaHBaseConnection {
 
     private static final Logger logger = LoggerFactory.getLogger(CamelliaHBaseConnection.class);
 
+    //所有连接的BufferedMutator共用一个定时flush的线程
+    private static final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(CamelliaHBaseConnection.class));
+
     private final HBaseResource hBaseResource;
     private final CamelliaHBaseConf hBaseConf;
+    private final CamelliaHBaseBufferedMutatorListener bufferedMutatorListener;
 
     private Configuration configuration;
 
     private Connection connection;
 
+    private final ConcurrentHashMap<String, BufferedMutator> mutatorMap = new ConcurrentHashMap<>();
+    private final Object mutatorLock = new Object();
+    //写入和flush时持有读锁，重连时持有写锁把旧的BufferedMutator换下来，保证关闭旧的BufferedMutator时没有正在进行的写入
+    private final ReentrantReadWriteLock mutatorRwLock = new ReentrantReadWriteLock();
+    private ScheduledFuture<?> flushFuture;
+    private volatile boolean closed = false;
+
     public CamelliaHBaseConnection(HBaseResource hBaseResource, CamelliaHBaseConf hBaseConf) {
+        this(hBaseResource, hBaseConf, CamelliaHBaseBufferedMutatorListener.DEFAULT);
+    }
+
+    public CamelliaHBaseConnection(HBaseResource hBaseResource, CamelliaHBaseConf hBaseConf, CamelliaHBaseBufferedMutatorListener bufferedMutatorListener) {
         this.hBaseResource = hBaseResource;
         this.hBaseConf = hBaseConf;
+        this.bufferedMutatorListener = bufferedMutatorListener == null ? CamelliaHBaseBufferedMutatorListener.DEFAULT : bufferedMutatorListener;
         init();
+        long flushIntervalMillis = flushIntervalMillis();
+        if (flushIntervalMillis > 0) {
+            flushFuture = flushScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flushBufferedMutators();
+                }
+            }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
     private void init() {
@@ -64,6 +93,178 @@ public class CamelliaHBaseConnection {
         }
     }
 
+    public RegionLocator getRegionLocator(String tableName) {
+        try {
+            return connection.getRegionLocator(TableName.valueOf(tableName));
+        } catch (IOException e) {
+            logger.error("getRegionLocator error, hbaseResource = {}, tableName = {}", hBaseResource.getUrl(), tableName, e);
+            onException();
+            throw new CamelliaHBaseException("get region locator, table = " + tableName + " error", e);
+        }
+    }
+
+    /**
+     * 获取BufferedMutator，每个表一个，写入缓冲区后异步批量提交（按region server分组）
+     * 写失败时不会抛异常给调用方，而是回调CamelliaHBaseBufferedMutatorListener
+     * 重连时旧的BufferedMutator会被关闭，不要长期持有，写入请使用bufferedMutate
+     */
+    public BufferedMutator getBufferedMutator(String tableName) {
+        try {
+            return getOrCreateBufferedMutator(tableName);
+        } catch (IOException e) {
+            logger.error("getBufferedMutator error, hbaseResource = {}, tableName = {}", hBaseResource.getUrl(), tableName, e);
+            onException();
+            throw new CamelliaHBaseException("get buffered mutator, table = " + tableName + " error", e);
+        }
+    }
+
+    /**
+     * 写入某个表的BufferedMutator，和重连互斥，不会写入已经关闭的BufferedMutator
+     */
+    public void bufferedMutate(String tableName, Mutation mutation) throws IOException {
+        bufferedMutate(tableName, Collections.singletonList(mutation));
+    }
+
+    public void bufferedMutate(String tableName, List<? extends Mutation> mutations) throws IOException {
+        boolean reconnect = false;
+        mutatorRwLock.readLock().lock();
+        try {
+            BufferedMutator mutator;
+            try {
+                mutator = getOrCreateBufferedMutator(tableName);
+            } catch (IOException e) {
+                logger.error("getBufferedMutator error, hbaseResource = {}, tableName = {}", hBaseResource.getUrl(), tableName, e);
+                reconnect = true;
+                throw new CamelliaHBaseException("get buffered mutator, table = " + tableName + " error", e);
+            }
+            mutator.mutate(mutations);
+        } finally {
+            mutatorRwLock.readLock().unlock();
+            //重连需要获取写锁，释放读锁之后才能执行
+            if (reconnect) {
+                onException();
+            }
+        }
+    }
+
+    private BufferedMutator getOrCreateBufferedMutator(String tableName) throws IOException {
+        BufferedMutator mutator = mutatorMap.get(tableName);
+        if (mutator != null) return mutator;
+        synchronized (mutatorLock) {
+            if (closed) {
+                throw new IllegalStateException("hbase connection closed, hbaseResource = " + hBaseResource.getUrl());
+            }
+            mutator = mutatorMap.get(tableName);
+            if (mutator != null) return mutator;
+            mutator = connection.getBufferedMutator(bufferedMutatorParams(tableName));
+            mutatorMap.put(tableName, mutator);
+            return mutator;
+        }
+    }
+
+    /**
+     * flush某个表的BufferedMutator
+     */
+    public void flushBufferedMutator(String tableName) {
+        mutatorRwLock.readLock().lock();
+        try {
+            BufferedMutator mutator = mutatorMap.get(tableName);
+            if (mutator == null) return;
+            mutator.flush();
+        } catch (IOException e) {
+            throw new CamelliaHBaseException("flush buffered mutator, table = " + tableName + " error", e);
+        } finally {
+            mutatorRwLock.readLock().unlock();
+        }
+    }
+
+    private void flushBufferedMutators() {
+        mutatorRwLock.readLock().lock();
+        try {
+            for (Map.Entry<String, BufferedMutator> entry : mutatorMap.entrySet()) {
+                try {
+                    entry.getValue().flush();
+                } catch (Exception e) {
+                    logger.error("flush buffered mutator error, hbaseResource = {}, tableName = {}", hBaseResource.getUrl(), entry.getKey(), e);
+                }
+            }
+        } finally {
+            mutatorRwLock.readLock().unlock();
+        }
+    }
+
+    //把当前的BufferedMutator都换下来，等正在进行的写入完成后再flush并关闭
+    private void closeBufferedMutators() {
+        List<Map.Entry<String, BufferedMutator>> oldMutators;
+        mutatorRwLock.writeLock().lock();
+        try {
+            synchronized (mutatorLock) {
+                oldMutators = new ArrayList<>(mutatorMap.entrySet());
+                mutatorMap.clear();
+            }
+        } finally {
+            mutatorRwLock.writeLock().unlock();
+        }
+        for (Map.Entry<String, BufferedMutator> entry : oldMutators) {
+            try {
+                //close会先flush缓冲区中的数据
+                entry.getValue().close();
+            } catch (Exception e) {
+                logger.error("close buffered mutator error, tableName = {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * 关闭连接，会停止定时flush，并flush掉BufferedMutator中缓冲的数据
+     */
+    public void close() {
+        synchronized (mutatorLock) {
+            if (closed) return;
+            closed = true;
+        }
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        closeBufferedMutators();
+        try {
+            connection.close();
+        } catch (IOException e) {
+            logger.error("close hbase connection error, hbaseResource = {}", hBaseResource.getUrl(), e);
+        }
+    }
+
+    private BufferedMutatorParams bufferedMutatorParams(final String tableName) {
+        BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(tableName));
+        String writeBufferSize = hBaseConf == null ? null : hBaseConf.getConf(HBaseConstants.BUFFERED_MUTATOR_WRITE_BUFFER_SIZE);
+        if (writeBufferSize != null) {
+            params.writeBufferSize(Long.parseLong(writeBufferSize));
+        }
+        params.listener(new BufferedMutator.ExceptionListener() {
+            @Override
+            public void onException(RetriesExhaustedWithDetailsException e, BufferedMutator mutator) {
+                logger.error("buffered mutator error, hbaseResource = {}, tableName = {}, num = {}",
+                        hBaseResource.getUrl(), tableName, e.getNumExceptions(), e);
+                for (int i=0; i<e.getNumExceptions(); i++) {
+                    try {
+                        bufferedMutatorListener.onException(hBaseResource, tableName, e.getRow(i), e.getCause(i));
+                    } catch (Exception ex) {
+                        logger.error("buffered mutator listener error", ex);
+                    }
+                }
+            }
+        });
+        return params;
+    }
+
+    private long flushIntervalMillis() {
+        String flushIntervalMillis = hBaseConf == null ? null : hBaseConf.getConf(HBaseConstants.BUFFERED_MUTATOR_FLUSH_INTERVAL_MILLIS);
+        if (flushIntervalMillis == null) {
+            return HBaseConstants.DEFAULT_BUFFERED_MUTATOR_FLUSH_INTERVAL_MILLIS;
+        }
+        return Long.parseLong(flushIntervalMillis);
+    }
+
     private final AtomicBoolean replaceConnection = new AtomicBoolean(false);
     private void onException() {
         if (!replaceConnection.compareAndSet(false, true)) return;
@@ -73,6 +274,8 @@ public class CamelliaHBaseConnection {
             Connection oldConnection = connection;
             logger.warn("new connect ok");
             connection = newConnection;
+            //BufferedMutator绑定在旧连接上，换下来之后flush并关闭，新的写入会在新连接上创建BufferedMutator
+            closeBufferedMutators();
             if (oldConnection != null && !oldConnection.isClosed()) {
                 oldConnection.close();
                 logger.warn("old connect close");
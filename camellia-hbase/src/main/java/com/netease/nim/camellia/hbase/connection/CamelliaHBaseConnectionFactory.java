@@ -26,6 +26,7 @@ public interface CamelliaHBaseConnectionFactory {
     public static class DefaultHBaseConnectionFactory implements CamelliaHBaseConnectionFactory {
 
         private CamelliaHBaseConf hBaseConf = new CamelliaHBaseConf();
+        private CamelliaHBaseBufferedMutatorListener bufferedMutatorListener = CamelliaHBaseBufferedMutatorListener.DEFAULT;
         private final ConcurrentHashMap<String, CamelliaHBaseConnection> map = new ConcurrentHashMap<>();
 
         private final Object lock = new Object();
@@ -37,6 +38,11 @@ public interface CamelliaHBaseConnectionFactory {
             this.hBaseConf = hBaseConf;
         }
 
+        public DefaultHBaseConnectionFactory(CamelliaHBaseConf hBaseConf, CamelliaHBaseBufferedMutatorListener bufferedMutatorListener) {
+            this.hBaseConf = hBaseConf;
+            this.bufferedMutatorListener = bufferedMutatorListener;
+        }
+
         @Override
         public CamelliaHBaseConnection getHBaseConnection(HBaseResource hBaseResource) {
             String url = hBaseResource.getUrl();
@@ -45,7 +51,7 @@ public interface CamelliaHBaseConnectionFactory {
                 synchronized (lock) {
                     hBaseConnection = map.get(url);
                     if (hBaseConnection == null) {
-                        hBaseConnection = new CamelliaHBaseConnection(hBaseResource, hBaseConf);
+                        hBaseConnection = new CamelliaHBaseConnection(hBaseResource, hBaseConf, bufferedMutatorListener);
                         map.put(url, hBaseConnection);
                     }
                 }
@@ -3,14 +3,19 @@ package com.netease.nim.camellia.redis.proxy.hbase;
 import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
 import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.util.BytesKey;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,8 +33,20 @@ public class HBaseAsyncWriteExecutor {
     private final List<HBaseAsyncWriteExecutor.HBaseAsyncWriteThread> threadList = new ArrayList<>();
 
     public HBaseAsyncWriteExecutor(CamelliaHBaseTemplate hBaseTemplate, int poolSize, int queueSize) {
+        boolean logEnable = RedisHBaseConfiguration.hbaseAsyncWriteLogEnable();
+        File logDir = new File(RedisHBaseConfiguration.hbaseAsyncWriteLogDir());
+        if (logEnable) {
+            logger.info("hbase async write log enable, dir = {}", logDir.getAbsolutePath());
+        }
         for (int i=0; i<poolSize; i++) {
-            HBaseAsyncWriteExecutor.HBaseAsyncWriteThread thread = new HBaseAsyncWriteExecutor.HBaseAsyncWriteThread(hBaseTemplate, queueSize);
+            HBaseAsyncWriteLog writeLog = null;
+            if (logEnable) {
+                //目录和线程一一对应，因此修改线程数之前需要确保日志已经全部消费完
+                writeLog = new HBaseAsyncWriteLog(new File(logDir, "writer-" + i),
+                        RedisHBaseConfiguration.hbaseAsyncWriteLogSegmentSize(), RedisHBaseConfiguration.hbaseAsyncWriteLogMaxSegments(),
+                        RedisHBaseConfiguration.hbaseAsyncWriteLogFlushIntervalMillis(), RedisHBaseConfiguration.hbaseAsyncWriteLogSyncCommit());
+            }
+            HBaseAsyncWriteExecutor.HBaseAsyncWriteThread thread = new HBaseAsyncWriteExecutor.HBaseAsyncWriteThread(hBaseTemplate, queueSize, writeLog);
             thread.start();
             threadList.add(thread);
         }
@@ -73,79 +90,217 @@ public class HBaseAsyncWriteExecutor {
 
     private static class HBaseAsyncWriteThread extends Thread {
         private static final AtomicLong id = new AtomicLong();
+        private static final long FAIL_RETRY_INTERVAL_MILLIS = 100;
         private final LinkedBlockingQueue<HBaseAsyncWriteTask> queue;
         private final CamelliaHBaseTemplate hBaseTemplate;
+        private final HBaseAsyncWriteLog writeLog;
+        private int adaptiveBatchSize;
+        private int failCount;
+        private Exception lastError;
+        private double latencyEwmaMillis;
 
-        public HBaseAsyncWriteThread(CamelliaHBaseTemplate hBaseTemplate, int queueSize) {
+        public HBaseAsyncWriteThread(CamelliaHBaseTemplate hBaseTemplate, int queueSize, HBaseAsyncWriteLog writeLog) {
             this.hBaseTemplate = hBaseTemplate;
+            this.writeLog = writeLog;
             this.queue = new LinkedBlockingQueue<>(queueSize);
             setName("hbase-async-write-" + id.incrementAndGet());
             RedisHBaseMonitor.register(getName(), queue);
         }
 
         public boolean submit(HBaseAsyncWriteTask task) {
+            if (writeLog != null) {
+                return writeLog.append(task);
+            }
             return queue.offer(task);
         }
 
+        private HBaseAsyncWriteTask poll(long timeoutNanos) throws InterruptedException {
+            if (writeLog != null) {
+                return writeLog.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+            if (timeoutNanos <= 0) {
+                return queue.poll();
+            }
+            return queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
         @Override
         public void run() {
-            List<Put> putBuffer = new ArrayList<>();
-            List<Delete> deleteBuffer = new ArrayList<>();
+            //按rowKey合并，同一个rowKey只保留最后一次写
+            //ref-key对应的行只有d:data一列，put是整体覆盖，delete是整行删除，因此后写的可以直接覆盖先写的，且合并后每行只有一个操作，不存在行内乱序
+            LinkedHashMap<BytesKey, Mutation> batch = new LinkedHashMap<>();
+            int mutationCount = 0;
             while (true) {
                 try {
-                    HBaseAsyncWriteTask task = queue.poll(1, TimeUnit.SECONDS);
-                    if (task == null) {
-                        if (!putBuffer.isEmpty()) {
-                            flushPuts(putBuffer);
-                        }
-                        if (!deleteBuffer.isEmpty()) {
-                            flushDelete(deleteBuffer);
+                    long deadline;
+                    if (batch.isEmpty()) {
+                        HBaseAsyncWriteTask task = poll(TimeUnit.SECONDS.toNanos(1));
+                        if (task == null) {
+                            if (writeLog != null) {
+                                writeLog.checkpoint(writeLog.getReadOffset());
+                            }
+                            continue;
                         }
-                        continue;
+                        mutationCount += merge(batch, task);
                     }
-                    List<Put> puts = task.getPuts();
-                    if (puts != null) {
-                        if (!deleteBuffer.isEmpty()) {
-                            flushDelete(deleteBuffer);
-                        }
-                        putBuffer.addAll(puts);
-                        if (putBuffer.size() >= RedisHBaseConfiguration.hbaseMaxBatch()) {
-                            flushPuts(putBuffer);
-                        }
+                    deadline = System.nanoTime() + lingerNanos();
+                    //队列里有积压时直接批量取出，没有积压时最多等待linger的时间
+                    while (batch.size() < batchSize()) {
+                        HBaseAsyncWriteTask task = poll(deadline - System.nanoTime());
+                        if (task == null) break;
+                        mutationCount += merge(batch, task);
                     }
-                    List<Delete> deletes = task.getDeletes();
-                    if (deletes != null) {
-                        if (!putBuffer.isEmpty()) {
-                            flushPuts(putBuffer);
+                    if (flush(batch, mutationCount)) {
+                        failCount = 0;
+                        batch.clear();
+                        mutationCount = 0;
+                        if (writeLog != null) {
+                            writeLog.checkpoint(writeLog.getReadOffset());
                         }
-                        deleteBuffer.addAll(deletes);
-                        if (deleteBuffer.size() >= RedisHBaseConfiguration.hbaseMaxBatch()) {
-                            flushDelete(deleteBuffer);
+                    } else {
+                        //失败了保留当前批次，稍后重试（put/delete是幂等的）
+                        failCount ++;
+                        if (failCount >= RedisHBaseConfiguration.hbaseAsyncWriteMaxRetries() && !isTransient(lastError)) {
+                            //多次重试仍然失败，且不是hbase不可用之类的临时错误，逐条写入，找出并丢弃有问题的写操作，避免整个线程卡住
+                            isolate(batch);
+                            failCount = 0;
+                            mutationCount = batch.size();
+                            if (batch.isEmpty()) {
+                                if (writeLog != null) {
+                                    writeLog.checkpoint(writeLog.getReadOffset());
+                                }
+                                continue;
+                            }
                         }
+                        TimeUnit.MILLISECONDS.sleep(FAIL_RETRY_INTERVAL_MILLIS);
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
                 } catch (Exception e) {
                     logger.error("hbase async write error", e);
                 }
             }
         }
 
-        private void flushPuts(List<Put> putBuffer) {
-            int size = putBuffer.size();
-            if (size <= 0) return;
-            hBaseTemplate.put(hbaseTableName(), putBuffer);
-            putBuffer.clear();
-            if (logger.isDebugEnabled()) {
-                logger.debug("flush hbase of put, size = {}", size);
+        private int merge(LinkedHashMap<BytesKey, Mutation> batch, HBaseAsyncWriteTask task) {
+            int count = 0;
+            List<Put> puts = task.getPuts();
+            if (puts != null) {
+                for (Put put : puts) {
+                    batch.put(new BytesKey(put.getRow()), put);
+                    count ++;
+                }
             }
+            List<Delete> deletes = task.getDeletes();
+            if (deletes != null) {
+                for (Delete delete : deletes) {
+                    batch.put(new BytesKey(delete.getRow()), delete);
+                    count ++;
+                }
+            }
+            return count;
         }
 
-        private void flushDelete(List<Delete> deleteBuffer) {
-            int size = deleteBuffer.size();
-            if (size <= 0) return;
-            hBaseTemplate.delete(hbaseTableName(), deleteBuffer);
-            deleteBuffer.clear();
+        private boolean flush(LinkedHashMap<BytesKey, Mutation> batch, int mutationCount) {
+            int size = batch.size();
+            if (size <= 0) return true;
+            List<Mutation> actions = new ArrayList<>(batch.values());
+            long startTime = System.nanoTime();
+            try {
+                hBaseTemplate.batchWriteOpe(hbaseTableName(), actions, new Object[size]);
+            } catch (Exception e) {
+                logger.error("hbase async write flush error, size = {}, failCount = {}", size, failCount, e);
+                lastError = e;
+                adjust(size, Long.MAX_VALUE);
+                return false;
+            }
+            long spendMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            adjust(size, spendMillis);
+            RedisHBaseMonitor.updateHistogram("hbase_async_write_batch_size", size);
+            RedisHBaseMonitor.updateHistogram("hbase_async_write_flush_latency_ms", spendMillis);
+            if (mutationCount > size) {
+                RedisHBaseMonitor.updateHistogram("hbase_async_write_coalesced", mutationCount - size);
+            }
             if (logger.isDebugEnabled()) {
-                logger.debug("flush hbase of delete, size = {}", size);
+                logger.debug("flush hbase of mutations, size = {}, coalesced = {}, spendMillis = {}", size, mutationCount - size, spendMillis);
+            }
+            return true;
+        }
+
+        //逐条写入，成功的从批次中移除，非临时错误的丢弃并记录，临时错误的保留下来继续重试
+        private void isolate(LinkedHashMap<BytesKey, Mutation> batch) {
+            int success = 0;
+            int drop = 0;
+            Iterator<Map.Entry<BytesKey, Mutation>> iterator = batch.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Mutation mutation = iterator.next().getValue();
+                try {
+                    hBaseTemplate.batchWriteOpe(hbaseTableName(), Collections.singletonList(mutation), new Object[1]);
+                    iterator.remove();
+                    success ++;
+                } catch (Exception e) {
+                    if (isTransient(e)) continue;
+                    iterator.remove();
+                    drop ++;
+                    RedisHBaseMonitor.incrDegraded("hbase_async_write_drop");
+                    logger.error("hbase async write drop, type = {}, rowKey = {}", mutation.getClass().getSimpleName(),
+                            Bytes.toStringBinary(mutation.getRow()), e);
+                }
+            }
+            logger.warn("hbase async write isolate done, success = {}, drop = {}, remaining = {}", success, drop, batch.size());
+        }
+
+        //只有明确是临时错误（hbase不可用、超时等）的才一直重试，表不存在、列族不存在、cell过大等错误重试也不会成功
+        private static boolean isTransient(Throwable e) {
+            while (e != null) {
+                if (e instanceof DoNotRetryIOException) return false;
+                if (e instanceof RetriesExhaustedWithDetailsException) {
+                    RetriesExhaustedWithDetailsException exception = (RetriesExhaustedWithDetailsException) e;
+                    for (int i=0; i<exception.getNumExceptions(); i++) {
+                        if (!isTransient(exception.getCause(i))) return false;
+                    }
+                    return true;
+                }
+                if (e instanceof IOException) return true;
+                e = e.getCause();
+            }
+            return false;
+        }
+
+        private int batchSize() {
+            if (!RedisHBaseConfiguration.hbaseAsyncWriteAdaptiveBatchEnable()) {
+                return RedisHBaseConfiguration.hbaseMaxBatch();
+            }
+            if (adaptiveBatchSize <= 0) {
+                adaptiveBatchSize = RedisHBaseConfiguration.hbaseMaxBatch();
+            }
+            return adaptiveBatchSize;
+        }
+
+        private long lingerNanos() {
+            if (!RedisHBaseConfiguration.hbaseAsyncWriteAdaptiveBatchEnable()) {
+                return 0;
+            }
+            //hbase越慢，越值得多等一会凑批量，但是不超过配置的上限
+            long lingerMicros = Math.min((long) (latencyEwmaMillis * 1000 / 4),
+                    RedisHBaseConfiguration.hbaseAsyncWriteMaxLingerMillis() * 1000);
+            return TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        }
+
+        //AIMD：耗时超过目标值时批量减半，批量打满且耗时正常时线性增加
+        private void adjust(int size, long spendMillis) {
+            if (!RedisHBaseConfiguration.hbaseAsyncWriteAdaptiveBatchEnable()) return;
+            int maxBatch = Math.max(RedisHBaseConfiguration.hbaseAsyncWriteBatchMaxSize(), 1);
+            int minBatch = Math.max(Math.min(RedisHBaseConfiguration.hbaseMaxBatch() / 10, maxBatch), 1);
+            int current = batchSize();
+            if (spendMillis > RedisHBaseConfiguration.hbaseAsyncWriteTargetLatencyMillis()) {
+                adaptiveBatchSize = Math.max(current / 2, minBatch);
+            } else if (size >= current) {
+                adaptiveBatchSize = Math.min(current + Math.max(current / 10, 1), maxBatch);
+            }
+            if (spendMillis != Long.MAX_VALUE) {
+                latencyEwmaMillis = latencyEwmaMillis * 0.8 + spendMillis * 0.2;
             }
         }
     }
@@ -0,0 +1,493 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.redis.proxy.hbase.util.DirectBufferUtils;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * HBaseAsyncWriteExecutor的本地持久化日志，每个异步写线程对应一个目录
+ * 1）写入：HBaseAsyncWriteTask序列化后追加到mmap的segment文件中（append-only），segment写满后滚动到下一个
+ * 2）刷盘：后台线程周期性的force（group commit），开启同步提交时append会等待刷盘完成再返回
+ * 3）消费：异步写线程直接从日志中读取任务，写入hbase成功后推进checkpoint，checkpoint之前的segment会被删除
+ * 4）重启：从checkpoint开始重新读取，也就是未确认写入hbase的任务会被重放（put/delete是幂等的）
+ * record格式：[int len][int crc32][payload]，len=0表示当前segment已结束
+ * payload中每个put整体保存（所有cell及其timestamp、attributes、durability），delete只支持整行删除
+ */
+public class HBaseAsyncWriteLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(HBaseAsyncWriteLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 8;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final long CHECKPOINT_PERSIST_INTERVAL_MILLIS = 1000;
+
+    private final File dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long flushIntervalMillis;
+    private final boolean syncCommit;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    private Segment writeSegment;
+    private volatile long writeOffset;
+    private volatile long flushedOffset;
+    private volatile long checkpoint;
+    private long persistedCheckpoint;
+    private long readOffset;
+
+    public HBaseAsyncWriteLog(File dir, int segmentSize, int maxSegments, long flushIntervalMillis, boolean syncCommit) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.syncCommit = syncCommit;
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("hbase async write log recover fail, dir = " + dir.getAbsolutePath(), e);
+        }
+        Thread thread = new Thread(this::flushLoop, "hbase-async-write-log-flush-" + dir.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 追加一个任务
+     * @return 是否成功，日志超过上限、任务不支持持久化、或者开启同步提交时等待刷盘超时，返回false
+     */
+    public boolean append(HBaseAsyncWriteExecutor.HBaseAsyncWriteTask task) {
+        byte[] payload = encode(task);
+        if (payload == null) return false;
+        if (HEADER_SIZE + payload.length + 4 > segmentSize) {
+            logger.warn("hbase async write task too large for log segment, size = {}", payload.length);
+            return false;
+        }
+        long end = Long.MAX_VALUE;
+        lock.lock();
+        try {
+            int position = (int) (writeOffset - writeSegment.start);
+            if (position + HEADER_SIZE + payload.length + 4 > segmentSize) {
+                if (segments.size() >= maxSegments) {
+                    return false;
+                }
+                writeSegment.buffer.putInt(position, 0);
+                writeSegment = createSegment(writeSegment.start + segmentSize);
+                position = 0;
+                writeOffset = writeSegment.start;
+            }
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload, 0, payload.length);
+            ByteBuffer buffer = writeSegment.buffer.duplicate();
+            buffer.position(position);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc32.getValue());
+            buffer.put(payload);
+            end = writeSegment.start + position + HEADER_SIZE + payload.length;
+            writeOffset = end;
+            appended.signalAll();
+            if (syncCommit) {
+                //group commit，等待刷盘线程把本次写入刷到磁盘
+                long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushIntervalMillis * 10, 1000));
+                while (flushedOffset < end && nanos > 0) {
+                    nanos = flushed.awaitNanos(nanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("hbase async write log append error, dir = {}", dir.getAbsolutePath(), e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+        if (syncCommit && flushedOffset < end) {
+            //等待刷盘超时或者被中断，不能认为已经持久化，由调用方走同步写或者降级（日志中的这条记录重放时会再写一次，put/delete是幂等的）
+            logger.warn("hbase async write log sync commit timeout, dir = {}", dir.getAbsolutePath());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 读取下一个任务，只能由消费线程调用
+     * @return 任务，超时返回null
+     */
+    public HBaseAsyncWriteExecutor.HBaseAsyncWriteTask poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        while (true) {
+            if (readOffset >= writeOffset) {
+                lock.lock();
+                try {
+                    while (readOffset >= writeOffset) {
+                        if (nanos <= 0) return null;
+                        nanos = appended.awaitNanos(nanos);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            Segment segment;
+            lock.lock();
+            try {
+                Map.Entry<Long, Segment> entry = segments.floorEntry(readOffset);
+                segment = entry == null ? null : entry.getValue();
+                if (segment == null) {
+                    readOffset = segments.firstKey();
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+            int position = (int) (readOffset - segment.start);
+            if (position + HEADER_SIZE > segmentSize) {
+                readOffset = segment.start + segmentSize;
+                continue;
+            }
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(position);
+            int len = buffer.getInt();
+            if (len == 0) {
+                readOffset = segment.start + segmentSize;
+                continue;
+            }
+            int crc = buffer.getInt();
+            if (len < 0 || position + HEADER_SIZE + len > segmentSize) {
+                logger.error("hbase async write log broken, dir = {}, offset = {}, skip segment", dir.getAbsolutePath(), readOffset);
+                readOffset = segment.start + segmentSize;
+                continue;
+            }
+            byte[] payload = new byte[len];
+            buffer.get(payload);
+            readOffset += HEADER_SIZE + len;
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload, 0, payload.length);
+            if ((int) crc32.getValue() != crc) {
+                logger.error("hbase async write log crc check fail, dir = {}, offset = {}, skip", dir.getAbsolutePath(), readOffset);
+                continue;
+            }
+            return decode(payload);
+        }
+    }
+
+    /**
+     * 消费线程已读取的位置
+     */
+    public long getReadOffset() {
+        return readOffset;
+    }
+
+    /**
+     * 该位置之前的任务都已经写入hbase
+     */
+    public void checkpoint(long offset) {
+        if (offset > checkpoint) {
+            checkpoint = offset;
+        }
+    }
+
+    public long pendingBytes() {
+        return writeOffset - checkpoint;
+    }
+
+    private void flushLoop() {
+        long lastPersistCheckpointTime = System.currentTimeMillis();
+        while (true) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(flushIntervalMillis);
+                long offset = writeOffset;
+                if (offset > flushedOffset) {
+                    List<Segment> dirty;
+                    lock.lock();
+                    try {
+                        Long from = segments.floorKey(flushedOffset);
+                        dirty = new ArrayList<>(from == null ? segments.values() : segments.tailMap(from).values());
+                    } finally {
+                        lock.unlock();
+                    }
+                    for (Segment segment : dirty) {
+                        segment.buffer.force();
+                    }
+                    lock.lock();
+                    try {
+                        flushedOffset = offset;
+                        flushed.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                if (System.currentTimeMillis() - lastPersistCheckpointTime >= CHECKPOINT_PERSIST_INTERVAL_MILLIS) {
+                    lastPersistCheckpointTime = System.currentTimeMillis();
+                    persistCheckpoint();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("hbase async write log flush error, dir = {}", dir.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    private void persistCheckpoint() throws IOException {
+        long checkpoint = this.checkpoint;
+        if (checkpoint == persistedCheckpoint) return;
+        File tmp = new File(dir, CHECKPOINT_FILE + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(tmp, "rw")) {
+            file.setLength(0);
+            file.writeLong(checkpoint);
+            file.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(dir, CHECKPOINT_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistedCheckpoint = checkpoint;
+        //删除已经全部写入hbase的segment，当前正在写的segment保留
+        lock.lock();
+        try {
+            Iterator<Map.Entry<Long, Segment>> iterator = segments.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next().getValue();
+                if (segment == writeSegment || segment.start + segmentSize > checkpoint) break;
+                iterator.remove();
+                segment.close();
+                if (!segment.file.delete()) {
+                    logger.warn("hbase async write log segment delete fail, file = {}", segment.file.getAbsolutePath());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("mkdirs fail");
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                long start = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                segments.put(start, openSegment(file, start));
+            }
+        }
+        File checkpointFile = new File(dir, CHECKPOINT_FILE);
+        long checkpoint = 0;
+        if (checkpointFile.exists()) {
+            try (RandomAccessFile file = new RandomAccessFile(checkpointFile, "r")) {
+                checkpoint = file.readLong();
+            }
+        }
+        if (segments.isEmpty()) {
+            writeSegment = createSegment(checkpoint);
+            writeOffset = checkpoint;
+        } else {
+            writeSegment = segments.lastEntry().getValue();
+            writeOffset = writeSegment.start + scanValidEnd(writeSegment);
+            //清理掉最后一条完整record之后的残留数据，避免下次恢复时被误认为是有效数据
+            ByteBuffer buffer = writeSegment.buffer.duplicate();
+            buffer.position((int) (writeOffset - writeSegment.start));
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+            writeSegment.buffer.force();
+            if (checkpoint < segments.firstKey()) {
+                checkpoint = segments.firstKey();
+            }
+            checkpoint = Math.min(checkpoint, writeOffset);
+        }
+        this.checkpoint = checkpoint;
+        this.persistedCheckpoint = checkpoint;
+        this.readOffset = checkpoint;
+        this.flushedOffset = writeOffset;
+        if (writeOffset > checkpoint) {
+            logger.warn("hbase async write log need replay, dir = {}, checkpoint = {}, writeOffset = {}", dir.getAbsolutePath(), checkpoint, writeOffset);
+        } else {
+            logger.info("hbase async write log init, dir = {}, offset = {}", dir.getAbsolutePath(), writeOffset);
+        }
+    }
+
+    private int scanValidEnd(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_SIZE <= segmentSize) {
+            buffer.position(position);
+            int len = buffer.getInt();
+            int crc = buffer.getInt();
+            if (len <= 0 || position + HEADER_SIZE + len > segmentSize) break;
+            byte[] payload = new byte[len];
+            buffer.get(payload);
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload, 0, payload.length);
+            if ((int) crc32.getValue() != crc) break;
+            position += HEADER_SIZE + len;
+        }
+        return position;
+    }
+
+    private Segment createSegment(long start) throws IOException {
+        File file = new File(dir, String.format("%020d", start) + SEGMENT_SUFFIX);
+        Segment segment = openSegment(file, start);
+        segments.put(start, segment);
+        return segment;
+    }
+
+    private Segment openSegment(File file, long start) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        FileChannel channel = randomAccessFile.getChannel();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return new Segment(start, file, randomAccessFile, buffer);
+    }
+
+    //put按整体序列化：row、durability、attributes、所有cell（family/qualifier/timestamp/value），重放时还原成同样的put
+    private static byte[] encode(HBaseAsyncWriteExecutor.HBaseAsyncWriteTask task) {
+        List<Put> puts = task.getPuts() == null ? Collections.emptyList() : task.getPuts();
+        List<Delete> deletes = task.getDeletes() == null ? Collections.emptyList() : task.getDeletes();
+        int size = 4 + task.getKey().length + 4 + 4;
+        for (Put put : puts) {
+            size += 1 + 4 + put.getRow().length + 1 + 4;
+            for (Map.Entry<String, byte[]> entry : put.getAttributesMap().entrySet()) {
+                size += 4 + Bytes.toBytes(entry.getKey()).length + 4 + entry.getValue().length;
+            }
+            size += 4;
+            for (List<Cell> cells : put.getFamilyCellMap().values()) {
+                for (Cell cell : cells) {
+                    size += 4 + cell.getFamilyLength() + 4 + cell.getQualifierLength() + 8 + 4 + cell.getValueLength();
+                }
+            }
+        }
+        for (Delete delete : deletes) {
+            //只支持整行删除
+            if (!delete.getFamilyCellMap().isEmpty() || !delete.getAttributesMap().isEmpty()) return null;
+            size += 1 + 4 + delete.getRow().length + 8;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        putBytes(buffer, task.getKey());
+        buffer.putInt(puts.size());
+        for (Put put : puts) {
+            buffer.put(TYPE_PUT);
+            putBytes(buffer, put.getRow());
+            buffer.put((byte) put.getDurability().ordinal());
+            Map<String, byte[]> attributes = put.getAttributesMap();
+            buffer.putInt(attributes.size());
+            for (Map.Entry<String, byte[]> entry : attributes.entrySet()) {
+                putBytes(buffer, Bytes.toBytes(entry.getKey()));
+                putBytes(buffer, entry.getValue());
+            }
+            buffer.putInt(put.size());
+            for (List<Cell> cells : put.getFamilyCellMap().values()) {
+                for (Cell cell : cells) {
+                    putBytes(buffer, CellUtil.cloneFamily(cell));
+                    putBytes(buffer, CellUtil.cloneQualifier(cell));
+                    buffer.putLong(cell.getTimestamp());
+                    putBytes(buffer, CellUtil.cloneValue(cell));
+                }
+            }
+        }
+        buffer.putInt(deletes.size());
+        for (Delete delete : deletes) {
+            buffer.put(TYPE_DELETE);
+            putBytes(buffer, delete.getRow());
+            buffer.putLong(delete.getTimeStamp());
+        }
+        return buffer.array();
+    }
+
+    private static HBaseAsyncWriteExecutor.HBaseAsyncWriteTask decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        HBaseAsyncWriteExecutor.HBaseAsyncWriteTask task = new HBaseAsyncWriteExecutor.HBaseAsyncWriteTask();
+        task.setKey(getBytes(buffer));
+        int putCount = buffer.getInt();
+        if (putCount > 0) {
+            List<Put> puts = new ArrayList<>(putCount);
+            for (int i=0; i<putCount; i++) {
+                buffer.get();
+                Put put = new Put(getBytes(buffer));
+                put.setDurability(Durability.values()[buffer.get()]);
+                int attributeCount = buffer.getInt();
+                for (int j=0; j<attributeCount; j++) {
+                    put.setAttribute(Bytes.toString(getBytes(buffer)), getBytes(buffer));
+                }
+                int cellCount = buffer.getInt();
+                for (int j=0; j<cellCount; j++) {
+                    byte[] family = getBytes(buffer);
+                    byte[] qualifier = getBytes(buffer);
+                    long timestamp = buffer.getLong();
+                    put.addColumn(family, qualifier, timestamp, getBytes(buffer));
+                }
+                puts.add(put);
+            }
+            task.setPuts(puts);
+        }
+        int deleteCount = buffer.getInt();
+        if (deleteCount > 0) {
+            List<Delete> deletes = new ArrayList<>(deleteCount);
+            for (int i=0; i<deleteCount; i++) {
+                buffer.get();
+                byte[] row = getBytes(buffer);
+                deletes.add(new Delete(row, buffer.getLong()));
+            }
+            task.setDeletes(deletes);
+        }
+        return task;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static class Segment {
+        private final long start;
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+
+        Segment(long start, File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+            this.start = start;
+            this.file = file;
+            this.randomAccessFile = randomAccessFile;
+            this.buffer = buffer;
+        }
+
+        void close() {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                logger.warn("close segment error, file = {}", file.getAbsolutePath(), e);
+            }
+            //主动解除映射，不等gc
+            DirectBufferUtils.release(buffer);
+        }
+    }
+}
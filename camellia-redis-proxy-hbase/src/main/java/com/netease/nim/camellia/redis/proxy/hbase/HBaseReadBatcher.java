@@ -0,0 +1,162 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.util.BytesKey;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils.hbaseTableName;
+
+/**
+ * hbase读请求的合并器，用于读取ref-key对应的原始value
+ * 1）所有请求中的Get先放入队列，由合并线程在一个很短的时间窗口内（或者攒够一批后）合并成一次hbase的批量get
+ * 2）同一时刻相同rowKey的读请求只会发起一次hbase请求，结果共享
+ * 3）只合并只带rowKey的Get（ref-key的读取都是这种），关闭合并（hbase.read.batch.enable=false）时直接透传给CamelliaHBaseTemplate
+ */
+public class HBaseReadBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(HBaseReadBatcher.class);
+
+    private final CamelliaHBaseTemplate hBaseTemplate;
+    private final ConcurrentHashMap<BytesKey, CompletableFuture<Result>> inflightMap = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<BytesKey> queue;
+    private final ThreadPoolExecutor flushExecutor;
+
+    public HBaseReadBatcher(CamelliaHBaseTemplate hBaseTemplate, int poolSize, int queueSize) {
+        this.hBaseTemplate = hBaseTemplate;
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        this.flushExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), new CamelliaThreadFactory(HBaseReadBatcher.class), new ThreadPoolExecutor.CallerRunsPolicy());
+        RedisHBaseMonitor.register("hbase-read-batch", queue);
+        Thread thread = new Thread(this::collectLoop, "hbase-read-batch-collector");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("HBaseReadBatcher init success, poolSize = {}, queueSize = {}", poolSize, queueSize);
+    }
+
+    public Result get(Get get) {
+        return get(Collections.singletonList(get))[0];
+    }
+
+    /**
+     * 批量读取
+     * @param gets 只带rowKey的Get
+     * @return 结果，和gets的顺序一致
+     */
+    public Result[] get(List<Get> gets) {
+        if (!RedisHBaseConfiguration.hbaseReadBatchEnable() || gets.size() >= RedisHBaseConfiguration.hbaseReadBatchMaxSize()) {
+            //本身已经是一个大批量了，没必要再合并
+            if (gets.size() == 1) {
+                return new Result[] {hBaseTemplate.get(hbaseTableName(), gets.get(0))};
+            }
+            return hBaseTemplate.get(hbaseTableName(), gets);
+        }
+        List<CompletableFuture<Result>> futures = new ArrayList<>(gets.size());
+        for (Get get : gets) {
+            futures.add(submit(get.getRow()));
+        }
+        Result[] results = new Result[gets.size()];
+        try {
+            for (int i=0; i<futures.size(); i++) {
+                results[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("hbase read batch interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("hbase read batch error", cause);
+        }
+        return results;
+    }
+
+    private CompletableFuture<Result> submit(byte[] row) {
+        BytesKey key = new BytesKey(row);
+        CompletableFuture<Result> future = inflightMap.get(key);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<Result> newFuture = new CompletableFuture<>();
+        future = inflightMap.putIfAbsent(key, newFuture);
+        if (future != null) {
+            return future;
+        }
+        if (!queue.offer(key)) {
+            //队列满了，则直接同步读
+            inflightMap.remove(key);
+            try {
+                newFuture.complete(hBaseTemplate.get(hbaseTableName(), new Get(row)));
+            } catch (Throwable e) {
+                newFuture.completeExceptionally(e);
+            }
+        }
+        return newFuture;
+    }
+
+    private void collectLoop() {
+        while (true) {
+            try {
+                BytesKey first = queue.take();
+                int maxSize = RedisHBaseConfiguration.hbaseReadBatchMaxSize();
+                List<BytesKey> batch = new ArrayList<>();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(RedisHBaseConfiguration.hbaseReadBatchWindowMicros());
+                while (batch.size() < maxSize) {
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        queue.drainTo(batch, maxSize - batch.size());
+                        break;
+                    }
+                    BytesKey key = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (key == null) break;
+                    batch.add(key);
+                }
+                flushExecutor.submit(() -> flush(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("hbase read batch collect error", e);
+            }
+        }
+    }
+
+    private void flush(List<BytesKey> batch) {
+        try {
+            List<Get> gets = new ArrayList<>(batch.size());
+            for (BytesKey key : batch) {
+                gets.add(new Get(key.getKey()));
+            }
+            Result[] results = hBaseTemplate.get(hbaseTableName(), gets);
+            for (int i=0; i<batch.size(); i++) {
+                CompletableFuture<Result> future = inflightMap.remove(batch.get(i));
+                if (future != null) {
+                    future.complete(results[i]);
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("flush hbase of read batch, size = {}", batch.size());
+            }
+        } catch (Throwable e) {
+            for (BytesKey key : batch) {
+                CompletableFuture<Result> future = inflightMap.remove(key);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
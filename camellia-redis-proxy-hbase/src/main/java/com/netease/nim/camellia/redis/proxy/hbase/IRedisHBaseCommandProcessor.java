@@ -163,4 +163,61 @@ public interface IRedisHBaseCommandProcessor {
 
     @CommandFinder(RedisCommand.HGETALL)
     MultiBulkReply hgetall(byte[] key);
+
+    /**
+     * 列表
+     */
+    @CommandFinder(RedisCommand.LPUSH)
+    IntegerReply lpush(byte[] key, byte[][] values);
+
+    @CommandFinder(RedisCommand.RPUSH)
+    IntegerReply rpush(byte[] key, byte[][] values);
+
+    @CommandFinder(RedisCommand.LPOP)
+    BulkReply lpop(byte[] key);
+
+    @CommandFinder(RedisCommand.RPOP)
+    BulkReply rpop(byte[] key);
+
+    @CommandFinder(RedisCommand.LINDEX)
+    BulkReply lindex(byte[] key, byte[] index);
+
+    @CommandFinder(RedisCommand.LRANGE)
+    MultiBulkReply lrange(byte[] key, byte[] start, byte[] stop);
+
+    @CommandFinder(RedisCommand.LLEN)
+    IntegerReply llen(byte[] key);
+
+    @CommandFinder(RedisCommand.LSET)
+    StatusReply lset(byte[] key, byte[] index, byte[] value);
+
+    @CommandFinder(RedisCommand.LREM)
+    IntegerReply lrem(byte[] key, byte[] count, byte[] value);
+
+    @CommandFinder(RedisCommand.LTRIM)
+    StatusReply ltrim(byte[] key, byte[] start, byte[] stop);
+
+    /**
+     * 集合
+     */
+    @CommandFinder(RedisCommand.SADD)
+    IntegerReply sadd(byte[] key, byte[][] members);
+
+    @CommandFinder(RedisCommand.SREM)
+    IntegerReply srem(byte[] key, byte[][] members);
+
+    @CommandFinder(RedisCommand.SMEMBERS)
+    MultiBulkReply smembers(byte[] key);
+
+    @CommandFinder(RedisCommand.SISMEMBER)
+    IntegerReply sismember(byte[] key, byte[] member);
+
+    @CommandFinder(RedisCommand.SCARD)
+    IntegerReply scard(byte[] key);
+
+    @CommandFinder(RedisCommand.SPOP)
+    Reply spop(byte[] key, byte[] count);
+
+    @CommandFinder(RedisCommand.SRANDMEMBER)
+    Reply srandmember(byte[] key, byte[] count);
 }
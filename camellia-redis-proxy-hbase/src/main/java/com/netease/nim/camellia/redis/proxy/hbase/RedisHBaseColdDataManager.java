@@ -0,0 +1,418 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.ColdSegmentCodec;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyAccessTracker;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyCodec;
+import com.netease.nim.camellia.redis.proxy.util.BytesKey;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils.*;
+
+/**
+ * 按访问频率管理redis中的数据
+ * 1）延长热点ref-key在redis中的缓存时间（见RefKeyAccessTracker），异步批量执行，不占用读路径
+ * 2）冷数据下沉：redis的内存超过目标值时，把长时间没有访问的string/hash中未超过阈值的value也转存到hbase，redis中只保留ref-key
+ *   候选key来自写操作（value大于32字节且没有转成ref-key的），按LRU保留，最久没有写过的先检查
+ *   是否冷通过redis的object idletime判断，内存通过info memory判断，都是在候选key所在的redis节点上执行
+ *   先同步写hbase，再通过lua脚本比较并替换，期间value被修改过则放弃替换
+ * 3）冷集合分段下沉：list/set整体长时间没有访问时，按cold.segment.chunk.size个元素一段写入hbase，redis中只保留一个string类型的标记（见ColdSegmentCodec）
+ *   通过lua脚本读取集合并计算摘要，写完hbase后再次比较摘要并替换为标记，期间集合被修改过则放弃替换并删除已写入的分段
+ *   之后对该key的命令会因为类型不匹配（WRONGTYPE）失败，此时从hbase读取全部分段，通过lua脚本原子的恢复集合后重试命令（见RedisHBaseCommandInvoker），正常的key没有额外开销
+ */
+public class RedisHBaseColdDataManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisHBaseColdDataManager.class);
+
+    private static final byte[] CHECK_SCRIPT = SafeEncoder.encode(
+            "local idle = redis.call('object', 'idletime', KEYS[1])\n" +
+            "if not idle then return {-1, ''} end\n" +
+            "return {idle, redis.call('info', 'memory')}");
+
+    private static final byte[] STRING_DEMOTE_SCRIPT = SafeEncoder.encode(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then\n" +
+            "  local ttl = redis.call('pttl', KEYS[1])\n" +
+            "  if ttl > 0 then redis.call('set', KEYS[1], ARGV[2], 'px', ttl) else redis.call('set', KEYS[1], ARGV[2]) end\n" +
+            "  return 1\n" +
+            "end\n" +
+            "return 0");
+
+    private static final byte[] HASH_DEMOTE_SCRIPT = SafeEncoder.encode(
+            "local n = 0\n" +
+            "for i = 1, #ARGV, 3 do\n" +
+            "  if redis.call('hget', KEYS[1], ARGV[i]) == ARGV[i + 1] then\n" +
+            "    redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 2])\n" +
+            "    n = n + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return n");
+
+    //KEYS[1]=key, ARGV[1]=list/set, ARGV[2]=最小元素个数, ARGV[3]=最大元素个数
+    //返回的第一个元素是摘要，之后是集合的全部元素，类型或者大小不符合时返回空
+    private static final byte[] SEGMENT_SNAPSHOT_SCRIPT = SafeEncoder.encode(
+            "if redis.call('type', KEYS[1])['ok'] ~= ARGV[1] then return {} end\n" +
+            "local size\n" +
+            "if ARGV[1] == 'list' then size = redis.call('llen', KEYS[1]) else size = redis.call('scard', KEYS[1]) end\n" +
+            "if size < tonumber(ARGV[2]) or size > tonumber(ARGV[3]) then return {} end\n" +
+            "local elements\n" +
+            "if ARGV[1] == 'list' then elements = redis.call('lrange', KEYS[1], 0, -1) else elements = redis.call('smembers', KEYS[1]) end\n" +
+            "local parts = {}\n" +
+            "for i, v in ipairs(elements) do parts[i] = string.len(v) .. ':' .. v end\n" +
+            "table.insert(elements, 1, redis.sha1hex(table.concat(parts)))\n" +
+            "return elements");
+
+    //KEYS[1]=key, ARGV[1]=list/set, ARGV[2]=摘要, ARGV[3]=下沉标记，摘要一致时替换为标记（ttl保持不变）
+    private static final byte[] SEGMENT_DEMOTE_SCRIPT = SafeEncoder.encode(
+            "if redis.call('type', KEYS[1])['ok'] ~= ARGV[1] then return 0 end\n" +
+            "local elements\n" +
+            "if ARGV[1] == 'list' then elements = redis.call('lrange', KEYS[1], 0, -1) else elements = redis.call('smembers', KEYS[1]) end\n" +
+            "local parts = {}\n" +
+            "for i, v in ipairs(elements) do parts[i] = string.len(v) .. ':' .. v end\n" +
+            "if redis.sha1hex(table.concat(parts)) ~= ARGV[2] then return 0 end\n" +
+            "local ttl = redis.call('pttl', KEYS[1])\n" +
+            "redis.call('del', KEYS[1])\n" +
+            "if ttl > 0 then redis.call('set', KEYS[1], ARGV[3], 'px', ttl) else redis.call('set', KEYS[1], ARGV[3]) end\n" +
+            "return 1");
+
+    //KEYS[1]=key, ARGV[1]=下沉标记, ARGV[2]=rpush/sadd, ARGV[3...]=全部元素，标记没有变化时恢复集合（ttl保持不变）
+    private static final byte[] SEGMENT_REHYDRATE_SCRIPT = SafeEncoder.encode(
+            "if redis.call('type', KEYS[1])['ok'] ~= 'string' or redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end\n" +
+            "local ttl = redis.call('pttl', KEYS[1])\n" +
+            "redis.call('del', KEYS[1])\n" +
+            "for i = 3, #ARGV, 1000 do\n" +
+            "  redis.call(ARGV[2], KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))\n" +
+            "end\n" +
+            "if ttl > 0 then redis.call('pexpire', KEYS[1], ttl) end\n" +
+            "return 1");
+
+    private static final int HOT_REF_KEY_BATCH = 1000;
+
+    private final CamelliaRedisTemplate redisTemplate;
+    private final CamelliaHBaseTemplate hBaseTemplate;
+    private final HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor;
+    private final HBaseReadBatcher hBaseReadBatcher;
+    private final ConcurrentLinkedHashMap<BytesKey, String> candidateMap;
+
+    public RedisHBaseColdDataManager(CamelliaRedisTemplate redisTemplate, CamelliaHBaseTemplate hBaseTemplate,
+                                     HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, HBaseReadBatcher hBaseReadBatcher) {
+        this.redisTemplate = redisTemplate;
+        this.hBaseTemplate = hBaseTemplate;
+        this.hBaseAsyncWriteExecutor = hBaseAsyncWriteExecutor;
+        this.hBaseReadBatcher = hBaseReadBatcher;
+        this.candidateMap = new ConcurrentLinkedHashMap.Builder<BytesKey, String>()
+                .initialCapacity(1024)
+                .maximumWeightedCapacity(RedisHBaseConfiguration.coldDemoteCandidateCapacity())
+                .build();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(RedisHBaseColdDataManager.class));
+        scheduler.scheduleWithFixedDelay(this::extendHotRefKeys, 1, 1, TimeUnit.SECONDS);
+        int intervalSeconds = RedisHBaseConfiguration.coldDemoteIntervalSeconds();
+        scheduler.scheduleWithFixedDelay(this::demote, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 写操作时登记冷数据下沉的候选key
+     * @param type string或者hash
+     * @param key 原始key
+     * @param value 写入redis的value
+     */
+    public void addCandidate(String type, byte[] key, byte[] value) {
+        if (!RedisHBaseConfiguration.coldDemoteEnable()) return;
+        //不超过32字节的value转成ref-key没有意义
+        if (value == null || value.length <= RefKeyCodec.REF_KEY_LEN) return;
+        candidateMap.put(new BytesKey(key), type);
+    }
+
+    /**
+     * 写操作时登记冷集合分段下沉的候选key
+     * @param type list或者set
+     * @param key 原始key
+     */
+    public void addCollectionCandidate(String type, byte[] key) {
+        if (!RedisHBaseConfiguration.coldDemoteEnable()) return;
+        candidateMap.put(new BytesKey(key), type);
+    }
+
+    /**
+     * 命令失败时调用，如果是因为key已经分段下沉到hbase导致的类型不匹配（WRONGTYPE），则恢复集合
+     * @param key 原始key
+     * @param e 命令的异常
+     * @return true表示已经恢复（或者已经被其他请求恢复），可以重试命令
+     */
+    public boolean rehydrateIfCold(byte[] key, RuntimeException e) {
+        if (!isWrongType(e)) return false;
+        return rehydrate(key);
+    }
+
+    /**
+     * 如果key已经分段下沉到hbase，则恢复集合
+     * @param key 原始key
+     * @return true表示已经恢复（或者已经被其他请求恢复），false表示不是下沉的key
+     */
+    public boolean rehydrate(byte[] key) {
+        byte[] marker;
+        try {
+            marker = redisTemplate.get(redisKey(key));
+        } catch (RuntimeException ex) {
+            //已经不是string了，说明已经被其他请求恢复
+            return isWrongType(ex);
+        }
+        ColdSegmentCodec.ColdSegment segment = ColdSegmentCodec.decodeMarker(marker);
+        if (segment == null) return false;
+        String type = segment.getType();
+        if (RedisHBaseConfiguration.hbaseReadDegraded()) {
+            RedisHBaseMonitor.incrDegraded("cold_segment_rehydrate_degraded");
+            throw new IllegalStateException("hbase read degraded, try again later");
+        }
+        List<byte[]> rowKeys = ColdSegmentCodec.chunkRowKeys(key, segment);
+        List<byte[]> elements = new ArrayList<>(segment.getSize());
+        for (List<byte[]> split : split(rowKeys, RedisHBaseConfiguration.hbaseMaxBatch())) {
+            List<Get> gets = new ArrayList<>(split.size());
+            for (byte[] rowKey : split) {
+                gets.add(new Get(rowKey));
+            }
+            Result[] results = hBaseReadBatcher.get(gets);
+            for (Result result : results) {
+                byte[] chunk = parseOriginalValue(result);
+                if (chunk == null) {
+                    //分段已经被删除，说明集合已经被其他请求恢复（之后又可能被修改），重新检查一次标记
+                    byte[] current = redisTemplate.get(redisKey(key));
+                    if (!Arrays.equals(current, marker)) return true;
+                    logger.error("cold segment lost, key = {}, segmentId = {}", Utils.bytesToString(key), segment.getSegmentId());
+                    throw new IllegalStateException("cold segment lost");
+                }
+                ColdSegmentCodec.decodeChunk(chunk, elements);
+            }
+        }
+        List<byte[]> params = new ArrayList<>(elements.size() + 3);
+        params.add(redisKey(key));
+        params.add(marker);
+        params.add(Utils.stringToBytes(type.equals(ColdSegmentCodec.TYPE_LIST) ? "rpush" : "sadd"));
+        params.addAll(elements);
+        Object ret = redisTemplate.eval(SEGMENT_REHYDRATE_SCRIPT, 1, params.toArray(new byte[0][0]));
+        if (ret instanceof Long && (Long) ret > 0) {
+            deleteChunks(key, rowKeys, "cold_segment_rehydrate");
+            RedisHBaseMonitor.incr("coldRehydrate(" + type + ")", OperationType.REDIS_HBASE.name());
+        }
+        return true;
+    }
+
+    /**
+     * type命令使用，分段下沉后redis中是string类型的标记，需要返回原始的类型
+     * @return 不是下沉标记时返回null
+     */
+    public String coldType(byte[] key) {
+        ColdSegmentCodec.ColdSegment segment = ColdSegmentCodec.decodeMarker(redisTemplate.get(redisKey(key)));
+        return segment == null ? null : segment.getType();
+    }
+
+    private static boolean isWrongType(Throwable e) {
+        while (e != null) {
+            String message = e.getMessage();
+            if (message != null && message.contains("WRONGTYPE")) {
+                return true;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+
+    private void extendHotRefKeys() {
+        try {
+            if (!RedisHBaseConfiguration.refKeyAccessTrackEnable()) return;
+            while (true) {
+                List<RefKeyAccessTracker.HotRefKey> list = RefKeyAccessTracker.pollHotRefKeys(HOT_REF_KEY_BATCH);
+                if (list.isEmpty()) return;
+                try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+                    int pipelineCount = 0;
+                    for (RefKeyAccessTracker.HotRefKey hotRefKey : list) {
+                        int expireSeconds = RefKeyAccessTracker.hotExpireSeconds(refKeyExpireSeconds(hotRefKey.getType()));
+                        pipeline.expire(redisKey(hotRefKey.getRefKey()), expireSeconds);
+                        pipelineCount ++;
+                        if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
+                            pipeline.sync();
+                            pipelineCount = 0;
+                        }
+                    }
+                    pipeline.sync();
+                }
+                RedisHBaseMonitor.incr("extendHotRefKeys", OperationType.REDIS_ONLY.name());
+            }
+        } catch (Exception e) {
+            logger.error("extend hot ref-key expire error", e);
+        }
+    }
+
+    private void demote() {
+        try {
+            if (!RedisHBaseConfiguration.coldDemoteEnable()) return;
+            long targetBytes = RedisHBaseConfiguration.coldDemoteRedisMemoryTargetBytes();
+            if (targetBytes <= 0) return;
+            long idleSeconds = RedisHBaseConfiguration.coldDemoteIdleSeconds();
+            int batch = RedisHBaseConfiguration.coldDemoteBatch();
+            for (BytesKey bytesKey : new ArrayList<>(candidateMap.ascendingKeySetWithLimit(batch))) {
+                String type = candidateMap.get(bytesKey);
+                if (type == null) continue;
+                byte[] key = bytesKey.getKey();
+                Object ret = redisTemplate.eval(CHECK_SCRIPT, 1, redisKey(key));
+                List<?> list = (List<?>) ret;
+                long idle = (Long) list.get(0);
+                if (idle < 0) {
+                    //key已经不存在了
+                    candidateMap.remove(bytesKey);
+                    continue;
+                }
+                if (idle < idleSeconds) {
+                    //最近访问过，留到下一轮再检查
+                    continue;
+                }
+                if (usedMemory((byte[]) list.get(1)) <= targetBytes) {
+                    continue;
+                }
+                candidateMap.remove(bytesKey);
+                if (type.equals("string")) {
+                    demoteString(key);
+                } else if (type.equals("hash")) {
+                    demoteHash(key);
+                } else if (type.equals(ColdSegmentCodec.TYPE_LIST) || type.equals(ColdSegmentCodec.TYPE_SET)) {
+                    demoteSegment(type, key);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("cold demote error", e);
+        }
+    }
+
+    private void demoteString(byte[] key) {
+        byte[] value = redisTemplate.get(redisKey(key));
+        if (value == null || value.length <= RefKeyCodec.REF_KEY_LEN || isRefKey(key, value)) return;
+        byte[] refKey = buildRefKey(key, value);
+        Put put = new Put(refKey);
+        put.addColumn(CF_D, COL_DATA, value);
+        hBaseTemplate.put(hbaseTableName(), put);
+        Object ret = redisTemplate.eval(STRING_DEMOTE_SCRIPT, 1, redisKey(key), value, refKey);
+        if (ret instanceof Long && (Long) ret > 0) {
+            RedisHBaseMonitor.incr("coldDemote(string)", OperationType.REDIS_HBASE.name());
+            RedisHBaseMonitor.incrValueSize("string", value.length, true);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("cold demote string skip, value changed, key = {}", Utils.bytesToString(key));
+        }
+    }
+
+    private void demoteHash(byte[] key) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        Map<byte[], byte[]> map = redisTemplate.hgetAll(redisKey(key));
+        if (map == null || map.isEmpty()) return;
+        List<Put> putList = new ArrayList<>();
+        List<byte[]> args = new ArrayList<>();
+        for (Map.Entry<byte[], byte[]> entry : map.entrySet()) {
+            byte[] value = entry.getValue();
+            if (value.length <= RefKeyCodec.REF_KEY_LEN || refKeyCodec.isRefKey(value)) continue;
+            byte[] refKey = refKeyCodec.buildRefKey(value);
+            Put put = new Put(refKey);
+            put.addColumn(CF_D, COL_DATA, value);
+            putList.add(put);
+            args.add(entry.getKey());
+            args.add(value);
+            args.add(refKey);
+            RedisHBaseMonitor.incrValueSize("hash", value.length, true);
+        }
+        if (putList.isEmpty()) return;
+        for (List<Put> puts : split(putList, RedisHBaseConfiguration.hbaseMaxBatch())) {
+            hBaseTemplate.put(hbaseTableName(), puts);
+        }
+        long demoted = 0;
+        int step = Math.max(RedisHBaseConfiguration.redisMaxPipeline(), 1) * 3;
+        for (int from = 0; from < args.size(); from += step) {
+            List<byte[]> params = new ArrayList<>();
+            params.add(redisKey(key));
+            params.addAll(args.subList(from, Math.min(from + step, args.size())));
+            Object ret = redisTemplate.eval(HASH_DEMOTE_SCRIPT, 1, params.toArray(new byte[0][0]));
+            if (ret instanceof Long) {
+                demoted += (Long) ret;
+            }
+        }
+        RedisHBaseMonitor.incr("coldDemote(hash)", OperationType.REDIS_HBASE.name());
+        if (logger.isDebugEnabled()) {
+            logger.debug("cold demote hash, key = {}, fields = {}, demoted = {}", Utils.bytesToString(key), putList.size(), demoted);
+        }
+    }
+
+    private void demoteSegment(String type, byte[] key) {
+        Object snapshot = redisTemplate.eval(SEGMENT_SNAPSHOT_SCRIPT, 1, redisKey(key), Utils.stringToBytes(type),
+                Utils.numToBytes(RedisHBaseConfiguration.coldSegmentMinSize(), false),
+                Utils.numToBytes(RedisHBaseConfiguration.coldSegmentMaxSize(), false));
+        List<?> list = (List<?>) snapshot;
+        if (list == null || list.isEmpty()) return;
+        byte[] digest = (byte[]) list.get(0);
+        List<byte[]> elements = new ArrayList<>(list.size() - 1);
+        for (int i=1; i<list.size(); i++) {
+            elements.add((byte[]) list.get(i));
+        }
+        int chunkSize = Math.max(RedisHBaseConfiguration.coldSegmentChunkSize(), 1);
+        ColdSegmentCodec.ColdSegment segment = ColdSegmentCodec.newSegment(type, elements.size(), chunkSize);
+        List<Put> putList = new ArrayList<>(segment.getChunkCount());
+        List<byte[]> rowKeys = ColdSegmentCodec.chunkRowKeys(key, segment);
+        for (int i=0; i<segment.getChunkCount(); i++) {
+            Put put = new Put(rowKeys.get(i));
+            put.addColumn(CF_D, COL_DATA, ColdSegmentCodec.encodeChunk(elements, i * chunkSize, Math.min((i + 1) * chunkSize, elements.size())));
+            putList.add(put);
+        }
+        //替换成标记之后就可能被其他proxy读取，因此同步写hbase
+        for (List<Put> puts : split(putList, RedisHBaseConfiguration.hbaseMaxBatch())) {
+            hBaseTemplate.put(hbaseTableName(), puts);
+        }
+        Object ret = redisTemplate.eval(SEGMENT_DEMOTE_SCRIPT, 1, redisKey(key), Utils.stringToBytes(type), digest,
+                ColdSegmentCodec.encodeMarker(segment));
+        if (ret instanceof Long && (Long) ret > 0) {
+            RedisHBaseMonitor.incr("coldDemote(" + type + ")", OperationType.REDIS_HBASE.name());
+            if (logger.isDebugEnabled()) {
+                logger.debug("cold demote {}, key = {}, size = {}, chunks = {}", type, Utils.bytesToString(key), elements.size(), segment.getChunkCount());
+            }
+        } else {
+            deleteChunks(key, rowKeys, "cold_segment_demote_skip");
+            if (logger.isDebugEnabled()) {
+                logger.debug("cold demote {} skip, collection changed, key = {}", type, Utils.bytesToString(key));
+            }
+        }
+    }
+
+    private void deleteChunks(byte[] key, List<byte[]> rowKeys, String method) {
+        List<Delete> deleteList = new ArrayList<>(rowKeys.size());
+        for (byte[] rowKey : rowKeys) {
+            deleteList.add(new Delete(rowKey));
+        }
+        flushHBaseDeletes(hBaseAsyncWriteExecutor, hBaseTemplate, key, deleteList, method);
+    }
+
+    private long usedMemory(byte[] info) {
+        if (info == null) return 0;
+        for (String line : SafeEncoder.encode(info).split("\r\n")) {
+            if (line.startsWith("used_memory:")) {
+                return Long.parseLong(line.substring("used_memory:".length()).trim());
+            }
+        }
+        return 0;
+    }
+}
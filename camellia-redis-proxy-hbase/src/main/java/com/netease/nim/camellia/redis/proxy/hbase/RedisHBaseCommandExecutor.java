@@ -0,0 +1,212 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.reply.ReplyPack;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 把命令从netty的IO线程转移到业务线程池中执行，避免redis/hbase的阻塞调用卡住同一个IO线程上的所有连接
+ * 1）线程池由多个单线程的executor组成，按key的hash选择executor，同一个key的命令严格按顺序执行
+ * 2）同一个连接上不同key的命令会并发执行，回包通过ReplyPack的id重新排序（见ReplyEncoder），保证和请求顺序一致
+ * 3）多个key且分布在不同executor上的命令（如mget/del），需要等待该连接之前的命令都执行完再执行，之后的命令也要等它执行完，避免乱序
+ * 4）开启流式回包时，hgetall/zrange等命令也按3）的方式执行，此时该连接之前的回包都已经写出，可以直接分批写回包（见RedisHBaseStreamReply）
+ */
+public class RedisHBaseCommandExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisHBaseCommandExecutor.class);
+
+    private static final AttributeKey<ChannelState> ATTRIBUTE_KEY = AttributeKey.valueOf("RHCS");
+
+    //单个连接最多等待中的命令数
+    private static final int MAX_PENDING = 1024 * 32;
+
+    private final List<ThreadPoolExecutor> executorList = new ArrayList<>();
+
+    public RedisHBaseCommandExecutor(int poolSize, int queueSize) {
+        for (int i=0; i<poolSize; i++) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueSize), new CamelliaThreadFactory(RedisHBaseCommandExecutor.class), new ThreadPoolExecutor.AbortPolicy());
+            executorList.add(executor);
+        }
+        logger.info("RedisHBaseCommandExecutor init success, poolSize = {}, queueSize = {}", poolSize, queueSize);
+    }
+
+    /**
+     * 提交命令，需要在连接所在的IO线程上按请求顺序调用
+     * @param ctx 连接
+     * @param command 命令
+     * @param function 命令的执行逻辑，在业务线程中执行
+     */
+    public void execute(ChannelHandlerContext ctx, Command command, Function<Command, Reply> function) {
+        ChannelState state = channelState(ctx);
+        Task task = new Task(command, function);
+        initIndex(task, ctx);
+        synchronized (state) {
+            task.id = ++state.id;
+            if (!state.pending.isEmpty() || state.barrierInflight || (task.barrier && state.inflight > 0)) {
+                if (state.pending.size() >= MAX_PENDING) {
+                    ErrorLogCollector.collect(RedisHBaseCommandExecutor.class, "pending command exceed, consid = " + ctx.channel().id());
+                    state.ctx.writeAndFlush(new ReplyPack(ErrorReply.TOO_BUSY, task.id));
+                    return;
+                }
+                state.pending.add(task);
+                return;
+            }
+            dispatch(state, task);
+        }
+    }
+
+    private void initIndex(Task task, ChannelHandlerContext ctx) {
+        task.barrier = RedisHBaseConfiguration.streamReplyEnable() && isStreamCommand(task.command.getRedisCommand());
+        List<byte[]> keys = task.command.getKeys();
+        if (keys.isEmpty()) {
+            //不带key的命令（如ping），不需要和其他命令保持顺序，回包顺序由ReplyPack保证
+            task.index = index(ctx.channel().hashCode());
+            return;
+        }
+        task.index = index(Arrays.hashCode(keys.get(0)));
+        for (int i=1; i<keys.size(); i++) {
+            if (index(Arrays.hashCode(keys.get(i))) != task.index) {
+                task.barrier = true;
+                break;
+            }
+        }
+    }
+
+    private boolean isStreamCommand(RedisCommand redisCommand) {
+        if (redisCommand == null) return false;
+        switch (redisCommand) {
+            case HGETALL:
+            case ZRANGE:
+            case ZREVRANGE:
+            case ZRANGEBYSCORE:
+            case ZREVRANGEBYSCORE:
+            case ZRANGEBYLEX:
+            case ZREVRANGEBYLEX:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int index(int hashCode) {
+        return Math.abs(hashCode % executorList.size());
+    }
+
+    private ChannelState channelState(ChannelHandlerContext ctx) {
+        Attribute<ChannelState> attr = ctx.channel().attr(ATTRIBUTE_KEY);
+        ChannelState state = attr.get();
+        if (state == null) {
+            state = new ChannelState(ctx);
+            ChannelState old = attr.setIfAbsent(state);
+            if (old != null) {
+                state = old;
+            }
+        }
+        return state;
+    }
+
+    //需要持有state的锁
+    private void dispatch(ChannelState state, Task task) {
+        state.inflight ++;
+        if (task.barrier) {
+            state.barrierInflight = true;
+        }
+        try {
+            executorList.get(task.index).execute(() -> run(state, task));
+        } catch (RejectedExecutionException e) {
+            ErrorLogCollector.collect(RedisHBaseCommandExecutor.class, "command executor queue full, command = " + task.command.getName());
+            state.inflight --;
+            if (task.barrier) {
+                state.barrierInflight = false;
+            }
+            state.ctx.writeAndFlush(new ReplyPack(ErrorReply.TOO_BUSY, task.id));
+        }
+    }
+
+    private void run(ChannelState state, Task task) {
+        try {
+            if (state.ctx.channel().isActive()) {
+                Reply reply;
+                try {
+                    reply = task.function.apply(task.command);
+                    if (reply instanceof RedisHBaseStreamReply) {
+                        if (task.barrier) {
+                            ((RedisHBaseStreamReply) reply).stream(state.ctx, task.id);
+                            return;
+                        }
+                        reply = ((RedisHBaseStreamReply) reply).materialize();
+                    }
+                } catch (Throwable e) {
+                    ErrorLogCollector.collect(RedisHBaseCommandExecutor.class, "command execute error, command = " + task.command.getName(), e);
+                    reply = ErrorReply.NOT_AVAILABLE;
+                }
+                state.ctx.writeAndFlush(new ReplyPack(reply, task.id));
+            }
+        } finally {
+            complete(state, task);
+        }
+    }
+
+    private void complete(ChannelState state, Task task) {
+        synchronized (state) {
+            state.inflight --;
+            if (task.barrier) {
+                state.barrierInflight = false;
+            }
+            while (!state.pending.isEmpty()) {
+                if (state.barrierInflight) break;
+                Task head = state.pending.peek();
+                if (head.barrier && state.inflight > 0) break;
+                state.pending.poll();
+                dispatch(state, head);
+            }
+        }
+    }
+
+    private static class ChannelState {
+        private final ChannelHandlerContext ctx;
+        private long id = 0;
+        private int inflight = 0;
+        private boolean barrierInflight = false;
+        private final Queue<Task> pending = new ArrayDeque<>();
+
+        ChannelState(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+    }
+
+    private static class Task {
+        private final Command command;
+        private final Function<Command, Reply> function;
+        private long id;
+        private int index;
+        private boolean barrier;
+
+        Task(Command command, Function<Command, Reply> function) {
+            this.command = command;
+            this.function = function;
+        }
+    }
+}
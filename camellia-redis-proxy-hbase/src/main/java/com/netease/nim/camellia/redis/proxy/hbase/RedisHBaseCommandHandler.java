@@ -0,0 +1,12 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+
+/**
+ * 把Command的参数拆解后直接调用IRedisHBaseCommandProcessor的对应方法，替代反射调用
+ */
+public interface RedisHBaseCommandHandler {
+
+    Reply handle(IRedisHBaseCommandProcessor processor, Command command);
+}
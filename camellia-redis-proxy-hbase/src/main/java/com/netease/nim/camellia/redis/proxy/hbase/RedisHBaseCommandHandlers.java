@@ -0,0 +1,130 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.util.CommandMethodUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IRedisHBaseCommandProcessor的命令分发表，每个命令对应一个直接调用的handler，避免Method.invoke的反射开销
+ * 参数拆解的规则和Command.fillParameters保持一致：byte[]参数缺省时为null，byte[][]参数取剩余的全部参数
+ * 新增命令时需要同时在IRedisHBaseCommandProcessor和这里登记，启动时会检查两者是否一致
+ */
+public class RedisHBaseCommandHandlers {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisHBaseCommandHandlers.class);
+
+    private static final Map<RedisCommand, RedisHBaseCommandHandler> handlerMap = new EnumMap<>(RedisCommand.class);
+
+    static {
+        register(RedisCommand.PING, (p, c) -> p.ping());
+        register(RedisCommand.ECHO, (p, c) -> p.echo(arg(c, 0)));
+        register(RedisCommand.DEL, (p, c) -> p.del(args(c, 0)));
+        register(RedisCommand.EXISTS, (p, c) -> p.exists(args(c, 0)));
+        register(RedisCommand.TYPE, (p, c) -> p.type(arg(c, 0)));
+        register(RedisCommand.EXPIRE, (p, c) -> p.expire(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.PEXPIRE, (p, c) -> p.pexpire(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.EXPIREAT, (p, c) -> p.expireat(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.PEXPIREAT, (p, c) -> p.pexpireat(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.TTL, (p, c) -> p.ttl(arg(c, 0)));
+        register(RedisCommand.PTTL, (p, c) -> p.pttl(arg(c, 0)));
+        register(RedisCommand.GET, (p, c) -> p.get(arg(c, 0)));
+        register(RedisCommand.SET, (p, c) -> p.set(arg(c, 0), arg(c, 1), args(c, 2)));
+        register(RedisCommand.SETEX, (p, c) -> p.setex(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.MSET, (p, c) -> p.mset(args(c, 0)));
+        register(RedisCommand.PSETEX, (p, c) -> p.psetex(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.SETNX, (p, c) -> p.setnx(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.MGET, (p, c) -> p.mget(args(c, 0)));
+        register(RedisCommand.ZADD, (p, c) -> p.zadd(arg(c, 0), args(c, 1)));
+        register(RedisCommand.ZSCORE, (p, c) -> p.zscore(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.ZINCRBY, (p, c) -> p.zincrby(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.ZCARD, (p, c) -> p.zcard(arg(c, 0)));
+        register(RedisCommand.ZCOUNT, (p, c) -> p.zcount(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.ZRANGE, (p, c) -> p.zrange(arg(c, 0), arg(c, 1), arg(c, 2), arg(c, 3)));
+        register(RedisCommand.ZREVRANGE, (p, c) -> p.zrevrange(arg(c, 0), arg(c, 1), arg(c, 2), arg(c, 3)));
+        register(RedisCommand.ZRANGEBYSCORE, (p, c) -> p.zrangebyscore(arg(c, 0), arg(c, 1), arg(c, 2), args(c, 3)));
+        register(RedisCommand.ZREVRANGEBYSCORE, (p, c) -> p.zrevrangebyscore(arg(c, 0), arg(c, 1), arg(c, 2), args(c, 3)));
+        register(RedisCommand.ZRANGEBYLEX, (p, c) -> p.zrangebylex(arg(c, 0), arg(c, 1), arg(c, 2), args(c, 3)));
+        register(RedisCommand.ZREVRANGEBYLEX, (p, c) -> p.zrevrangebylex(arg(c, 0), arg(c, 1), arg(c, 2), args(c, 3)));
+        register(RedisCommand.ZREMRANGEBYRANK, (p, c) -> p.zremrangebyrank(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.ZREMRANGEBYSCORE, (p, c) -> p.zremrangebyscore(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.ZREMRANGEBYLEX, (p, c) -> p.zremrangebylex(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.ZRANK, (p, c) -> p.zrank(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.ZREVRANK, (p, c) -> p.zrevrank(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.ZREM, (p, c) -> p.zrem(arg(c, 0), args(c, 1)));
+        register(RedisCommand.ZLEXCOUNT, (p, c) -> p.zlexcount(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.HSET, (p, c) -> p.hset(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.HSETNX, (p, c) -> p.hsetnx(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.HGET, (p, c) -> p.hget(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.HEXISTS, (p, c) -> p.hexists(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.HDEL, (p, c) -> p.hdel(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.HLEN, (p, c) -> p.hlen(arg(c, 0)));
+        register(RedisCommand.HMSET, (p, c) -> p.hmset(arg(c, 0), args(c, 1)));
+        register(RedisCommand.HMGET, (p, c) -> p.hmget(arg(c, 0), args(c, 1)));
+        register(RedisCommand.HKEYS, (p, c) -> p.hkeys(arg(c, 0)));
+        register(RedisCommand.HVALS, (p, c) -> p.hvals(arg(c, 0)));
+        register(RedisCommand.HGETALL, (p, c) -> p.hgetall(arg(c, 0)));
+        register(RedisCommand.LPUSH, (p, c) -> p.lpush(arg(c, 0), args(c, 1)));
+        register(RedisCommand.RPUSH, (p, c) -> p.rpush(arg(c, 0), args(c, 1)));
+        register(RedisCommand.LPOP, (p, c) -> p.lpop(arg(c, 0)));
+        register(RedisCommand.RPOP, (p, c) -> p.rpop(arg(c, 0)));
+        register(RedisCommand.LINDEX, (p, c) -> p.lindex(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.LRANGE, (p, c) -> p.lrange(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.LLEN, (p, c) -> p.llen(arg(c, 0)));
+        register(RedisCommand.LSET, (p, c) -> p.lset(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.LREM, (p, c) -> p.lrem(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.LTRIM, (p, c) -> p.ltrim(arg(c, 0), arg(c, 1), arg(c, 2)));
+        register(RedisCommand.SADD, (p, c) -> p.sadd(arg(c, 0), args(c, 1)));
+        register(RedisCommand.SREM, (p, c) -> p.srem(arg(c, 0), args(c, 1)));
+        register(RedisCommand.SMEMBERS, (p, c) -> p.smembers(arg(c, 0)));
+        register(RedisCommand.SISMEMBER, (p, c) -> p.sismember(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.SCARD, (p, c) -> p.scard(arg(c, 0)));
+        register(RedisCommand.SPOP, (p, c) -> p.spop(arg(c, 0), arg(c, 1)));
+        register(RedisCommand.SRANDMEMBER, (p, c) -> p.srandmember(arg(c, 0), arg(c, 1)));
+        check();
+    }
+
+    public static RedisHBaseCommandHandler get(Command command) {
+        RedisCommand redisCommand = RedisCommand.getRedisCommandByName(command.getName());
+        if (redisCommand == null) return null;
+        return handlerMap.get(redisCommand);
+    }
+
+    private static void register(RedisCommand redisCommand, RedisHBaseCommandHandler handler) {
+        handlerMap.put(redisCommand, handler);
+    }
+
+    //和@CommandFinder的声明做一次对比，避免接口新增了命令但是分发表漏了
+    private static void check() {
+        Map<String, Method> methodMap = new HashMap<>();
+        CommandMethodUtil.initCommandFinderMethods(IRedisHBaseCommandProcessor.class, methodMap);
+        for (String commandName : methodMap.keySet()) {
+            RedisCommand redisCommand = RedisCommand.getRedisCommandByName(commandName);
+            if (redisCommand == null || !handlerMap.containsKey(redisCommand)) {
+                logger.warn("command = {} declared in IRedisHBaseCommandProcessor, but no handler registered", commandName);
+            }
+        }
+    }
+
+    private static byte[] arg(Command command, int index) {
+        byte[][] objects = command.getObjects();
+        if (objects.length - 1 > index) {
+            return objects[index + 1];
+        }
+        return null;
+    }
+
+    private static byte[][] args(Command command, int from) {
+        byte[][] objects = command.getObjects();
+        int left = Math.max(objects.length - from - 1, 0);
+        byte[][] args = new byte[left][];
+        System.arraycopy(objects, from + 1, args, 0, left);
+        return args;
+    }
+}
@@ -11,6 +11,7 @@ import com.netease.nim.camellia.redis.proxy.command.async.hotkey.HotKeyHunter;
 import com.netease.nim.camellia.redis.proxy.command.async.hotkey.HotKeyHunterManager;
 import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandSpendTimeConfig;
 import com.netease.nim.camellia.redis.proxy.conf.CamelliaServerProperties;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.monitor.*;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
@@ -20,10 +21,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  *
@@ -33,8 +31,8 @@ public class RedisHBaseCommandInvoker implements CommandInvoker {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisHBaseCommandInvoker.class);
 
-    private final Map<String, Method> methodMap = new HashMap<>();
     private final RedisHBaseCommandProcessor processor;
+    private RedisHBaseCommandExecutor commandExecutor;
 
     private CommandSpendTimeConfig commandSpendTimeConfig;
     private HotKeyHunter hotKeyHunter;
@@ -42,8 +40,10 @@ public class RedisHBaseCommandInvoker implements CommandInvoker {
 
     public RedisHBaseCommandInvoker(CamelliaRedisTemplate redisTemplate, CamelliaHBaseTemplate hBaseTemplate, CamelliaServerProperties serverProperties) {
         processor = new RedisHBaseCommandProcessor(redisTemplate, hBaseTemplate);
-        Class<? extends IRedisHBaseCommandProcessor> clazz = IRedisHBaseCommandProcessor.class;
-        CommandMethodUtil.initCommandFinderMethods(clazz, methodMap);
+        if (RedisHBaseConfiguration.commandExecuteAsyncEnable()) {
+            commandExecutor = new RedisHBaseCommandExecutor(RedisHBaseConfiguration.commandExecutePoolSize(),
+                    RedisHBaseConfiguration.commandExecuteQueueSize());
+        }
 
         int monitorIntervalSeconds = serverProperties.getMonitorIntervalSeconds();
         CommandSpendTimeConfig commandSpendTimeConfig = ConfigInitUtil.initCommandSpendTimeConfig(serverProperties);
@@ -67,53 +67,79 @@ public class RedisHBaseCommandInvoker implements CommandInvoker {
     @Override
     public void invoke(ChannelHandlerContext ctx, ChannelInfo channelInfo, List<Command> commands) {
         if (commands.isEmpty()) return;
+        if (commandExecutor != null) {
+            for (Command command : commands) {
+                commandExecutor.execute(ctx, command, c -> execute(channelInfo, c));
+            }
+            return;
+        }
         for (Command command : commands) {
-            Reply reply = null;
-            long startTime = 0;
-            if (RedisMonitor.isCommandSpendTimeMonitorEnable()) {
-                startTime = System.nanoTime();
+            RedisHBaseCommandHandler handler = RedisHBaseCommandHandlers.get(command);
+            if (handler == null) {
+                logger.warn("only support zset relevant commands, return NOT_SUPPORT, command = {}, consid = {}", command.getName(), channelInfo.getConsid());
+                ctx.writeAndFlush(ErrorReply.NOT_SUPPORT);
+                debugLog(ErrorReply.NOT_SUPPORT, channelInfo);
+                return;
             }
-            try {
-                Method method = methodMap.get(command.getName());
-                if (method == null) {
-                    logger.warn("only support zset relevant commands, return NOT_SUPPORT, command = {}, consid = {}", command.getName(), channelInfo.getConsid());
-                    ctx.writeAndFlush(ErrorReply.NOT_SUPPORT);
-                    debugLog(ErrorReply.NOT_SUPPORT, channelInfo);
-                    return;
-                }
-                if (hotKeyHunter != null) {
-                    hotKeyHunter.incr(command.getKeys());
-                }
-                if (bigKeyHunter != null) {
-                    bigKeyHunter.checkRequest(command);
-                }
-                //
-                reply = (Reply) CommandInvokerUtil.invoke(method, command, processor);
-                ctx.writeAndFlush(reply);
+            Reply reply = execute(channelInfo, command);
+            ctx.writeAndFlush(reply);
+        }
+    }
+
+    private Reply execute(ChannelInfo channelInfo, Command command) {
+        Reply reply = null;
+        long startTime = 0;
+        if (RedisMonitor.isCommandSpendTimeMonitorEnable()) {
+            startTime = System.nanoTime();
+        }
+        try {
+            RedisHBaseCommandHandler handler = RedisHBaseCommandHandlers.get(command);
+            if (handler == null) {
+                logger.warn("only support zset relevant commands, return NOT_SUPPORT, command = {}, consid = {}", command.getName(), channelInfo.getConsid());
+                reply = ErrorReply.NOT_SUPPORT;
                 debugLog(reply, channelInfo);
-                //
-                if (bigKeyHunter != null) {
-                    bigKeyHunter.checkReply(command, reply);
+                return reply;
+            }
+            if (hotKeyHunter != null) {
+                hotKeyHunter.incr(command.getKeys());
+            }
+            if (bigKeyHunter != null) {
+                bigKeyHunter.checkRequest(command);
+            }
+            //
+            try {
+                reply = handler.handle(processor, command);
+            } catch (RuntimeException e) {
+                //key已经分段下沉到hbase，恢复之后重试一次
+                if (!processor.rehydrateIfCold(command, e)) {
+                    throw e;
                 }
-            } catch (Throwable e) {
-                reply = handlerError(e, command.getName());
-                ctx.writeAndFlush(reply);
-                debugLog(reply, channelInfo);
-            } finally {
-                if (startTime > 0) {
-                    long spendNanoTime = System.nanoTime() - startTime;
-                    RedisMonitor.incrCommandSpendTime(null, null, command.getName(), spendNanoTime);
-                    if (this.commandSpendTimeConfig != null && spendNanoTime > this.commandSpendTimeConfig.getSlowCommandThresholdNanoTime()) {
-                        double spendMillis = spendNanoTime / 1000000.0;
-                        long slowCommandThresholdMillisTime = this.commandSpendTimeConfig.getSlowCommandThresholdMillisTime();
-                        SlowCommandMonitor.slowCommand(command, spendMillis, slowCommandThresholdMillisTime);
-                        if (this.commandSpendTimeConfig.getSlowCommandMonitorCallback() != null) {
-                            try {
-                                this.commandSpendTimeConfig.getSlowCommandMonitorCallback().callback(command, reply,
-                                        spendMillis, slowCommandThresholdMillisTime);
-                            } catch (Exception e) {
-                                ErrorLogCollector.collect(RedisHBaseCommandInvoker.class, "SlowCommandCallback error", e);
-                            }
+                reply = handler.handle(processor, command);
+            }
+            debugLog(reply, channelInfo);
+            //
+            if (bigKeyHunter != null) {
+                bigKeyHunter.checkReply(command, reply);
+            }
+            return reply;
+        } catch (Throwable e) {
+            reply = handlerError(e, command.getName());
+            debugLog(reply, channelInfo);
+            return reply;
+        } finally {
+            if (startTime > 0) {
+                long spendNanoTime = System.nanoTime() - startTime;
+                RedisMonitor.incrCommandSpendTime(null, null, command.getName(), spendNanoTime);
+                if (this.commandSpendTimeConfig != null && spendNanoTime > this.commandSpendTimeConfig.getSlowCommandThresholdNanoTime()) {
+                    double spendMillis = spendNanoTime / 1000000.0;
+                    long slowCommandThresholdMillisTime = this.commandSpendTimeConfig.getSlowCommandThresholdMillisTime();
+                    SlowCommandMonitor.slowCommand(command, spendMillis, slowCommandThresholdMillisTime);
+                    if (this.commandSpendTimeConfig.getSlowCommandMonitorCallback() != null) {
+                        try {
+                            this.commandSpendTimeConfig.getSlowCommandMonitorCallback().callback(command, reply,
+                                    spendMillis, slowCommandThresholdMillisTime);
+                        } catch (Exception e) {
+                            ErrorLogCollector.collect(RedisHBaseCommandInvoker.class, "SlowCommandCallback error", e);
                         }
                     }
                 }
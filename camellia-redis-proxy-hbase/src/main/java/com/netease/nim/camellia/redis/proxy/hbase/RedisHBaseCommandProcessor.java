@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis.proxy.hbase;
 
 import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
 import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
 import com.netease.nim.camellia.redis.proxy.util.ParamUtils;
 import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
@@ -28,6 +29,9 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
     private final RedisHBaseCommonMixClient commonMixClient;
     private final RedisHBaseStringMixClient stringMixClient;
     private final RedisHBaseHashMixClient hashMixClient;
+    private final RedisHBaseListMixClient listMixClient;
+    private final RedisHBaseSetMixClient setMixClient;
+    private final RedisHBaseColdDataManager coldDataManager;
 
     public RedisHBaseCommandProcessor(CamelliaRedisTemplate redisTemplate, CamelliaHBaseTemplate hBaseTemplate) {
         //做一下预热
@@ -40,11 +44,34 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
 
         HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor = new HBaseAsyncWriteExecutor(hBaseTemplate,
                 RedisHBaseConfiguration.hbaseAsyncWritePoolSize(), RedisHBaseConfiguration.hbaseAsyncWriteQueueSize());
+        HBaseReadBatcher hBaseReadBatcher = new HBaseReadBatcher(hBaseTemplate,
+                RedisHBaseConfiguration.hbaseReadBatchPoolSize(), RedisHBaseConfiguration.hbaseReadBatchQueueSize());
+        RefKeyValueCache refKeyValueCache = new RefKeyValueCache(RedisHBaseConfiguration.refKeyLocalCacheMaxBytes());
+        this.coldDataManager = new RedisHBaseColdDataManager(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor, hBaseReadBatcher);
         //
-        this.zSetMixClient = new RedisHBaseZSetMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor);
-        this.stringMixClient = new RedisHBaseStringMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor);
-        this.hashMixClient = new RedisHBaseHashMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor);
-        this.commonMixClient = new RedisHBaseCommonMixClient(redisTemplate, this.zSetMixClient, this.stringMixClient, this.hashMixClient);
+        this.zSetMixClient = new RedisHBaseZSetMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor, hBaseReadBatcher, refKeyValueCache);
+        this.stringMixClient = new RedisHBaseStringMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor, hBaseReadBatcher, refKeyValueCache, coldDataManager);
+        this.hashMixClient = new RedisHBaseHashMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor, hBaseReadBatcher, refKeyValueCache, coldDataManager);
+        this.listMixClient = new RedisHBaseListMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor, hBaseReadBatcher, refKeyValueCache, coldDataManager);
+        this.setMixClient = new RedisHBaseSetMixClient(redisTemplate, hBaseTemplate, hBaseAsyncWriteExecutor, hBaseReadBatcher, refKeyValueCache, coldDataManager);
+        this.commonMixClient = new RedisHBaseCommonMixClient(redisTemplate, this.zSetMixClient, this.stringMixClient, this.hashMixClient,
+                this.listMixClient, this.setMixClient, coldDataManager);
+    }
+
+    /**
+     * 命令因为key已经分段下沉到hbase而失败（WRONGTYPE）时，恢复命令涉及的key
+     * @return true表示有key被恢复，可以重试命令
+     */
+    public boolean rehydrateIfCold(Command command, RuntimeException e) {
+        List<byte[]> keys = command.getKeys();
+        if (keys == null || keys.isEmpty()) return false;
+        boolean rehydrated = false;
+        for (byte[] key : keys) {
+            if (coldDataManager.rehydrateIfCold(key, e)) {
+                rehydrated = true;
+            }
+        }
+        return rehydrated;
     }
 
     @Override
@@ -283,14 +310,12 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         if (withscores != null) {
             if (Utils.checkStringIgnoreCase(withscores, RedisKeyword.WITHSCORES.name())) {
                 Set<Tuple> tuples = zSetMixClient.zrangeWithScores(key, Utils.bytesToNum(start), Utils.bytesToNum(stop));
-                RedisHBaseMonitor.incrCollectionSize("zrangeWithScores", tuples == null ? 0 : tuples.size());
-                return ParamUtils.tuples2MultiBulkReply(tuples);
+                return tuplesReply("zrangeWithScores", tuples);
             }
             throw new IllegalArgumentException(Utils.syntaxError);
         } else {
             Set<byte[]> zrange = zSetMixClient.zrange(key, Utils.bytesToNum(start), Utils.bytesToNum(stop));
-            RedisHBaseMonitor.incrCollectionSize("zrange", zrange == null ? 0 : zrange.size());
-            return ParamUtils.collection2MultiBulkReply(zrange);
+            return collectionReply("zrange", zrange);
         }
     }
 
@@ -299,14 +324,12 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         if (withscores != null) {
             if (Utils.checkStringIgnoreCase(withscores, RedisKeyword.WITHSCORES.name())) {
                 Set<Tuple> tuples = zSetMixClient.zrevrangeWithScores(key, Utils.bytesToNum(start), Utils.bytesToNum(stop));
-                RedisHBaseMonitor.incrCollectionSize("zrevrangeWithScores", tuples == null ? 0 : tuples.size());
-                return ParamUtils.tuples2MultiBulkReply(tuples);
+                return tuplesReply("zrevrangeWithScores", tuples);
             }
             throw new IllegalArgumentException(Utils.syntaxError);
         } else {
             Set<byte[]> zrange = zSetMixClient.zrevrange(key, Utils.bytesToNum(start), Utils.bytesToNum(stop));
-            RedisHBaseMonitor.incrCollectionSize("zrevrange", zrange == null ? 0 : zrange.size());
-            return ParamUtils.collection2MultiBulkReply(zrange);
+            return collectionReply("zrevrange", zrange);
         }
     }
 
@@ -315,22 +338,18 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         ParamUtils.ZRangeParams params = ParamUtils.parseZRangeParams(args);
         if (!params.withLimit && !params.withScores) {
             Set<byte[]> set = zSetMixClient.zrangeByScore(key, min, max);
-            RedisHBaseMonitor.incrCollectionSize("zrangeByScore", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrangeByScore", set);
         }
         if (params.withScores && !params.withLimit) {
             Set<Tuple> tuples = zSetMixClient.zrangeByScoreWithScores(key, min, max);
-            RedisHBaseMonitor.incrCollectionSize("zrangeByScoreWithScores", tuples == null ? 0 : tuples.size());
-            return ParamUtils.tuples2MultiBulkReply(tuples);
+            return tuplesReply("zrangeByScoreWithScores", tuples);
         }
         if (!params.withScores) {
             Set<byte[]> set = zSetMixClient.zrangeByScore(key, min, max, params.offset, params.count);
-            RedisHBaseMonitor.incrCollectionSize("zrangeByScore", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrangeByScore", set);
         }
         Set<Tuple> tuples = zSetMixClient.zrangeByScoreWithScores(key, min, max, params.offset, params.count);
-        RedisHBaseMonitor.incrCollectionSize("zrangeByScoreWithScores", tuples == null ? 0 : tuples.size());
-        return ParamUtils.tuples2MultiBulkReply(tuples);
+        return tuplesReply("zrangeByScoreWithScores", tuples);
     }
 
     @Override
@@ -338,22 +357,18 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         ParamUtils.ZRangeParams params = ParamUtils.parseZRangeParams(args);
         if (!params.withLimit && !params.withScores) {
             Set<byte[]> set = zSetMixClient.zrevrangeByScore(key, min, max);
-            RedisHBaseMonitor.incrCollectionSize("zrevrangeByScore", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrevrangeByScore", set);
         }
         if (params.withScores && !params.withLimit) {
             Set<Tuple> tuples = zSetMixClient.zrevrangeByScoreWithScores(key, min, max);
-            RedisHBaseMonitor.incrCollectionSize("zrevrangeByScoreWithScores", tuples == null ? 0 : tuples.size());
-            return ParamUtils.tuples2MultiBulkReply(tuples);
+            return tuplesReply("zrevrangeByScoreWithScores", tuples);
         }
         if (!params.withScores) {
             Set<byte[]> set = zSetMixClient.zrevrangeByScore(key, min, max, params.offset, params.count);
-            RedisHBaseMonitor.incrCollectionSize("zrevrangeByScore", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrevrangeByScore", set);
         }
         Set<Tuple> tuples = zSetMixClient.zrevrangeByScoreWithScores(key, min, max, params.offset, params.count);
-        RedisHBaseMonitor.incrCollectionSize("zrevrangeByScoreWithScores", tuples == null ? 0 : tuples.size());
-        return ParamUtils.tuples2MultiBulkReply(tuples);
+        return tuplesReply("zrevrangeByScoreWithScores", tuples);
     }
 
     @Override
@@ -361,12 +376,10 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         ParamUtils.ZRangeParams params = ParamUtils.parseZRangeParams(args);
         if (params.withLimit) {
             Set<byte[]> set = zSetMixClient.zrangeByLex(key, min, max, params.offset, params.count);
-            RedisHBaseMonitor.incrCollectionSize("zrangeByLex", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrangeByLex", set);
         } else {
             Set<byte[]> set = zSetMixClient.zrangeByLex(key, min, max);
-            RedisHBaseMonitor.incrCollectionSize("zrangeByLex", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrangeByLex", set);
         }
     }
 
@@ -375,12 +388,10 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         ParamUtils.ZRangeParams params = ParamUtils.parseZRangeParams(args);
         if (!params.withLimit) {
             Set<byte[]> set = zSetMixClient.zrevrangeByLex(key, min, max);
-            RedisHBaseMonitor.incrCollectionSize("zrevrangeByLex", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrevrangeByLex", set);
         } else {
             Set<byte[]> set = zSetMixClient.zrevrangeByLex(key, min, max, params.offset, params.count);
-            RedisHBaseMonitor.incrCollectionSize("zrevrangeByLex", set == null ? 0 : set.size());
-            return ParamUtils.collection2MultiBulkReply(set);
+            return collectionReply("zrevrangeByLex", set);
         }
     }
 
@@ -540,6 +551,11 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
     @Override
     public MultiBulkReply hgetall(byte[] key) {
         Map<byte[], byte[]> map = hashMixClient.hgetAll(key);
+        if (map instanceof RefKeyStreamMap) {
+            RedisHBaseStreamReply streamReply = ((RefKeyStreamMap) map).getStreamReply();
+            RedisHBaseMonitor.incrCollectionSize("hgetall", streamReply.elementCount());
+            return streamReply;
+        }
         Reply[] replies = new Reply[map.size()*2];
         int index = 0;
         for (Map.Entry<byte[], byte[]> entry : map.entrySet()) {
@@ -550,4 +566,160 @@ public class RedisHBaseCommandProcessor implements IRedisHBaseCommandProcessor {
         RedisHBaseMonitor.incrCollectionSize("hgetall", map.size());
         return new MultiBulkReply(replies);
     }
+
+    @Override
+    public IntegerReply lpush(byte[] key, byte[][] values) {
+        if (values == null || values.length == 0) {
+            throw Utils.illegalArgumentException();
+        }
+        Long lpush = listMixClient.lpush(key, values);
+        RedisHBaseMonitor.incrCollectionSize("lpush", values.length);
+        return new IntegerReply(lpush);
+    }
+
+    @Override
+    public IntegerReply rpush(byte[] key, byte[][] values) {
+        if (values == null || values.length == 0) {
+            throw Utils.illegalArgumentException();
+        }
+        Long rpush = listMixClient.rpush(key, values);
+        RedisHBaseMonitor.incrCollectionSize("rpush", values.length);
+        return new IntegerReply(rpush);
+    }
+
+    @Override
+    public BulkReply lpop(byte[] key) {
+        byte[] lpop = listMixClient.lpop(key);
+        return new BulkReply(lpop);
+    }
+
+    @Override
+    public BulkReply rpop(byte[] key) {
+        byte[] rpop = listMixClient.rpop(key);
+        return new BulkReply(rpop);
+    }
+
+    @Override
+    public BulkReply lindex(byte[] key, byte[] index) {
+        byte[] lindex = listMixClient.lindex(key, Utils.bytesToNum(index));
+        return new BulkReply(lindex);
+    }
+
+    @Override
+    public MultiBulkReply lrange(byte[] key, byte[] start, byte[] stop) {
+        List<byte[]> lrange = listMixClient.lrange(key, Utils.bytesToNum(start), Utils.bytesToNum(stop));
+        RedisHBaseMonitor.incrCollectionSize("lrange", lrange == null ? 0 : lrange.size());
+        return ParamUtils.collection2MultiBulkReply(lrange);
+    }
+
+    @Override
+    public IntegerReply llen(byte[] key) {
+        Long llen = listMixClient.llen(key);
+        return new IntegerReply(llen);
+    }
+
+    @Override
+    public StatusReply lset(byte[] key, byte[] index, byte[] value) {
+        String lset = listMixClient.lset(key, Utils.bytesToNum(index), value);
+        return new StatusReply(lset);
+    }
+
+    @Override
+    public IntegerReply lrem(byte[] key, byte[] count, byte[] value) {
+        Long lrem = listMixClient.lrem(key, Utils.bytesToNum(count), value);
+        return new IntegerReply(lrem);
+    }
+
+    @Override
+    public StatusReply ltrim(byte[] key, byte[] start, byte[] stop) {
+        String ltrim = listMixClient.ltrim(key, Utils.bytesToNum(start), Utils.bytesToNum(stop));
+        return new StatusReply(ltrim);
+    }
+
+    @Override
+    public IntegerReply sadd(byte[] key, byte[][] members) {
+        if (members == null || members.length == 0) {
+            throw Utils.illegalArgumentException();
+        }
+        Long sadd = setMixClient.sadd(key, members);
+        RedisHBaseMonitor.incrCollectionSize("sadd", members.length);
+        return new IntegerReply(sadd);
+    }
+
+    @Override
+    public IntegerReply srem(byte[] key, byte[][] members) {
+        if (members == null || members.length == 0) {
+            throw Utils.illegalArgumentException();
+        }
+        Long srem = setMixClient.srem(key, members);
+        RedisHBaseMonitor.incrCollectionSize("srem", members.length);
+        return new IntegerReply(srem);
+    }
+
+    @Override
+    public MultiBulkReply smembers(byte[] key) {
+        Set<byte[]> smembers = setMixClient.smembers(key);
+        RedisHBaseMonitor.incrCollectionSize("smembers", smembers == null ? 0 : smembers.size());
+        return ParamUtils.collection2MultiBulkReply(smembers);
+    }
+
+    @Override
+    public IntegerReply sismember(byte[] key, byte[] member) {
+        Boolean sismember = setMixClient.sismember(key, member);
+        return sismember ? IntegerReply.REPLY_1 : IntegerReply.REPLY_0;
+    }
+
+    @Override
+    public IntegerReply scard(byte[] key) {
+        Long scard = setMixClient.scard(key);
+        return new IntegerReply(scard);
+    }
+
+    @Override
+    public Reply spop(byte[] key, byte[] count) {
+        if (count == null) {
+            Set<byte[]> spop = setMixClient.spop(key, 1);
+            if (spop == null || spop.isEmpty()) {
+                return BulkReply.NIL_REPLY;
+            }
+            return new BulkReply(spop.iterator().next());
+        }
+        Set<byte[]> spop = setMixClient.spop(key, Utils.bytesToNum(count));
+        RedisHBaseMonitor.incrCollectionSize("spop", spop == null ? 0 : spop.size());
+        return ParamUtils.collection2MultiBulkReply(spop);
+    }
+
+    @Override
+    public Reply srandmember(byte[] key, byte[] count) {
+        if (count == null) {
+            List<byte[]> srandmember = setMixClient.srandmember(key, 1);
+            if (srandmember == null || srandmember.isEmpty()) {
+                return BulkReply.NIL_REPLY;
+            }
+            return new BulkReply(srandmember.get(0));
+        }
+        List<byte[]> srandmember = setMixClient.srandmember(key, (int) Utils.bytesToNum(count));
+        RedisHBaseMonitor.incrCollectionSize("srandmember", srandmember == null ? 0 : srandmember.size());
+        return ParamUtils.collection2MultiBulkReply(srandmember);
+    }
+
+    private MultiBulkReply collectionReply(String method, Set<byte[]> set) {
+        if (set instanceof RefKeyStreamSet) {
+            RedisHBaseStreamReply streamReply = ((RefKeyStreamSet<byte[]>) set).getStreamReply();
+            RedisHBaseMonitor.incrCollectionSize(method, streamReply.elementCount());
+            return streamReply;
+        }
+        RedisHBaseMonitor.incrCollectionSize(method, set == null ? 0 : set.size());
+        return ParamUtils.collection2MultiBulkReply(set);
+    }
+
+    private MultiBulkReply tuplesReply(String method, Set<Tuple> tuples) {
+        if (tuples instanceof RefKeyStreamSet) {
+            RedisHBaseStreamReply streamReply = ((RefKeyStreamSet<Tuple>) tuples).getStreamReply();
+            RedisHBaseMonitor.incrCollectionSize(method, streamReply.elementCount());
+            return streamReply;
+        }
+        RedisHBaseMonitor.incrCollectionSize(method, tuples == null ? 0 : tuples.size());
+        return ParamUtils.tuples2MultiBulkReply(tuples);
+    }
 }
@@ -17,15 +17,24 @@ public class RedisHBaseCommonMixClient {
     private final RedisHBaseZSetMixClient zSetMixClient;
     private final RedisHBaseStringMixClient stringMixClient;
     private final RedisHBaseHashMixClient hashMixClient;
+    private final RedisHBaseListMixClient listMixClient;
+    private final RedisHBaseSetMixClient setMixClient;
+    private final RedisHBaseColdDataManager coldDataManager;
 
     public RedisHBaseCommonMixClient(CamelliaRedisTemplate redisTemplate,
                                      RedisHBaseZSetMixClient zSetMixClient,
                                      RedisHBaseStringMixClient stringMixClient,
-                                     RedisHBaseHashMixClient hashMixClient) {
+                                     RedisHBaseHashMixClient hashMixClient,
+                                     RedisHBaseListMixClient listMixClient,
+                                     RedisHBaseSetMixClient setMixClient,
+                                     RedisHBaseColdDataManager coldDataManager) {
         this.redisTemplate = redisTemplate;
         this.zSetMixClient = zSetMixClient;
         this.stringMixClient = stringMixClient;
         this.hashMixClient = hashMixClient;
+        this.listMixClient = listMixClient;
+        this.setMixClient = setMixClient;
+        this.coldDataManager = coldDataManager;
     }
 
     /**
@@ -36,6 +45,10 @@ public class RedisHBaseCommonMixClient {
         long ret = 0;
         for (byte[] key : keys) {
             String type = redisTemplate.type(redisKey(key));
+            if (type != null && type.equalsIgnoreCase("string") && coldDataManager.rehydrate(key)) {
+                //分段下沉的list/set，先恢复，再按原始类型删除，元素对应的ref-key也需要一起删除
+                type = redisTemplate.type(redisKey(key));
+            }
             if (type != null) {
                 if (type.equalsIgnoreCase("zset")) {
                     Long zremrangeByRank = zSetMixClient.zremrangeByRank(key, 0, -1);
@@ -52,6 +65,16 @@ public class RedisHBaseCommonMixClient {
                     if (del > 0) {
                         ret ++;
                     }
+                } else if (type.equalsIgnoreCase("list")) {
+                    Long del = listMixClient.del(key);
+                    if (del > 0) {
+                        ret ++;
+                    }
+                } else if (type.equalsIgnoreCase("set")) {
+                    Long del = setMixClient.del(key);
+                    if (del > 0) {
+                        ret ++;
+                    }
                 } else {
                     leaveKeys.add(redisKey(key));
                 }
@@ -68,7 +91,15 @@ public class RedisHBaseCommonMixClient {
      *
      */
     public String type(byte[] key) {
-        return redisTemplate.type(redisKey(key));
+        String type = redisTemplate.type(redisKey(key));
+        if (type != null && type.equalsIgnoreCase("string")) {
+            //分段下沉的list/set，redis中是string类型的标记，返回原始的类型
+            String coldType = coldDataManager.coldType(key);
+            if (coldType != null) {
+                return coldType;
+            }
+        }
+        return type;
     }
 
 
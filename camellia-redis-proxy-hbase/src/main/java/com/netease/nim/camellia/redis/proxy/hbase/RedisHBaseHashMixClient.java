@@ -7,6 +7,8 @@ import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
 import com.netease.nim.camellia.redis.proxy.hbase.util.FreqUtils;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyAccessTracker;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyCodec;
 import com.netease.nim.camellia.redis.proxy.util.BytesKey;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 import org.apache.hadoop.hbase.client.Delete;
@@ -33,25 +35,36 @@ public class RedisHBaseHashMixClient {
     private final CamelliaRedisTemplate redisTemplate;
     private final CamelliaHBaseTemplate hBaseTemplate;
     private final HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor;
+    private final HBaseReadBatcher hBaseReadBatcher;
+    private final RefKeyValueCache refKeyValueCache;
+    private final RedisHBaseColdDataManager coldDataManager;
+    private final RefKeyValueResolver refKeyValueResolver;
 
     public RedisHBaseHashMixClient(CamelliaRedisTemplate redisTemplate,
                                    CamelliaHBaseTemplate hBaseTemplate,
-                                   HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor) {
+                                   HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, HBaseReadBatcher hBaseReadBatcher, RefKeyValueCache refKeyValueCache,
+                                   RedisHBaseColdDataManager coldDataManager) {
         this.redisTemplate = redisTemplate;
         this.hBaseTemplate = hBaseTemplate;
         this.hBaseAsyncWriteExecutor = hBaseAsyncWriteExecutor;
+        this.hBaseReadBatcher = hBaseReadBatcher;
+        this.refKeyValueCache = refKeyValueCache;
+        this.coldDataManager = coldDataManager;
+        this.refKeyValueResolver = new RefKeyValueResolver(redisTemplate, hBaseReadBatcher, refKeyValueCache);
     }
 
     public Long del(byte[] key) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         List<byte[]> hvals = redisTemplate.hvals(redisKey(key));
         List<Delete> deleteList = new ArrayList<>();
         try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
             int pipelineCount = 0;
             for (byte[] value : hvals) {
-                if (isRefKey(key, value)) {
+                if (refKeyCodec.isRefKey(value)) {
                     Delete delete = new Delete(value);
                     deleteList.add(delete);
                     pipeline.del(redisKey(value));
+                    refKeyValueCache.invalidate(value);
                     pipelineCount ++;
                     if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
                         pipeline.sync();
@@ -102,6 +115,7 @@ public class RedisHBaseHashMixClient {
         } else {
             RedisHBaseMonitor.incr("hset(byte[], byte[], byte[])", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("hash", value.length, false);
+            coldDataManager.addCandidate("hash", key, value);
             return redisTemplate.hset(redisKey(key), field, value);
         }
     }
@@ -120,6 +134,7 @@ public class RedisHBaseHashMixClient {
         } else {
             RedisHBaseMonitor.incr("hsetnx(byte[], byte[], byte[])", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("hash", value.length, false);
+            coldDataManager.addCandidate("hash", key, value);
             return redisTemplate.hsetnx(redisKey(key), field, value);
         }
     }
@@ -131,12 +146,19 @@ public class RedisHBaseHashMixClient {
             return bytes;
         }
         if (isRefKey(key, bytes)) {
-            byte[] value = redisTemplate.get(redisKey(bytes));
+            byte[] value = refKeyValueCache.get("hash", bytes);
             if (value != null) {
                 RedisHBaseMonitor.incr("hget(byte[], byte[])", OperationType.REDIS_ONLY.name());
                 return value;
             }
-            value = hbaseGet(hBaseTemplate, redisTemplate, bytes, hashRefKeyExpireSeconds());
+            value = redisTemplate.get(redisKey(bytes));
+            if (value != null) {
+                refKeyValueCache.put(bytes, value, hashRefKeyExpireSeconds());
+                RedisHBaseMonitor.incr("hget(byte[], byte[])", OperationType.REDIS_ONLY.name());
+                return value;
+            }
+            value = hbaseGet(hBaseReadBatcher, redisTemplate, key, bytes, hashRefKeyExpireSeconds());
+            refKeyValueCache.put(bytes, value, hashRefKeyExpireSeconds());
             RedisHBaseMonitor.incr("hget(byte[], byte[])", OperationType.REDIS_HBASE.name());
             return value;
         } else {
@@ -166,19 +188,21 @@ public class RedisHBaseHashMixClient {
     }
 
     public String hmset(byte[] key, Map<byte[], byte[]> hash) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         Map<byte[], byte[]> map = new HashMap<>();
         Map<byte[], byte[]> refKeyMap = new HashMap<>();
         for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
             byte[] k = entry.getKey();
             byte[] v = entry.getValue();
             if (v.length > hashRefKeyThreshold()) {
-                byte[] refKey = buildRefKey(key, v);
+                byte[] refKey = refKeyCodec.buildRefKey(v);
                 map.put(k, refKey);
                 refKeyMap.put(refKey, v);
                 RedisHBaseMonitor.incrValueSize("hash", v.length, true);
             } else {
                 map.put(k, v);
                 RedisHBaseMonitor.incrValueSize("hash", v.length, false);
+                coldDataManager.addCandidate("hash", key, v);
             }
         }
         if (refKeyMap.isEmpty()) {
@@ -237,6 +261,15 @@ public class RedisHBaseHashMixClient {
 
     public Map<byte[], byte[]> hgetAll(byte[] key) {
         Map<byte[], byte[]> map = redisTemplate.hgetAll(redisKey(key));
+        if (map != null && RedisHBaseStreamReply.streamable(map.size())) {
+            RedisHBaseStreamReply streamReply = RedisHBaseStreamReply.ofHash(key, map, hashRefKeyExpireSeconds(), refKeyValueResolver);
+            return new RefKeyStreamMap(streamReply, () -> _hgetAll(key, map));
+        }
+        return _hgetAll(key, map);
+    }
+
+    private Map<byte[], byte[]> _hgetAll(byte[] key, Map<byte[], byte[]> map) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         if (map == null || map.isEmpty()) {
             RedisHBaseMonitor.incr("hgetAll(byte[])", OperationType.REDIS_ONLY.name());
             return map;
@@ -249,7 +282,12 @@ public class RedisHBaseHashMixClient {
             for (Map.Entry<byte[], byte[]> entry : map.entrySet()) {
                 byte[] field = entry.getKey();
                 byte[] value = entry.getValue();
-                if (isRefKey(key, value)) {
+                if (refKeyCodec.isRefKey(value)) {
+                    byte[] cacheValue = refKeyValueCache.get("hash", value);
+                    if (cacheValue != null) {
+                        ret.put(field, cacheValue);
+                        continue;
+                    }
                     Response<byte[]> response = pipeline.get(redisKey(value));
                     pipelineCount ++;
                     if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
@@ -273,7 +311,7 @@ public class RedisHBaseHashMixClient {
             byte[] bytes = entry.getValue().get();
             if (bytes != null) {
                 ret.put(entry.getKey().getKey(), bytes);
-                missMap.remove(entry.getKey());
+                refKeyValueCache.put(missMap.remove(entry.getKey()).getKey(), bytes, hashRefKeyExpireSeconds());
             }
         }
         if (missMap.isEmpty()) {
@@ -285,7 +323,7 @@ public class RedisHBaseHashMixClient {
             logger.warn("hgetAll from hbase degraded, key = {}", SafeEncoder.encode(key));
             RedisHBaseMonitor.incrDegraded("hbase_read_batch_degraded");
         } else {
-            if (FreqUtils.hbaseReadFreq()) {
+            if (FreqUtils.hbaseReadFreq(key, missMap.size())) {
                 List<byte[]> fieldList = new ArrayList<>();
                 List<Get> getList = new ArrayList<>();
                 for (Map.Entry<BytesKey, BytesKey> entry : missMap.entrySet()) {
@@ -293,7 +331,7 @@ public class RedisHBaseHashMixClient {
                     fieldList.add(field.getKey());
                     getList.add(new Get(entry.getValue().getKey()));
                 }
-                Result[] results = hBaseTemplate.get(hbaseTableName(), getList);
+                Result[] results = hBaseReadBatcher.get(getList);
                 pipelineCount = 0;
                 try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
                     for (int i = 0; i < results.length; i++) {
@@ -302,7 +340,8 @@ public class RedisHBaseHashMixClient {
                         if (value != null) {
                             byte[] field = fieldList.get(i);
                             ret.put(field, value);
-                            pipeline.setex(redisKey(getList.get(i).getRow()), hashRefKeyExpireSeconds(), value);
+                            refKeyValueCache.put(getList.get(i).getRow(), value, hashRefKeyExpireSeconds());
+                            pipeline.setex(redisKey(getList.get(i).getRow()), RefKeyAccessTracker.expireSeconds(getList.get(i).getRow(), hashRefKeyExpireSeconds()), value);
                             pipelineCount ++;
                             if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
                                 pipeline.sync();
@@ -320,6 +359,7 @@ public class RedisHBaseHashMixClient {
     }
 
     private List<byte[]> parseList(byte[] key, List<byte[]> list, String method, boolean skipNull) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         if (list == null || list.isEmpty()) {
             RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
             return list;
@@ -336,7 +376,12 @@ public class RedisHBaseHashMixClient {
                     }
                     continue;
                 }
-                if (isRefKey(key, bytes)) {
+                if (refKeyCodec.isRefKey(bytes)) {
+                    byte[] cacheValue = refKeyValueCache.get("hash", bytes);
+                    if (cacheValue != null) {
+                        map.put(i, cacheValue);
+                        continue;
+                    }
                     Response<byte[]> response = pipeline.get(redisKey(bytes));
                     pipelineMap.put(i, response);
                     pipelineCount ++;
@@ -360,6 +405,7 @@ public class RedisHBaseHashMixClient {
             byte[] bytes = value.get();
             if (bytes != null) {
                 map.put(entry.getKey(), bytes);
+                refKeyValueCache.put(list.get(entry.getKey()), bytes, hashRefKeyExpireSeconds());
             } else {
                 missMap.put(entry.getKey(), list.get(entry.getKey()));
             }
@@ -378,15 +424,16 @@ public class RedisHBaseHashMixClient {
             logger.warn("{} from hbase degraded, key = {}", method, SafeEncoder.encode(key));
             RedisHBaseMonitor.incrDegraded("hbase_read_batch_degraded");
         } else {
-            if (FreqUtils.hbaseReadFreq()) {
-                Result[] results = hBaseTemplate.get(hbaseTableName(), getList);
+            if (FreqUtils.hbaseReadFreq(key, getList.size())) {
+                Result[] results = hBaseReadBatcher.get(getList);
                 int pipelineCount = 0;
                 try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
                     for (int i = 0; i < results.length; i++) {
                         Result result = results[i];
                         byte[] value = result.getValue(CF_D, COL_DATA);
                         if (value != null) {
-                            pipeline.setex(redisKey(getList.get(i).getRow()), hashRefKeyExpireSeconds(), value);
+                            refKeyValueCache.put(getList.get(i).getRow(), value, hashRefKeyExpireSeconds());
+                            pipeline.setex(redisKey(getList.get(i).getRow()), RefKeyAccessTracker.expireSeconds(getList.get(i).getRow(), hashRefKeyExpireSeconds()), value);
                             Integer index = list1.get(i);
                             map.put(index, value);
                             pipelineCount ++;
@@ -0,0 +1,371 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.ColdSegmentCodec;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyCodec;
+import com.netease.nim.camellia.redis.proxy.util.BytesKey;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.apache.hadoop.hbase.client.Put;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils.*;
+
+/**
+ * list的元素超过阈值时，redis的list中只保存ref-key，原始value写入hbase，并在redis中缓存一段时间
+ * 长时间没有访问的元素在redis中只占用32字节，访问时再从hbase回填
+ * list中可能有重复的元素，因此每次写入都使用不同的ref-key（见RefKeyCodec.buildUniqueRefKey），一个ref-key只会在list中出现一次
+ * 元素被lpop/rpop/ltrim/lset/lrem移出list时，可以直接删除对应的ref-key（hbase、redis缓存、本地缓存），不需要检查list中是否还有其他引用
+ * ltrim/lset/lrem通过lua脚本在修改list的同时拿到被移出的ref-key
+ */
+public class RedisHBaseListMixClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisHBaseListMixClient.class);
+
+    //KEYS[1]=list, ARGV[1]=start, ARGV[2]=stop, ARGV[3]=ref-key前缀（md5(key)），返回被裁掉的ref-key
+    private static final byte[] LTRIM_SCRIPT = SafeEncoder.encode(
+            "local len = redis.call('llen', KEYS[1])\n" +
+            "local s = tonumber(ARGV[1])\n" +
+            "local e = tonumber(ARGV[2])\n" +
+            "if s < 0 then s = len + s end\n" +
+            "if e < 0 then e = len + e end\n" +
+            "if s < 0 then s = 0 end\n" +
+            "if e >= len then e = len - 1 end\n" +
+            "local removed = {}\n" +
+            "local function collect(list)\n" +
+            "  for _, v in ipairs(list) do\n" +
+            "    if string.len(v) == 32 and string.sub(v, 1, 16) == ARGV[3] then table.insert(removed, v) end\n" +
+            "  end\n" +
+            "end\n" +
+            "if s > e then\n" +
+            "  collect(redis.call('lrange', KEYS[1], 0, -1))\n" +
+            "else\n" +
+            "  if s > 0 then collect(redis.call('lrange', KEYS[1], 0, s - 1)) end\n" +
+            "  if e < len - 1 then collect(redis.call('lrange', KEYS[1], e + 1, -1)) end\n" +
+            "end\n" +
+            "redis.call('ltrim', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "return removed");
+
+    //KEYS[1]=list, ARGV[1]=index, ARGV[2]=value，返回被覆盖的元素
+    private static final byte[] LSET_SCRIPT = SafeEncoder.encode(
+            "local old = redis.call('lindex', KEYS[1], ARGV[1])\n" +
+            "redis.call('lset', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "return old");
+
+    //KEYS[1]=list, ARGV[1]=count, ARGV[2]=原始value, ARGV[3]=unique ref-key前缀, ARGV[4]=临时占位元素
+    //原始value和ref-key两种形式都要删除（阈值可能被动态修改过），命中的位置先替换成占位元素再一次性lrem
+    //返回的第一个元素是删除的个数，之后是被删除的ref-key
+    private static final byte[] LREM_SCRIPT = SafeEncoder.encode(
+            "local list = redis.call('lrange', KEYS[1], 0, -1)\n" +
+            "local count = tonumber(ARGV[1])\n" +
+            "local limit = math.abs(count)\n" +
+            "local first, last, step = 1, #list, 1\n" +
+            "if count < 0 then first, last, step = #list, 1, -1 end\n" +
+            "local removed = {}\n" +
+            "local hit = 0\n" +
+            "for i = first, last, step do\n" +
+            "  local v = list[i]\n" +
+            "  local isRef = string.len(v) == 32 and string.sub(v, 1, 24) == ARGV[3]\n" +
+            "  if v == ARGV[2] or isRef then\n" +
+            "    redis.call('lset', KEYS[1], i - 1, ARGV[4])\n" +
+            "    if isRef then table.insert(removed, v) end\n" +
+            "    hit = hit + 1\n" +
+            "    if limit > 0 and hit >= limit then break end\n" +
+            "  end\n" +
+            "end\n" +
+            "if hit > 0 then redis.call('lrem', KEYS[1], 0, ARGV[4]) end\n" +
+            "table.insert(removed, 1, hit)\n" +
+            "return removed");
+
+    private final CamelliaRedisTemplate redisTemplate;
+    private final CamelliaHBaseTemplate hBaseTemplate;
+    private final HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor;
+    private final HBaseReadBatcher hBaseReadBatcher;
+    private final RefKeyValueCache refKeyValueCache;
+    private final RefKeyValueResolver refKeyValueResolver;
+    private final RedisHBaseColdDataManager coldDataManager;
+
+    public RedisHBaseListMixClient(CamelliaRedisTemplate redisTemplate,
+                                   CamelliaHBaseTemplate hBaseTemplate,
+                                   HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, HBaseReadBatcher hBaseReadBatcher, RefKeyValueCache refKeyValueCache,
+                                   RedisHBaseColdDataManager coldDataManager) {
+        this.redisTemplate = redisTemplate;
+        this.hBaseTemplate = hBaseTemplate;
+        this.hBaseAsyncWriteExecutor = hBaseAsyncWriteExecutor;
+        this.hBaseReadBatcher = hBaseReadBatcher;
+        this.refKeyValueCache = refKeyValueCache;
+        this.refKeyValueResolver = new RefKeyValueResolver(redisTemplate, hBaseReadBatcher, refKeyValueCache);
+        this.coldDataManager = coldDataManager;
+    }
+
+    public Long del(byte[] key) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        List<byte[]> list = redisTemplate.lrange(redisKey(key), 0, -1);
+        Set<BytesKey> refKeySet = new HashSet<>();
+        for (byte[] value : list) {
+            if (refKeyCodec.isRefKey(value)) {
+                refKeySet.add(new BytesKey(value));
+            }
+        }
+        if (refKeySet.isEmpty()) {
+            RedisHBaseMonitor.incr("list_del(byte[])", OperationType.REDIS_ONLY.name());
+            return redisTemplate.del(redisKey(key));
+        }
+        List<byte[]> refKeys = new ArrayList<>(refKeySet.size());
+        for (BytesKey bytesKey : refKeySet) {
+            refKeys.add(bytesKey.getKey());
+        }
+        deleteRefKeys(key, refKeys, "list_del");
+        RedisHBaseMonitor.incr("list_del(byte[])", OperationType.REDIS_HBASE.name());
+        return redisTemplate.del(redisKey(key));
+    }
+
+    public Long lpush(byte[] key, byte[]... values) {
+        return push("lpush(byte[], byte[][])", key, values, true);
+    }
+
+    public Long rpush(byte[] key, byte[]... values) {
+        return push("rpush(byte[], byte[][])", key, values, false);
+    }
+
+    public byte[] lpop(byte[] key) {
+        return pop("lpop(byte[])", key, true);
+    }
+
+    public byte[] rpop(byte[] key) {
+        return pop("rpop(byte[])", key, false);
+    }
+
+    public byte[] lindex(byte[] key, long index) {
+        byte[] value = redisTemplate.lindex(redisKey(key), index);
+        return parseValue("lindex(byte[], long)", key, value);
+    }
+
+    public List<byte[]> lrange(byte[] key, long start, long end) {
+        List<byte[]> list = redisTemplate.lrange(redisKey(key), start, end);
+        return parseList("lrange(byte[], long, long)", key, list);
+    }
+
+    public Long llen(byte[] key) {
+        RedisHBaseMonitor.incr("llen(byte[])", OperationType.REDIS_ONLY.name());
+        return redisTemplate.llen(redisKey(key));
+    }
+
+    public String ltrim(byte[] key, long start, long end) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        Object ret = redisTemplate.eval(LTRIM_SCRIPT, 1, redisKey(key),
+                Utils.numToBytes(start, false), Utils.numToBytes(end, false), refKeyCodec.refKeyPrefix());
+        List<byte[]> refKeys = toRefKeys(ret, 0);
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr("ltrim(byte[], long, long)", OperationType.REDIS_ONLY.name());
+        } else {
+            deleteRefKeys(key, refKeys, "ltrim");
+            RedisHBaseMonitor.incr("ltrim(byte[], long, long)", OperationType.REDIS_HBASE.name());
+        }
+        return "OK";
+    }
+
+    public String lset(byte[] key, long index, byte[] value) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        byte[] index1 = Utils.numToBytes(index, false);
+        byte[] old;
+        if (value.length > listRefKeyThreshold()) {
+            byte[] refKey = refKeyCodec.buildUniqueRefKey(value);
+            old = (byte[]) redisTemplate.eval(LSET_SCRIPT, 1, redisKey(key), index1, refKey);
+            redisTemplate.setex(redisKey(refKey), listRefKeyExpireSeconds(), value);
+            flushHBasePut(hBaseAsyncWriteExecutor, hBaseTemplate, key, refKey, value, "lset");
+            RedisHBaseMonitor.incr("lset(byte[], long, byte[])", OperationType.REDIS_HBASE.name());
+            RedisHBaseMonitor.incrValueSize("list", value.length, true);
+        } else {
+            old = (byte[]) redisTemplate.eval(LSET_SCRIPT, 1, redisKey(key), index1, value);
+            RedisHBaseMonitor.incr("lset(byte[], long, byte[])", OperationType.REDIS_ONLY.name());
+            RedisHBaseMonitor.incrValueSize("list", value.length, false);
+        }
+        if (refKeyCodec.isRefKey(old)) {
+            deleteRefKeys(key, Collections.singletonList(old), "lset");
+        }
+        return "OK";
+    }
+
+    public Long lrem(byte[] key, long count, byte[] value) {
+        if (value.length <= LIST_REF_KEY_THRESHOLD_MIN) {
+            RedisHBaseMonitor.incr("lrem(byte[], long, byte[])", OperationType.REDIS_ONLY.name());
+            return redisTemplate.lrem(redisKey(key), count, value);
+        }
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        Object ret = redisTemplate.eval(LREM_SCRIPT, 1, redisKey(key), Utils.numToBytes(count, false),
+                value, refKeyCodec.uniqueRefKeyPrefix(value), placeholder());
+        List<Object> list = (List<Object>) ret;
+        List<byte[]> refKeys = toRefKeys(ret, 1);
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr("lrem(byte[], long, byte[])", OperationType.REDIS_ONLY.name());
+        } else {
+            deleteRefKeys(key, refKeys, "lrem");
+            RedisHBaseMonitor.incr("lrem(byte[], long, byte[])", OperationType.REDIS_HBASE.name());
+        }
+        return (Long) list.get(0);
+    }
+
+    //ref-key在list中是唯一的，弹出之后可以直接删除
+    //值解析不到时：hbase中确实不存在的直接丢弃，被降级或者频控没有读到的放回原来的位置并返回错误，避免元素丢失
+    private byte[] pop(String method, byte[] key, boolean left) {
+        byte[] bytes = left ? redisTemplate.lpop(redisKey(key)) : redisTemplate.rpop(redisKey(key));
+        if (bytes == null || !isRefKey(key, bytes)) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return bytes;
+        }
+        List<byte[]> refKeys = Collections.singletonList(bytes);
+        boolean[] notFound = new boolean[1];
+        byte[][] values = refKeyValueResolver.resolve("list", key, refKeys, listRefKeyExpireSeconds(), notFound);
+        RedisHBaseMonitor.incr(method, OperationType.REDIS_HBASE.name());
+        if (values[0] == null && !notFound[0]) {
+            if (left) {
+                redisTemplate.lpush(redisKey(key), bytes);
+            } else {
+                redisTemplate.rpush(redisKey(key), bytes);
+            }
+            logger.warn("{} ref value not resolved, push back, key = {}", method, Utils.bytesToString(key));
+            throw new IllegalStateException("hbase read degraded, try again later");
+        }
+        deleteRefKeys(key, refKeys, left ? "lpop" : "rpop");
+        return values[0];
+    }
+
+    private void deleteRefKeys(byte[] key, List<byte[]> refKeys, String method) {
+        RedisHBaseUtils.deleteRefKeys(redisTemplate, refKeyValueCache, hBaseAsyncWriteExecutor, hBaseTemplate, key, refKeys, method);
+    }
+
+    private List<byte[]> toRefKeys(Object ret, int from) {
+        List<byte[]> refKeys = new ArrayList<>();
+        if (ret instanceof List) {
+            List<Object> list = (List<Object>) ret;
+            for (int i=from; i<list.size(); i++) {
+                refKeys.add((byte[]) list.get(i));
+            }
+        }
+        return refKeys;
+    }
+
+    //lrem时的临时占位元素，长度不是32，不会和ref-key冲突
+    private static byte[] placeholder() {
+        return Utils.stringToBytes("camellia_lrem_placeholder_" + ThreadLocalRandom.current().nextLong());
+    }
+
+    private Long push(String method, byte[] key, byte[][] values, boolean left) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        byte[][] newValues = new byte[values.length][];
+        List<Put> putList = new ArrayList<>();
+        Response<Long> response;
+        try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+            int pipelineCount = 0;
+            for (int i=0; i<values.length; i++) {
+                byte[] value = values[i];
+                if (value.length > listRefKeyThreshold()) {
+                    byte[] refKey = refKeyCodec.buildUniqueRefKey(value);
+                    newValues[i] = refKey;
+                    pipeline.setex(redisKey(refKey), listRefKeyExpireSeconds(), value);
+                    pipelineCount ++;
+                    if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
+                        pipeline.sync();
+                        pipelineCount = 0;
+                    }
+                    Put put = new Put(refKey);
+                    put.addColumn(CF_D, COL_DATA, value);
+                    putList.add(put);
+                    RedisHBaseMonitor.incrValueSize("list", value.length, true);
+                } else {
+                    newValues[i] = value;
+                    RedisHBaseMonitor.incrValueSize("list", value.length, false);
+                }
+            }
+            if (left) {
+                response = pipeline.lpush(redisKey(key), newValues);
+            } else {
+                response = pipeline.rpush(redisKey(key), newValues);
+            }
+            pipeline.sync();
+        }
+        //push失败（比如key已经分段下沉到hbase）时直接抛出，不写hbase
+        Long len = response.get();
+        if (putList.isEmpty()) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+        } else {
+            flushHBasePuts(hBaseAsyncWriteExecutor, hBaseTemplate, key, putList, left ? "lpush" : "rpush");
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_HBASE.name());
+        }
+        if (len != null && len >= RedisHBaseConfiguration.coldSegmentMinSize()) {
+            coldDataManager.addCollectionCandidate(ColdSegmentCodec.TYPE_LIST, key);
+        }
+        return len;
+    }
+
+    private byte[] parseValue(String method, byte[] key, byte[] bytes) {
+        if (bytes == null || !isRefKey(key, bytes)) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return bytes;
+        }
+        byte[] value = refKeyValueCache.get("list", bytes);
+        if (value != null) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return value;
+        }
+        value = redisTemplate.get(redisKey(bytes));
+        if (value != null) {
+            refKeyValueCache.put(bytes, value, listRefKeyExpireSeconds());
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return value;
+        }
+        value = hbaseGet(hBaseReadBatcher, redisTemplate, key, bytes, listRefKeyExpireSeconds());
+        refKeyValueCache.put(bytes, value, listRefKeyExpireSeconds());
+        RedisHBaseMonitor.incr(method, OperationType.REDIS_HBASE.name());
+        return value;
+    }
+
+    //解析不到的元素（如hbase被降级）会被跳过，和hvals保持一致
+    private List<byte[]> parseList(String method, byte[] key, List<byte[]> list) {
+        if (list == null || list.isEmpty()) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return list;
+        }
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        List<Integer> indexList = new ArrayList<>();
+        List<byte[]> refKeys = new ArrayList<>();
+        for (int i=0; i<list.size(); i++) {
+            byte[] bytes = list.get(i);
+            if (refKeyCodec.isRefKey(bytes)) {
+                indexList.add(i);
+                refKeys.add(bytes);
+            }
+        }
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return list;
+        }
+        byte[][] values = refKeyValueResolver.resolve("list", key, refKeys, listRefKeyExpireSeconds());
+        List<byte[]> ret = new ArrayList<>(list.size());
+        int j = 0;
+        for (int i=0; i<list.size(); i++) {
+            if (j < indexList.size() && indexList.get(j) == i) {
+                if (values[j] != null) {
+                    ret.add(values[j]);
+                }
+                j ++;
+            } else {
+                ret.add(list.get(i));
+            }
+        }
+        RedisHBaseMonitor.incr(method, OperationType.REDIS_HBASE.name());
+        return ret;
+    }
+}
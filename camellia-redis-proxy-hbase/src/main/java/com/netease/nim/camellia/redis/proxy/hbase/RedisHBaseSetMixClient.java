@@ -0,0 +1,268 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.ColdSegmentCodec;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyCodec;
+import com.netease.nim.camellia.redis.proxy.hbase.util.SetFromList;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.apache.hadoop.hbase.client.Put;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Response;
+
+import java.util.*;
+
+import static com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils.*;
+
+/**
+ * set的member超过阈值时，redis的set中只保存ref-key，原始member写入hbase，并在redis中缓存一段时间
+ * ref-key由key和member唯一确定，因此sismember/srem不需要读取hbase
+ */
+public class RedisHBaseSetMixClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisHBaseSetMixClient.class);
+
+    private final CamelliaRedisTemplate redisTemplate;
+    private final CamelliaHBaseTemplate hBaseTemplate;
+    private final HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor;
+    private final RefKeyValueCache refKeyValueCache;
+    private final RefKeyValueResolver refKeyValueResolver;
+    private final RedisHBaseColdDataManager coldDataManager;
+
+    public RedisHBaseSetMixClient(CamelliaRedisTemplate redisTemplate,
+                                  CamelliaHBaseTemplate hBaseTemplate,
+                                  HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, HBaseReadBatcher hBaseReadBatcher, RefKeyValueCache refKeyValueCache,
+                                  RedisHBaseColdDataManager coldDataManager) {
+        this.redisTemplate = redisTemplate;
+        this.hBaseTemplate = hBaseTemplate;
+        this.hBaseAsyncWriteExecutor = hBaseAsyncWriteExecutor;
+        this.refKeyValueCache = refKeyValueCache;
+        this.refKeyValueResolver = new RefKeyValueResolver(redisTemplate, hBaseReadBatcher, refKeyValueCache);
+        this.coldDataManager = coldDataManager;
+    }
+
+    public Long del(byte[] key) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        Set<byte[]> members = redisTemplate.smembers(redisKey(key));
+        List<byte[]> refKeys = new ArrayList<>();
+        for (byte[] member : members) {
+            if (refKeyCodec.isRefKey(member)) {
+                refKeys.add(member);
+            }
+        }
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr("set_del(byte[])", OperationType.REDIS_ONLY.name());
+            return redisTemplate.del(redisKey(key));
+        }
+        deleteRefKeys(key, refKeys, "set_del");
+        RedisHBaseMonitor.incr("set_del(byte[])", OperationType.REDIS_HBASE.name());
+        return redisTemplate.del(redisKey(key));
+    }
+
+    public Long sadd(byte[] key, byte[]... members) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        byte[][] newMembers = new byte[members.length][];
+        List<Put> putList = new ArrayList<>();
+        Response<Long> response;
+        Response<Long> scard;
+        try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+            int pipelineCount = 0;
+            for (int i=0; i<members.length; i++) {
+                byte[] member = members[i];
+                if (member.length > setMemberRefKeyThreshold()) {
+                    byte[] refKey = refKeyCodec.buildRefKey(member);
+                    newMembers[i] = refKey;
+                    pipeline.setex(redisKey(refKey), setMemberRefKeyExpireSeconds(), member);
+                    pipelineCount ++;
+                    if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
+                        pipeline.sync();
+                        pipelineCount = 0;
+                    }
+                    Put put = new Put(refKey);
+                    put.addColumn(CF_D, COL_DATA, member);
+                    putList.add(put);
+                    RedisHBaseMonitor.incrValueSize("set", member.length, true);
+                } else {
+                    newMembers[i] = member;
+                    RedisHBaseMonitor.incrValueSize("set", member.length, false);
+                }
+            }
+            response = pipeline.sadd(redisKey(key), newMembers);
+            scard = pipeline.scard(redisKey(key));
+            pipeline.sync();
+        }
+        //sadd失败（比如key已经分段下沉到hbase）时直接抛出，不写hbase
+        Long ret = response.get();
+        if (putList.isEmpty()) {
+            RedisHBaseMonitor.incr("sadd(byte[], byte[][])", OperationType.REDIS_ONLY.name());
+        } else {
+            flushHBasePuts(hBaseAsyncWriteExecutor, hBaseTemplate, key, putList, "sadd");
+            RedisHBaseMonitor.incr("sadd(byte[], byte[][])", OperationType.REDIS_HBASE.name());
+        }
+        Long size = scard.get();
+        if (size != null && size >= RedisHBaseConfiguration.coldSegmentMinSize()) {
+            coldDataManager.addCollectionCandidate(ColdSegmentCodec.TYPE_SET, key);
+        }
+        return ret;
+    }
+
+    public Long srem(byte[] key, byte[]... members) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        byte[] redisKey = redisKey(key);
+        List<byte[]> refKeys = new ArrayList<>();
+        List<Response<Long>> responseList = new ArrayList<>();
+        try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+            responseList.add(pipeline.srem(redisKey, members));
+            int pipelineCount = 1;
+            for (byte[] member : members) {
+                if (member.length <= SET_MEMBER_REF_KEY_THRESHOLD_MIN) continue;
+                //阈值可能被动态修改过，原始member和ref-key两种形式都需要删除
+                byte[] refKey = refKeyCodec.buildRefKey(member);
+                responseList.add(pipeline.srem(redisKey, refKey));
+                refKeys.add(refKey);
+                pipelineCount ++;
+                if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
+                    pipeline.sync();
+                    pipelineCount = 0;
+                }
+            }
+            pipeline.sync();
+        }
+        //srem失败（比如key已经分段下沉到hbase）时直接抛出，不能删除ref-key
+        long ret = 0;
+        for (Response<Long> response : responseList) {
+            ret += response.get();
+        }
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr("srem(byte[], byte[][])", OperationType.REDIS_ONLY.name());
+        } else {
+            deleteRefKeys(key, refKeys, "srem");
+            RedisHBaseMonitor.incr("srem(byte[], byte[][])", OperationType.REDIS_HBASE.name());
+        }
+        return ret;
+    }
+
+    public Boolean sismember(byte[] key, byte[] member) {
+        RedisHBaseMonitor.incr("sismember(byte[], byte[])", OperationType.REDIS_ONLY.name());
+        if (member.length <= SET_MEMBER_REF_KEY_THRESHOLD_MIN) {
+            return redisTemplate.sismember(redisKey(key), member);
+        }
+        Response<Boolean> response1;
+        Response<Boolean> response2;
+        try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+            response1 = pipeline.sismember(redisKey(key), buildRefKey(key, member));
+            response2 = pipeline.sismember(redisKey(key), member);
+            pipeline.sync();
+        }
+        return response1.get() || response2.get();
+    }
+
+    public Long scard(byte[] key) {
+        RedisHBaseMonitor.incr("scard(byte[])", OperationType.REDIS_ONLY.name());
+        return redisTemplate.scard(redisKey(key));
+    }
+
+    public Set<byte[]> smembers(byte[] key) {
+        Set<byte[]> set = redisTemplate.smembers(redisKey(key));
+        return SetFromList.of(parseList("smembers(byte[])", key, set));
+    }
+
+    public List<byte[]> srandmember(byte[] key, int count) {
+        List<byte[]> list = redisTemplate.srandmember(redisKey(key), count);
+        return parseList("srandmember(byte[], int)", key, list);
+    }
+
+    //member在set中是唯一的，弹出之后对应的ref-key可以直接删除，但只删除解析到原始值的
+    //hbase中确实不存在的直接丢弃，被降级或者频控没有读到的放回set中，全部没有读到时返回错误，避免member丢失
+    public Set<byte[]> spop(byte[] key, long count) {
+        Set<byte[]> set = redisTemplate.spop(redisKey(key), count);
+        if (set == null || set.isEmpty()) {
+            RedisHBaseMonitor.incr("spop(byte[], long)", OperationType.REDIS_ONLY.name());
+            return set;
+        }
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        List<byte[]> ret = new ArrayList<>(set.size());
+        List<byte[]> refKeys = new ArrayList<>();
+        for (byte[] member : set) {
+            if (refKeyCodec.isRefKey(member)) {
+                refKeys.add(member);
+            } else {
+                ret.add(member);
+            }
+        }
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr("spop(byte[], long)", OperationType.REDIS_ONLY.name());
+            return SetFromList.of(ret);
+        }
+        RedisHBaseMonitor.incr("spop(byte[], long)", OperationType.REDIS_HBASE.name());
+        boolean[] notFound = new boolean[refKeys.size()];
+        byte[][] values = refKeyValueResolver.resolve("set", key, refKeys, setMemberRefKeyExpireSeconds(), notFound);
+        List<byte[]> resolvedRefKeys = new ArrayList<>();
+        List<byte[]> unresolvedRefKeys = new ArrayList<>();
+        for (int i=0; i<refKeys.size(); i++) {
+            if (values[i] != null) {
+                ret.add(values[i]);
+                resolvedRefKeys.add(refKeys.get(i));
+            } else if (!notFound[i]) {
+                unresolvedRefKeys.add(refKeys.get(i));
+            }
+        }
+        deleteRefKeys(key, resolvedRefKeys, "spop");
+        if (!unresolvedRefKeys.isEmpty()) {
+            redisTemplate.sadd(redisKey(key), unresolvedRefKeys.toArray(new byte[0][0]));
+            logger.warn("spop ref value not resolved, push back {} members, key = {}", unresolvedRefKeys.size(), Utils.bytesToString(key));
+            if (ret.isEmpty()) {
+                throw new IllegalStateException("hbase read degraded, try again later");
+            }
+        }
+        return SetFromList.of(ret);
+    }
+
+    private void deleteRefKeys(byte[] key, List<byte[]> refKeys, String method) {
+        RedisHBaseUtils.deleteRefKeys(redisTemplate, refKeyValueCache, hBaseAsyncWriteExecutor, hBaseTemplate, key, refKeys, method);
+    }
+
+    //解析不到的member（如hbase被降级）会被跳过
+    private List<byte[]> parseList(String method, byte[] key, Collection<byte[]> collection) {
+        if (collection == null || collection.isEmpty()) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return collection == null ? new ArrayList<>() : new ArrayList<>(collection);
+        }
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        List<byte[]> list = new ArrayList<>(collection);
+        List<Integer> indexList = new ArrayList<>();
+        List<byte[]> refKeys = new ArrayList<>();
+        for (int i=0; i<list.size(); i++) {
+            byte[] bytes = list.get(i);
+            if (refKeyCodec.isRefKey(bytes)) {
+                indexList.add(i);
+                refKeys.add(bytes);
+            }
+        }
+        if (refKeys.isEmpty()) {
+            RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
+            return list;
+        }
+        byte[][] values = refKeyValueResolver.resolve("set", key, refKeys, setMemberRefKeyExpireSeconds());
+        List<byte[]> ret = new ArrayList<>(list.size());
+        int j = 0;
+        for (int i=0; i<list.size(); i++) {
+            if (j < indexList.size() && indexList.get(j) == i) {
+                if (values[j] != null) {
+                    ret.add(values[j]);
+                }
+                j ++;
+            } else {
+                ret.add(list.get(i));
+            }
+        }
+        RedisHBaseMonitor.incr(method, OperationType.REDIS_HBASE.name());
+        return ret;
+    }
+}
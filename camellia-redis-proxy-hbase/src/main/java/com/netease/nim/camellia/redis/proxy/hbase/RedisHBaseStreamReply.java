@@ -0,0 +1,195 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyCodec;
+import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
+import com.netease.nim.camellia.redis.proxy.reply.MultiBulkReply;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.reply.ReplyPack;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import redis.clients.jedis.Tuple;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 大集合（hgetall/zrange等）的流式回包
+ * 1）只持有redis中读出来的原始结果（ref-key只有32字节），ref-key对应的原始value在回包时按redis.max.pipeline分批解析，解析一批写一批
+ * 2）每写一批之前检查连接是否可写，不可写时等待，避免客户端读得慢导致proxy内存堆积
+ * 3）需要在RedisHBaseCommandExecutor中执行，且该命令之前的回包都已经写出（barrier），否则退化为一次性解析后整体回包
+ * 4）回包的元素个数需要先写出，因此解析不到的ref-key（如hbase被降级）会返回nil，而不是像非流式回包那样直接跳过
+ */
+public class RedisHBaseStreamReply extends MultiBulkReply {
+
+    private final String type;
+    private final byte[] key;
+    //回包的全部元素，按stride个一组，每组中下标为valueOffset的可能是ref-key
+    private final List<byte[]> items;
+    private final int stride;
+    private final int valueOffset;
+    private final int expireSeconds;
+    private final RefKeyValueResolver resolver;
+
+    private RedisHBaseStreamReply(String type, byte[] key, List<byte[]> items, int stride, int valueOffset,
+                                  int expireSeconds, RefKeyValueResolver resolver) {
+        super(null);
+        this.type = type;
+        this.key = key;
+        this.items = items;
+        this.stride = stride;
+        this.valueOffset = valueOffset;
+        this.expireSeconds = expireSeconds;
+        this.resolver = resolver;
+    }
+
+    /**
+     * 是否需要流式回包
+     * @param size 集合大小
+     */
+    public static boolean streamable(int size) {
+        return RedisHBaseConfiguration.commandExecuteAsyncEnable() && RedisHBaseConfiguration.streamReplyEnable()
+                && size > RedisHBaseConfiguration.streamReplyThreshold();
+    }
+
+    public static RedisHBaseStreamReply ofMembers(byte[] key, Collection<byte[]> members, int expireSeconds, RefKeyValueResolver resolver) {
+        return new RedisHBaseStreamReply("zset", key, new ArrayList<>(members), 1, 0, expireSeconds, resolver);
+    }
+
+    public static RedisHBaseStreamReply ofTuples(byte[] key, Collection<Tuple> tuples, int expireSeconds, RefKeyValueResolver resolver) {
+        List<byte[]> items = new ArrayList<>(tuples.size() * 2);
+        for (Tuple tuple : tuples) {
+            items.add(tuple.getBinaryElement());
+            items.add(Utils.doubleToBytes(tuple.getScore()));
+        }
+        return new RedisHBaseStreamReply("zset", key, items, 2, 0, expireSeconds, resolver);
+    }
+
+    public static RedisHBaseStreamReply ofHash(byte[] key, Map<byte[], byte[]> map, int expireSeconds, RefKeyValueResolver resolver) {
+        List<byte[]> items = new ArrayList<>(map.size() * 2);
+        for (Map.Entry<byte[], byte[]> entry : map.entrySet()) {
+            items.add(entry.getKey());
+            items.add(entry.getValue());
+        }
+        return new RedisHBaseStreamReply("hash", key, items, 2, 1, expireSeconds, resolver);
+    }
+
+    /**
+     * 集合的元素个数（hash是field的个数，zset withscores是member的个数）
+     */
+    public int elementCount() {
+        return items.size() / stride;
+    }
+
+    /**
+     * 一次性解析全部ref-key
+     */
+    public MultiBulkReply materialize() {
+        Reply[] replies = new Reply[items.size()];
+        int chunkSize = chunkSize();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            Reply[] chunk = resolveChunk(from, Math.min(from + chunkSize, items.size()));
+            System.arraycopy(chunk, 0, replies, from, chunk.length);
+        }
+        return new MultiBulkReply(replies);
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) throws IOException {
+        //不在RedisHBaseCommandExecutor中执行时的兜底
+        materialize().write(byteBuf);
+    }
+
+    /**
+     * 流式写回包，调用前需要确保该连接之前的回包都已经写出
+     * 中途出错时回包已经不完整，只能关闭连接
+     * @param ctx 连接
+     * @param id 回包的序号
+     */
+    public void stream(ChannelHandlerContext ctx, long id) {
+        Channel channel = ctx.channel();
+        try {
+            ctx.write(new Chunk(items.size(), new Reply[0]));
+            int chunkSize = chunkSize();
+            long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(RedisHBaseConfiguration.streamReplyWriteTimeoutMillis());
+            for (int from = 0; from < items.size(); from += chunkSize) {
+                Reply[] chunk = resolveChunk(from, Math.min(from + chunkSize, items.size()));
+                if (!awaitWritable(channel, timeoutNanos)) {
+                    ErrorLogCollector.collect(RedisHBaseStreamReply.class, "stream reply wait writable timeout, close channel, consid = " + channel.id());
+                    channel.close();
+                    return;
+                }
+                ctx.writeAndFlush(new Chunk(-1, chunk));
+            }
+            //推进ReplyEncoder的回包序号，之后的回包才能写出
+            ctx.writeAndFlush(new ReplyPack(new Chunk(-1, new Reply[0]), id));
+        } catch (Throwable e) {
+            ErrorLogCollector.collect(RedisHBaseStreamReply.class, "stream reply error, close channel, consid = " + channel.id(), e);
+            channel.close();
+        }
+    }
+
+    private boolean awaitWritable(Channel channel, long timeoutNanos) {
+        long start = System.nanoTime();
+        while (!channel.isWritable()) {
+            if (!channel.isActive()) return false;
+            if (System.nanoTime() - start > timeoutNanos) return false;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return channel.isActive();
+    }
+
+    private int chunkSize() {
+        return Math.max(RedisHBaseConfiguration.redisMaxPipeline(), 1) * stride;
+    }
+
+    private Reply[] resolveChunk(int from, int to) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
+        List<Integer> indexList = new ArrayList<>();
+        List<byte[]> refKeys = new ArrayList<>();
+        Reply[] replies = new Reply[to - from];
+        for (int i = from; i < to; i++) {
+            byte[] item = items.get(i);
+            if (i % stride == valueOffset && refKeyCodec.isRefKey(item)) {
+                indexList.add(i - from);
+                refKeys.add(item);
+            } else {
+                replies[i - from] = new BulkReply(item);
+            }
+        }
+        if (!refKeys.isEmpty()) {
+            byte[][] values = resolver.resolve(type, key, refKeys, expireSeconds);
+            for (int i = 0; i < values.length; i++) {
+                replies[indexList.get(i)] = values[i] == null ? BulkReply.NIL_REPLY : new BulkReply(values[i]);
+            }
+        }
+        return replies;
+    }
+
+    //多个元素的片段，count>=0时先写multi-bulk的头
+    private static class Chunk implements Reply {
+        private final int count;
+        private final Reply[] replies;
+
+        Chunk(int count, Reply[] replies) {
+            this.count = count;
+            this.replies = replies;
+        }
+
+        @Override
+        public void write(ByteBuf byteBuf) throws IOException {
+            if (count >= 0) {
+                byteBuf.writeByte('*');
+                byteBuf.writeBytes(Utils.numToBytes(count, true));
+            }
+            for (Reply reply : replies) {
+                reply.write(byteBuf);
+            }
+        }
+    }
+}
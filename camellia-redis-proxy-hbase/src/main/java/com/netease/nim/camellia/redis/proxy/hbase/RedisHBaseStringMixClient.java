@@ -6,7 +6,9 @@ import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
 import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.ColdSegmentCodec;
 import com.netease.nim.camellia.redis.proxy.hbase.util.FreqUtils;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyAccessTracker;
 import com.netease.nim.camellia.redis.proxy.util.BytesKey;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 import org.apache.hadoop.hbase.client.Delete;
@@ -32,13 +34,20 @@ public class RedisHBaseStringMixClient {
     private final CamelliaRedisTemplate redisTemplate;
     private final CamelliaHBaseTemplate hBaseTemplate;
     private final HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor;
+    private final HBaseReadBatcher hBaseReadBatcher;
+    private final RefKeyValueCache refKeyValueCache;
+    private final RedisHBaseColdDataManager coldDataManager;
 
     public RedisHBaseStringMixClient(CamelliaRedisTemplate redisTemplate,
                                      CamelliaHBaseTemplate hBaseTemplate,
-                                     HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor) {
+                                     HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, HBaseReadBatcher hBaseReadBatcher, RefKeyValueCache refKeyValueCache,
+                                     RedisHBaseColdDataManager coldDataManager) {
         this.redisTemplate = redisTemplate;
         this.hBaseTemplate = hBaseTemplate;
         this.hBaseAsyncWriteExecutor = hBaseAsyncWriteExecutor;
+        this.hBaseReadBatcher = hBaseReadBatcher;
+        this.refKeyValueCache = refKeyValueCache;
+        this.coldDataManager = coldDataManager;
     }
 
     public Long del(byte[] key) {
@@ -46,6 +55,7 @@ public class RedisHBaseStringMixClient {
         if (bytes == null) return 0L;
         if (isRefKey(key, bytes)) {
             redisTemplate.del(redisKey(bytes));
+            refKeyValueCache.invalidate(bytes);
             List<Delete> deleteList = new ArrayList<>();
             Delete delete = new Delete(bytes);
             deleteList.add(delete);
@@ -89,6 +99,7 @@ public class RedisHBaseStringMixClient {
         } else {
             RedisHBaseMonitor.incr("set(byte[], byte[])", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("string", value.length, false);
+            coldDataManager.addCandidate("string", key, value);
             return redisTemplate.set(redisKey(key), value);
         }
     }
@@ -118,6 +129,7 @@ public class RedisHBaseStringMixClient {
                     list.add(redisKey(key));
                     list.add(value);
                     RedisHBaseMonitor.incrValueSize("string", value.length, false);
+                    coldDataManager.addCandidate("string", key, value);
                 }
             }
             pipeline.sync();
@@ -136,13 +148,24 @@ public class RedisHBaseStringMixClient {
             RedisHBaseMonitor.incr("get(byte[])", OperationType.REDIS_ONLY.name());
             return null;
         }
+        if (ColdSegmentCodec.decodeMarker(value) != null) {
+            //分段下沉的list/set，和redis一样返回类型错误
+            throw new IllegalStateException("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
         if (isRefKey(key, value)) {
-            byte[] bytes = redisTemplate.get(redisKey(value));
+            byte[] bytes = refKeyValueCache.get("string", value);
+            if (bytes != null) {
+                RedisHBaseMonitor.incr("get(byte[])", OperationType.REDIS_ONLY.name());
+                return bytes;
+            }
+            bytes = redisTemplate.get(redisKey(value));
             if (bytes != null) {
+                refKeyValueCache.put(value, bytes, stringRefKeyExpireSeconds(null));
                 RedisHBaseMonitor.incr("get(byte[])", OperationType.REDIS_ONLY.name());
                 return bytes;
             }
-            bytes = hbaseGet(hBaseTemplate, redisTemplate, value, stringRefKeyExpireSeconds(null));
+            bytes = hbaseGet(hBaseReadBatcher, redisTemplate, key, value, stringRefKeyExpireSeconds(null));
+            refKeyValueCache.put(value, bytes, stringRefKeyExpireSeconds(null));
             RedisHBaseMonitor.incr("get(byte[])", OperationType.REDIS_HBASE.name());
             return bytes;
         } else {
@@ -171,6 +194,7 @@ public class RedisHBaseStringMixClient {
         } else {
             RedisHBaseMonitor.incr("set(byte[], byte[], byte[], byte[], long)", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("string", value.length, false);
+            coldDataManager.addCandidate("string", key, value);
             return redisTemplate.set(redisKey(key), value);
         }
     }
@@ -189,6 +213,7 @@ public class RedisHBaseStringMixClient {
         } else {
             RedisHBaseMonitor.incr("setnx(byte[], byte[])", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("string", value.length, false);
+            coldDataManager.addCandidate("string", key, value);
             return redisTemplate.setnx(redisKey(key), value);
         }
     }
@@ -207,6 +232,7 @@ public class RedisHBaseStringMixClient {
         } else {
             RedisHBaseMonitor.incr("setex(byte[], byte[])", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("string", value.length, false);
+            coldDataManager.addCandidate("string", key, value);
             return redisTemplate.setex(redisKey(key), seconds, value);
         }
     }
@@ -225,6 +251,7 @@ public class RedisHBaseStringMixClient {
         } else {
             RedisHBaseMonitor.incr("psetex(byte[], byte[])", OperationType.REDIS_ONLY.name());
             RedisHBaseMonitor.incrValueSize("string", value.length, false);
+            coldDataManager.addCandidate("string", key, value);
             return redisTemplate.psetex(redisKey(key), milliseconds, value);
         }
     }
@@ -243,10 +270,16 @@ public class RedisHBaseStringMixClient {
             for (int i=0; i<mget.size(); i++) {
                 byte[] key = keys[i];
                 byte[] value = mget.get(i);
-                if (value == null) {
+                if (value == null || ColdSegmentCodec.decodeMarker(value) != null) {
+                    //分段下沉的list/set，和redis一样返回nil
                     valueMap.put(i, null);
                 } else {
                     if (isRefKey(key, value)) {
+                        byte[] cacheValue = refKeyValueCache.get("string", value);
+                        if (cacheValue != null) {
+                            valueMap.put(i, cacheValue);
+                            continue;
+                        }
                         Response<byte[]> response = pipeline.get(redisKey(value));
                         pipelineCount ++;
                         missRefKey.put(i, value);
@@ -267,7 +300,7 @@ public class RedisHBaseStringMixClient {
                 byte[] bytes = entry.getValue().get();
                 if (bytes != null) {
                     valueMap.put(entry.getKey(), bytes);
-                    missRefKey.remove(entry.getKey());
+                    refKeyValueCache.put(missRefKey.remove(entry.getKey()), bytes, stringRefKeyExpireSeconds(null));
                 }
             }
         }
@@ -288,15 +321,16 @@ public class RedisHBaseStringMixClient {
                 logger.warn("mget from hbase degraded, keys = {}", hbaseRows);
                 RedisHBaseMonitor.incrDegraded("hbase_read_batch_degraded");
             } else {
-                if (FreqUtils.hbaseReadFreq()) {
-                    Result[] results = hBaseTemplate.get(hbaseTableName(), gets);
+                if (FreqUtils.hbaseReadFreq(null, gets.size())) {
+                    Result[] results = hBaseReadBatcher.get(gets);
                     try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
                         pipelineCount = 0;
                         for (Result result : results) {
                             byte[] value = result.getValue(CF_D, COL_DATA);
                             hbaseMap.put(new BytesKey(result.getRow()), value);
                             if (value != null) {
-                                pipeline.setex(redisKey(result.getRow()), stringRefKeyExpireSeconds(null), value);
+                                refKeyValueCache.put(result.getRow(), value, stringRefKeyExpireSeconds(null));
+                                pipeline.setex(redisKey(result.getRow()), RefKeyAccessTracker.expireSeconds(result.getRow(), stringRefKeyExpireSeconds(null)), value);
                                 pipelineCount ++;
                                 if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
                                     pipeline.sync();
@@ -7,6 +7,8 @@ import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
 import com.netease.nim.camellia.redis.proxy.hbase.util.FreqUtils;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyAccessTracker;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyCodec;
 import com.netease.nim.camellia.redis.proxy.hbase.util.SetFromList;
 import com.netease.nim.camellia.redis.proxy.util.BytesKey;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
@@ -33,19 +35,26 @@ public class RedisHBaseZSetMixClient {
     private final CamelliaRedisTemplate redisTemplate;
     private final CamelliaHBaseTemplate hBaseTemplate;
     private final HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor;
+    private final HBaseReadBatcher hBaseReadBatcher;
+    private final RefKeyValueCache refKeyValueCache;
+    private final RefKeyValueResolver refKeyValueResolver;
 
     public RedisHBaseZSetMixClient(CamelliaRedisTemplate redisTemplate,
                                    CamelliaHBaseTemplate hBaseTemplate,
-                                   HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor) {
+                                   HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, HBaseReadBatcher hBaseReadBatcher, RefKeyValueCache refKeyValueCache) {
         this.hBaseTemplate = hBaseTemplate;
         this.redisTemplate = redisTemplate;
         this.hBaseAsyncWriteExecutor = hBaseAsyncWriteExecutor;
+        this.hBaseReadBatcher = hBaseReadBatcher;
+        this.refKeyValueCache = refKeyValueCache;
+        this.refKeyValueResolver = new RefKeyValueResolver(redisTemplate, hBaseReadBatcher, refKeyValueCache);
     }
 
     /**
      *
      */
     public Long zadd(byte[] key, Map<byte[], Double> scoreMembers) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         if (scoreMembers == null || scoreMembers.isEmpty()) return 0L;
         List<Put> putList = new ArrayList<>();
         int pipelineSize = 0;
@@ -54,7 +63,7 @@ public class RedisHBaseZSetMixClient {
             for (Map.Entry<byte[], Double> entry : scoreMembers.entrySet()) {
                 byte[] member = entry.getKey();
                 if (member.length > zsetMemberRefKeyThreshold()) {
-                    byte[] memberRefKey = buildRefKey(key, member);
+                    byte[] memberRefKey = refKeyCodec.buildRefKey(member);
                     newScoreMembers.put(memberRefKey, entry.getValue());
                     pipeline.setex(redisKey(memberRefKey), zsetMemberRefKeyExpireSeconds(), member);
                     pipelineSize ++;
@@ -120,6 +129,7 @@ public class RedisHBaseZSetMixClient {
      *
      */
     public Long zrem(byte[] key, byte[]... member) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         byte[] redisKey = redisKey(key);
         List<Delete> deleteList = new ArrayList<>();
         int pipelineSize = 0;
@@ -130,10 +140,11 @@ public class RedisHBaseZSetMixClient {
             pipelineSize ++;
             for (byte[] bytes : member) {
                 if (bytes.length <= ZSET_MEMBER_REF_KEY_THRESHOLD_MIN) continue;
-                byte[] memberRefKey = buildRefKey(key, bytes);
+                byte[] memberRefKey = refKeyCodec.buildRefKey(bytes);
                 Response<Long> response1 = pipeline.zrem(redisKey, memberRefKey);
                 responseList.add(response1);
                 pipeline.del(redisKey(memberRefKey));
+                refKeyValueCache.invalidate(memberRefKey);
                 pipelineSize += 2;
                 if (pipelineSize > RedisHBaseConfiguration.redisMaxPipeline()) {
                     pipeline.sync();
@@ -451,6 +462,7 @@ public class RedisHBaseZSetMixClient {
     }
 
     private void _zrem(String method, byte[] key, Set<byte[]> set) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         if (set == null || set.isEmpty()) {
             RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
             return;
@@ -459,8 +471,9 @@ public class RedisHBaseZSetMixClient {
         int pipelineSize = 0;
         try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
             for (byte[] bytes : set) {
-                if (isRefKey(key, bytes)) {
+                if (refKeyCodec.isRefKey(bytes)) {
                     pipeline.del(redisKey(bytes));
+                    refKeyValueCache.invalidate(bytes);
                     pipelineSize ++;
                     if (pipelineSize >= RedisHBaseConfiguration.redisMaxPipeline()) {
                         pipeline.sync();
@@ -500,15 +513,30 @@ public class RedisHBaseZSetMixClient {
     }
 
     private Set<byte[]> _parseOriginalSet(String method, byte[] key, Set<byte[]> set) {
+        if (set != null && RedisHBaseStreamReply.streamable(set.size())) {
+            RedisHBaseStreamReply streamReply = RedisHBaseStreamReply.ofMembers(key, set, zsetMemberRefKeyExpireSeconds(), refKeyValueResolver);
+            return new RefKeyStreamSet<>(streamReply, () -> _doParseOriginalSet(method, key, set));
+        }
+        return _doParseOriginalSet(method, key, set);
+    }
+
+    private Set<byte[]> _doParseOriginalSet(String method, byte[] key, Set<byte[]> set) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         if (set == null || set.isEmpty()) {
             RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
             return set;
         }
         int pipelineSize = 0;
+        Map<BytesKey, byte[]> cacheMap = new HashMap<>();
         Map<BytesKey, Response<byte[]>> map = new HashMap<>();
         try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
             for (byte[] bytes : set) {
-                if (isRefKey(key, bytes)) {
+                if (refKeyCodec.isRefKey(bytes)) {
+                    byte[] cacheValue = refKeyValueCache.get("zset", bytes);
+                    if (cacheValue != null) {
+                        cacheMap.put(new BytesKey(bytes), cacheValue);
+                        continue;
+                    }
                     Response<byte[]> response = pipeline.get(redisKey(bytes));
                     map.put(new BytesKey(bytes), response);
                     pipelineSize ++;
@@ -520,16 +548,20 @@ public class RedisHBaseZSetMixClient {
             }
             pipeline.sync();
         }
-        if (map.isEmpty()) {
+        if (map.isEmpty() && cacheMap.isEmpty()) {
             RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
             return set;
         }
         List<Get> getList = new ArrayList<>();
         List<byte[]> list = new ArrayList<>(set.size());
         for (byte[] bytes : set) {
-            if (isRefKey(key, bytes)) {
-                Response<byte[]> response = map.get(new BytesKey(bytes));
-                byte[] originalValue = response.get();
+            if (refKeyCodec.isRefKey(bytes)) {
+                BytesKey bytesKey = new BytesKey(bytes);
+                byte[] originalValue = cacheMap.get(bytesKey);
+                if (originalValue == null) {
+                    originalValue = map.get(bytesKey).get();
+                    refKeyValueCache.put(bytes, originalValue, zsetMemberRefKeyExpireSeconds());
+                }
                 if (originalValue != null) {
                     list.add(originalValue);
                 } else {
@@ -551,8 +583,8 @@ public class RedisHBaseZSetMixClient {
                 logger.warn("get original zset member from hbase degraded, key = {}", Utils.bytesToString(key));
                 RedisHBaseMonitor.incrDegraded("hbase_read_batch_degraded");
             } else {
-                if (FreqUtils.hbaseReadFreq()) {
-                    Result[] results = hBaseTemplate.get(hbaseTableName(), gets);
+                if (FreqUtils.hbaseReadFreq(key, gets.size())) {
+                    Result[] results = hBaseReadBatcher.get(gets);
                     for (Result result : results) {
                         byte[] originalValue = parseOriginalValue(result);
                         if (originalValue != null) {
@@ -568,11 +600,12 @@ public class RedisHBaseZSetMixClient {
         pipelineSize = 0;
         try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
             for (byte[] bytes : list) {
-                if (isRefKey(key, bytes)) {
+                if (refKeyCodec.isRefKey(bytes)) {
                     byte[] originalValue = hbaseMap.get(new BytesKey(bytes));
                     if (originalValue != null) {
                         ret.add(originalValue);
-                        pipeline.setex(redisKey(bytes), zsetMemberRefKeyExpireSeconds(), originalValue);
+                        refKeyValueCache.put(bytes, originalValue, zsetMemberRefKeyExpireSeconds());
+                        pipeline.setex(redisKey(bytes), RefKeyAccessTracker.expireSeconds(bytes, zsetMemberRefKeyExpireSeconds()), originalValue);
                         pipelineSize ++;
                         if (pipelineSize > RedisHBaseConfiguration.redisMaxPipeline()) {
                             pipeline.sync();
@@ -590,16 +623,31 @@ public class RedisHBaseZSetMixClient {
     }
 
     private Set<Tuple> _parseOriginalTuple(String method, byte[] key, Set<Tuple> set) {
+        if (set != null && RedisHBaseStreamReply.streamable(set.size())) {
+            RedisHBaseStreamReply streamReply = RedisHBaseStreamReply.ofTuples(key, set, zsetMemberRefKeyExpireSeconds(), refKeyValueResolver);
+            return new RefKeyStreamSet<>(streamReply, () -> _doParseOriginalTuple(method, key, set));
+        }
+        return _doParseOriginalTuple(method, key, set);
+    }
+
+    private Set<Tuple> _doParseOriginalTuple(String method, byte[] key, Set<Tuple> set) {
+        RefKeyCodec refKeyCodec = new RefKeyCodec(key);
         if (set == null || set.isEmpty()) {
             RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
             return set;
         }
         int pipelineSize = 0;
+        Map<BytesKey, byte[]> cacheMap = new HashMap<>();
         Map<BytesKey, Response<byte[]>> map = new HashMap<>();
         try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
             for (Tuple tuple : set) {
                 byte[] bytes = tuple.getBinaryElement();
-                if (isRefKey(key, tuple.getBinaryElement())) {
+                if (refKeyCodec.isRefKey(tuple.getBinaryElement())) {
+                    byte[] cacheValue = refKeyValueCache.get("zset", bytes);
+                    if (cacheValue != null) {
+                        cacheMap.put(new BytesKey(bytes), cacheValue);
+                        continue;
+                    }
                     Response<byte[]> response = pipeline.get(redisKey(bytes));
                     map.put(new BytesKey(bytes), response);
                     pipelineSize ++;
@@ -611,7 +659,7 @@ public class RedisHBaseZSetMixClient {
             }
             pipeline.sync();
         }
-        if (map.isEmpty()) {
+        if (map.isEmpty() && cacheMap.isEmpty()) {
             RedisHBaseMonitor.incr(method, OperationType.REDIS_ONLY.name());
             return set;
         }
@@ -621,9 +669,13 @@ public class RedisHBaseZSetMixClient {
             List<Tuple> list = new ArrayList<>(set.size());
             for (Tuple tuple : set) {
                 byte[] bytes = tuple.getBinaryElement();
-                if (isRefKey(key, bytes)) {
-                    Response<byte[]> response = map.get(new BytesKey(bytes));
-                    byte[] originalValue = response.get();
+                if (refKeyCodec.isRefKey(bytes)) {
+                    BytesKey bytesKey = new BytesKey(bytes);
+                    byte[] originalValue = cacheMap.get(bytesKey);
+                    if (originalValue == null) {
+                        originalValue = map.get(bytesKey).get();
+                        refKeyValueCache.put(bytes, originalValue, zsetMemberRefKeyExpireSeconds());
+                    }
                     if (originalValue != null) {
                         list.add(new Tuple(originalValue, tuple.getScore()));
                     } else {
@@ -633,11 +685,12 @@ public class RedisHBaseZSetMixClient {
                                     Utils.bytesToString(key), Bytes.toHex(bytes));
                             RedisHBaseMonitor.incrDegraded("hbase_read_degraded");
                         } else {
-                            if (FreqUtils.hbaseReadFreq()) {
-                                Result result = hBaseTemplate.get(hbaseTableName(), new Get(bytes));
+                            if (FreqUtils.hbaseReadFreq(key)) {
+                                Result result = hBaseReadBatcher.get(new Get(bytes));
                                 originalValue = parseOriginalValue(result);
                                 if (originalValue != null) {
-                                    pipeline.setex(redisKey(bytes), zsetMemberRefKeyExpireSeconds(), originalValue);
+                                    refKeyValueCache.put(bytes, originalValue, zsetMemberRefKeyExpireSeconds());
+                                    pipeline.setex(redisKey(bytes), RefKeyAccessTracker.expireSeconds(bytes, zsetMemberRefKeyExpireSeconds()), originalValue);
                                     pipelineSize++;
                                     if (pipelineSize > RedisHBaseConfiguration.redisMaxPipeline()) {
                                         pipeline.sync();
@@ -0,0 +1,34 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 流式回包时hgetall返回的结果，ref-key还没有解析
+ * RedisHBaseCommandProcessor会直接使用streamReply回包；其他场景遍历时会一次性解析全部ref-key，和普通结果一致
+ */
+public class RefKeyStreamMap extends AbstractMap<byte[], byte[]> {
+
+    private final RedisHBaseStreamReply streamReply;
+    private final Supplier<Map<byte[], byte[]>> supplier;
+    private Map<byte[], byte[]> map;
+
+    public RefKeyStreamMap(RedisHBaseStreamReply streamReply, Supplier<Map<byte[], byte[]>> supplier) {
+        this.streamReply = streamReply;
+        this.supplier = supplier;
+    }
+
+    public RedisHBaseStreamReply getStreamReply() {
+        return streamReply;
+    }
+
+    @Override
+    public Set<Entry<byte[], byte[]>> entrySet() {
+        if (map == null) {
+            map = supplier.get();
+        }
+        return map.entrySet();
+    }
+}
@@ -0,0 +1,43 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 流式回包时zset range类命令返回的结果，ref-key还没有解析
+ * RedisHBaseCommandProcessor会直接使用streamReply回包；其他场景遍历时会一次性解析全部ref-key，和普通结果一致
+ */
+public class RefKeyStreamSet<T> extends AbstractSet<T> {
+
+    private final RedisHBaseStreamReply streamReply;
+    private final Supplier<Set<T>> supplier;
+    private Set<T> set;
+
+    public RefKeyStreamSet(RedisHBaseStreamReply streamReply, Supplier<Set<T>> supplier) {
+        this.streamReply = streamReply;
+        this.supplier = supplier;
+    }
+
+    public RedisHBaseStreamReply getStreamReply() {
+        return streamReply;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return materialize().iterator();
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    private Set<T> materialize() {
+        if (set == null) {
+            set = supplier.get();
+        }
+        return set;
+    }
+}
@@ -0,0 +1,88 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EntryWeigher;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyAccessTracker;
+import com.netease.nim.camellia.redis.proxy.util.BytesKey;
+import com.netease.nim.camellia.redis.proxy.util.TimeCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ref-key对应的原始value的本地缓存，放在redis和hbase的前面
+ * 1）ref-key由key和value的md5组成，同一个ref-key对应的value不会变化，因此写操作不需要更新缓存，删除时清理即可
+ * 2）容量按value的字节数计算，超过上限后按LRU淘汰
+ * 3）缓存时间不超过对应类型的ref-key在redis中的缓存时间
+ */
+public class RefKeyValueCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefKeyValueCache.class);
+
+    private final ConcurrentLinkedHashMap<BytesKey, CacheValue> cache;
+
+    public RefKeyValueCache(long maxBytes) {
+        this.cache = new ConcurrentLinkedHashMap.Builder<BytesKey, CacheValue>()
+                .initialCapacity(1024)
+                .maximumWeightedCapacity(maxBytes)
+                .weigher((EntryWeigher<BytesKey, CacheValue>) (key, value) -> key.getKey().length + value.value.length)
+                .build();
+        logger.info("RefKeyValueCache init success, maxBytes = {}", maxBytes);
+    }
+
+    /**
+     * 获取缓存
+     * @param type 类型，用于监控
+     * @param refKey ref-key
+     * @return 原始value，不存在或者已过期则返回null
+     */
+    public byte[] get(String type, byte[] refKey) {
+        //所有ref-key的读取都会先查本地缓存，因此在这里统计访问频率
+        RefKeyAccessTracker.record(type, refKey);
+        if (!RedisHBaseConfiguration.refKeyLocalCacheEnable()) return null;
+        BytesKey bytesKey = new BytesKey(refKey);
+        CacheValue cacheValue = cache.get(bytesKey);
+        if (cacheValue != null && cacheValue.expireTime < TimeCache.currentMillis) {
+            cache.remove(bytesKey, cacheValue);
+            cacheValue = null;
+        }
+        if (cacheValue == null) {
+            RedisHBaseMonitor.incrLocalCache(type, false, 0);
+            return null;
+        }
+        byte[] value = cacheValue.value;
+        RedisHBaseMonitor.incrLocalCache(type, true, value.length);
+        return value;
+    }
+
+    /**
+     * 写入缓存
+     * @param refKey ref-key
+     * @param value 原始value
+     * @param expireSeconds ref-key在redis中的缓存时间
+     */
+    public void put(byte[] refKey, byte[] value, int expireSeconds) {
+        if (!RedisHBaseConfiguration.refKeyLocalCacheEnable()) return;
+        if (value == null) return;
+        int seconds = Math.min(expireSeconds, RedisHBaseConfiguration.refKeyLocalCacheExpireSeconds());
+        if (seconds <= 0) return;
+        long expireTime = TimeCache.currentMillis + seconds * 1000L;
+        cache.put(new BytesKey(refKey), new CacheValue(value, expireTime));
+    }
+
+    public void invalidate(byte[] refKey) {
+        if (cache.isEmpty()) return;
+        cache.remove(new BytesKey(refKey));
+    }
+
+    private static class CacheValue {
+        final byte[] value;
+        final long expireTime;
+
+        CacheValue(byte[] value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.netease.nim.camellia.redis.proxy.hbase;
+
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.FreqUtils;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RefKeyAccessTracker;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils.*;
+
+/**
+ * 批量解析ref-key对应的原始value，依次查询本地缓存、redis、hbase，hbase查到的会回写redis
+ * 用于流式回包时按批解析，以及list/set的批量读取
+ */
+public class RefKeyValueResolver {
+
+    private final CamelliaRedisTemplate redisTemplate;
+    private final HBaseReadBatcher hBaseReadBatcher;
+    private final RefKeyValueCache refKeyValueCache;
+
+    public RefKeyValueResolver(CamelliaRedisTemplate redisTemplate, HBaseReadBatcher hBaseReadBatcher, RefKeyValueCache refKeyValueCache) {
+        this.redisTemplate = redisTemplate;
+        this.hBaseReadBatcher = hBaseReadBatcher;
+        this.refKeyValueCache = refKeyValueCache;
+    }
+
+    /**
+     * 批量解析
+     * @param type 类型，用于本地缓存的监控
+     * @param key 原始key，用于频控
+     * @param refKeys ref-key列表
+     * @param expireSeconds 回写redis的缓存时间
+     * @return 和refKeys一一对应，解析不到（hbase中不存在或者被降级）的为null
+     */
+    public byte[][] resolve(String type, byte[] key, List<byte[]> refKeys, int expireSeconds) {
+        return resolve(type, key, refKeys, expireSeconds, null);
+    }
+
+    /**
+     * 批量解析，并区分解析不到的原因
+     * @param notFound 可以为null，否则和refKeys一一对应，查询过hbase且确实不存在的为true，被降级或者频控没有查询hbase的为false
+     */
+    public byte[][] resolve(String type, byte[] key, List<byte[]> refKeys, int expireSeconds, boolean[] notFound) {
+        byte[][] values = new byte[refKeys.size()][];
+        List<Integer> redisIndexList = new ArrayList<>();
+        List<Response<byte[]>> responseList = new ArrayList<>();
+        try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+            int pipelineCount = 0;
+            for (int i=0; i<refKeys.size(); i++) {
+                byte[] refKey = refKeys.get(i);
+                byte[] value = refKeyValueCache.get(type, refKey);
+                if (value != null) {
+                    values[i] = value;
+                    continue;
+                }
+                redisIndexList.add(i);
+                responseList.add(pipeline.get(redisKey(refKey)));
+                pipelineCount ++;
+                if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
+                    pipeline.sync();
+                    pipelineCount = 0;
+                }
+            }
+            pipeline.sync();
+        }
+        List<Integer> hbaseIndexList = new ArrayList<>();
+        List<Get> getList = new ArrayList<>();
+        for (int i=0; i<redisIndexList.size(); i++) {
+            int index = redisIndexList.get(i);
+            byte[] value = responseList.get(i).get();
+            if (value != null) {
+                values[index] = value;
+                refKeyValueCache.put(refKeys.get(index), value, expireSeconds);
+            } else {
+                hbaseIndexList.add(index);
+                getList.add(new Get(refKeys.get(index)));
+            }
+        }
+        if (getList.isEmpty()) {
+            return values;
+        }
+        List<List<Integer>> indexSplit = split(hbaseIndexList, RedisHBaseConfiguration.hbaseMaxBatch());
+        List<List<Get>> getSplit = split(getList, RedisHBaseConfiguration.hbaseMaxBatch());
+        for (int i=0; i<getSplit.size(); i++) {
+            if (RedisHBaseConfiguration.hbaseReadDegraded()) {
+                RedisHBaseMonitor.incrDegraded("hbase_read_batch_degraded");
+                return values;
+            }
+            List<Get> gets = getSplit.get(i);
+            if (!FreqUtils.hbaseReadFreq(key, gets.size())) {
+                RedisHBaseMonitor.incrDegraded("hbase_read_batch_freq_degraded");
+                continue;
+            }
+            List<Integer> indexes = indexSplit.get(i);
+            Result[] results = hBaseReadBatcher.get(gets);
+            try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+                for (int j=0; j<results.length; j++) {
+                    byte[] value = parseOriginalValue(results[j]);
+                    int index = indexes.get(j);
+                    if (value == null) {
+                        if (notFound != null) {
+                            notFound[index] = true;
+                        }
+                        continue;
+                    }
+                    values[index] = value;
+                    refKeyValueCache.put(refKeys.get(index), value, expireSeconds);
+                    pipeline.setex(redisKey(refKeys.get(index)), RefKeyAccessTracker.expireSeconds(refKeys.get(index), expireSeconds), value);
+                }
+                pipeline.sync();
+            }
+        }
+        return values;
+    }
+}
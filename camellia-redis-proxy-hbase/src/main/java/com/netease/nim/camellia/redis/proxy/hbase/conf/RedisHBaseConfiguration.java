@@ -39,6 +39,16 @@ public class RedisHBaseConfiguration {
         return ProxyDynamicConf.getInt("hash.member.ref.key.threshold", 48);
     }
 
+    //list的元素超过多少字节开启冷热
+    public static int listElementRefKeyThreshold() {
+        return ProxyDynamicConf.getInt("list.element.ref.key.threshold", 48);
+    }
+
+    //set的member超过多少字节开启冷热
+    public static int setMemberRefKeyThreshold() {
+        return ProxyDynamicConf.getInt("set.member.ref.key.threshold", 48);
+    }
+
     //zset的member引用缓存时间，单位秒
     public static int zsetMemberRefKeyExpireSeconds() {
         return ProxyDynamicConf.getInt("zset.member.ref.key.cache.expire.seconds", 24 * 3600);
@@ -54,6 +64,16 @@ public class RedisHBaseConfiguration {
         return ProxyDynamicConf.getInt("hash.member.ref.key.cache.expire.seconds", 2 * 3600);
     }
 
+    //list的元素引用缓存时间，单位秒
+    public static int listElementRefKeyExpireSeconds() {
+        return ProxyDynamicConf.getInt("list.element.ref.key.cache.expire.seconds", 2 * 3600);
+    }
+
+    //set的member引用缓存时间，单位秒
+    public static int setMemberRefKeyExpireSeconds() {
+        return ProxyDynamicConf.getInt("set.member.ref.key.cache.expire.seconds", 2 * 3600);
+    }
+
     //redis pipeline操作的最大值
     public static int redisMaxPipeline() {
         return ProxyDynamicConf.getInt("redis.max.pipeline", 100);
@@ -79,6 +99,61 @@ public class RedisHBaseConfiguration {
         return ProxyDynamicConf.getInt("hbase.async.write.queue.size", 1000000);
     }
 
+    //hbase异步写是否根据hbase的耗时自适应调整批量大小和等待时间，关闭时批量大小固定为hbase.max.batch
+    public static boolean hbaseAsyncWriteAdaptiveBatchEnable() {
+        return ProxyDynamicConf.getBoolean("hbase.async.write.adaptive.batch.enable", true);
+    }
+
+    //hbase异步写自适应批量的上限
+    public static int hbaseAsyncWriteBatchMaxSize() {
+        return ProxyDynamicConf.getInt("hbase.async.write.batch.max.size", 1000);
+    }
+
+    //hbase异步写自适应批量的目标耗时，超过则减小批量
+    public static long hbaseAsyncWriteTargetLatencyMillis() {
+        return ProxyDynamicConf.getLong("hbase.async.write.target.latency.millis", 50L);
+    }
+
+    //hbase异步写凑批量时的最大等待时间
+    public static long hbaseAsyncWriteMaxLingerMillis() {
+        return ProxyDynamicConf.getLong("hbase.async.write.max.linger.millis", 5L);
+    }
+
+    //hbase异步写一个批次连续失败多少次后逐条写入，丢弃非临时错误（表不存在、cell过大等）的写操作，临时错误（hbase不可用、超时等）会一直重试
+    public static int hbaseAsyncWriteMaxRetries() {
+        return ProxyDynamicConf.getInt("hbase.async.write.max.retries", 10);
+    }
+
+    //hbase异步写是否先写本地日志（mmap），开启后进程重启时未写入hbase的任务会重放，且不受内存队列大小限制，启动时生效
+    public static boolean hbaseAsyncWriteLogEnable() {
+        return ProxyDynamicConf.getBoolean("hbase.async.write.log.enable", false);
+    }
+
+    //hbase异步写本地日志的目录，启动时生效
+    public static String hbaseAsyncWriteLogDir() {
+        return ProxyDynamicConf.getString("hbase.async.write.log.dir", "./hbase-async-write-log");
+    }
+
+    //hbase异步写本地日志的单个segment文件大小，启动时生效
+    public static int hbaseAsyncWriteLogSegmentSize() {
+        return ProxyDynamicConf.getInt("hbase.async.write.log.segment.size", 16 * 1024 * 1024);
+    }
+
+    //hbase异步写本地日志每个线程最多的segment文件个数，超过后提交失败，启动时生效
+    public static int hbaseAsyncWriteLogMaxSegments() {
+        return ProxyDynamicConf.getInt("hbase.async.write.log.max.segments", 64);
+    }
+
+    //hbase异步写本地日志的刷盘周期，启动时生效
+    public static long hbaseAsyncWriteLogFlushIntervalMillis() {
+        return ProxyDynamicConf.getLong("hbase.async.write.log.flush.interval.millis", 10L);
+    }
+
+    //hbase异步写本地日志是否等待刷盘后再返回，启动时生效
+    public static boolean hbaseAsyncWriteLogSyncCommit() {
+        return ProxyDynamicConf.getBoolean("hbase.async.write.log.sync.commit", false);
+    }
+
     //hbase异步写任务提交失败时是否降级，若降级则丢弃，否则改成同步写
     public static boolean hbaseDegradedIfAsyncWriteSubmitFail() {
         return ProxyDynamicConf.getBoolean("hbase.degraded.if.async.write.submit.fail", false);
@@ -94,13 +169,198 @@ public class RedisHBaseConfiguration {
         return ProxyDynamicConf.getBoolean("hbase.read.freq.enable", false);
     }
 
-    //hbase读操作单机频控的检查周期
+    //hbase读操作单机频控的检查周期，和hbase.read.freq.check.threshold一起决定令牌的补充速率
     public static long hbaseReadFreqCheckMillis() {
         return ProxyDynamicConf.getLong("hbase.read.freq.check.millis", 1000L);
     }
 
-    //hbase读操作单机频控的检查阈值
+    //hbase读操作单机频控的检查阈值，即每个检查周期补充的令牌数
     public static long hbaseReadFreqCheckThreshold() {
         return ProxyDynamicConf.getLong("hbase.read.freq.check.threshold", 500L);
     }
+
+    //hbase读操作单机频控的令牌桶容量，即空闲后允许的突发请求数
+    public static long hbaseReadFreqBurst() {
+        return ProxyDynamicConf.getLong("hbase.read.freq.burst", hbaseReadFreqCheckThreshold());
+    }
+
+    //hbase读操作单机频控令牌不足时的最大等待时间，超过则降级，单位毫秒
+    public static long hbaseReadFreqMaxWaitMillis() {
+        return ProxyDynamicConf.getLong("hbase.read.freq.max.wait.millis", 10L);
+    }
+
+    //hbase读操作单机频控令牌不足时最多允许多少个请求同时等待，超过则直接降级
+    public static int hbaseReadFreqMaxWaiters() {
+        return ProxyDynamicConf.getInt("hbase.read.freq.max.waiters", 64);
+    }
+
+    //hbase读操作是否开启单key频控，需要同时开启hbase.read.freq.enable
+    public static boolean hbaseReadFreqKeyEnable() {
+        return ProxyDynamicConf.getBoolean("hbase.read.freq.key.enable", false);
+    }
+
+    //hbase读操作单key每秒最多读取的次数
+    public static long hbaseReadFreqKeyRate() {
+        return ProxyDynamicConf.getLong("hbase.read.freq.key.rate", 50L);
+    }
+
+    //hbase读操作单key的令牌桶容量
+    public static long hbaseReadFreqKeyBurst() {
+        return ProxyDynamicConf.getLong("hbase.read.freq.key.burst", hbaseReadFreqKeyRate());
+    }
+
+    //hbase读操作单key频控最多记录的key的数量，按LRU淘汰，启动时生效
+    public static int hbaseReadFreqKeyCapacity() {
+        return ProxyDynamicConf.getInt("hbase.read.freq.key.capacity", 10000);
+    }
+
+    //命令是否在业务线程池中执行（不阻塞netty的IO线程），启动时生效
+    public static boolean commandExecuteAsyncEnable() {
+        return ProxyDynamicConf.getBoolean("command.execute.async.enable", false);
+    }
+
+    //命令执行线程池的线程数量，按key的hash分配，启动时生效
+    public static int commandExecutePoolSize() {
+        return ProxyDynamicConf.getInt("command.execute.pool.size", SysUtils.getCpuNum() * 4);
+    }
+
+    //命令执行线程池每个线程的队列大小，启动时生效
+    public static int commandExecuteQueueSize() {
+        return ProxyDynamicConf.getInt("command.execute.queue.size", 100000);
+    }
+
+    //hbase读操作（ref-key的读取）是否合并成批量请求
+    public static boolean hbaseReadBatchEnable() {
+        return ProxyDynamicConf.getBoolean("hbase.read.batch.enable", false);
+    }
+
+    //hbase读操作合并的最大批量
+    public static int hbaseReadBatchMaxSize() {
+        return ProxyDynamicConf.getInt("hbase.read.batch.max.size", 100);
+    }
+
+    //hbase读操作合并的最大等待时间，单位微秒
+    public static long hbaseReadBatchWindowMicros() {
+        return ProxyDynamicConf.getLong("hbase.read.batch.window.micros", 300L);
+    }
+
+    //hbase读操作合并后发起批量请求的线程数量，启动时生效
+    public static int hbaseReadBatchPoolSize() {
+        return ProxyDynamicConf.getInt("hbase.read.batch.pool.size", SysUtils.getCpuNum() * 2);
+    }
+
+    //hbase读操作合并的队列大小，启动时生效
+    public static int hbaseReadBatchQueueSize() {
+        return ProxyDynamicConf.getInt("hbase.read.batch.queue.size", 100000);
+    }
+
+    //是否开启ref-key的本地缓存（放在redis和hbase前面）
+    public static boolean refKeyLocalCacheEnable() {
+        return ProxyDynamicConf.getBoolean("ref.key.local.cache.enable", false);
+    }
+
+    //ref-key本地缓存的最大容量，按value的字节数计算，单位字节，启动时生效
+    public static long refKeyLocalCacheMaxBytes() {
+        return ProxyDynamicConf.getLong("ref.key.local.cache.max.bytes", 256 * 1024 * 1024L);
+    }
+
+    //ref-key本地缓存的最大缓存时间，单位秒，实际缓存时间不会超过对应类型的ref-key在redis中的缓存时间
+    public static int refKeyLocalCacheExpireSeconds() {
+        return ProxyDynamicConf.getInt("ref.key.local.cache.expire.seconds", 600);
+    }
+
+    //大集合（hgetall/zrange等）是否开启流式回包，需要同时开启command.execute.async.enable
+    public static boolean streamReplyEnable() {
+        return ProxyDynamicConf.getBoolean("stream.reply.enable", false);
+    }
+
+    //集合元素个数超过多少时使用流式回包
+    public static int streamReplyThreshold() {
+        return ProxyDynamicConf.getInt("stream.reply.threshold", 1000);
+    }
+
+    //流式回包时等待连接可写的超时时间，超时则关闭连接，单位毫秒
+    public static long streamReplyWriteTimeoutMillis() {
+        return ProxyDynamicConf.getLong("stream.reply.write.timeout.millis", 10000L);
+    }
+
+    //是否统计ref-key的访问频率，并据此调整ref-key在redis中的缓存时间
+    public static boolean refKeyAccessTrackEnable() {
+        return ProxyDynamicConf.getBoolean("ref.key.access.track.enable", false);
+    }
+
+    //ref-key访问频率的采样率，每N次访问记录一次
+    public static int refKeyAccessTrackSampleRate() {
+        return ProxyDynamicConf.getInt("ref.key.access.track.sample.rate", 8);
+    }
+
+    //ref-key访问频率统计的sketch宽度，会向上取整为2的幂，启动时生效
+    public static int refKeyAccessTrackSketchWidth() {
+        return ProxyDynamicConf.getInt("ref.key.access.track.sketch.width", 65536);
+    }
+
+    //采样后的访问次数达到多少认为是热点ref-key
+    public static int refKeyAccessHotThreshold() {
+        return ProxyDynamicConf.getInt("ref.key.access.hot.threshold", 4);
+    }
+
+    //热点ref-key在redis中的缓存时间是基础缓存时间的多少倍
+    public static int refKeyAccessHotExpireMultiple() {
+        return ProxyDynamicConf.getInt("ref.key.access.hot.expire.multiple", 4);
+    }
+
+    //没有采样到访问的ref-key从hbase回填redis时，缓存时间是基础缓存时间的几分之一
+    public static int refKeyAccessColdExpireDivisor() {
+        return ProxyDynamicConf.getInt("ref.key.access.cold.expire.divisor", 4);
+    }
+
+    //等待延长缓存时间的热点ref-key队列大小，启动时生效
+    public static int refKeyAccessHotQueueSize() {
+        return ProxyDynamicConf.getInt("ref.key.access.hot.queue.size", 10000);
+    }
+
+    //是否开启冷数据下沉，redis内存超过目标值时，把长时间没有访问的key中未超过阈值的value也转存到hbase
+    public static boolean coldDemoteEnable() {
+        return ProxyDynamicConf.getBoolean("cold.demote.enable", false);
+    }
+
+    //redis的内存目标值（单个节点的used_memory），单位字节，小于等于0表示不下沉
+    public static long coldDemoteRedisMemoryTargetBytes() {
+        return ProxyDynamicConf.getLong("cold.demote.redis.memory.target.bytes", -1L);
+    }
+
+    //key多久没有访问（redis的object idletime）认为是冷数据，单位秒
+    public static long coldDemoteIdleSeconds() {
+        return ProxyDynamicConf.getLong("cold.demote.idle.seconds", 24 * 3600L);
+    }
+
+    //冷数据下沉的检查间隔，单位秒，启动时生效
+    public static int coldDemoteIntervalSeconds() {
+        return ProxyDynamicConf.getInt("cold.demote.interval.seconds", 60);
+    }
+
+    //每次检查最多处理多少个候选key
+    public static int coldDemoteBatch() {
+        return ProxyDynamicConf.getInt("cold.demote.batch", 1000);
+    }
+
+    //冷数据下沉的候选key的最大个数（LRU），启动时生效
+    public static int coldDemoteCandidateCapacity() {
+        return ProxyDynamicConf.getInt("cold.demote.candidate.capacity", 100000);
+    }
+
+    //list/set的元素个数不少于多少时才会分段下沉
+    public static int coldSegmentMinSize() {
+        return ProxyDynamicConf.getInt("cold.segment.min.size", 128);
+    }
+
+    //list/set的元素个数超过多少时不会分段下沉，避免lua脚本执行时间过长
+    public static int coldSegmentMaxSize() {
+        return ProxyDynamicConf.getInt("cold.segment.max.size", 100000);
+    }
+
+    //分段下沉时每段（hbase中的一行）的元素个数
+    public static int coldSegmentChunkSize() {
+        return ProxyDynamicConf.getInt("cold.segment.chunk.size", 1000);
+    }
 }
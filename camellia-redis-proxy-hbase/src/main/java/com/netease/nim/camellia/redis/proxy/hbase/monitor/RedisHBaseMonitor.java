@@ -6,6 +6,7 @@ import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
 import com.netease.nim.camellia.redis.proxy.util.CamelliaMapUtils;
 import com.netease.nim.camellia.redis.proxy.util.MaxValue;
+import com.netease.nim.camellia.redis.proxy.util.SpendTimeHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,14 @@ public class RedisHBaseMonitor {
     private static ConcurrentHashMap<String, LongAdder> collectionTotalSize = new ConcurrentHashMap<>();
     private static ConcurrentHashMap<String, LongAdder> collectionSizeCount = new ConcurrentHashMap<>();
 
+    //批量大小、耗时（ms）等指标的分布统计，分桶的上界是固定的
+    private static final long[] HISTOGRAM_BOUNDS = new long[] {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+    private static final ConcurrentHashMap<String, SpendTimeHistogram> histogramMap = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<String, LongAdder> localCacheHit = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> localCacheMiss = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> localCacheBytesSaved = new ConcurrentHashMap<>();
+
     static {
         ExecutorUtils.scheduleAtFixedRate(RedisHBaseMonitor::calc, 1, 1, TimeUnit.MINUTES);
     }
@@ -76,6 +85,21 @@ public class RedisHBaseMonitor {
         CamelliaMapUtils.computeIfAbsent(degradedMap, desc, k -> new LongAdder()).increment();
     }
 
+    public static void updateHistogram(String name, long value) {
+        if (!RedisHBaseConfiguration.monitorEnable()) return;
+        CamelliaMapUtils.computeIfAbsent(histogramMap, name, k -> new SpendTimeHistogram(HISTOGRAM_BOUNDS)).update(value);
+    }
+
+    public static void incrLocalCache(String type, boolean hit, long bytes) {
+        if (!RedisHBaseConfiguration.monitorEnable()) return;
+        if (hit) {
+            get(type, localCacheHit, k -> new LongAdder()).increment();
+            get(type, localCacheBytesSaved, k -> new LongAdder()).add(bytes);
+        } else {
+            get(type, localCacheMiss, k -> new LongAdder()).increment();
+        }
+    }
+
     public static void register(String name, Queue queue) {
         queueMap.put(name, queue);
     }
@@ -148,6 +172,30 @@ public class RedisHBaseMonitor {
         }
         monitorJson.put("collectionSizeStats", zsetSizeStatsJsonArray);
 
+        JSONArray histogramStatsJsonArray = new JSONArray();
+        for (RedisHBaseStats.HistogramStats histogramStats : redisHBaseStats.getHistogramStatsList()) {
+            JSONObject json = new JSONObject();
+            json.put("name", histogramStats.getName());
+            json.put("count", histogramStats.getCount());
+            json.put("avg", histogramStats.getAvg());
+            json.put("max", histogramStats.getMax());
+            json.put("distribution", histogramStats.getDistribution());
+            histogramStatsJsonArray.add(json);
+        }
+        monitorJson.put("histogramStats", histogramStatsJsonArray);
+
+        JSONArray localCacheStatsJsonArray = new JSONArray();
+        for (RedisHBaseStats.LocalCacheStats localCacheStats : redisHBaseStats.getLocalCacheStatsList()) {
+            JSONObject json = new JSONObject();
+            json.put("type", localCacheStats.getType());
+            json.put("hit", localCacheStats.getHit());
+            json.put("miss", localCacheStats.getMiss());
+            json.put("hitPercent", localCacheStats.getHitPercent());
+            json.put("bytesSaved", localCacheStats.getBytesSaved());
+            localCacheStatsJsonArray.add(json);
+        }
+        monitorJson.put("localCacheStats", localCacheStatsJsonArray);
+
         return monitorJson;
     }
 
@@ -263,6 +311,33 @@ public class RedisHBaseMonitor {
                 zSetSizeStatsList.add(zsetSizeStats);
             }
 
+            List<RedisHBaseStats.HistogramStats> histogramStatsList = new ArrayList<>();
+            for (Map.Entry<String, SpendTimeHistogram> entry : histogramMap.entrySet()) {
+                histogramStatsList.add(toHistogramStats(entry.getKey(), entry.getValue().snapshotAndReset()));
+            }
+
+            Set<String> localCacheTypeSet = new HashSet<>();
+            localCacheTypeSet.addAll(localCacheHit.keySet());
+            localCacheTypeSet.addAll(localCacheMiss.keySet());
+            List<RedisHBaseStats.LocalCacheStats> localCacheStatsList = new ArrayList<>();
+            for (String type : localCacheTypeSet) {
+                RedisHBaseStats.LocalCacheStats localCacheStats = new RedisHBaseStats.LocalCacheStats();
+                localCacheStats.setType(type);
+                LongAdder hit = localCacheHit.get(type);
+                LongAdder miss = localCacheMiss.get(type);
+                LongAdder bytesSaved = localCacheBytesSaved.get(type);
+                localCacheStats.setHit(hit == null ? 0 : hit.sumThenReset());
+                localCacheStats.setMiss(miss == null ? 0 : miss.sumThenReset());
+                localCacheStats.setBytesSaved(bytesSaved == null ? 0 : bytesSaved.sumThenReset());
+                long total = localCacheStats.getHit() + localCacheStats.getMiss();
+                if (total > 0) {
+                    localCacheStats.setHitPercent(localCacheStats.getHit() / (total * 1.0));
+                } else {
+                    localCacheStats.setHitPercent(0.0);
+                }
+                localCacheStatsList.add(localCacheStats);
+            }
+
             RedisHBaseStats redisHBaseStats = new RedisHBaseStats();
             redisHBaseStats.setStatsList(statsList);
             redisHBaseStats.setStats2List(stats2List);
@@ -270,10 +345,30 @@ public class RedisHBaseMonitor {
             redisHBaseStats.setDegradedStatsList(degradedStatsList);
             redisHBaseStats.setValueSizeStatsList(valueSizeStatsList);
             redisHBaseStats.setzSetSizeStatsList(zSetSizeStatsList);
+            redisHBaseStats.setHistogramStatsList(histogramStatsList);
+            redisHBaseStats.setLocalCacheStatsList(localCacheStatsList);
 
             RedisHBaseMonitor.redisHBaseStats = redisHBaseStats;
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
     }
+
+    private static RedisHBaseStats.HistogramStats toHistogramStats(String name, SpendTimeHistogram.Snapshot snapshot) {
+        RedisHBaseStats.HistogramStats stats = new RedisHBaseStats.HistogramStats();
+        stats.setName(name);
+        stats.setCount(snapshot.getCount());
+        stats.setAvg(snapshot.getCount() == 0 ? 0.0 : snapshot.getTotal() * 1.0 / snapshot.getCount());
+        stats.setMax(snapshot.getMax());
+        long[] bounds = snapshot.getBucketBounds();
+        long[] counts = snapshot.getBucketCounts();
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (int i=0; i<bounds.length; i++) {
+            //最后一个分桶的上界是Long.MAX_VALUE，表示超过前一个上界
+            String bucket = i < bounds.length - 1 ? ("<=" + bounds[i]) : (">" + bounds[bounds.length - 2]);
+            distribution.put(bucket, counts[i]);
+        }
+        stats.setDistribution(distribution);
+        return stats;
+    }
 }
@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis.proxy.hbase.monitor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -15,6 +16,8 @@ public class RedisHBaseStats {
     private List<DegradedStats> degradedStatsList = new ArrayList<>();
     private List<ValueSizeStats> valueSizeStatsList = new ArrayList<>();
     private List<ZSetSizeStats> zSetSizeStatsList = new ArrayList<>();
+    private List<HistogramStats> histogramStatsList = new ArrayList<>();
+    private List<LocalCacheStats> localCacheStatsList = new ArrayList<>();
 
     public List<Stats> getStatsList() {
         return statsList;
@@ -64,6 +67,22 @@ public class RedisHBaseStats {
         this.zSetSizeStatsList = zSetSizeStatsList;
     }
 
+    public List<HistogramStats> getHistogramStatsList() {
+        return histogramStatsList;
+    }
+
+    public void setHistogramStatsList(List<HistogramStats> histogramStatsList) {
+        this.histogramStatsList = histogramStatsList;
+    }
+
+    public List<LocalCacheStats> getLocalCacheStatsList() {
+        return localCacheStatsList;
+    }
+
+    public void setLocalCacheStatsList(List<LocalCacheStats> localCacheStatsList) {
+        this.localCacheStatsList = localCacheStatsList;
+    }
+
     public static class Stats {
         private String method;
         private String desc;
@@ -252,4 +271,100 @@ public class RedisHBaseStats {
             this.count = count;
         }
     }
+
+    public static class HistogramStats {
+        private String name;
+        private long count;
+        private double avg;
+        private long max;
+        private Map<String, Long> distribution;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        public double getAvg() {
+            return avg;
+        }
+
+        public void setAvg(double avg) {
+            this.avg = avg;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public void setMax(long max) {
+            this.max = max;
+        }
+
+        public Map<String, Long> getDistribution() {
+            return distribution;
+        }
+
+        public void setDistribution(Map<String, Long> distribution) {
+            this.distribution = distribution;
+        }
+    }
+
+    public static class LocalCacheStats {
+        private String type;
+        private long hit;
+        private long miss;
+        private double hitPercent;
+        private long bytesSaved;
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public long getHit() {
+            return hit;
+        }
+
+        public void setHit(long hit) {
+            this.hit = hit;
+        }
+
+        public long getMiss() {
+            return miss;
+        }
+
+        public void setMiss(long miss) {
+            this.miss = miss;
+        }
+
+        public double getHitPercent() {
+            return hitPercent;
+        }
+
+        public void setHitPercent(double hitPercent) {
+            this.hitPercent = hitPercent;
+        }
+
+        public long getBytesSaved() {
+            return bytesSaved;
+        }
+
+        public void setBytesSaved(long bytesSaved) {
+            this.bytesSaved = bytesSaved;
+        }
+    }
 }
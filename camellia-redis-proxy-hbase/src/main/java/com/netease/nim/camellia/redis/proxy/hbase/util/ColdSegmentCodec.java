@@ -0,0 +1,140 @@
+package com.netease.nim.camellia.redis.proxy.hbase.util;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 冷集合（list/set）分段下沉到hbase时的编解码
+ * 1）集合按chunkSize个元素一段，每段是hbase中的一行，rowKey = md5(key) + 8字节segmentId + 4字节段序号，共28字节，不会和32字节的ref-key冲突
+ * 2）一段中的元素依次编码为：4字节长度 + 元素内容，元素本身可能是ref-key，原样保存
+ * 3）下沉后redis中的key替换为一个string类型的标记，标记 = 前缀 + 类型 + segmentId + 段数 + 元素个数
+ */
+public class ColdSegmentCodec {
+
+    public static final String TYPE_LIST = "list";
+    public static final String TYPE_SET = "set";
+
+    private static final byte[] MARKER_PREFIX = Bytes.toBytes("camellia_cold_segment|");
+    private static final int MARKER_LEN = MARKER_PREFIX.length + 1 + 8 + 4 + 4;
+    private static final byte LIST = 'l';
+    private static final byte SET = 's';
+
+    /**
+     * 生成新的分段信息，每次下沉都使用新的segmentId，避免和之前下沉过又回填的数据冲突
+     */
+    public static ColdSegment newSegment(String type, int size, int chunkSize) {
+        int chunkCount = (size + chunkSize - 1) / chunkSize;
+        return new ColdSegment(type, ThreadLocalRandom.current().nextLong(), chunkCount, size);
+    }
+
+    public static byte[] encodeMarker(ColdSegment segment) {
+        byte[] marker = new byte[MARKER_LEN];
+        int offset = 0;
+        System.arraycopy(MARKER_PREFIX, 0, marker, offset, MARKER_PREFIX.length);
+        offset += MARKER_PREFIX.length;
+        marker[offset] = segment.getType().equals(TYPE_LIST) ? LIST : SET;
+        offset += 1;
+        offset = Bytes.putLong(marker, offset, segment.getSegmentId());
+        offset = Bytes.putInt(marker, offset, segment.getChunkCount());
+        Bytes.putInt(marker, offset, segment.getSize());
+        return marker;
+    }
+
+    /**
+     * @return 不是下沉标记时返回null
+     */
+    public static ColdSegment decodeMarker(byte[] marker) {
+        if (marker == null || marker.length != MARKER_LEN) return null;
+        if (!Bytes.startsWith(marker, MARKER_PREFIX)) return null;
+        int offset = MARKER_PREFIX.length;
+        String type;
+        if (marker[offset] == LIST) {
+            type = TYPE_LIST;
+        } else if (marker[offset] == SET) {
+            type = TYPE_SET;
+        } else {
+            return null;
+        }
+        offset += 1;
+        long segmentId = Bytes.toLong(marker, offset);
+        offset += 8;
+        int chunkCount = Bytes.toInt(marker, offset);
+        offset += 4;
+        int size = Bytes.toInt(marker, offset);
+        return new ColdSegment(type, segmentId, chunkCount, size);
+    }
+
+    public static byte[] chunkRowKey(byte[] key, ColdSegment segment, int chunkIndex) {
+        byte[] rowKey = new byte[16 + 8 + 4];
+        System.arraycopy(RefKeyCodec.md5(key), 0, rowKey, 0, 16);
+        Bytes.putLong(rowKey, 16, segment.getSegmentId());
+        Bytes.putInt(rowKey, 24, chunkIndex);
+        return rowKey;
+    }
+
+    public static byte[] encodeChunk(List<byte[]> elements, int from, int to) {
+        int len = 0;
+        for (int i=from; i<to; i++) {
+            len += 4 + elements.get(i).length;
+        }
+        byte[] chunk = new byte[len];
+        int offset = 0;
+        for (int i=from; i<to; i++) {
+            byte[] element = elements.get(i);
+            offset = Bytes.putInt(chunk, offset, element.length);
+            offset = Bytes.putBytes(chunk, offset, element, 0, element.length);
+        }
+        return chunk;
+    }
+
+    public static void decodeChunk(byte[] chunk, List<byte[]> elements) {
+        int offset = 0;
+        while (offset < chunk.length) {
+            int len = Bytes.toInt(chunk, offset);
+            offset += 4;
+            elements.add(Bytes.copy(chunk, offset, len));
+            offset += len;
+        }
+    }
+
+    public static List<byte[]> chunkRowKeys(byte[] key, ColdSegment segment) {
+        List<byte[]> rowKeys = new ArrayList<>(segment.getChunkCount());
+        for (int i=0; i<segment.getChunkCount(); i++) {
+            rowKeys.add(chunkRowKey(key, segment, i));
+        }
+        return rowKeys;
+    }
+
+    public static class ColdSegment {
+        private final String type;
+        private final long segmentId;
+        private final int chunkCount;
+        private final int size;
+
+        public ColdSegment(String type, long segmentId, int chunkCount, int size) {
+            this.type = type;
+            this.segmentId = segmentId;
+            this.chunkCount = chunkCount;
+            this.size = size;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getSegmentId() {
+            return segmentId;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+}
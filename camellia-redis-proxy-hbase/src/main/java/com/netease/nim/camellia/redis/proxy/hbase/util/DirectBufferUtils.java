@@ -0,0 +1,59 @@
+package com.netease.nim.camellia.redis.proxy.hbase.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * 主动释放堆外内存（包括mmap的MappedByteBuffer），不依赖gc触发Cleaner
+ * 释放之后不能再访问该buffer，调用方需要确保没有其他线程在使用
+ */
+public class DirectBufferUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectBufferUtils.class);
+
+    private static final Object unsafe;
+    private static final Method invokeCleaner;
+
+    static {
+        Object theUnsafe = null;
+        Method method = null;
+        try {
+            //jdk9及以上
+            Class<?> clazz = Class.forName("sun.misc.Unsafe");
+            method = clazz.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = clazz.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            theUnsafe = field.get(null);
+        } catch (Exception e) {
+            theUnsafe = null;
+            method = null;
+        }
+        unsafe = theUnsafe;
+        invokeCleaner = method;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        try {
+            if (invokeCleaner != null) {
+                invokeCleaner.invoke(unsafe, buffer);
+                return;
+            }
+            //jdk8
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (Exception e) {
+            logger.warn("release direct buffer error, wait for gc", e);
+        }
+    }
+}
@@ -1,59 +1,122 @@
 package com.netease.nim.camellia.redis.proxy.hbase.util;
 
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
-import com.netease.nim.camellia.redis.proxy.util.TimeCache;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.util.BytesKey;
+import io.netty.util.concurrent.FastThreadLocalThread;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- *
+ * hbase读操作的单机频控
+ * 1）全局令牌桶，令牌平滑补充，避免固定窗口在窗口边界的突刺，以及超过阈值后整个窗口内全部降级
+ * 2）单个key有独立的令牌桶，单个key的读取超过自己的配额时只降级这个key，避免一个热点key耗尽全局配额
+ * 3）全局令牌不足时允许少量请求短暂等待，等待的请求数或者等待时间超过上限才降级
+ *   在netty的io线程上执行时（command.execute.async.enable=false）不等待，避免阻塞同一个event loop上的所有连接
+ * 4）先获取单key的令牌，全局频控不通过时归还，被降级的请求不消耗单key的配额
  * Created by caojiajun on 2021/1/26
  */
 public class FreqUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(FreqUtils.class);
 
-    private static final Counter counterOfRead = new Counter();
+    private static final TokenBucket globalBucket = new TokenBucket();
+    private static final AtomicInteger waiters = new AtomicInteger();
+    private static final ConcurrentLinkedHashMap<BytesKey, TokenBucket> keyBucketMap = new ConcurrentLinkedHashMap.Builder<BytesKey, TokenBucket>()
+            .initialCapacity(RedisHBaseConfiguration.hbaseReadFreqKeyCapacity())
+            .maximumWeightedCapacity(RedisHBaseConfiguration.hbaseReadFreqKeyCapacity())
+            .build();
 
-    public static boolean hbaseReadFreq() {
+    public static boolean hbaseReadFreq(byte[] key) {
+        return hbaseReadFreq(key, 1);
+    }
+
+    /**
+     * hbase读操作的频控检查
+     * @param key 原始key，用于单key的频控，为null则只检查全局频控
+     * @param permits 本次读取的行数
+     * @return true表示通过，false表示需要降级
+     */
+    public static boolean hbaseReadFreq(byte[] key, int permits) {
         try {
             if (!RedisHBaseConfiguration.hbaseReadFreqEnable()) {
                 return true;
             }
-            counterOfRead.freshIfNeed(RedisHBaseConfiguration.hbaseReadFreqCheckMillis());
-            long current = counterOfRead.incrementAndGet();
-            return current <= RedisHBaseConfiguration.hbaseReadFreqCheckThreshold();
+            TokenBucket keyBucket = null;
+            long keyRate = 0;
+            long keyBurst = 0;
+            if (key != null && RedisHBaseConfiguration.hbaseReadFreqKeyEnable()) {
+                keyBucket = keyBucket(key);
+                keyRate = RedisHBaseConfiguration.hbaseReadFreqKeyRate();
+                keyBurst = RedisHBaseConfiguration.hbaseReadFreqKeyBurst();
+                if (keyBucket.acquire(keyRate, keyBurst, permits, 0) < 0) {
+                    RedisHBaseMonitor.incrDegraded("hbase_read_freq_key_limit");
+                    return false;
+                }
+            }
+            double rate = RedisHBaseConfiguration.hbaseReadFreqCheckThreshold() * 1000.0 / RedisHBaseConfiguration.hbaseReadFreqCheckMillis();
+            long burst = RedisHBaseConfiguration.hbaseReadFreqBurst();
+            //先占用等待名额再去获取令牌，避免并发时等待的请求数超过上限
+            boolean waiter = !isEventLoopThread() && tryAddWaiter(RedisHBaseConfiguration.hbaseReadFreqMaxWaiters());
+            try {
+                long maxWaitNanos = 0;
+                if (waiter) {
+                    maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(RedisHBaseConfiguration.hbaseReadFreqMaxWaitMillis());
+                }
+                long waitNanos = globalBucket.acquire(rate, burst, permits, maxWaitNanos);
+                if (waitNanos < 0) {
+                    if (keyBucket != null) {
+                        keyBucket.release(keyRate, keyBurst, permits);
+                    }
+                    return false;
+                }
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                return true;
+            } finally {
+                if (waiter) {
+                    waiters.decrementAndGet();
+                }
+            }
         } catch (Exception e) {
             logger.error("freq error", e);
             return true;
         }
     }
 
-    private static class Counter {
-        private volatile long lastTimestamp = TimeCache.currentMillis;
-        private final AtomicLong count = new AtomicLong();
-        private final AtomicBoolean lock = new AtomicBoolean(false);
-
-        public void freshIfNeed(long expireMillis) {
-            if (TimeCache.currentMillis - lastTimestamp >= expireMillis) {
-                if (lock.compareAndSet(false, true)) {
-                    try {
-                        if (TimeCache.currentMillis - lastTimestamp >= expireMillis) {
-                            count.set(0);
-                            lastTimestamp = TimeCache.currentMillis;
-                        }
-                    } finally {
-                        lock.compareAndSet(true, false);
-                    }
-                }
+    private static boolean tryAddWaiter(int maxWaiters) {
+        while (true) {
+            int current = waiters.get();
+            if (current >= maxWaiters) {
+                return false;
+            }
+            if (waiters.compareAndSet(current, current + 1)) {
+                return true;
             }
         }
+    }
+
+    //netty的io线程都是FastThreadLocalThread，命令的执行线程池等使用的是CamelliaThreadFactory
+    private static boolean isEventLoopThread() {
+        return Thread.currentThread() instanceof FastThreadLocalThread;
+    }
 
-        public long incrementAndGet() {
-            return count.incrementAndGet();
+    private static TokenBucket keyBucket(byte[] key) {
+        BytesKey bytesKey = new BytesKey(key);
+        TokenBucket bucket = keyBucketMap.get(bytesKey);
+        if (bucket == null) {
+            bucket = new TokenBucket();
+            TokenBucket old = keyBucketMap.putIfAbsent(bytesKey, bucket);
+            if (old != null) {
+                bucket = old;
+            }
         }
+        return bucket;
     }
 }
@@ -1,12 +1,15 @@
 package com.netease.nim.camellia.redis.proxy.hbase.util;
 
-import com.netease.nim.camellia.core.util.MD5Util;
 import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
 import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
 import com.netease.nim.camellia.redis.proxy.hbase.HBaseAsyncWriteExecutor;
+import com.netease.nim.camellia.redis.proxy.hbase.HBaseReadBatcher;
+import com.netease.nim.camellia.redis.proxy.hbase.RefKeyValueCache;
 import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
@@ -15,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -53,11 +57,9 @@ public class RedisHBaseUtils {
         return ret;
     }
 
-    //32字节
+    //32字节，同一个key需要多次编解码时使用RefKeyCodec
     public static byte[] buildRefKey(byte[] key, byte[] value) {
-        byte[] part1 = MD5Util.md5(key);
-        byte[] part2 = MD5Util.md5(value);
-        return Bytes.add(part1, part2);
+        return new RefKeyCodec(key).buildRefKey(value);
     }
 
     public static String hbaseTableName() {
@@ -65,15 +67,7 @@ public class RedisHBaseUtils {
     }
 
     public static boolean isRefKey(byte[] key, byte[] value) {
-        if (value.length != 32) return false;
-        byte[] part1 = MD5Util.md5(key);
-        if (value.length < part1.length) return false;
-        for (int i=0; i<part1.length; i++) {
-            if (part1[i] != value[i]) {
-                return false;
-            }
-        }
-        return true;
+        return new RefKeyCodec(key).isRefKey(value);
     }
 
     public static byte[] parseOriginalValue(Result result) {
@@ -113,19 +107,55 @@ public class RedisHBaseUtils {
         return RedisHBaseConfiguration.hashMemberRefKeyExpireSeconds();
     }
 
-    public static byte[] hbaseGet(CamelliaHBaseTemplate hBaseTemplate, CamelliaRedisTemplate redisTemplate,
-                             byte[] refKey, int expireSeconds) {
+    public static final int LIST_REF_KEY_THRESHOLD_MIN = 32;//阈值最小值是32
+    public static int listRefKeyThreshold() {
+        int threshold = RedisHBaseConfiguration.listElementRefKeyThreshold();
+        return Math.max(threshold, LIST_REF_KEY_THRESHOLD_MIN);
+    }
+
+    public static int listRefKeyExpireSeconds() {
+        return RedisHBaseConfiguration.listElementRefKeyExpireSeconds();
+    }
+
+    public static final int SET_MEMBER_REF_KEY_THRESHOLD_MIN = 32;//阈值最小值是32
+    public static int setMemberRefKeyThreshold() {
+        int threshold = RedisHBaseConfiguration.setMemberRefKeyThreshold();
+        return Math.max(threshold, SET_MEMBER_REF_KEY_THRESHOLD_MIN);
+    }
+
+    public static int setMemberRefKeyExpireSeconds() {
+        return RedisHBaseConfiguration.setMemberRefKeyExpireSeconds();
+    }
+
+    //各类型ref-key在redis中的基础缓存时间
+    public static int refKeyExpireSeconds(String type) {
+        switch (type) {
+            case "zset":
+                return zsetMemberRefKeyExpireSeconds();
+            case "hash":
+                return hashRefKeyExpireSeconds();
+            case "list":
+                return listRefKeyExpireSeconds();
+            case "set":
+                return setMemberRefKeyExpireSeconds();
+            default:
+                return stringRefKeyExpireSeconds(null);
+        }
+    }
+
+    public static byte[] hbaseGet(HBaseReadBatcher hBaseReadBatcher, CamelliaRedisTemplate redisTemplate,
+                                  byte[] key, byte[] refKey, int expireSeconds) {
         byte[] hbaseValue = null;
         if (RedisHBaseConfiguration.hbaseReadDegraded()) {
             logger.warn("get from hbase degraded, key = {}", Bytes.toHex(refKey));
             RedisHBaseMonitor.incrDegraded("hbase_read_degraded");
         } else {
-            if (FreqUtils.hbaseReadFreq()) {
+            if (FreqUtils.hbaseReadFreq(key)) {
                 Get get = new Get(refKey);
-                Result result = hBaseTemplate.get(hbaseTableName(), get);
+                Result result = hBaseReadBatcher.get(get);
                 hbaseValue = result.getValue(CF_D, COL_DATA);
                 if (hbaseValue != null) {
-                    redisTemplate.setex(redisKey(refKey), expireSeconds, hbaseValue);
+                    redisTemplate.setex(redisKey(refKey), RefKeyAccessTracker.expireSeconds(refKey, expireSeconds), hbaseValue);
                 }
             } else {
                 RedisHBaseMonitor.incrDegraded("hbase_read_freq_degraded");
@@ -140,22 +170,79 @@ public class RedisHBaseUtils {
         Put put = new Put(refKey);
         put.addColumn(CF_D, COL_DATA, value);
         putList.add(put);
-        if (RedisHBaseConfiguration.hbaseAsyncWriteEnable()) {
-            HBaseAsyncWriteExecutor.HBaseAsyncWriteTask writeTask = new HBaseAsyncWriteExecutor.HBaseAsyncWriteTask();
-            writeTask.setKey(key);
-            writeTask.setPuts(putList);
-            boolean success = hBaseAsyncWriteExecutor.submit(writeTask);
-            if (!success) {
-                if (RedisHBaseConfiguration.hbaseDegradedIfAsyncWriteSubmitFail()) {
-                    logger.error("hBaseAsyncWriteExecutor submit fail for {}, degraded hbase write, key = {}", method, Utils.bytesToString(key));
-                    RedisHBaseMonitor.incrDegraded(method + "|async_write_submit_fail");
-                } else {
-                    logger.warn("hBaseAsyncWriteExecutor submit fail, write sync for {}, key = {}", method, Utils.bytesToString(key));
-                    hBaseTemplate.put(hbaseTableName(), putList);
+        flushHBasePuts(hBaseAsyncWriteExecutor, hBaseTemplate, key, putList, method);
+    }
+
+    public static void flushHBasePuts(HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, CamelliaHBaseTemplate hBaseTemplate,
+                                      byte[] key, List<Put> putList, String method) {
+        if (putList.isEmpty()) return;
+        for (List<Put> puts : split(putList, RedisHBaseConfiguration.hbaseMaxBatch())) {
+            if (RedisHBaseConfiguration.hbaseAsyncWriteEnable()) {
+                HBaseAsyncWriteExecutor.HBaseAsyncWriteTask writeTask = new HBaseAsyncWriteExecutor.HBaseAsyncWriteTask();
+                writeTask.setKey(key);
+                writeTask.setPuts(puts);
+                boolean success = hBaseAsyncWriteExecutor.submit(writeTask);
+                if (!success) {
+                    if (RedisHBaseConfiguration.hbaseDegradedIfAsyncWriteSubmitFail()) {
+                        logger.error("hBaseAsyncWriteExecutor submit fail for {}, degraded hbase write, key = {}", method, Utils.bytesToString(key));
+                        RedisHBaseMonitor.incrDegraded(method + "|async_write_submit_fail");
+                    } else {
+                        logger.warn("hBaseAsyncWriteExecutor submit fail, write sync for {}, key = {}", method, Utils.bytesToString(key));
+                        hBaseTemplate.put(hbaseTableName(), puts);
+                    }
                 }
+            } else {
+                hBaseTemplate.put(hbaseTableName(), puts);
+            }
+        }
+    }
+
+    /**
+     * 删除ref-key：redis中的缓存、本地缓存、hbase中的数据
+     */
+    public static void deleteRefKeys(CamelliaRedisTemplate redisTemplate, RefKeyValueCache refKeyValueCache,
+                                     HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, CamelliaHBaseTemplate hBaseTemplate,
+                                     byte[] key, Collection<byte[]> refKeys, String method) {
+        if (refKeys.isEmpty()) return;
+        List<Delete> deleteList = new ArrayList<>();
+        try (ICamelliaRedisPipeline pipeline = redisTemplate.pipelined()) {
+            int pipelineCount = 0;
+            for (byte[] refKey : refKeys) {
+                deleteList.add(new Delete(refKey));
+                pipeline.del(redisKey(refKey));
+                refKeyValueCache.invalidate(refKey);
+                pipelineCount ++;
+                if (pipelineCount >= RedisHBaseConfiguration.redisMaxPipeline()) {
+                    pipeline.sync();
+                    pipelineCount = 0;
+                }
+            }
+            pipeline.sync();
+        }
+        flushHBaseDeletes(hBaseAsyncWriteExecutor, hBaseTemplate, key, deleteList, method);
+    }
+
+    public static void flushHBaseDeletes(HBaseAsyncWriteExecutor hBaseAsyncWriteExecutor, CamelliaHBaseTemplate hBaseTemplate,
+                                         byte[] key, List<Delete> deleteList, String method) {
+        if (deleteList.isEmpty()) return;
+        for (List<Delete> deletes : split(deleteList, RedisHBaseConfiguration.hbaseMaxBatch())) {
+            if (RedisHBaseConfiguration.hbaseAsyncWriteEnable()) {
+                HBaseAsyncWriteExecutor.HBaseAsyncWriteTask writeTask = new HBaseAsyncWriteExecutor.HBaseAsyncWriteTask();
+                writeTask.setKey(key);
+                writeTask.setDeletes(deletes);
+                boolean success = hBaseAsyncWriteExecutor.submit(writeTask);
+                if (!success) {
+                    if (RedisHBaseConfiguration.hbaseDegradedIfAsyncWriteSubmitFail()) {
+                        logger.error("hBaseAsyncWriteExecutor submit fail for {}, degraded hbase write, key = {}", method, Utils.bytesToString(key));
+                        RedisHBaseMonitor.incrDegraded(method + "|async_write_submit_fail");
+                    } else {
+                        logger.warn("hBaseAsyncWriteExecutor submit fail, write sync for {}, key = {}", method, Utils.bytesToString(key));
+                        hBaseTemplate.delete(hbaseTableName(), deletes);
+                    }
+                }
+            } else {
+                hBaseTemplate.delete(hbaseTableName(), deletes);
             }
-        } else {
-            hBaseTemplate.put(hbaseTableName(), putList);
         }
     }
 }
@@ -0,0 +1,139 @@
+package com.netease.nim.camellia.redis.proxy.hbase.util;
+
+import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ref-key的访问频率统计，用于按实际访问频率调整ref-key在redis中的缓存时间
+ * 1）采样统计，每ref.key.access.track.sample.rate次访问记录一次，降低读路径上的开销
+ * 2）使用count-min sketch计数，内存占用固定，和ref-key的个数无关；ref-key本身就是md5，直接取其中的字节作为hash
+ * 3）记录次数达到sketch宽度的10倍时所有计数减半，长期不访问的ref-key会重新变冷
+ * 4）计数刚好达到热点阈值的ref-key会放入队列，由RedisHBaseColdDataManager异步延长其在redis中的缓存时间
+ */
+public class RefKeyAccessTracker {
+
+    private static final int DEPTH = 4;
+
+    private static final int width = tableSizeFor(RedisHBaseConfiguration.refKeyAccessTrackSketchWidth());
+    private static final AtomicIntegerArray table = new AtomicIntegerArray(DEPTH * width);
+    private static final AtomicLong samples = new AtomicLong();
+    private static final long resetSamples = width * 10L;
+    private static final LinkedBlockingQueue<HotRefKey> hotQueue = new LinkedBlockingQueue<>(RedisHBaseConfiguration.refKeyAccessHotQueueSize());
+
+    /**
+     * 记录一次访问
+     * @param type 类型，决定ref-key在redis中的基础缓存时间
+     * @param refKey ref-key
+     */
+    public static void record(String type, byte[] refKey) {
+        if (!RedisHBaseConfiguration.refKeyAccessTrackEnable()) return;
+        if (refKey == null || refKey.length != RefKeyCodec.REF_KEY_LEN) return;
+        int sampleRate = RedisHBaseConfiguration.refKeyAccessTrackSampleRate();
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) return;
+        int min = Integer.MAX_VALUE;
+        for (int i=0; i<DEPTH; i++) {
+            min = Math.min(min, table.incrementAndGet(index(refKey, i)));
+        }
+        if (min == RedisHBaseConfiguration.refKeyAccessHotThreshold()) {
+            hotQueue.offer(new HotRefKey(type, refKey));
+        }
+        if (samples.incrementAndGet() >= resetSamples) {
+            reset();
+        }
+    }
+
+    /**
+     * 采样后的访问次数估计值（只会偏大）
+     */
+    public static int frequency(byte[] refKey) {
+        if (refKey == null || refKey.length != RefKeyCodec.REF_KEY_LEN) return 0;
+        int min = Integer.MAX_VALUE;
+        for (int i=0; i<DEPTH; i++) {
+            min = Math.min(min, table.get(index(refKey, i)));
+        }
+        return min;
+    }
+
+    /**
+     * 从hbase回填redis时使用的缓存时间，热点的延长，没有采样到访问的缩短
+     * @param refKey ref-key
+     * @param baseExpireSeconds 对应类型的基础缓存时间
+     */
+    public static int expireSeconds(byte[] refKey, int baseExpireSeconds) {
+        if (!RedisHBaseConfiguration.refKeyAccessTrackEnable()) return baseExpireSeconds;
+        int frequency = frequency(refKey);
+        if (frequency >= RedisHBaseConfiguration.refKeyAccessHotThreshold()) {
+            return hotExpireSeconds(baseExpireSeconds);
+        }
+        if (frequency == 0) {
+            return coldExpireSeconds(baseExpireSeconds);
+        }
+        return baseExpireSeconds;
+    }
+
+    public static int hotExpireSeconds(int baseExpireSeconds) {
+        long seconds = (long) baseExpireSeconds * Math.max(RedisHBaseConfiguration.refKeyAccessHotExpireMultiple(), 1);
+        return (int) Math.min(seconds, Integer.MAX_VALUE);
+    }
+
+    public static int coldExpireSeconds(int baseExpireSeconds) {
+        int seconds = baseExpireSeconds / Math.max(RedisHBaseConfiguration.refKeyAccessColdExpireDivisor(), 1);
+        //最少缓存60s，避免刚回填就过期
+        return Math.max(seconds, Math.min(baseExpireSeconds, 60));
+    }
+
+    /**
+     * 取出新晋的热点ref-key
+     */
+    public static List<HotRefKey> pollHotRefKeys(int max) {
+        List<HotRefKey> list = new ArrayList<>();
+        hotQueue.drainTo(list, max);
+        return list;
+    }
+
+    private static void reset() {
+        synchronized (RefKeyAccessTracker.class) {
+            if (samples.get() < resetSamples) return;
+            for (int i=0; i<table.length(); i++) {
+                table.set(i, table.get(i) >>> 1);
+            }
+            samples.set(0);
+        }
+    }
+
+    //ref-key = md5(key) + md5(value)，两段各取4字节异或，分布足够均匀
+    private static int index(byte[] refKey, int depth) {
+        int hash = Bytes.toInt(refKey, depth * 4) ^ Bytes.toInt(refKey, 16 + depth * 4);
+        return depth * width + (hash & (width - 1));
+    }
+
+    private static int tableSizeFor(int size) {
+        int n = Integer.highestOneBit(Math.max(size, 1024) - 1) << 1;
+        return Math.min(n, 1 << 24);
+    }
+
+    public static class HotRefKey {
+        private final String type;
+        private final byte[] refKey;
+
+        HotRefKey(String type, byte[] refKey) {
+            this.type = type;
+            this.refKey = refKey;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public byte[] getRefKey() {
+            return refKey;
+        }
+    }
+}
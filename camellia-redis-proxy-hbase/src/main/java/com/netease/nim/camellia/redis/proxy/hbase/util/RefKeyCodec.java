@@ -0,0 +1,89 @@
+package com.netease.nim.camellia.redis.proxy.hbase.util;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ref-key的编解码，ref-key = md5(key) + md5(value)，共32字节
+ * 同一个命令内对同一个key的多个value做编解码时（如hgetAll/zrange/hmset），key的md5只计算一次，且只有遇到长度为32的value时才计算
+ * list中同一个value可能出现多次，使用每次写入都不同的ref-key（见buildUniqueRefKey），长度同样是32字节
+ */
+public class RefKeyCodec {
+
+    public static final int REF_KEY_LEN = 32;
+    private static final int DIGEST_LEN = 16;
+    //unique ref-key中value的md5只保留前8字节，后8字节为随机数
+    public static final int UNIQUE_REF_KEY_PREFIX_LEN = 24;
+
+    private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final byte[] key;
+    private byte[] keyDigest;
+
+    public RefKeyCodec(byte[] key) {
+        this.key = key;
+    }
+
+    public byte[] buildRefKey(byte[] value) {
+        byte[] refKey = new byte[REF_KEY_LEN];
+        System.arraycopy(keyDigest(), 0, refKey, 0, DIGEST_LEN);
+        System.arraycopy(md5(value), 0, refKey, DIGEST_LEN, DIGEST_LEN);
+        return refKey;
+    }
+
+    /**
+     * 每次调用都生成不同的ref-key，ref-key = md5(key) + md5(value)的前8字节 + 8字节随机数
+     * 同一个value的多个ref-key有相同的前缀（见uniqueRefKeyPrefix），可以按value查找
+     */
+    public byte[] buildUniqueRefKey(byte[] value) {
+        byte[] refKey = new byte[REF_KEY_LEN];
+        System.arraycopy(keyDigest(), 0, refKey, 0, DIGEST_LEN);
+        System.arraycopy(md5(value), 0, refKey, DIGEST_LEN, UNIQUE_REF_KEY_PREFIX_LEN - DIGEST_LEN);
+        long random = ThreadLocalRandom.current().nextLong();
+        for (int i=UNIQUE_REF_KEY_PREFIX_LEN; i<REF_KEY_LEN; i++) {
+            refKey[i] = (byte) random;
+            random >>>= 8;
+        }
+        return refKey;
+    }
+
+    public byte[] uniqueRefKeyPrefix(byte[] value) {
+        byte[] prefix = new byte[UNIQUE_REF_KEY_PREFIX_LEN];
+        System.arraycopy(keyDigest(), 0, prefix, 0, DIGEST_LEN);
+        System.arraycopy(md5(value), 0, prefix, DIGEST_LEN, UNIQUE_REF_KEY_PREFIX_LEN - DIGEST_LEN);
+        return prefix;
+    }
+
+    //同一个key的所有ref-key的公共前缀，即md5(key)
+    public byte[] refKeyPrefix() {
+        return keyDigest();
+    }
+
+    public boolean isRefKey(byte[] value) {
+        //长度不是32的一定不是ref-key，不需要计算md5
+        if (value == null || value.length != REF_KEY_LEN) return false;
+        return Bytes.equals(keyDigest(), 0, DIGEST_LEN, value, 0, DIGEST_LEN);
+    }
+
+    private byte[] keyDigest() {
+        if (keyDigest == null) {
+            keyDigest = md5(key);
+        }
+        return keyDigest;
+    }
+
+    public static byte[] md5(byte[] data) {
+        MessageDigest messageDigest = md5.get();
+        messageDigest.reset();
+        return messageDigest.digest(data);
+    }
+}
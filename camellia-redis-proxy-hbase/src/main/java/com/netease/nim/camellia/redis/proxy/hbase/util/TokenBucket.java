@@ -0,0 +1,58 @@
+package com.netease.nim.camellia.redis.proxy.hbase.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的令牌桶，令牌按速率平滑补充（GCRA算法，只需要CAS一个时间戳）
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    //理论上下一个令牌的到达时间
+    private final AtomicLong tat = new AtomicLong(System.nanoTime());
+
+    /**
+     * 获取令牌
+     * @param rate 每秒补充的令牌数
+     * @param burst 桶的容量，空闲时最多可以一次性获取的令牌数
+     * @param permits 本次需要的令牌数，超过burst的按burst计算
+     * @param maxWaitNanos 令牌不足时允许等待的最大时长
+     * @return 需要等待的纳秒数（0表示立即获取成功），-1表示等待时长超过maxWaitNanos，获取失败（不消耗令牌）
+     */
+    public long acquire(double rate, long burst, int permits, long maxWaitNanos) {
+        if (rate <= 0) return -1;
+        burst = Math.max(burst, 1);
+        long interval = Math.max((long) (NANOS_PER_SECOND / rate), 1L);
+        long tolerance = interval * burst;
+        long cost = interval * Math.min(Math.max(permits, 1), burst);
+        while (true) {
+            long now = System.nanoTime();
+            long old = tat.get();
+            long newTat = Math.max(old, now) + cost;
+            long wait = newTat - tolerance - now;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (tat.compareAndSet(old, newTat)) {
+                return Math.max(wait, 0);
+            }
+        }
+    }
+
+    /**
+     * 归还令牌，用于获取成功之后又因为其他原因放弃的请求，参数需要和acquire时一致
+     */
+    public void release(double rate, long burst, int permits) {
+        if (rate <= 0) return;
+        burst = Math.max(burst, 1);
+        long interval = Math.max((long) (NANOS_PER_SECOND / rate), 1L);
+        long cost = interval * Math.min(Math.max(permits, 1), burst);
+        while (true) {
+            long old = tat.get();
+            if (tat.compareAndSet(old, old - cost)) {
+                return;
+            }
+        }
+    }
+}
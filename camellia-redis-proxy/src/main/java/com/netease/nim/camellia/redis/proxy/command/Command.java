@@ -21,6 +21,7 @@ public class Command {
     private List<byte[]> keys = null;
     private String keysStr = null;
     private CommandContext commandContext;
+    private long decodeNanoTime;
 
     public Command(byte[][] objects) {
         this.objects = objects;
@@ -112,6 +113,14 @@ public class Command {
         this.channelInfo = channelInfo;
     }
 
+    public long getDecodeNanoTime() {
+        return decodeNanoTime;
+    }
+
+    public void setDecodeNanoTime(long decodeNanoTime) {
+        this.decodeNanoTime = decodeNanoTime;
+    }
+
     public void fillParameters(Class<?>[] parameterTypes, Object[] parameters) {
         int position = 0;
         for (Class<?> type : parameterTypes) {
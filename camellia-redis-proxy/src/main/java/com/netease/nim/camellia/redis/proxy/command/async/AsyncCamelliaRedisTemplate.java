@@ -1,6 +1,7 @@
 package com.netease.nim.camellia.redis.proxy.command.async;
 
 import com.netease.nim.camellia.core.api.*;
+import com.netease.nim.camellia.core.client.env.CounterMonitor;
 import com.netease.nim.camellia.core.client.env.Monitor;
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
 import com.netease.nim.camellia.core.model.Resource;
@@ -8,6 +9,7 @@ import com.netease.nim.camellia.core.model.ResourceTable;
 import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
 import com.netease.nim.camellia.core.util.ReadableResourceTableUtil;
 import com.netease.nim.camellia.core.util.ResourceChooser;
+import com.netease.nim.camellia.core.util.StripedCounter;
 import com.netease.nim.camellia.redis.exception.CamelliaRedisException;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.command.async.route.ProxyRouteConfUpdater;
@@ -26,10 +28,12 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  *
@@ -90,12 +94,22 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
 
     public AsyncCamelliaRedisTemplate(AsyncCamelliaRedisEnv env, CamelliaApi service, long bid, String bgroup,
                                         boolean monitorEnable, long checkIntervalMillis, boolean reload) {
+        this(env, service, bid, bgroup, monitorEnable, checkIntervalMillis, reload, null, null);
+    }
+
+    /**
+     * @param initResponse 预先拉取好的资源表（如批量预加载），为null则在构造时拉取
+     * @param reloadRegister 不为null时，资源表的更新交给外部驱动（如长轮询或者批量拉取），不再单独定时拉取
+     */
+    public AsyncCamelliaRedisTemplate(AsyncCamelliaRedisEnv env, CamelliaApi service, long bid, String bgroup,
+                                      boolean monitorEnable, long checkIntervalMillis, boolean reload,
+                                      CamelliaApiResponse initResponse, Consumer<ResourceTableListener> reloadRegister) {
         this.env = env;
         this.bid = bid;
         this.bgroup = bgroup;
         this.factory = env.getClientFactory();
         this.multiWriteMode = env.getMultiWriteMode();
-        CamelliaApiResponse response = service.getResourceTable(bid, bgroup, null);
+        CamelliaApiResponse response = initResponse != null ? initResponse : service.getResourceTable(bid, bgroup, null);
         String md5 = response.getMd5();
         if (response.getResourceTable() == null) {
             throw new CamelliaRedisException("resourceTable is null");
@@ -108,7 +122,11 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
         }
         if (reload) {
             ReloadTask reloadTask = new ReloadTask(this, service, bid, bgroup, md5);
-            scheduleExecutor.scheduleAtFixedRate(reloadTask, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+            if (reloadRegister != null) {
+                reloadRegister.accept(reloadTask);
+            } else {
+                scheduleExecutor.scheduleAtFixedRate(reloadTask, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+            }
             if (monitorEnable) {
                 Monitor monitor = new FastRemoteMonitor(bid, bgroup, service);
                 ProxyEnv proxyEnv = new ProxyEnv.Builder(env.getProxyEnv()).monitor(monitor).build();
@@ -1047,7 +1065,7 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
         }
     }
 
-    private static class ReloadTask implements Runnable {
+    private static class ReloadTask implements Runnable, ResourceTableListener {
 
         private final AtomicBoolean running = new AtomicBoolean(false);
 
@@ -1055,7 +1073,7 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
         private final CamelliaApi service;
         private final long bid;
         private final String bgroup;
-        private String md5;
+        private volatile String md5;
 
         ReloadTask(AsyncCamelliaRedisTemplate template, CamelliaApi service, long bid, String bgroup, String md5) {
             this.template = template;
@@ -1065,30 +1083,32 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
             this.md5 = md5;
         }
 
+        @Override
+        public long getBid() {
+            return bid;
+        }
+
+        @Override
+        public String getBgroup() {
+            return bgroup;
+        }
+
+        @Override
+        public String getMd5() {
+            return md5;
+        }
+
+        @Override
+        public void reload() {
+            run();
+        }
+
         @Override
         public void run() {
             if (running.compareAndSet(false, true)) {
                 try {
                     CamelliaApiResponse response = service.getResourceTable(bid, bgroup, md5);
-                    if (response.getCode() == CamelliaApiCode.NOT_MODIFY.getCode()) {
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("not modify, bid = {}, bgroup = {}, md5 = {}", bid, bgroup, md5);
-                        }
-                        return;
-                    }
-                    try {
-                        RedisResourceUtil.checkResourceTable(response.getResourceTable());
-                    } catch (Exception e) {
-                        logger.error("resourceTable check error, skip reload, bid = {}, bgroup = {}, resourceTable = {}",
-                                bid, bgroup, ReadableResourceTableUtil.readableResourceTable(PasswordMaskUtils.maskResourceTable(response.getResourceTable())), e);
-                        return;
-                    }
-                    template.init(response.getResourceTable());
-                    this.md5 = response.getMd5();
-                    if (logger.isInfoEnabled()) {
-                        logger.info("reload success, bid = {}, bgroup = {}, md5 = {}, resourceTable = {}", bid, bgroup, md5,
-                                ReadableResourceTableUtil.readableResourceTable(PasswordMaskUtils.maskResourceTable(response.getResourceTable())));
-                    }
+                    update0(response);
                 } catch (Exception e) {
                     Throwable ex = ErrorHandlerUtil.handler(e);
                     String log = "reload error, bid = " + bid + ", bgroup = " + bgroup + ", md5 = " + md5 + ", ex = " + ex.toString();
@@ -1100,6 +1120,45 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
                 logger.warn("ReloadTask is running, skip run, bid = {}, bgroup = {}, md5 = {}", bid, bgroup, md5);
             }
         }
+
+        @Override
+        public void update(CamelliaApiResponse response) {
+            if (running.compareAndSet(false, true)) {
+                try {
+                    update0(response);
+                } catch (Exception e) {
+                    Throwable ex = ErrorHandlerUtil.handler(e);
+                    String log = "update error, bid = " + bid + ", bgroup = " + bgroup + ", md5 = " + md5 + ", ex = " + ex.toString();
+                    ErrorLogCollector.collect(AsyncCamelliaRedisTemplate.class, log, e);
+                } finally {
+                    running.set(false);
+                }
+            } else {
+                logger.warn("ReloadTask is running, skip update, bid = {}, bgroup = {}, md5 = {}", bid, bgroup, md5);
+            }
+        }
+
+        private void update0(CamelliaApiResponse response) {
+            if (response.getCode() == CamelliaApiCode.NOT_MODIFY.getCode()) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace("not modify, bid = {}, bgroup = {}, md5 = {}", bid, bgroup, md5);
+                }
+                return;
+            }
+            try {
+                RedisResourceUtil.checkResourceTable(response.getResourceTable());
+            } catch (Exception e) {
+                logger.error("resourceTable check error, skip reload, bid = {}, bgroup = {}, resourceTable = {}",
+                        bid, bgroup, ReadableResourceTableUtil.readableResourceTable(PasswordMaskUtils.maskResourceTable(response.getResourceTable())), e);
+                return;
+            }
+            template.init(response.getResourceTable());
+            this.md5 = response.getMd5();
+            if (logger.isInfoEnabled()) {
+                logger.info("reload success, bid = {}, bgroup = {}, md5 = {}, resourceTable = {}", bid, bgroup, md5,
+                        ReadableResourceTableUtil.readableResourceTable(PasswordMaskUtils.maskResourceTable(response.getResourceTable())));
+            }
+        }
     }
 
     private Resource getReadResource(byte[] key) {
@@ -1121,9 +1180,39 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
     }
 
     private static final String className = AsyncCamelliaRedisTemplate.class.getSimpleName();
+    private static final int redisCommandCount = RedisCommand.values().length;
+
+    //CounterMonitor的计数器，按url缓存，数组下标为RedisCommand的ordinal，第一次使用时从monitor获取，之后直接计数
+    private final ConcurrentHashMap<String, StripedCounter[]> readCounterCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StripedCounter[]> writeCounterCache = new ConcurrentHashMap<>();
+
+    private void incrMonitor(String url, Command command, boolean write) {
+        RedisCommand redisCommand = command.getRedisCommand();
+        if (redisCommand == null || !(monitor instanceof CounterMonitor)) {
+            if (write) {
+                monitor.incrWrite(url, className, command.getName());
+            } else {
+                monitor.incrRead(url, className, command.getName());
+            }
+            return;
+        }
+        StripedCounter[] counters = CamelliaMapUtils.computeIfAbsent(write ? writeCounterCache : readCounterCache,
+                url, k -> new StripedCounter[redisCommandCount]);
+        int index = redisCommand.ordinal();
+        StripedCounter counter = counters[index];
+        if (counter == null) {
+            //并发时获取到的是monitor中的同一个计数器，重复赋值也没有关系
+            CounterMonitor counterMonitor = (CounterMonitor) monitor;
+            counter = write ? counterMonitor.writeCounter(url, className, command.getName())
+                    : counterMonitor.readCounter(url, className, command.getName());
+            counters[index] = counter;
+        }
+        counter.increment();
+    }
+
     private void incrRead(String url, Command command) {
         if (monitor != null) {
-            monitor.incrRead(url, className, command.getName());
+            incrMonitor(url, command, false);
         }
         if (bid == -1) {
             RedisMonitor.incr(null, null, url, command.getName());
@@ -1136,7 +1225,7 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
     }
     private void incrRead(Resource resource, Command command) {
         if (monitor != null) {
-            monitor.incrRead(resource.getUrl(), className, command.getName());
+            incrMonitor(resource.getUrl(), command, false);
         }
         if (bid == -1) {
             RedisMonitor.incr(null, null, resource.getUrl(), command.getName());
@@ -1150,7 +1239,7 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
 
     private void incrWrite(String url, Command command) {
         if (monitor != null) {
-            monitor.incrWrite(url, className, command.getName());
+            incrMonitor(url, command, true);
         }
         if (bid == -1) {
             RedisMonitor.incr(null, null, url, command.getName());
@@ -1163,7 +1252,7 @@ public class AsyncCamelliaRedisTemplate implements IAsyncCamelliaRedisTemplate {
     }
     private void incrWrite(Resource resource, Command command) {
         if (monitor != null) {
-            monitor.incrWrite(resource.getUrl(), className, command.getName());
+            incrMonitor(resource.getUrl(), command, true);
         }
         if (bid == -1) {
             RedisMonitor.incr(null, null, resource.getUrl(), command.getName());
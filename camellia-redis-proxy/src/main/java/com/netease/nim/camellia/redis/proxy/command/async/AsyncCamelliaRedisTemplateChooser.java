@@ -1,7 +1,9 @@
 package com.netease.nim.camellia.redis.proxy.command.async;
 
 import com.netease.nim.camellia.core.api.CamelliaApi;
+import com.netease.nim.camellia.core.api.CamelliaApiResponse;
 import com.netease.nim.camellia.core.api.CamelliaApiUtil;
+import com.netease.nim.camellia.core.api.ResourceTableMd5;
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
 import com.netease.nim.camellia.core.client.env.ShadingFunc;
 import com.netease.nim.camellia.core.model.ResourceTable;
@@ -14,7 +16,9 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  *
@@ -27,6 +31,8 @@ public class AsyncCamelliaRedisTemplateChooser {
     private final CamelliaTranspondProperties properties;
     private AsyncCamelliaRedisEnv env;
     private CamelliaApi apiService;
+    private ResourceTableWatcher resourceTableWatcher;
+    private ResourceTableBatchLoader resourceTableBatchLoader;
 
     private final LockMap lockMap = new LockMap();
     private AsyncCamelliaRedisTemplate remoteInstance;
@@ -139,8 +145,18 @@ public class AsyncCamelliaRedisTemplateChooser {
         }
         apiService = CamelliaApiUtil.init(url, remote.getConnectTimeoutMillis(), remote.getReadTimeoutMillis());
         logger.info("ApiService init, url = {}", url);
+        if (remote.isWatchEnable()) {
+            resourceTableWatcher = new ResourceTableWatcher(url, remote.getConnectTimeoutMillis(),
+                    remote.getWatchTimeoutMillis(), remote.getCheckIntervalMillis());
+        }
+        if (remote.isBatchLoadEnable()) {
+            resourceTableBatchLoader = new ResourceTableBatchLoader(apiService, remote.getCheckIntervalMillis());
+        }
         boolean dynamic = remote.isDynamic();
         logger.info("Remote dynamic = {}", dynamic);
+        if (dynamic) {
+            preloadRemoteInstances(remote);
+        }
         if (remote.getBid() > 0 && remote.getBgroup() != null) {
             remoteInstance = initOrCreateRemoteInstance(remote.getBid(), remote.getBgroup());
         }
@@ -213,7 +229,54 @@ public class AsyncCamelliaRedisTemplateChooser {
         return template;
     }
 
+    //预加载已知的bid/bgroup，避免请求到来时才去初始化，开启批量模式时只需要一次请求
+    private void preloadRemoteInstances(CamelliaTranspondProperties.RemoteProperties remote) {
+        String preloadBgroups = remote.getPreloadBgroups();
+        if (preloadBgroups == null || preloadBgroups.trim().length() == 0) return;
+        List<ResourceTableMd5> tables = new ArrayList<>();
+        for (String str : preloadBgroups.split(",")) {
+            String[] split = str.trim().split("\\|");
+            if (split.length != 2) {
+                logger.warn("illegal preload bgroup = {}, skip", str);
+                continue;
+            }
+            tables.add(new ResourceTableMd5(Long.parseLong(split[0].trim()), split[1].trim(), null));
+        }
+        long startTime = System.currentTimeMillis();
+        Map<String, CamelliaApiResponse> responseMap = Collections.emptyMap();
+        if (resourceTableBatchLoader != null) {
+            try {
+                responseMap = resourceTableBatchLoader.load(tables);
+            } catch (Exception e) {
+                logger.error("resource table batch load error, fallback to load one by one", e);
+            }
+        }
+        int success = 0;
+        for (ResourceTableMd5 table : tables) {
+            try {
+                CamelliaApiResponse response = responseMap.get(table.getBid() + "|" + table.getBgroup());
+                initOrCreateRemoteInstance(table.getBid(), table.getBgroup(), response);
+                success ++;
+            } catch (Exception e) {
+                logger.error("preload AsyncCamelliaRedisTemplate error, bid = {}, bgroup = {}", table.getBid(), table.getBgroup(), e);
+            }
+        }
+        logger.info("preload AsyncCamelliaRedisTemplate finish, total = {}, success = {}, spendMs = {}",
+                tables.size(), success, System.currentTimeMillis() - startTime);
+    }
+
+    //资源表的更新由长轮询或者批量拉取统一驱动，都没开启则每个AsyncCamelliaRedisTemplate各自定时拉取
+    private Consumer<ResourceTableListener> reloadRegister() {
+        if (resourceTableWatcher != null) return resourceTableWatcher::register;
+        if (resourceTableBatchLoader != null) return resourceTableBatchLoader::register;
+        return null;
+    }
+
     private AsyncCamelliaRedisTemplate initOrCreateRemoteInstance(long bid, String bgroup) {
+        return initOrCreateRemoteInstance(bid, bgroup, null);
+    }
+
+    private AsyncCamelliaRedisTemplate initOrCreateRemoteInstance(long bid, String bgroup, CamelliaApiResponse initResponse) {
         if (apiService == null) return null;
         String key = bid + "|" + bgroup;
         AsyncCamelliaRedisTemplate template = remoteInstanceMap.get(key);
@@ -223,7 +286,8 @@ public class AsyncCamelliaRedisTemplateChooser {
                 if (template == null) {
                     boolean monitorEnable = properties.getRemote().isMonitorEnable();
                     long checkIntervalMillis = properties.getRemote().getCheckIntervalMillis();
-                    template = new AsyncCamelliaRedisTemplate(env, apiService, bid, bgroup, monitorEnable, checkIntervalMillis);
+                    template = new AsyncCamelliaRedisTemplate(env, apiService, bid, bgroup, monitorEnable, checkIntervalMillis,
+                            true, initResponse, reloadRegister());
                     remoteInstanceMap.put(key, template);
                     logger.info("AsyncCamelliaRedisTemplate init, bid = {}, bgroup = {}", bid, bgroup);
                 }
@@ -4,6 +4,7 @@ import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.command.async.bigkey.BigKeyHunter;
 import com.netease.nim.camellia.redis.proxy.command.async.hotkeycache.HotKeyCache;
 import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandSpendTimeConfig;
+import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandStage;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.monitor.RedisMonitor;
 import com.netease.nim.camellia.redis.proxy.monitor.SlowCommandMonitor;
@@ -29,6 +30,9 @@ public class AsyncTask {
     private Reply reply;
     private HotKeyCache hotKeyCache;
     private final BigKeyHunter bigKeyHunter;
+    private boolean stageSpendTimeMonitorEnable;
+    private long sendNanoTime;
+    private long replyNanoTime;
 
     public AsyncTask(AsyncTaskQueue taskQueue, Command command,
                      CommandSpendTimeConfig commandSpendTimeConfig, BigKeyHunter bigKeyHunter) {
@@ -39,6 +43,36 @@ public class AsyncTask {
             startTime = System.nanoTime();
         }
         this.bigKeyHunter = bigKeyHunter;
+        if (command != null && startTime > 0 && RedisMonitor.isCommandStageSpendTimeMonitorEnable()) {
+            stageSpendTimeMonitorEnable = true;
+            if (command.getDecodeNanoTime() > 0) {
+                stageSpend(CommandStage.DECODE, startTime - command.getDecodeNanoTime());
+            }
+        }
+    }
+
+    public boolean isStageSpendTimeMonitorEnable() {
+        return stageSpendTimeMonitorEnable;
+    }
+
+    /**
+     * 记录某个阶段的耗时
+     */
+    public void stageSpend(CommandStage stage, long spendNanoTime) {
+        if (!stageSpendTimeMonitorEnable) return;
+        RedisMonitor.incrCommandStageSpendTime(command.getName(), stage, spendNanoTime);
+    }
+
+    /**
+     * 标记命令已经提交给后端连接
+     */
+    public void markSend(long sendNanoTime) {
+        if (!stageSpendTimeMonitorEnable) return;
+        this.sendNanoTime = sendNanoTime;
+    }
+
+    public long getReplyNanoTime() {
+        return replyNanoTime;
     }
 
     public void setHotKeyCache(HotKeyCache hotKeyCache) {
@@ -47,6 +81,13 @@ public class AsyncTask {
 
     public void replyCompleted(Reply reply, boolean fromCache) {
         try {
+            if (stageSpendTimeMonitorEnable) {
+                long now = System.nanoTime();
+                if (sendNanoTime > 0) {
+                    stageSpend(CommandStage.UPSTREAM, now - sendNanoTime);
+                }
+                replyNanoTime = now;
+            }
             if (command != null) {
                 try {
                     if (startTime > 0) {
@@ -1,5 +1,6 @@
 package com.netease.nim.camellia.redis.proxy.command.async;
 
+import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandStage;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.*;
 import org.slf4j.Logger;
@@ -64,7 +65,15 @@ public class AsyncTaskQueue {
                                     task.getCommand() == null ? null : task.getCommand().getName(),
                                     reply.getClass().getSimpleName(), channelInfo.getConsid());
                         }
-                        channelInfo.getCtx().writeAndFlush(new ReplyPack(reply, id.incrementAndGet()));
+                        ReplyPack replyPack;
+                        if (task.getReplyNanoTime() > 0) {
+                            long now = System.nanoTime();
+                            task.stageSpend(CommandStage.QUEUE, now - task.getReplyNanoTime());
+                            replyPack = new ReplyPack(reply, id.incrementAndGet(), task.getCommand().getName(), now);
+                        } else {
+                            replyPack = new ReplyPack(reply, id.incrementAndGet());
+                        }
+                        channelInfo.getCtx().writeAndFlush(replyPack);
                         queue.poll();
                     } else {
                         break;
@@ -9,7 +9,9 @@ import com.netease.nim.camellia.redis.proxy.command.async.hotkeycache.HotKeyCach
 import com.netease.nim.camellia.redis.proxy.command.async.hotkeycache.HotValue;
 import com.netease.nim.camellia.redis.proxy.command.async.info.ProxyInfoUtils;
 import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandSpendTimeConfig;
+import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandStage;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.monitor.RedisMonitor;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
@@ -97,6 +99,7 @@ public class CommandsTransponder {
                 }
                 if (needIntercept) {
                     CommandInterceptResponse response;
+                    long interceptStartNanoTime = task.isStageSpendTimeMonitorEnable() ? System.nanoTime() : 0;
                     try {
                         response = commandInterceptor.check(command);
                     } catch (Exception e) {
@@ -104,6 +107,9 @@ public class CommandsTransponder {
                         ErrorLogCollector.collect(CommandsTransponder.class, errorMsg, e);
                         response = new CommandInterceptResponse(false, errorMsg);
                     }
+                    if (interceptStartNanoTime > 0) {
+                        task.stageSpend(CommandStage.INTERCEPT, System.nanoTime() - interceptStartNanoTime);
+                    }
                     if (!response.isPass()) {
                         String errorMsg = response.getErrorMsg();
                         if (errorMsg == null) {
@@ -190,6 +196,7 @@ public class CommandsTransponder {
 
     private void flush(Long bid, String bgroup, List<AsyncTask> tasks, List<Command> commands) {
         try {
+            long routeStartNanoTime = RedisMonitor.isCommandStageSpendTimeMonitorEnable() ? System.nanoTime() : 0;
             AsyncCamelliaRedisTemplate template = null;
             try {
                 template = chooser.choose(bid, bgroup);
@@ -215,8 +222,13 @@ public class CommandsTransponder {
                     }
                     return;
                 }
+                long sendNanoTime = routeStartNanoTime > 0 ? System.nanoTime() : 0;
                 for (int i = 0; i < tasks.size(); i++) {
                     AsyncTask task = tasks.get(i);
+                    if (sendNanoTime > 0) {
+                        task.stageSpend(CommandStage.ROUTE, sendNanoTime - routeStartNanoTime);
+                        task.markSend(sendNanoTime);
+                    }
                     CompletableFuture<Reply> completableFuture = futureList.get(i);
                     completableFuture.thenAccept(task::replyCompleted);
                 }
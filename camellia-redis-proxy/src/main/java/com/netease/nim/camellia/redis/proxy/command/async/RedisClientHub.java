@@ -11,6 +11,7 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -191,9 +192,9 @@ public class RedisClientHub {
         RedisClientAddr addr = new RedisClientAddr(host, port, password);
         if (workGroup != null && workThread > 0) {
             logger.info("try preheat, addr = {}", addr.getUrl());
-            for (int i = 0; i < GlobalRedisProxyEnv.workThread; i++) {
-                EventLoop eventLoop = workGroup.next();
-                updateEventLoop(eventLoop);
+            //逐个遍历work线程，不依赖next()的轮询顺序，保证每个event loop都预热到
+            for (EventExecutor executor : workGroup) {
+                updateEventLoop((EventLoop) executor);
                 RedisClient redisClient = get(new RedisClientAddr(host, port, password));
                 if (redisClient == null) {
                     logger.error("preheat fail, addr = {}", addr.getUrl());
@@ -323,7 +324,7 @@ public class RedisClientHub {
     }
 
     public static void initDynamicConf() {
-        ProxyDynamicConf.registerCallback(RedisClientHub::reloadConf);
+        ProxyDynamicConf.registerCallback(RedisClientHub::reloadConf, "redis.client.fail.count.threshold", "redis.client.fail.ban.millis");
         reloadConf();
     }
 
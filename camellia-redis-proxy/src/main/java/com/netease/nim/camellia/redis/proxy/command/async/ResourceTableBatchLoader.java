@@ -0,0 +1,121 @@
+package com.netease.nim.camellia.redis.proxy.command.async;
+
+import com.netease.nim.camellia.core.api.*;
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 通过dashboard的批量接口获取资源表
+ * 1）启动时一次性预加载所有已知的bid/bgroup
+ * 2）定时用一次批量请求检查所有bid/bgroup的资源表是否有变更，替代每个bid/bgroup各自的定时拉取
+ * 3）批量接口失败时本轮退化为逐个拉取，dashboard不支持批量接口（404/405）时之后一直逐个拉取
+ */
+public class ResourceTableBatchLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceTableBatchLoader.class);
+
+    //单次请求最多携带的bid/bgroup数量
+    private static final int BATCH_SIZE = 200;
+
+    private final CamelliaApi apiService;
+    private final ConcurrentHashMap<String, ResourceTableListener> listenerMap = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean batchApiNotSupported = false;
+
+    public ResourceTableBatchLoader(CamelliaApi apiService, long checkIntervalMillis) {
+        this.apiService = apiService;
+        ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(ResourceTableBatchLoader.class));
+        scheduledExecutor.scheduleAtFixedRate(this::refresh, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("ResourceTableBatchLoader start, checkIntervalMillis = {}", checkIntervalMillis);
+    }
+
+    /**
+     * 批量拉取资源表（不带md5，全量）
+     * @param tables bid/bgroup列表
+     * @return key=bid|bgroup，只包含成功获取到的
+     */
+    public Map<String, CamelliaApiResponse> load(List<ResourceTableMd5> tables) {
+        Map<String, CamelliaApiResponse> result = new HashMap<>();
+        for (ResourceTableBatchResponse.Item item : batchGet(tables)) {
+            if (item.getCode() != CamelliaApiCode.SUCCESS.getCode() || item.getResourceTable() == null) {
+                logger.warn("resource table batch load fail, bid = {}, bgroup = {}, code = {}", item.getBid(), item.getBgroup(), item.getCode());
+                continue;
+            }
+            result.put(item.getBid() + "|" + item.getBgroup(), item.toResponse());
+        }
+        return result;
+    }
+
+    public void register(ResourceTableListener listener) {
+        listenerMap.put(listener.getBid() + "|" + listener.getBgroup(), listener);
+    }
+
+    private void refresh() {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("ResourceTableBatchLoader is running, skip run");
+            return;
+        }
+        try {
+            if (listenerMap.isEmpty()) return;
+            List<ResourceTableMd5> tables = new ArrayList<>(listenerMap.size());
+            for (ResourceTableListener listener : listenerMap.values()) {
+                tables.add(new ResourceTableMd5(listener.getBid(), listener.getBgroup(), listener.getMd5()));
+            }
+            for (ResourceTableBatchResponse.Item item : batchGet(tables)) {
+                if (item.getCode() == CamelliaApiCode.NOT_MODIFY.getCode()) continue;
+                ResourceTableListener listener = listenerMap.get(item.getBid() + "|" + item.getBgroup());
+                if (listener == null) continue;
+                if (item.getCode() != CamelliaApiCode.SUCCESS.getCode()) {
+                    ErrorLogCollector.collect(ResourceTableBatchLoader.class,
+                            "resource table batch refresh fail, bid = " + item.getBid() + ", bgroup = " + item.getBgroup() + ", code = " + item.getCode());
+                    continue;
+                }
+                listener.update(item.toResponse());
+            }
+        } catch (Exception e) {
+            ErrorLogCollector.collect(ResourceTableBatchLoader.class, "resource table batch refresh error", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<ResourceTableBatchResponse.Item> batchGet(List<ResourceTableMd5> tables) {
+        List<ResourceTableBatchResponse.Item> items = new ArrayList<>(tables.size());
+        for (int i=0; i<tables.size(); i+=BATCH_SIZE) {
+            ResourceTableBatchRequest request = new ResourceTableBatchRequest();
+            request.setTables(new ArrayList<>(tables.subList(i, Math.min(i + BATCH_SIZE, tables.size()))));
+            items.addAll(batchGet(request).getItems());
+        }
+        return items;
+    }
+
+    private ResourceTableBatchResponse batchGet(ResourceTableBatchRequest request) {
+        if (batchApiNotSupported) {
+            return CamelliaApiUtil.getResourceTablesOneByOne(apiService, request);
+        }
+        try {
+            ResourceTableBatchResponse response = CamelliaApiUtil.getResourceTables(apiService, request);
+            if (response.getCode() == CamelliaApiCode.SUCCESS.getCode()) {
+                return response;
+            }
+            ErrorLogCollector.collect(ResourceTableBatchLoader.class, "resource table batch get fail, code = " + response.getCode() + ", fallback to one by one");
+        } catch (Exception e) {
+            if (CamelliaApiUtil.isApiNotSupported(e)) {
+                batchApiNotSupported = true;
+                logger.warn("dashboard not support batch api, fallback to get resource table one by one", e);
+            } else {
+                ErrorLogCollector.collect(ResourceTableBatchLoader.class, "resource table batch get error, fallback to one by one", e);
+            }
+        }
+        return CamelliaApiUtil.getResourceTablesOneByOne(apiService, request);
+    }
+}
@@ -0,0 +1,22 @@
+package com.netease.nim.camellia.redis.proxy.command.async;
+
+import com.netease.nim.camellia.core.api.CamelliaApiResponse;
+
+/**
+ * 某个bid/bgroup的资源表的持有者，由ResourceTableWatcher/ResourceTableBatchLoader统一驱动资源表的更新
+ */
+public interface ResourceTableListener {
+
+    long getBid();
+
+    String getBgroup();
+
+    //当前使用的资源表的md5
+    String getMd5();
+
+    //自行重新拉取资源表
+    void reload();
+
+    //使用外部拉取到的结果更新资源表，NOT_MODIFY会被忽略
+    void update(CamelliaApiResponse response);
+}
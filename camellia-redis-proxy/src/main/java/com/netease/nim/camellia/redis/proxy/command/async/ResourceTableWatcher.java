@@ -0,0 +1,187 @@
+package com.netease.nim.camellia.redis.proxy.command.async;
+
+import com.netease.nim.camellia.core.api.*;
+import com.netease.nim.camellia.core.util.CamelliaThreadFactory;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 通过dashboard的长轮询接口监听所有bid/bgroup的资源表变更，一个连接覆盖本proxy用到的所有bid/bgroup
+ * 收到变更通知后，只有发生变更的bid/bgroup才会去拉取新的资源表
+ * 如果dashboard不支持长轮询（如老版本）或者请求失败，则退化为按checkIntervalMillis逐个拉取
+ * 拉取是异步的，拉取期间用最新的md5去监听，避免dashboard立即返回导致空转和重复拉取；拉取失败（如资源表校验不通过）后按指数退避重试
+ */
+public class ResourceTableWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceTableWatcher.class);
+
+    private final CamelliaWatchApi watchApi;
+    private final long watchTimeoutMillis;
+    private final long checkIntervalMillis;
+    private final ConcurrentHashMap<String, ResourceTableListener> listenerMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, WatchState> stateMap = new ConcurrentHashMap<>();
+    private final ExecutorService reloadExecutor;
+
+    public ResourceTableWatcher(String url, int connectTimeoutMillis, long watchTimeoutMillis, long checkIntervalMillis) {
+        //read超时需要大于服务器hold住请求的时间
+        int readTimeoutMillis = (int) (watchTimeoutMillis + Math.max(checkIntervalMillis, 10000));
+        this.watchApi = CamelliaApiUtil.initWatchApi(url, connectTimeoutMillis, readTimeoutMillis);
+        this.watchTimeoutMillis = watchTimeoutMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.reloadExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(10000), new CamelliaThreadFactory(ResourceTableWatcher.class), new ThreadPoolExecutor.AbortPolicy());
+        Thread thread = new Thread(this::watchLoop, "resource-table-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("ResourceTableWatcher start, url = {}, watchTimeoutMillis = {}, checkIntervalMillis = {}", url, watchTimeoutMillis, checkIntervalMillis);
+    }
+
+    public void register(ResourceTableListener listener) {
+        String key = listener.getBid() + "|" + listener.getBgroup();
+        listenerMap.put(key, listener);
+        stateMap.put(key, new WatchState());
+    }
+
+    private void watchLoop() {
+        while (true) {
+            try {
+                if (listenerMap.isEmpty()) {
+                    TimeUnit.MILLISECONDS.sleep(checkIntervalMillis);
+                    continue;
+                }
+                retryFailedReload();
+                ResourceTableWatchRequest request = new ResourceTableWatchRequest();
+                request.setTimeoutMillis(watchTimeoutMillis);
+                List<ResourceTableMd5> tables = new ArrayList<>(listenerMap.size());
+                for (Map.Entry<String, ResourceTableListener> entry : listenerMap.entrySet()) {
+                    ResourceTableListener listener = entry.getValue();
+                    WatchState state = stateMap.get(entry.getKey());
+                    //已经知道的新md5（正在拉取或者拉取失败等待重试）直接用来监听，否则dashboard会立即返回
+                    String md5 = state != null && state.expectedMd5 != null ? state.expectedMd5 : listener.getMd5();
+                    tables.add(new ResourceTableMd5(listener.getBid(), listener.getBgroup(), md5));
+                }
+                request.setTables(tables);
+                long startTime = System.currentTimeMillis();
+                ResourceTableWatchResponse response = watchApi.watchResourceTable(request);
+                if (response.getCode() == CamelliaApiCode.SUCCESS.getCode()) {
+                    for (ResourceTableMd5 table : response.getChangedTables()) {
+                        String key = table.getBid() + "|" + table.getBgroup();
+                        ResourceTableListener listener = listenerMap.get(key);
+                        WatchState state = stateMap.get(key);
+                        if (listener == null || state == null || Objects.equals(listener.getMd5(), table.getMd5())) continue;
+                        if (logger.isInfoEnabled()) {
+                            logger.info("resource table changed, bid = {}, bgroup = {}, md5 = {} -> {}",
+                                    table.getBid(), table.getBgroup(), listener.getMd5(), table.getMd5());
+                        }
+                        state.expectedMd5 = table.getMd5();
+                        //有新的变更，不再等待之前失败的退避时间
+                        state.failCount = 0;
+                        state.nextRetryTime = 0;
+                        submitReload(listener, state);
+                    }
+                } else if (response.getCode() != CamelliaApiCode.NOT_MODIFY.getCode()) {
+                    ErrorLogCollector.collect(ResourceTableWatcher.class, "watch resource table fail, code = " + response.getCode());
+                    pollAll();
+                }
+                //避免服务器异常时（如立即返回）空转
+                long spend = System.currentTimeMillis() - startTime;
+                if (response.getCode() != CamelliaApiCode.SUCCESS.getCode() && spend < checkIntervalMillis) {
+                    TimeUnit.MILLISECONDS.sleep(checkIntervalMillis - spend);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                ErrorLogCollector.collect(ResourceTableWatcher.class, "watch resource table error, fallback to poll", e);
+                pollAll();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(checkIntervalMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    //长轮询不可用时，逐个拉取
+    private void pollAll() {
+        for (Map.Entry<String, ResourceTableListener> entry : listenerMap.entrySet()) {
+            WatchState state = stateMap.get(entry.getKey());
+            if (state == null || System.currentTimeMillis() < state.nextRetryTime) continue;
+            submitReload(entry.getValue(), state);
+        }
+    }
+
+    //拉取失败的，退避时间到了之后重试
+    private void retryFailedReload() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, ResourceTableListener> entry : listenerMap.entrySet()) {
+            WatchState state = stateMap.get(entry.getKey());
+            if (state == null || state.failCount == 0 || now < state.nextRetryTime) continue;
+            submitReload(entry.getValue(), state);
+        }
+    }
+
+    private void submitReload(ResourceTableListener listener, WatchState state) {
+        //同一个bid/bgroup同时只有一个拉取任务，拉取期间的新变更会在拉取结束后重新检查
+        if (!state.reloading.compareAndSet(false, true)) return;
+        try {
+            reloadExecutor.submit(() -> reload(listener, state));
+        } catch (Exception e) {
+            state.reloading.set(false);
+            ErrorLogCollector.collect(ResourceTableWatcher.class, "submit reload task error, bid = " + listener.getBid() + ", bgroup = " + listener.getBgroup(), e);
+        }
+    }
+
+    private void reload(ResourceTableListener listener, WatchState state) {
+        String oldMd5 = listener.getMd5();
+        String expectedMd5 = state.expectedMd5;
+        boolean resubmit = false;
+        try {
+            listener.reload();
+        } finally {
+            String md5 = listener.getMd5();
+            if (expectedMd5 != null && !Objects.equals(md5, expectedMd5) && Objects.equals(md5, oldMd5)) {
+                //资源表没有更新成功（如拉取失败或者校验不通过），退避之后再重试
+                state.failCount ++;
+                long backoff = Math.min(checkIntervalMillis << Math.min(state.failCount - 1, 6), 600000L);
+                state.nextRetryTime = System.currentTimeMillis() + backoff;
+                logger.warn("resource table reload fail, bid = {}, bgroup = {}, md5 = {}, expectedMd5 = {}, failCount = {}, retry after {}ms",
+                        listener.getBid(), listener.getBgroup(), md5, expectedMd5, state.failCount, backoff);
+            } else {
+                state.failCount = 0;
+                state.nextRetryTime = 0;
+                //拉取期间又有新的变更
+                resubmit = state.expectedMd5 != null && !Objects.equals(state.expectedMd5, expectedMd5) && !Objects.equals(md5, state.expectedMd5);
+                if (!resubmit) {
+                    state.expectedMd5 = null;
+                }
+            }
+            state.reloading.set(false);
+        }
+        if (resubmit) {
+            submitReload(listener, state);
+        }
+    }
+
+    private static class WatchState {
+        private final AtomicBoolean reloading = new AtomicBoolean(false);
+        //监听到的最新md5，拉取成功后清空
+        private volatile String expectedMd5;
+        private volatile int failCount;
+        private volatile long nextRetryTime;
+    }
+}
@@ -1,7 +1,7 @@
 package com.netease.nim.camellia.redis.proxy.command.async.bigkey;
 
 import com.netease.nim.camellia.redis.proxy.command.Command;
-import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfSnapshot;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
 import com.netease.nim.camellia.redis.proxy.monitor.BigKeyMonitor;
@@ -29,9 +29,8 @@ public class BigKeyHunter {
         RedisCommand.CommandType commandType = redisCommand.getCommandType();
         if (commandType == null) return;
         byte[][] objects = command.getObjects();
-        Long bid = command.getCommandContext().getBid();
-        String bgroup = command.getCommandContext().getBgroup();
-        boolean enable = ProxyDynamicConf.bigKeyMonitorEnable(bid, bgroup, true);
+        ProxyDynamicConfSnapshot snapshot = command.getChannelInfo().getDynamicConfSnapshot();
+        boolean enable = snapshot.bigKeyMonitorEnable(true);
         if (!enable) return;
         switch (commandType) {
             case STRING:
@@ -41,7 +40,7 @@ public class BigKeyHunter {
                     case GETSET:
                         if (objects.length >= 3) {
                             byte[] value = objects[2];
-                            int threshold = stringSizeThreshold(bid, bgroup);
+                            int threshold = stringSizeThreshold(snapshot);
                             if (value != null && value.length > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], value.length, threshold);
                                 bigKeyMonitorCallback.callbackRequest(command, objects[1], value.length, threshold);
@@ -52,7 +51,7 @@ public class BigKeyHunter {
                     case PSETEX:
                         if (objects.length >= 4) {
                             byte[] value = objects[3];
-                            int threshold = stringSizeThreshold(bid, bgroup);
+                            int threshold = stringSizeThreshold(snapshot);
                             if (value != null && value.length > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], value.length, threshold);
                                 bigKeyMonitorCallback.callbackRequest(command, objects[1], value.length, threshold);
@@ -64,7 +63,7 @@ public class BigKeyHunter {
                         for (int i=2; i<objects.length; i+=2) {
                             //mset k1 v1 k2 v2
                             byte[] value = objects[i];
-                            int threshold = stringSizeThreshold(bid, bgroup);
+                            int threshold = stringSizeThreshold(snapshot);
                             if (value != null && value.length > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[i-1], value.length, threshold);
                                 bigKeyMonitorCallback.callbackRequest(command, objects[i-1], value.length, threshold);
@@ -79,7 +78,7 @@ public class BigKeyHunter {
                     case HSETNX:
                     case HMSET:
                         int size = ((objects.length - 2) / 2);
-                        int threshold = hashSizeThreshold(bid, bgroup);
+                        int threshold = hashSizeThreshold(snapshot);
                         if (size > threshold) {
                             BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                             bigKeyMonitorCallback.callbackRequest(command, objects[1], size, threshold);
@@ -91,7 +90,7 @@ public class BigKeyHunter {
                 //as zadd command support [NX|XX] [GT|LT] [CH] [INCR], so big key monitor maybe not very exact
                 if (redisCommand == RedisCommand.ZADD) {
                     int size = ((objects.length - 2) / 2);
-                    int threshold = zsetSizeThreshold(bid, bgroup);
+                    int threshold = zsetSizeThreshold(snapshot);
                     if (size > threshold) {
                         BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                         bigKeyMonitorCallback.callbackRequest(command, objects[1], size, threshold);
@@ -105,7 +104,7 @@ public class BigKeyHunter {
                     case RPUSH:
                     case RPUSHX:
                         int size = objects.length - 2;
-                        int threshold = listSizeThreshold(bid, bgroup);
+                        int threshold = listSizeThreshold(snapshot);
                         if (size > threshold) {
                             BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                             bigKeyMonitorCallback.callbackRequest(command, objects[1], size, threshold);
@@ -116,7 +115,7 @@ public class BigKeyHunter {
             case SET:
                 if (redisCommand == RedisCommand.SADD) {
                     int size = objects.length - 2;
-                    int threshold = setSizeThreshold(bid, bgroup);
+                    int threshold = setSizeThreshold(snapshot);
                     if (size > threshold) {
                         BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                         bigKeyMonitorCallback.callbackRequest(command, objects[1], size, threshold);
@@ -135,9 +134,8 @@ public class BigKeyHunter {
         if (reply == null) return;
         if (reply instanceof ErrorReply) return;
         byte[][] objects = command.getObjects();
-        Long bid = command.getCommandContext().getBid();
-        String bgroup = command.getCommandContext().getBgroup();
-        boolean enable = ProxyDynamicConf.bigKeyMonitorEnable(bid, bgroup, true);
+        ProxyDynamicConfSnapshot snapshot = command.getChannelInfo().getDynamicConfSnapshot();
+        boolean enable = snapshot.bigKeyMonitorEnable(true);
         if (!enable) return;
         switch (commandType) {
             case STRING:
@@ -145,7 +143,7 @@ public class BigKeyHunter {
                     case GET:
                         if (reply instanceof BulkReply) {
                             byte[] raw = ((BulkReply) reply).getRaw();
-                            int threshold = stringSizeThreshold(bid, bgroup);
+                            int threshold = stringSizeThreshold(snapshot);
                             if (raw != null && raw.length > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], raw.length, threshold);
                                 bigKeyMonitorCallback.callbackReply(command, reply, objects[1], raw.length, threshold);
@@ -157,7 +155,7 @@ public class BigKeyHunter {
                             Reply[] replies = ((MultiBulkReply) reply).getReplies();
                             if (replies != null) {
                                 int i=1;
-                                int threshold = stringSizeThreshold(bid, bgroup);
+                                int threshold = stringSizeThreshold(snapshot);
                                 for (Reply reply1 : replies) {
                                     if (reply1 instanceof BulkReply) {
                                         byte[] raw = ((BulkReply) reply1).getRaw();
@@ -174,7 +172,7 @@ public class BigKeyHunter {
                     case STRLEN:
                         if (reply instanceof IntegerReply) {
                             Long integer = ((IntegerReply) reply).getInteger();
-                            int threshold = stringSizeThreshold(bid, bgroup);
+                            int threshold = stringSizeThreshold(snapshot);
                             if (integer != null && integer > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], integer, threshold);
                                 bigKeyMonitorCallback.callbackReply(command, reply, objects[1], integer, threshold);
@@ -188,7 +186,7 @@ public class BigKeyHunter {
                     case HLEN:
                         if (reply instanceof IntegerReply) {
                             Long integer = ((IntegerReply) reply).getInteger();
-                            int threshold = hashSizeThreshold(bid, bgroup);
+                            int threshold = hashSizeThreshold(snapshot);
                             if (integer != null && integer > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], integer, threshold);
                                 bigKeyMonitorCallback.callbackReply(command, reply, objects[1], integer, threshold);
@@ -201,7 +199,7 @@ public class BigKeyHunter {
                             Reply[] replies = ((MultiBulkReply) reply).getReplies();
                             if (replies != null) {
                                 int size = replies.length;
-                                int threshold = hashSizeThreshold(bid, bgroup);
+                                int threshold = hashSizeThreshold(snapshot);
                                 if (size > threshold) {
                                     BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                                     bigKeyMonitorCallback.callbackReply(command, reply, objects[1], size, threshold);
@@ -214,7 +212,7 @@ public class BigKeyHunter {
                             Reply[] replies = ((MultiBulkReply) reply).getReplies();
                             if (replies != null) {
                                 int size = replies.length / 2;
-                                int threshold = hashSizeThreshold(bid, bgroup);
+                                int threshold = hashSizeThreshold(snapshot);
                                 if (size > threshold) {
                                     BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                                     bigKeyMonitorCallback.callbackReply(command, reply, objects[1], size, threshold);
@@ -231,7 +229,7 @@ public class BigKeyHunter {
                     case ZLEXCOUNT:
                         if (reply instanceof IntegerReply) {
                             Long integer = ((IntegerReply) reply).getInteger();
-                            int threshold = zsetSizeThreshold(bid, bgroup);
+                            int threshold = zsetSizeThreshold(snapshot);
                             if (integer != null && integer > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], integer, threshold);
                                 bigKeyMonitorCallback.callbackReply(command, reply, objects[1], integer, threshold);
@@ -244,7 +242,7 @@ public class BigKeyHunter {
                             Reply[] replies = ((MultiBulkReply) reply).getReplies();
                             if (replies != null) {
                                 int size = replies.length;
-                                int threshold = zsetSizeThreshold(bid, bgroup);
+                                int threshold = zsetSizeThreshold(snapshot);
                                 if (size > threshold) {
                                     BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                                     bigKeyMonitorCallback.callbackReply(command, reply, objects[1], size, threshold);
@@ -265,7 +263,7 @@ public class BigKeyHunter {
                                     if (withScores) break;
                                 }
                                 int size = withScores ? replies.length / 2 : replies.length;
-                                int threshold = zsetSizeThreshold(bid, bgroup);
+                                int threshold = zsetSizeThreshold(snapshot);
                                 if (size > threshold) {
                                     BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                                     bigKeyMonitorCallback.callbackReply(command, reply, objects[1], size, threshold);
@@ -280,7 +278,7 @@ public class BigKeyHunter {
                     case LLEN:
                         if (reply instanceof IntegerReply) {
                             Long integer = ((IntegerReply) reply).getInteger();
-                            int threshold = listSizeThreshold(bid, bgroup);
+                            int threshold = listSizeThreshold(snapshot);
                             if (integer != null && integer > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], integer, threshold);
                                 bigKeyMonitorCallback.callbackReply(command, reply, objects[1], integer, threshold);
@@ -292,7 +290,7 @@ public class BigKeyHunter {
                             Reply[] replies = ((MultiBulkReply) reply).getReplies();
                             if (replies != null) {
                                 int size = replies.length;
-                                int threshold = listSizeThreshold(bid, bgroup);
+                                int threshold = listSizeThreshold(snapshot);
                                 if (size > threshold) {
                                     BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                                     bigKeyMonitorCallback.callbackReply(command, reply, objects[1], size, threshold);
@@ -307,7 +305,7 @@ public class BigKeyHunter {
                     case SCARD:
                         if (reply instanceof IntegerReply) {
                             Long integer = ((IntegerReply) reply).getInteger();
-                            int threshold = setSizeThreshold(bid, bgroup);
+                            int threshold = setSizeThreshold(snapshot);
                             if (integer != null && integer > threshold) {
                                 BigKeyMonitor.bigKey(command, objects[1], integer, threshold);
                                 bigKeyMonitorCallback.callbackReply(command, reply, objects[1], integer, threshold);
@@ -319,7 +317,7 @@ public class BigKeyHunter {
                             Reply[] replies = ((MultiBulkReply) reply).getReplies();
                             if (replies != null) {
                                 int size = replies.length;
-                                int threshold = setSizeThreshold(bid, bgroup);
+                                int threshold = setSizeThreshold(snapshot);
                                 if (size > threshold) {
                                     BigKeyMonitor.bigKey(command, objects[1], size, threshold);
                                     bigKeyMonitorCallback.callbackReply(command, reply, objects[1], size, threshold);
@@ -332,23 +330,23 @@ public class BigKeyHunter {
         }
     }
 
-    private int stringSizeThreshold(Long bid, String bgroup) {
-        return ProxyDynamicConf.bigKeyMonitorStringThreshold(bid, bgroup, monitorConfig.getStringSizeThreshold());
+    private int stringSizeThreshold(ProxyDynamicConfSnapshot snapshot) {
+        return snapshot.bigKeyMonitorStringThreshold(monitorConfig.getStringSizeThreshold());
     }
 
-    private int hashSizeThreshold(Long bid, String bgroup) {
-        return ProxyDynamicConf.bigKeyMonitorHashThreshold(bid, bgroup, monitorConfig.getHashSizeThreshold());
+    private int hashSizeThreshold(ProxyDynamicConfSnapshot snapshot) {
+        return snapshot.bigKeyMonitorHashThreshold(monitorConfig.getHashSizeThreshold());
     }
 
-    private int setSizeThreshold(Long bid, String bgroup) {
-        return ProxyDynamicConf.bigKeyMonitorSetThreshold(bid, bgroup, monitorConfig.getSetSizeThreshold());
+    private int setSizeThreshold(ProxyDynamicConfSnapshot snapshot) {
+        return snapshot.bigKeyMonitorSetThreshold(monitorConfig.getSetSizeThreshold());
     }
 
-    private int zsetSizeThreshold(Long bid, String bgroup) {
-        return ProxyDynamicConf.bigKeyMonitorZSetThreshold(bid, bgroup, monitorConfig.getZsetSizeThreshold());
+    private int zsetSizeThreshold(ProxyDynamicConfSnapshot snapshot) {
+        return snapshot.bigKeyMonitorZSetThreshold(monitorConfig.getZsetSizeThreshold());
     }
 
-    private int listSizeThreshold(Long bid, String bgroup) {
-        return ProxyDynamicConf.bigKeyMonitorListThreshold(bid, bgroup, monitorConfig.getListSizeThreshold());
+    private int listSizeThreshold(ProxyDynamicConfSnapshot snapshot) {
+        return snapshot.bigKeyMonitorListThreshold(monitorConfig.getListSizeThreshold());
     }
 }
@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis.proxy.command.async.hotkey;
 
 import com.netease.nim.camellia.redis.proxy.command.async.CommandContext;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfSnapshot;
 import com.netease.nim.camellia.redis.proxy.monitor.HotKeyMonitor;
 import com.netease.nim.camellia.redis.proxy.util.BytesKey;
 import com.netease.nim.camellia.redis.proxy.util.LRUCounter;
@@ -30,7 +31,7 @@ public class HotKeyHunter {
         this.commandContext = commandContext;
         this.hotKeyConfig = hotKeyConfig;
         this.enable = true;
-        ProxyDynamicConf.registerCallback(this::reloadHotKeyConfig);
+        ProxyDynamicConf.registerCallback(this::reloadHotKeyConfig, "hot.key.monitor.enable", "hot.key.monitor.threshold");
         reloadHotKeyConfig();
         this.callback = callback;
         this.counter = new LRUCounter(hotKeyConfig.getCheckCacheMaxCapacity(),
@@ -41,11 +42,11 @@ public class HotKeyHunter {
     }
 
     private void reloadHotKeyConfig() {
-        Long bid = commandContext.getBid();
-        String bgroup = commandContext.getBgroup();
-        long threshold = ProxyDynamicConf.hotKeyMonitorThreshold(bid, bgroup, this.hotKeyConfig.getCheckThreshold());
+        //回调触发前快照已经刷新，直接读取快照中解析好的配置
+        ProxyDynamicConfSnapshot snapshot = ProxyDynamicConf.getSnapshot(commandContext.getBid(), commandContext.getBgroup());
+        long threshold = snapshot.hotKeyMonitorThreshold(this.hotKeyConfig.getCheckThreshold());
         this.hotKeyConfig = new HotKeyConfig(this.hotKeyConfig.getCheckMillis(), this.hotKeyConfig.getCheckCacheMaxCapacity(), threshold, this.hotKeyConfig.getMaxHotKeyCount());
-        this.enable = ProxyDynamicConf.hotKeyMonitorEnable(bid, bgroup, this.enable);
+        this.enable = snapshot.hotKeyMonitorEnable(this.enable);
     }
 
     public void incr(byte[]... keys) {
@@ -3,6 +3,7 @@ package com.netease.nim.camellia.redis.proxy.command.async.hotkeycache;
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.netease.nim.camellia.redis.proxy.command.async.CommandContext;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfSnapshot;
 import com.netease.nim.camellia.redis.proxy.monitor.HotKeyCacheMonitor;
 import com.netease.nim.camellia.redis.proxy.util.*;
 import org.slf4j.Logger;
@@ -49,7 +50,8 @@ public class HotKeyCache {
         this.hotKeyCheckThreshold = commandHotKeyCacheConfig.getCounterCheckThreshold();
         this.cacheNull = commandHotKeyCacheConfig.isNeedCacheNull();
         this.enable = true;
-        ProxyDynamicConf.registerCallback(this::reloadHotKeyCacheConfig);
+        ProxyDynamicConf.registerCallback(this::reloadHotKeyCacheConfig,
+                "hot.key.cache.enable", "hot.key.cache.need.cache.null", "hot.key.cache.threshold");
         reloadHotKeyCacheConfig();
         this.cache = new ConcurrentLinkedHashMap.Builder<BytesKey, HotValueWrapper>()
                 .initialCapacity(commandHotKeyCacheConfig.getCacheMaxCapacity())
@@ -152,11 +154,11 @@ public class HotKeyCache {
     }
 
     private void reloadHotKeyCacheConfig() {
-        Long bid = commandContext.getBid();
-        String bgroup = commandContext.getBgroup();
-        this.hotKeyCheckThreshold = ProxyDynamicConf.hotKeyCacheThreshold(bid, bgroup, this.hotKeyCheckThreshold);
-        this.enable = ProxyDynamicConf.hotKeyCacheEnable(bid, bgroup, this.enable);
-        this.cacheNull = ProxyDynamicConf.hotKeyCacheNeedCacheNull(bid, bgroup, this.cacheNull);
+        //回调触发前快照已经刷新，直接读取快照中解析好的配置
+        ProxyDynamicConfSnapshot snapshot = ProxyDynamicConf.getSnapshot(commandContext.getBid(), commandContext.getBgroup());
+        this.hotKeyCheckThreshold = snapshot.hotKeyCacheThreshold(this.hotKeyCheckThreshold);
+        this.enable = snapshot.hotKeyCacheEnable(this.enable);
+        this.cacheNull = snapshot.hotKeyCacheNeedCacheNull(this.cacheNull);
     }
 
     private static class HotValueWrapper {
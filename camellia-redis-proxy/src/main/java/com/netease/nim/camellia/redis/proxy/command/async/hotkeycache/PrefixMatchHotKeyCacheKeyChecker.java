@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis.proxy.command.async.hotkeycache;
 
 import com.netease.nim.camellia.redis.proxy.command.async.CommandContext;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfSnapshot;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 
@@ -14,23 +15,19 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class PrefixMatchHotKeyCacheKeyChecker implements HotKeyCacheKeyChecker {
 
-    private final ConcurrentHashMap<String, Set<String>> cache = new ConcurrentHashMap<>();
-
-    public PrefixMatchHotKeyCacheKeyChecker() {
-        ProxyDynamicConf.registerCallback(cache::clear);
-    }
+    //每个bid/bgroup的HotKeyCache持有同一个CommandContext对象，按对象缓存快照，热路径上不需要拼接字符串查找
+    private final ConcurrentHashMap<CommandContext, ProxyDynamicConfSnapshot> snapshotMap = new ConcurrentHashMap<>();
 
     @Override
     public boolean needCache(CommandContext commandContext, byte[] key) {
         try {
-            Long bid = commandContext.getBid();
-            String bgroup = commandContext.getBgroup();
-            String cacheKey = bid + "|" + bgroup;
-            Set<String> set = cache.get(cacheKey);
-            if (set == null) {
-                set = ProxyDynamicConf.hotKeyCacheKeyPrefix(bid, bgroup);
-                cache.put(cacheKey, set);
+            //前缀配置已在快照中解析好，配置变更后快照的版本号落后，重新获取
+            ProxyDynamicConfSnapshot snapshot = snapshotMap.get(commandContext);
+            if (snapshot == null || snapshot.getVersion() != ProxyDynamicConf.getSnapshotVersion()) {
+                snapshot = ProxyDynamicConf.getSnapshot(commandContext.getBid(), commandContext.getBgroup());
+                snapshotMap.put(commandContext, snapshot);
             }
+            Set<String> set = snapshot.hotKeyCacheKeyPrefix();
             if (set.isEmpty()) return false;
             String keyStr = Utils.bytesToString(key);
             for (String prefix : set) {
@@ -4,16 +4,15 @@ import com.alibaba.fastjson.JSONArray;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.command.async.CommandInterceptResponse;
 import com.netease.nim.camellia.redis.proxy.command.async.CommandInterceptor;
-import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfSnapshot;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 一个用于临时屏蔽某些key的CommandInterceptor，可以通过ProxyDynamicConf动态修改相关配置
@@ -25,11 +24,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
 
     private static final CommandInterceptResponse TROUBLE_TRICK_ERROR = new CommandInterceptResponse(false, "ERR trouble trick key fast fail");
-    private final ConcurrentHashMap<CacheKey, Map<RedisCommand, TroubleTrickKeys>> cache = new ConcurrentHashMap<>();
-
-    public TroubleTrickKeysCommandInterceptor() {
-        ProxyDynamicConf.registerCallback(cache::clear);
-    }
+    private static final String ATTACHMENT_NAME = "trouble.trick.keys";
 
     @Override
     public CommandInterceptResponse check(Command command) {
@@ -37,10 +32,9 @@ public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
             if (command == null) {
                 return CommandInterceptResponse.SUCCESS;
             }
-            Long bid = command.getChannelInfo().getBid();
-            String bgroup = command.getChannelInfo().getBgroup();
-
-            Map<RedisCommand, TroubleTrickKeys> map = get(new CacheKey(bid, bgroup));
+            //解析结果挂在配置快照上，配置变更后快照失效，随之重新解析
+            ProxyDynamicConfSnapshot snapshot = command.getChannelInfo().getDynamicConfSnapshot();
+            Map<RedisCommand, TroubleTrickKeys> map = snapshot.getAttachment(ATTACHMENT_NAME, TroubleTrickKeysCommandInterceptor::parse);
             if (map == null || map.isEmpty()) {
                 return CommandInterceptResponse.SUCCESS;
             }
@@ -56,7 +50,7 @@ public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
                 String keyStr = Utils.bytesToString(key);
                 if (troubleTrickKeys.keys.contains(keyStr)) {
                     ErrorLogCollector.collect(TroubleTrickKeysCommandInterceptor.class,
-                            "trouble trick key fast fail, bid = " + bid + ", bgroup = " + bgroup + ", command = " + troubleTrickKeys.redisCommand + ", keys = " + command.getKeysStr());
+                            "trouble trick key fast fail, bid = " + snapshot.getBid() + ", bgroup = " + snapshot.getBgroup() + ", command = " + troubleTrickKeys.redisCommand + ", keys = " + command.getKeysStr());
                     return TROUBLE_TRICK_ERROR;
                 }
             }
@@ -67,10 +61,8 @@ public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
         }
     }
 
-    private Map<RedisCommand, TroubleTrickKeys> get(CacheKey cacheKey) {
-        Map<RedisCommand, TroubleTrickKeys> value = cache.get(cacheKey);
-        if (value != null) return value;
-        Map<RedisCommand, TroubleTrickKeys> map = new ConcurrentHashMap<>();
+    private static Map<RedisCommand, TroubleTrickKeys> parse(ProxyDynamicConfSnapshot snapshot) {
+        Map<RedisCommand, TroubleTrickKeys> map = new HashMap<>();
         try {
             //可以根据bid/bgroup进行细粒度配置
             //配置示例一：
@@ -79,9 +71,8 @@ public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
             //配置示例二：
             //2.default.trouble.trick.keys=ZRANGE:["key1","key2"];SMEMBERS:["key3","key4"]
             //含义：bid=2/bgroup=default路由配置下，针对key1和key2的ZRANGE方法，针对key3和key4的SMEMBERS方法，直接返回异常
-            String string = ProxyDynamicConf.getString("trouble.trick.keys", cacheKey.bid, cacheKey.bgroup, null);
+            String string = snapshot.getString("trouble.trick.keys", null);
             if (string == null || string.trim().length() == 0) {
-                cache.put(cacheKey, map);
                 return map;
             }
             String[] split = string.split(";");
@@ -106,10 +97,8 @@ public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
                     ErrorLogCollector.collect(TroubleTrickKeysCommandInterceptor.class, "parse trouble.trick.keys error", e);
                 }
             }
-            cache.put(cacheKey, map);
             return map;
         } catch (Exception e) {
-            cache.put(cacheKey, map);
             return map;
         }
     }
@@ -118,28 +107,4 @@ public class TroubleTrickKeysCommandInterceptor implements CommandInterceptor {
         private RedisCommand redisCommand;
         private final Set<String> keys = new HashSet<>();
     }
-
-    private static class CacheKey {
-        private final Long bid;
-        private final String bgroup;
-
-        public CacheKey(Long bid, String bgroup) {
-            this.bid = bid;
-            this.bgroup = bgroup;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            CacheKey cacheKey = (CacheKey) o;
-            return Objects.equals(bid, cacheKey.bid) &&
-                    Objects.equals(bgroup, cacheKey.bgroup);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(bid, bgroup);
-        }
-    }
 }
@@ -18,7 +18,7 @@ public class DynamicConfProxyRouteConfUpdater extends ProxyRouteConfUpdater {
     private final ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
 
     public DynamicConfProxyRouteConfUpdater() {
-        ProxyDynamicConf.registerCallback(this::reload);
+        ProxyDynamicConf.registerCallback(this::reload, "route.conf");
     }
 
     private void reload() {
@@ -17,7 +17,7 @@ public class CommandSpendTimeConfig {
         this.slowCommandThresholdMillisTime = slowCommandThresholdMillisTime;
         this.slowCommandThresholdNanoTime = slowCommandThresholdMillisTime * 1000000L;
         this.slowCommandMonitorCallback = slowCommandMonitorCallback;
-        ProxyDynamicConf.registerCallback(this::reloadSlowCommandThresholdMillisTime);
+        ProxyDynamicConf.registerCallback(this::reloadSlowCommandThresholdMillisTime, "slow.command.threshold.millis");
     }
 
     private void reloadSlowCommandThresholdMillisTime() {
@@ -0,0 +1,26 @@
+package com.netease.nim.camellia.redis.proxy.command.async.spendtime;
+
+/**
+ * 一个命令在proxy内部经历的各个阶段，用于分阶段统计耗时
+ */
+public enum CommandStage {
+
+    //从开始解析命令到命令被提交给CommandsTransponder（包括等待网络包、攒批等）
+    DECODE,
+
+    //CommandInterceptor.check的耗时
+    INTERCEPT,
+
+    //选择路由、获取后端连接（可能包括建立连接）、把命令提交给后端连接的耗时
+    ROUTE,
+
+    //命令提交给后端连接到收到后端回包的耗时
+    UPSTREAM,
+
+    //收到回包后，在AsyncTaskQueue中等待前面的命令回包（保证顺序）的耗时
+    QUEUE,
+
+    //回包提交给ReplyEncoder到真正写出的耗时（包括ReplyEncoder内部为了保证顺序的等待）
+    REPLY,
+    ;
+}
@@ -25,6 +25,7 @@ public class CamelliaServerProperties {
     private BigKeyMonitorConfig bigKeyMonitorConfig;
     private String proxyDynamicConfHookClassName;
     private boolean monitorDataMaskPassword = Constants.Server.monitorDataMaskPassword;
+    private boolean eventLoopMonitorEnable = Constants.Server.eventLoopMonitorEnable;
 
 
     private int bossThread = 1;
@@ -36,6 +37,7 @@ public class CamelliaServerProperties {
     private int writeBufferWaterMarkHigh = Constants.Server.writeBufferWaterMarkHigh;
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private boolean leastLoadedEventLoopChooserEnable = Constants.Server.leastLoadedEventLoopChooserEnable;
 
     public int getPort() {
         return port;
@@ -253,6 +255,22 @@ public class CamelliaServerProperties {
         this.monitorDataMaskPassword = monitorDataMaskPassword;
     }
 
+    public boolean isEventLoopMonitorEnable() {
+        return eventLoopMonitorEnable;
+    }
+
+    public void setEventLoopMonitorEnable(boolean eventLoopMonitorEnable) {
+        this.eventLoopMonitorEnable = eventLoopMonitorEnable;
+    }
+
+    public boolean isLeastLoadedEventLoopChooserEnable() {
+        return leastLoadedEventLoopChooserEnable;
+    }
+
+    public void setLeastLoadedEventLoopChooserEnable(boolean leastLoadedEventLoopChooserEnable) {
+        this.leastLoadedEventLoopChooserEnable = leastLoadedEventLoopChooserEnable;
+    }
+
     public static class HotKeyMonitorConfig {
         private long checkMillis = Constants.Server.hotKeyMonitorCheckMillis;
         private int checkCacheMaxCapacity = Constants.Server.hotKeyMonitorCheckCacheMaxCapacity;
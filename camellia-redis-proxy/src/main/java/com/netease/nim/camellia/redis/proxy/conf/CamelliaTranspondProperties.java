@@ -103,6 +103,10 @@ public class CamelliaTranspondProperties {
         private long checkIntervalMillis = Constants.Remote.checkIntervalMillis;
         private int connectTimeoutMillis = Constants.Remote.connectTimeoutMillis;
         private int readTimeoutMillis = Constants.Remote.readTimeoutMillis;
+        private boolean watchEnable = Constants.Remote.watchEnable;
+        private long watchTimeoutMillis = Constants.Remote.watchTimeoutMillis;
+        private boolean batchLoadEnable = Constants.Remote.batchLoadEnable;
+        private String preloadBgroups;
 
         public String getUrl() {
             return url;
@@ -167,6 +171,38 @@ public class CamelliaTranspondProperties {
         public void setReadTimeoutMillis(int readTimeoutMillis) {
             this.readTimeoutMillis = readTimeoutMillis;
         }
+
+        public boolean isWatchEnable() {
+            return watchEnable;
+        }
+
+        public void setWatchEnable(boolean watchEnable) {
+            this.watchEnable = watchEnable;
+        }
+
+        public long getWatchTimeoutMillis() {
+            return watchTimeoutMillis;
+        }
+
+        public void setWatchTimeoutMillis(long watchTimeoutMillis) {
+            this.watchTimeoutMillis = watchTimeoutMillis;
+        }
+
+        public boolean isBatchLoadEnable() {
+            return batchLoadEnable;
+        }
+
+        public void setBatchLoadEnable(boolean batchLoadEnable) {
+            this.batchLoadEnable = batchLoadEnable;
+        }
+
+        public String getPreloadBgroups() {
+            return preloadBgroups;
+        }
+
+        public void setPreloadBgroups(String preloadBgroups) {
+            this.preloadBgroups = preloadBgroups;
+        }
     }
 
     public static class CustomProperties {
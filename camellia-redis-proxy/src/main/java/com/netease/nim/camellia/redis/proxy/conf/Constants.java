@@ -62,6 +62,9 @@ public class Constants {
         public static final String bigKeyMonitorCallbackClassName = LoggingBigKeyMonitorCallback.class.getName();
 
         public static final boolean monitorDataMaskPassword = false;//对外暴露的监控数据是否把密码隐藏（用*代替）
+
+        public static final boolean eventLoopMonitorEnable = false;
+        public static final boolean leastLoadedEventLoopChooserEnable = false;
     }
 
     public static class Transpond {
@@ -86,6 +89,9 @@ public class Constants {
         public static final long checkIntervalMillis = 5000;
         public static final int connectTimeoutMillis = 10000;
         public static final int readTimeoutMillis = 60000;
+        public static final boolean watchEnable = false;
+        public static final long watchTimeoutMillis = 30000;
+        public static final boolean batchLoadEnable = false;
     }
 
     public static class Custom {
@@ -0,0 +1,88 @@
+package com.netease.nim.camellia.redis.proxy.conf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于WatchService监听动态配置文件所在目录，文件发生变更后立即触发ProxyDynamicConf.reload()，不需要等待定时轮询
+ * 监听的是目录（k8s的configmap等场景下文件本身是软链，变更时替换的是目录下的其他文件），目录下任意变更都会触发一次reload，reload内部会对比配置是否真的变化
+ * 定时轮询仍然保留，作为兜底
+ */
+public class DynamicConfFileWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DynamicConfFileWatcher.class);
+
+    //编辑器保存文件时往往会产生多个事件，合并一段时间内的事件只触发一次reload
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private static WatchService watchService;
+    private static final Set<Path> watchDirs = new HashSet<>();
+
+    /**
+     * 监听这些文件所在的目录，重复调用是幂等的
+     * @param filePaths 文件的绝对路径
+     */
+    public static synchronized void watch(Collection<String> filePaths) {
+        for (String filePath : filePaths) {
+            try {
+                File file = new File(filePath);
+                if (!file.exists()) continue;
+                File dir = file.getAbsoluteFile().getParentFile();
+                if (dir == null) continue;
+                Path path = dir.toPath();
+                if (watchDirs.contains(path)) continue;
+                if (watchService == null) {
+                    watchService = FileSystems.getDefault().newWatchService();
+                    Thread thread = new Thread(DynamicConfFileWatcher::watchLoop, "dynamic-conf-file-watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchDirs.add(path);
+                logger.info("dynamic conf file watch, dir = {}", path);
+            } catch (IOException e) {
+                logger.error("dynamic conf file watch error, filePath = {}", filePath, e);
+            }
+        }
+    }
+
+    private static void watchLoop() {
+        while (true) {
+            try {
+                WatchKey key = watchService.take();
+                drain(key);
+                //等待一小段时间，把紧接着的事件一起消费掉
+                TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MILLIS);
+                WatchKey next;
+                while ((next = watchService.poll()) != null) {
+                    drain(next);
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("dynamic conf file changed, try reload");
+                }
+                ProxyDynamicConf.reload();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("dynamic conf file watch loop error", e);
+            }
+        }
+    }
+
+    private static void drain(WatchKey key) {
+        key.pollEvents();
+        key.reset();
+    }
+}
@@ -12,6 +12,7 @@ import java.net.URL;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -23,6 +24,7 @@ public class ProxyDynamicConf {
 
     private static Map<String, String> conf = new HashMap<>();
     private static final Set<DynamicConfCallback> callbackSet = new HashSet<>();
+    private static final Map<DynamicConfCallback, Set<String>> keyCallbackMap = new ConcurrentHashMap<>();
     private static final String fileName = "camellia-redis-proxy.properties";
 
     private static final ConcurrentHashMap<String, Integer> intCache = new ConcurrentHashMap<>();
@@ -32,6 +34,10 @@ public class ProxyDynamicConf {
     private static final ConcurrentHashMap<String, String> stringCache = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, Set<String>> setCache = new ConcurrentHashMap<>();
 
+    //按bid/bgroup编译好的配置快照，配置变更时整体替换并递增版本号
+    private static volatile ConcurrentHashMap<String, ProxyDynamicConfSnapshot> snapshotMap = new ConcurrentHashMap<>();
+    private static final AtomicLong snapshotVersion = new AtomicLong();
+
     private static ProxyDynamicConfHook hook;
 
     static {
@@ -40,15 +46,17 @@ public class ProxyDynamicConf {
         ExecutorUtils.scheduleAtFixedRate(ProxyDynamicConf::reload, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
     }
 
-    public static void updateProxyDynamicConfHook(ProxyDynamicConfHook hook) {
+    public static synchronized void updateProxyDynamicConfHook(ProxyDynamicConfHook hook) {
         ProxyDynamicConf.hook = hook;
+        refreshSnapshot();
         logger.info("proxyDynamicConfHook update, hook = {}", hook.getClass().getName());
     }
 
     /**
      * 检查本地配置文件是否有变更，如果有，则重新加载，并且会清空缓存，并触发监听者的回调
+     * 文件监听线程和定时任务都会调用，串行执行，避免慢的reload用旧的配置覆盖新的快照
      */
-    public static void reload() {
+    public static synchronized void reload() {
         URL url = ProxyDynamicConf.class.getClassLoader().getResource(fileName);
         if (url == null) {
             if (logger.isDebugEnabled()) {
@@ -81,6 +89,18 @@ public class ProxyDynamicConf {
                 }
             }
 
+            //监听配置文件的变更，变更后立即reload，不需要等待定时轮询，可以配置dynamic.conf.file.watch.enable=false关闭
+            if (ConfigurationUtil.getBoolean(conf, "dynamic.conf.file.watch.enable", true)) {
+                List<String> watchFiles = new ArrayList<>();
+                if ("file".equals(url.getProtocol())) {
+                    watchFiles.add(url.getPath());
+                }
+                if (filePath != null) {
+                    watchFiles.add(filePath);
+                }
+                DynamicConfFileWatcher.watch(watchFiles);
+            }
+
             if (conf.equals(new HashMap<>(ProxyDynamicConf.conf))) {
                 if (logger.isDebugEnabled()) {
                     if (filePath != null) {
@@ -90,14 +110,15 @@ public class ProxyDynamicConf {
                     }
                 }
             } else {
+                Set<String> changedKeys = changedKeys(ProxyDynamicConf.conf, conf);
                 ProxyDynamicConf.conf = conf;
                 if (filePath != null) {
-                    logger.info("classpath:{} and {} reload success", fileName, filePath);
+                    logger.info("classpath:{} and {} reload success, changed keys = {}", fileName, filePath, changedKeys);
                 } else {
-                    logger.info("classpath:{} reload success", fileName);
+                    logger.info("classpath:{} reload success, changed keys = {}", fileName, changedKeys);
                 }
                 clearCache();
-                triggerCallback();
+                triggerCallback(changedKeys);
             }
         } catch (Exception e) {
             logger.error("reload error", e);
@@ -107,7 +128,7 @@ public class ProxyDynamicConf {
     /**
      * 直接把配置设置进来（k-v的map）
      */
-    public static void reload(Map<String, String> conf) {
+    public static synchronized void reload(Map<String, String> conf) {
         try {
             HashMap<String, String> newConf = new HashMap<>(conf);
             if (ProxyDynamicConf.conf.equals(newConf)) {
@@ -115,10 +136,11 @@ public class ProxyDynamicConf {
                     logger.debug("conf not modify");
                 }
             } else {
+                Set<String> changedKeys = changedKeys(ProxyDynamicConf.conf, newConf);
                 ProxyDynamicConf.conf = newConf;
-                logger.info("conf reload success");
+                logger.info("conf reload success, changed keys = {}", changedKeys);
                 clearCache();
-                triggerCallback();
+                triggerCallback(changedKeys);
             }
         } catch (Exception e) {
             logger.error("reload error");
@@ -126,18 +148,87 @@ public class ProxyDynamicConf {
     }
 
     /**
-     * 触发一下监听者的回调
+     * 触发一下监听者的回调（所有监听者，不区分关注的配置项）
      */
     public static void triggerCallback() {
+        refreshSnapshot();
         for (DynamicConfCallback callback : callbackSet) {
-            try {
-                callback.callback();
-            } catch (Exception e) {
-                logger.error("DynamicConfCallback callback error", e);
+            callback(callback);
+        }
+        for (DynamicConfCallback callback : keyCallbackMap.keySet()) {
+            callback(callback);
+        }
+    }
+
+    //只触发关注了变更配置项的监听者
+    private static void triggerCallback(Set<String> changedKeys) {
+        refreshSnapshot();
+        for (DynamicConfCallback callback : callbackSet) {
+            callback(callback);
+        }
+        for (Map.Entry<DynamicConfCallback, Set<String>> entry : keyCallbackMap.entrySet()) {
+            if (match(changedKeys, entry.getValue())) {
+                callback(entry.getKey());
             }
         }
     }
 
+    private static void callback(DynamicConfCallback callback) {
+        try {
+            callback.callback();
+        } catch (Exception e) {
+            logger.error("DynamicConfCallback callback error", e);
+        }
+    }
+
+    //变更的配置项可能是全局的xxx，也可能是某个bid/bgroup下的bid.bgroup.xxx
+    private static boolean match(Set<String> changedKeys, Set<String> keys) {
+        for (String changedKey : changedKeys) {
+            for (String key : keys) {
+                if (changedKey.equals(key)) return true;
+                int prefixLen = changedKey.length() - key.length() - 1;
+                if (prefixLen > 0 && changedKey.endsWith(key) && changedKey.charAt(prefixLen) == '.') {
+                    //前缀需要是bid.bgroup（或者default.default），避免monitor.enable误匹配big.key.monitor.enable
+                    String prefix = changedKey.substring(0, prefixLen);
+                    int index = prefix.indexOf('.');
+                    if (index > 0 && index == prefix.lastIndexOf('.') && isBid(prefix.substring(0, index))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBid(String str) {
+        if (str.equals("default")) return true;
+        for (int i=0; i<str.length(); i++) {
+            if (!Character.isDigit(str.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static Set<String> changedKeys(Map<String, String> oldConf, Map<String, String> newConf) {
+        Set<String> changedKeys = new HashSet<>();
+        for (Map.Entry<String, String> entry : newConf.entrySet()) {
+            if (!Objects.equals(entry.getValue(), oldConf.get(entry.getKey()))) {
+                changedKeys.add(entry.getKey());
+            }
+        }
+        for (String key : oldConf.keySet()) {
+            if (!newConf.containsKey(key)) {
+                changedKeys.add(key);
+            }
+        }
+        return changedKeys;
+    }
+
+    //先递增版本号再替换，持有旧快照的一方会因为版本号不一致而重新获取
+    private static void refreshSnapshot() {
+        snapshotVersion.incrementAndGet();
+        snapshotMap = new ConcurrentHashMap<>();
+    }
+
     //清空缓存
     private static void clearCache() {
         longCache.clear();
@@ -158,6 +249,46 @@ public class ProxyDynamicConf {
         }
     }
 
+    /**
+     * 注册回调，仅当关注的配置项（全局的key或者bid.bgroup.key）发生变更时才会触发，triggerCallback()则总是会触发
+     * @param callback 回调
+     * @param keys 关注的配置项
+     */
+    public static void registerCallback(DynamicConfCallback callback, String... keys) {
+        if (callback == null) return;
+        if (keys == null || keys.length == 0) {
+            registerCallback(callback);
+            return;
+        }
+        keyCallbackMap.put(callback, new HashSet<>(Arrays.asList(keys)));
+    }
+
+    /**
+     * 获取某个bid/bgroup下的配置快照，调用方可以持有快照并通过版本号判断是否失效，见ChannelInfo
+     * @param bid bid
+     * @param bgroup bgroup
+     * @return 快照
+     */
+    public static ProxyDynamicConfSnapshot getSnapshot(Long bid, String bgroup) {
+        //先读版本号，构建期间如果配置变更了，快照的版本号会落后，下次访问时会重新构建
+        long version = snapshotVersion.get();
+        ConcurrentHashMap<String, ProxyDynamicConfSnapshot> map = snapshotMap;
+        String key = bid + "|" + bgroup;
+        ProxyDynamicConfSnapshot snapshot = map.get(key);
+        if (snapshot != null && snapshot.getVersion() == version) return snapshot;
+        snapshot = new ProxyDynamicConfSnapshot(version, bid, bgroup);
+        map.put(key, snapshot);
+        return snapshot;
+    }
+
+    public static long getSnapshotVersion() {
+        return snapshotVersion.get();
+    }
+
+    static ProxyDynamicConfHook getHook() {
+        return hook;
+    }
+
     //配置reload间隔，只有启动时设置有效
     public static int confReloadIntervalSeconds() {
         return ConfigurationUtil.getInteger(conf, "dynamic.conf.reload.interval.seconds", 600);
@@ -199,6 +330,15 @@ public class ProxyDynamicConf {
         return ConfigurationUtil.getBoolean(conf, "command.spend.time.monitor.enable", defaultValue);
     }
 
+    //command stage spend time monitor enable，分阶段统计命令耗时，仅当command.spend.time.monitor.enable=true时有效
+    public static boolean commandStageSpendTimeMonitorEnable(boolean defaultValue) {
+        if (hook != null) {
+            Boolean value = hook.commandStageSpendTimeMonitorEnable();
+            if (value != null) return value;
+        }
+        return ConfigurationUtil.getBoolean(conf, "command.stage.spend.time.monitor.enable", defaultValue);
+    }
+
     //slow command threshold, ms
     public static long slowCommandThresholdMillisTime(long millis) {
         if (hook != null) {
@@ -462,6 +602,37 @@ public class ProxyDynamicConf {
         }
     }
 
+    //未配置时返回null，供快照区分"未配置"和"配置为默认值"
+    static Integer nullableInt(String key, Long bid, String bgroup) {
+        try {
+            if (conf.isEmpty()) return null;
+            Integer value = ConfigurationUtil.getInteger(conf, buildConfKey(key, bid, bgroup), null);
+            return value != null ? value : ConfigurationUtil.getInteger(conf, key, null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static Long nullableLong(String key, Long bid, String bgroup) {
+        try {
+            if (conf.isEmpty()) return null;
+            Long value = ConfigurationUtil.getLong(conf, buildConfKey(key, bid, bgroup), null);
+            return value != null ? value : ConfigurationUtil.getLong(conf, key, null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static Boolean nullableBoolean(String key, Long bid, String bgroup) {
+        try {
+            if (conf.isEmpty()) return null;
+            Boolean value = ConfigurationUtil.getBoolean(conf, buildConfKey(key, bid, bgroup), null);
+            return value != null ? value : ConfigurationUtil.getBoolean(conf, key, null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private static String buildConfKey(String key, Long bid, String bgroup) {
         if (bid == null || bgroup == null) {
             return  "default.default." + key;
@@ -31,6 +31,11 @@ public class ProxyDynamicConfHook {
         return null;
     }
 
+    //command stage spend time monitor enable，分阶段统计命令耗时，仅当command.spend.time.monitor.enable=true时有效
+    public Boolean commandStageSpendTimeMonitorEnable() {
+        return null;
+    }
+
     //slow command threshold, ms
     public Long slowCommandThresholdMillisTime() {
         return null;
@@ -0,0 +1,152 @@
+package com.netease.nim.camellia.redis.proxy.conf;
+
+import com.netease.nim.camellia.redis.proxy.util.CamelliaMapUtils;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 某个bid/bgroup下的动态配置快照，构建时一次性完成hook和配置文件的解析，之后只读
+ * 配置变更（reload或者triggerCallback）后version会变化，持有方据此判断是否需要重新获取
+ */
+public class ProxyDynamicConfSnapshot {
+
+    private final long version;
+    private final Long bid;
+    private final String bgroup;
+
+    private final Boolean hotKeyMonitorEnable;
+    private final Long hotKeyMonitorThreshold;
+
+    private final Boolean hotKeyCacheEnable;
+    private final Boolean hotKeyCacheNeedCacheNull;
+    private final Long hotKeyCacheThreshold;
+    private final Set<String> hotKeyCacheKeyPrefix;
+
+    private final Boolean bigKeyMonitorEnable;
+    private final Integer bigKeyMonitorStringThreshold;
+    private final Integer bigKeyMonitorHashThreshold;
+    private final Integer bigKeyMonitorSetThreshold;
+    private final Integer bigKeyMonitorZSetThreshold;
+    private final Integer bigKeyMonitorListThreshold;
+
+    //各个模块基于本快照编译出来的结构（如解析后的配置），随快照一起失效
+    private final ConcurrentHashMap<String, Object> attachments = new ConcurrentHashMap<>();
+
+    ProxyDynamicConfSnapshot(long version, Long bid, String bgroup) {
+        this.version = version;
+        this.bid = bid;
+        this.bgroup = bgroup;
+        //hook的优先级高于配置文件
+        ProxyDynamicConfHook hook = ProxyDynamicConf.getHook();
+        boolean hasHook = hook != null;
+        this.hotKeyMonitorEnable = or(hasHook ? hook.hotKeyMonitorEnable(bid, bgroup) : null,
+                ProxyDynamicConf.nullableBoolean("hot.key.monitor.enable", bid, bgroup));
+        this.hotKeyMonitorThreshold = or(hasHook ? hook.hotKeyMonitorThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableLong("hot.key.monitor.threshold", bid, bgroup));
+        this.hotKeyCacheEnable = or(hasHook ? hook.hotKeyCacheEnable(bid, bgroup) : null,
+                ProxyDynamicConf.nullableBoolean("hot.key.cache.enable", bid, bgroup));
+        this.hotKeyCacheNeedCacheNull = or(hasHook ? hook.hotKeyCacheNeedCacheNull(bid, bgroup) : null,
+                ProxyDynamicConf.nullableBoolean("hot.key.cache.need.cache.null", bid, bgroup));
+        this.hotKeyCacheThreshold = or(hasHook ? hook.hotKeyCacheThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableLong("hot.key.cache.threshold", bid, bgroup));
+        Set<String> prefix = ProxyDynamicConf.hotKeyCacheKeyPrefix(bid, bgroup);
+        this.hotKeyCacheKeyPrefix = prefix == null ? Collections.emptySet() : Collections.unmodifiableSet(prefix);
+        this.bigKeyMonitorEnable = or(hasHook ? hook.bigKeyMonitorEnable(bid, bgroup) : null,
+                ProxyDynamicConf.nullableBoolean("big.key.monitor.enable", bid, bgroup));
+        this.bigKeyMonitorStringThreshold = or(hasHook ? hook.bigKeyMonitorStringThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableInt("big.key.monitor.string.threshold", bid, bgroup));
+        this.bigKeyMonitorHashThreshold = or(hasHook ? hook.bigKeyMonitorHashThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableInt("big.key.monitor.hash.threshold", bid, bgroup));
+        this.bigKeyMonitorSetThreshold = or(hasHook ? hook.bigKeyMonitorSetThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableInt("big.key.monitor.set.threshold", bid, bgroup));
+        this.bigKeyMonitorZSetThreshold = or(hasHook ? hook.bigKeyMonitorZSetThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableInt("big.key.monitor.zset.threshold", bid, bgroup));
+        this.bigKeyMonitorListThreshold = or(hasHook ? hook.bigKeyMonitorListThreshold(bid, bgroup) : null,
+                ProxyDynamicConf.nullableInt("big.key.monitor.list.threshold", bid, bgroup));
+    }
+
+    private static <T> T or(T hookValue, T confValue) {
+        return hookValue != null ? hookValue : confValue;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Long getBid() {
+        return bid;
+    }
+
+    public String getBgroup() {
+        return bgroup;
+    }
+
+    public boolean hotKeyMonitorEnable(boolean defaultValue) {
+        return hotKeyMonitorEnable == null ? defaultValue : hotKeyMonitorEnable;
+    }
+
+    public long hotKeyMonitorThreshold(long defaultValue) {
+        return hotKeyMonitorThreshold == null ? defaultValue : hotKeyMonitorThreshold;
+    }
+
+    public boolean hotKeyCacheEnable(boolean defaultValue) {
+        return hotKeyCacheEnable == null ? defaultValue : hotKeyCacheEnable;
+    }
+
+    public boolean hotKeyCacheNeedCacheNull(boolean defaultValue) {
+        return hotKeyCacheNeedCacheNull == null ? defaultValue : hotKeyCacheNeedCacheNull;
+    }
+
+    public long hotKeyCacheThreshold(long defaultValue) {
+        return hotKeyCacheThreshold == null ? defaultValue : hotKeyCacheThreshold;
+    }
+
+    public Set<String> hotKeyCacheKeyPrefix() {
+        return hotKeyCacheKeyPrefix;
+    }
+
+    public boolean bigKeyMonitorEnable(boolean defaultValue) {
+        return bigKeyMonitorEnable == null ? defaultValue : bigKeyMonitorEnable;
+    }
+
+    public int bigKeyMonitorStringThreshold(int defaultValue) {
+        return bigKeyMonitorStringThreshold == null ? defaultValue : bigKeyMonitorStringThreshold;
+    }
+
+    public int bigKeyMonitorHashThreshold(int defaultValue) {
+        return bigKeyMonitorHashThreshold == null ? defaultValue : bigKeyMonitorHashThreshold;
+    }
+
+    public int bigKeyMonitorSetThreshold(int defaultValue) {
+        return bigKeyMonitorSetThreshold == null ? defaultValue : bigKeyMonitorSetThreshold;
+    }
+
+    public int bigKeyMonitorZSetThreshold(int defaultValue) {
+        return bigKeyMonitorZSetThreshold == null ? defaultValue : bigKeyMonitorZSetThreshold;
+    }
+
+    public int bigKeyMonitorListThreshold(int defaultValue) {
+        return bigKeyMonitorListThreshold == null ? defaultValue : bigKeyMonitorListThreshold;
+    }
+
+    /**
+     * 获取基于本快照编译出来的结构，不存在则通过builder构建一次，之后直接复用，直到快照失效
+     * @param name 名字
+     * @param builder 构建方法
+     * @return 结构
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttachment(String name, Function<ProxyDynamicConfSnapshot, T> builder) {
+        return (T) CamelliaMapUtils.computeIfAbsent(attachments, name, k -> builder.apply(this));
+    }
+
+    /**
+     * 读取本快照对应bid/bgroup下的字符串配置，一般在getAttachment的builder中使用
+     */
+    public String getString(String key, String defaultValue) {
+        return ProxyDynamicConf.getString(key, bid, bgroup, defaultValue);
+    }
+}
@@ -98,6 +98,8 @@ public class ConsoleServiceAdaptor implements ConsoleService {
         monitorJson.putAll(bigKeyStatsJson);
         JSONObject hotKeyCacheStatsJson = HotKeyCacheMonitor.getHotKeyCacheStatsJson();
         monitorJson.putAll(hotKeyCacheStatsJson);
+        JSONObject eventLoopStatsJson = EventLoopMonitor.getEventLoopStatsJson();
+        monitorJson.putAll(eventLoopStatsJson);
         return ConsoleResult.success(monitorJson.toJSONString());
     }
 
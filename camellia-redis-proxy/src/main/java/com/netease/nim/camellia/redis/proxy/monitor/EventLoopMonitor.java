@@ -0,0 +1,155 @@
+package com.netease.nim.camellia.redis.proxy.monitor;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.netease.nim.camellia.redis.proxy.netty.GlobalRedisProxyEnv;
+import com.netease.nim.camellia.redis.proxy.util.CamelliaMapUtils;
+import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * work-group中各个EventLoop的负载监控
+ */
+public class EventLoopMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLoopMonitor.class);
+
+    private static final AtomicBoolean initOk = new AtomicBoolean(false);
+    private static final ConcurrentHashMap<EventExecutor, EventLoopStats> statsMap = new ConcurrentHashMap<>();
+
+    private static int intervalSeconds;
+    private static JSONObject monitorJson = new JSONObject();
+
+    public static void init(int seconds) {
+        if (initOk.compareAndSet(false, true)) {
+            intervalSeconds = seconds;
+            ExecutorUtils.scheduleAtFixedRate(EventLoopMonitor::calc, seconds, seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public static EventLoopStats getEventLoopStats(EventExecutor eventLoop) {
+        return CamelliaMapUtils.computeIfAbsent(statsMap, eventLoop, k -> new EventLoopStats());
+    }
+
+    /**
+     * 负载评分，越小表示越空闲，综合考虑了绑定的连接数、上一个周期的繁忙程度、当前积压的任务数
+     */
+    public static double loadScore(EventExecutor eventLoop) {
+        int pendingTasks = pendingTasks(eventLoop);
+        EventLoopStats stats = statsMap.get(eventLoop);
+        if (stats == null) {
+            return Math.max(pendingTasks, 0);
+        }
+        return (stats.channels.get() + stats.assignedChannels.get() + 1) * (1.0 + stats.busyRatio) + Math.max(pendingTasks, 0);
+    }
+
+    public static JSONObject getEventLoopStatsJson() {
+        return monitorJson;
+    }
+
+    private static int pendingTasks(EventExecutor eventLoop) {
+        if (eventLoop instanceof SingleThreadEventExecutor) {
+            return ((SingleThreadEventExecutor) eventLoop).pendingTasks();
+        }
+        return -1;
+    }
+
+    private static void calc() {
+        try {
+            EventLoopGroup workGroup = GlobalRedisProxyEnv.workGroup;
+            if (workGroup == null) return;
+            long intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+            JSONObject json = new JSONObject();
+            JSONArray eventLoopJsonArray = new JSONArray();
+            int index = 0;
+            for (EventExecutor eventLoop : workGroup) {
+                EventLoopStats stats = getEventLoopStats(eventLoop);
+                long busyNanos = stats.busyNanos.sumThenReset();
+                stats.busyRatio = busyNanos / (intervalNanos * 1.0);
+                stats.assignedChannels.set(0);
+                int pendingTasks = pendingTasks(eventLoop);
+                JSONObject eventLoopJson = new JSONObject();
+                eventLoopJson.put("index", index);
+                eventLoopJson.put("pendingTasks", pendingTasks);
+                eventLoopJson.put("loopLatencyMs", stats.loopLatencyNanos / 1000000.0);
+                eventLoopJson.put("busyRatio", stats.busyRatio);
+                eventLoopJson.put("channels", stats.channels.get());
+                eventLoopJson.put("nonWritableChannels", stats.nonWritableChannels.get());
+                eventLoopJson.put("readCount", stats.readCount.sumThenReset());
+                eventLoopJson.put("readBytes", stats.readBytes.sumThenReset());
+                eventLoopJson.put("writeBytes", stats.writeBytes.sumThenReset());
+                eventLoopJsonArray.add(eventLoopJson);
+                index ++;
+                //投递一个空任务，用于探测任务从提交到被执行的延迟，结果在下一个周期展示
+                long submitNanoTime = System.nanoTime();
+                eventLoop.execute(() -> stats.loopLatencyNanos = System.nanoTime() - submitNanoTime);
+            }
+            json.put("eventLoopStats", eventLoopJsonArray);
+            monitorJson = json;
+        } catch (Exception e) {
+            logger.error("calc error", e);
+        }
+    }
+
+    public static class EventLoopStats {
+        private final AtomicInteger channels = new AtomicInteger();
+        //已经分配到本EventLoop但是还没有active的连接数
+        private final AtomicInteger assignedChannels = new AtomicInteger();
+        private final AtomicInteger nonWritableChannels = new AtomicInteger();
+        private final LongAdder readCount = new LongAdder();
+        private final LongAdder readBytes = new LongAdder();
+        private final LongAdder writeBytes = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private volatile double busyRatio;
+        private volatile long loopLatencyNanos;
+
+        public void assign() {
+            assignedChannels.incrementAndGet();
+        }
+
+        public void channelActive() {
+            if (assignedChannels.get() > 0) {
+                assignedChannels.decrementAndGet();
+            }
+            channels.incrementAndGet();
+        }
+
+        /**
+         * @param nonWritable 该连接关闭前是否被计入了nonWritableChannels
+         */
+        public void channelInactive(boolean nonWritable) {
+            channels.decrementAndGet();
+            if (nonWritable) {
+                nonWritableChannels.decrementAndGet();
+            }
+        }
+
+        public void writabilityChanged(boolean writable) {
+            if (writable) {
+                nonWritableChannels.decrementAndGet();
+            } else {
+                nonWritableChannels.incrementAndGet();
+            }
+        }
+
+        public void read(int bytes, long spendNanoTime) {
+            readCount.increment();
+            readBytes.add(bytes);
+            busyNanos.add(spendNanoTime);
+        }
+
+        public void write(int bytes) {
+            writeBytes.add(bytes);
+        }
+    }
+}
@@ -48,6 +48,12 @@ public class LoggingMonitorCallback implements MonitorCallback {
                 logger.info("bid={},bgroup={},command={},count={},avgSpendMs={},maxSpendMs={}", spendStats.getBid() == null ? "default" : spendStats.getBid(),
                         spendStats.getBgroup() == null ? "default" : spendStats.getBgroup(), spendStats.getCommand(), spendStats.getCount(), spendStats.getAvgSpendMs(), spendStats.getMaxSpendMs());
             }
+            logger.info("====command.stage.spend.stats====");
+            for (Stats.CommandStageSpendStats spendStats : stats.getCommandStageSpendStatsList()) {
+                logger.info("command={},stage={},count={},avgSpendMs={},maxSpendMs={},p50SpendMs={},p90SpendMs={},p99SpendMs={}",
+                        spendStats.getCommand(), spendStats.getStage(), spendStats.getCount(), spendStats.getAvgSpendMs(), spendStats.getMaxSpendMs(),
+                        spendStats.getP50SpendMs(), spendStats.getP90SpendMs(), spendStats.getP99SpendMs());
+            }
             logger.info("====resource.stats====");
             for (Stats.ResourceStats resourceStats : stats.getResourceStatsList()) {
                 logger.info("resource={},count={}", resourceStats.getResource(), resourceStats.getCount());
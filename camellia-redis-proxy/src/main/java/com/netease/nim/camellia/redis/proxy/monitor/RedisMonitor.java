@@ -5,11 +5,13 @@ import com.alibaba.fastjson.JSONObject;
 import com.netease.nim.camellia.core.util.ReadableResourceTableUtil;
 import com.netease.nim.camellia.redis.proxy.command.async.*;
 import com.netease.nim.camellia.redis.proxy.command.async.info.ProxyInfoUtils;
+import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandStage;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.util.CamelliaMapUtils;
 import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
 import com.netease.nim.camellia.redis.proxy.util.MaxValue;
+import com.netease.nim.camellia.redis.proxy.util.SpendTimeHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,11 +44,14 @@ public class RedisMonitor {
 
     private static boolean monitorEnable;
     private static boolean commandSpendTimeMonitorEnable;
+    private static boolean commandStageSpendTimeMonitorEnable;
 
     private static final ConcurrentHashMap<String, LongAdder> commandSpendCountMap = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, LongAdder> commandSpendTotalMap = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, MaxValue> commandSpendMaxMap = new ConcurrentHashMap<>();
 
+    private static final ConcurrentHashMap<String, SpendTimeHistogram[]> commandStageSpendMap = new ConcurrentHashMap<>();
+
     private static ConcurrentHashMap<String, LongAdder> resourceCommandBidBgroupMap = new ConcurrentHashMap<>();
 
     private static final ConcurrentHashMap<String, AsyncCamelliaRedisTemplate> templateMap = new ConcurrentHashMap<>();
@@ -59,7 +64,8 @@ public class RedisMonitor {
             RedisMonitor.monitorEnable = true;
             RedisMonitor.commandSpendTimeMonitorEnable = commandSpendTimeMonitorEnable;
             RedisMonitor.monitorCallback = monitorCallback;
-            ProxyDynamicConf.registerCallback(RedisMonitor::reloadConf);
+            ProxyDynamicConf.registerCallback(RedisMonitor::reloadConf,
+                    "monitor.enable", "command.spend.time.monitor.enable", "command.stage.spend.time.monitor.enable");
             reloadConf();
         }
     }
@@ -67,6 +73,7 @@ public class RedisMonitor {
     private static void reloadConf() {
         RedisMonitor.monitorEnable = ProxyDynamicConf.monitorEnable(RedisMonitor.monitorEnable);
         RedisMonitor.commandSpendTimeMonitorEnable = ProxyDynamicConf.commandSpendTimeMonitorEnable(RedisMonitor.commandSpendTimeMonitorEnable);
+        RedisMonitor.commandStageSpendTimeMonitorEnable = ProxyDynamicConf.commandStageSpendTimeMonitorEnable(false);
     }
 
     /**
@@ -84,6 +91,13 @@ public class RedisMonitor {
         return monitorEnable && commandSpendTimeMonitorEnable;
     }
 
+    /**
+     * 命令分阶段耗时开关
+     */
+    public static boolean isCommandStageSpendTimeMonitorEnable() {
+        return monitorEnable && commandSpendTimeMonitorEnable && commandStageSpendTimeMonitorEnable;
+    }
+
     /**
      * 统计 AsyncCamelliaRedisTemplate
      */
@@ -198,6 +212,26 @@ public class RedisMonitor {
         }
     }
 
+    /**
+     * command stage spend time incr
+     */
+    public static void incrCommandStageSpendTime(String command, CommandStage stage, long spendNanoTime) {
+        try {
+            if (!isCommandStageSpendTimeMonitorEnable()) return;
+            if (command == null) return;
+            SpendTimeHistogram[] histograms = CamelliaMapUtils.computeIfAbsent(commandStageSpendMap, command, k -> {
+                SpendTimeHistogram[] array = new SpendTimeHistogram[CommandStage.values().length];
+                for (int i=0; i<array.length; i++) {
+                    array[i] = new SpendTimeHistogram();
+                }
+                return array;
+            });
+            histograms[stage.ordinal()].update(spendNanoTime);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
     /**
      * get Stats
      */
@@ -301,6 +335,21 @@ public class RedisMonitor {
         }
         monitorJson.put("bidBgroupSpendStats", bidBgroupSpendJsonArray);
 
+        JSONArray commandStageSpendJsonArray = new JSONArray();
+        for (Stats.CommandStageSpendStats commandStageSpendStats : stats.getCommandStageSpendStatsList()) {
+            JSONObject spendJson = new JSONObject();
+            spendJson.put("command", commandStageSpendStats.getCommand());
+            spendJson.put("stage", commandStageSpendStats.getStage());
+            spendJson.put("count", commandStageSpendStats.getCount());
+            spendJson.put("avgSpendMs", commandStageSpendStats.getAvgSpendMs());
+            spendJson.put("maxSpendMs", commandStageSpendStats.getMaxSpendMs());
+            spendJson.put("p50SpendMs", commandStageSpendStats.getP50SpendMs());
+            spendJson.put("p90SpendMs", commandStageSpendStats.getP90SpendMs());
+            spendJson.put("p99SpendMs", commandStageSpendStats.getP99SpendMs());
+            commandStageSpendJsonArray.add(spendJson);
+        }
+        monitorJson.put("commandStageSpendStats", commandStageSpendJsonArray);
+
         JSONArray resourceStatsJsonArray = new JSONArray();
         for (Stats.ResourceStats resourceStats : stats.getResourceStatsList()) {
             JSONObject json = new JSONObject();
@@ -488,6 +537,27 @@ public class RedisMonitor {
                 }
             }
 
+            List<Stats.CommandStageSpendStats> commandStageSpendStatsList = new ArrayList<>();
+            CommandStage[] commandStages = CommandStage.values();
+            for (Map.Entry<String, SpendTimeHistogram[]> entry : commandStageSpendMap.entrySet()) {
+                String command = entry.getKey();
+                SpendTimeHistogram[] histograms = entry.getValue();
+                for (CommandStage stage : commandStages) {
+                    SpendTimeHistogram.Snapshot snapshot = histograms[stage.ordinal()].snapshotAndReset();
+                    if (snapshot.getCount() == 0) continue;
+                    Stats.CommandStageSpendStats commandStageSpendStats = new Stats.CommandStageSpendStats();
+                    commandStageSpendStats.setCommand(command);
+                    commandStageSpendStats.setStage(stage.name());
+                    commandStageSpendStats.setCount(snapshot.getCount());
+                    commandStageSpendStats.setAvgSpendMs(snapshot.getAvgSpendMs());
+                    commandStageSpendStats.setMaxSpendMs(snapshot.getMaxSpendMs());
+                    commandStageSpendStats.setP50SpendMs(snapshot.getPercentileSpendMs(0.5));
+                    commandStageSpendStats.setP90SpendMs(snapshot.getPercentileSpendMs(0.9));
+                    commandStageSpendStats.setP99SpendMs(snapshot.getPercentileSpendMs(0.99));
+                    commandStageSpendStatsList.add(commandStageSpendStats);
+                }
+            }
+
             ConcurrentHashMap<String, Stats.ResourceStats> resourceStatsMap = new ConcurrentHashMap<>();
             ConcurrentHashMap<String, Stats.ResourceCommandStats> resourceCommandStatsMap = new ConcurrentHashMap<>();
 
@@ -605,6 +675,7 @@ public class RedisMonitor {
             stats.setFailMap(failMap);
             stats.setSpendStatsList(new ArrayList<>(spendStatsMap.values()));
             stats.setBidBgroupSpendStatsList(bidBgroupSpendStatsList);
+            stats.setCommandStageSpendStatsList(commandStageSpendStatsList);
             stats.setIntervalSeconds(intervalSeconds);
             stats.setResourceStatsList(new ArrayList<>(resourceStatsMap.values()));
             stats.setResourceCommandStatsList(new ArrayList<>(resourceCommandStatsMap.values()));
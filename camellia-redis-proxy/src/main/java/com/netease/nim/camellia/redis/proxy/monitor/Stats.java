@@ -23,6 +23,7 @@ public class Stats {
     private Map<String, Long> failMap = new HashMap<>();
     private List<SpendStats> spendStatsList = new ArrayList<>();
     private List<BidBgroupSpendStats> bidBgroupSpendStatsList = new ArrayList<>();
+    private List<CommandStageSpendStats> commandStageSpendStatsList = new ArrayList<>();
     private List<ResourceStats> resourceStatsList = new ArrayList<>();
     private List<ResourceCommandStats> resourceCommandStatsList = new ArrayList<>();
     private List<ResourceBidBgroupStats> resourceBidBgroupStatsList = new ArrayList<>();
@@ -118,6 +119,14 @@ public class Stats {
         this.bidBgroupSpendStatsList = bidBgroupSpendStatsList;
     }
 
+    public List<CommandStageSpendStats> getCommandStageSpendStatsList() {
+        return commandStageSpendStatsList;
+    }
+
+    public void setCommandStageSpendStatsList(List<CommandStageSpendStats> commandStageSpendStatsList) {
+        this.commandStageSpendStatsList = commandStageSpendStatsList;
+    }
+
     public List<ResourceCommandStats> getResourceCommandStatsList() {
         return resourceCommandStatsList;
     }
@@ -363,6 +372,81 @@ public class Stats {
         }
     }
 
+    public static class CommandStageSpendStats {
+        private String command;
+        private String stage;
+        private long count;
+        private double avgSpendMs;
+        private double maxSpendMs;
+        private double p50SpendMs;
+        private double p90SpendMs;
+        private double p99SpendMs;
+
+        public String getCommand() {
+            return command;
+        }
+
+        public void setCommand(String command) {
+            this.command = command;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public void setStage(String stage) {
+            this.stage = stage;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        public double getAvgSpendMs() {
+            return avgSpendMs;
+        }
+
+        public void setAvgSpendMs(double avgSpendMs) {
+            this.avgSpendMs = avgSpendMs;
+        }
+
+        public double getMaxSpendMs() {
+            return maxSpendMs;
+        }
+
+        public void setMaxSpendMs(double maxSpendMs) {
+            this.maxSpendMs = maxSpendMs;
+        }
+
+        public double getP50SpendMs() {
+            return p50SpendMs;
+        }
+
+        public void setP50SpendMs(double p50SpendMs) {
+            this.p50SpendMs = p50SpendMs;
+        }
+
+        public double getP90SpendMs() {
+            return p90SpendMs;
+        }
+
+        public void setP90SpendMs(double p90SpendMs) {
+            this.p90SpendMs = p90SpendMs;
+        }
+
+        public double getP99SpendMs() {
+            return p99SpendMs;
+        }
+
+        public void setP99SpendMs(double p99SpendMs) {
+            this.p99SpendMs = p99SpendMs;
+        }
+    }
+
     public static class ResourceStats {
         private String resource;
         private long count;
@@ -3,6 +3,7 @@ package com.netease.nim.camellia.redis.proxy.netty;
 import com.netease.nim.camellia.redis.proxy.command.CommandInvoker;
 import com.netease.nim.camellia.redis.proxy.command.async.info.ProxyInfoUtils;
 import com.netease.nim.camellia.redis.proxy.conf.CamelliaServerProperties;
+import com.netease.nim.camellia.redis.proxy.monitor.EventLoopMonitor;
 import com.netease.nim.camellia.redis.proxy.util.ConfigInitUtil;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
@@ -24,6 +25,7 @@ public class CamelliaRedisProxyServer {
     private final CamelliaServerProperties serverProperties;
     private final ServerHandler serverHandler;
     private final InitHandler initHandler = new InitHandler();
+    private final EventLoopMonitorHandler eventLoopMonitorHandler = new EventLoopMonitorHandler();
     private final EventLoopGroup bossGroup;
     private final EventLoopGroup workGroup;
 
@@ -45,7 +47,11 @@ public class CamelliaRedisProxyServer {
         int workThread = serverProperties.getWorkThread();
         logger.info("CamelliaRedisProxyServer init, bossThread = {}, workThread = {}", bossThread, workThread);
         this.bossGroup = new NioEventLoopGroup(bossThread, new DefaultThreadFactory("boss-group"));
-        this.workGroup = new NioEventLoopGroup(workThread, new DefaultThreadFactory("work-group"));
+        if (serverProperties.isLeastLoadedEventLoopChooserEnable()) {
+            this.workGroup = LeastLoadedEventExecutorChooserFactory.newEventLoopGroup(workThread, new DefaultThreadFactory("work-group"));
+        } else {
+            this.workGroup = new NioEventLoopGroup(workThread, new DefaultThreadFactory("work-group"));
+        }
         GlobalRedisProxyEnv.workThread = workThread;
         GlobalRedisProxyEnv.bossThread = bossThread;
         GlobalRedisProxyEnv.workGroup = workGroup;
@@ -55,6 +61,10 @@ public class CamelliaRedisProxyServer {
     }
 
     public void start() throws Exception {
+        boolean eventLoopMonitorEnable = serverProperties.isEventLoopMonitorEnable() || serverProperties.isLeastLoadedEventLoopChooserEnable();
+        if (eventLoopMonitorEnable) {
+            EventLoopMonitor.init(serverProperties.getMonitorIntervalSeconds());
+        }
         ServerBootstrap serverBootstrap = new ServerBootstrap();
         serverBootstrap.group(bossGroup, workGroup)
                 .channel(NioServerSocketChannel.class)
@@ -68,6 +78,9 @@ public class CamelliaRedisProxyServer {
                     @Override
                     public void initChannel(SocketChannel ch) throws Exception {
                         ChannelPipeline p = ch.pipeline();
+                        if (eventLoopMonitorEnable) {
+                            p.addLast(eventLoopMonitorHandler);
+                        }
                         p.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize()));
                         p.addLast(new ReplyEncoder(serverProperties));
                         p.addLast(initHandler);
@@ -5,6 +5,8 @@ import com.netease.nim.camellia.redis.exception.CamelliaRedisException;
 import com.netease.nim.camellia.redis.proxy.command.async.AsyncTaskQueue;
 import com.netease.nim.camellia.redis.proxy.command.async.RedisClient;
 import com.netease.nim.camellia.redis.proxy.command.async.RedisClientAddr;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfSnapshot;
 import com.netease.nim.camellia.redis.proxy.util.BytesKey;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
@@ -38,6 +40,7 @@ public class ChannelInfo {
     private String clientName;
     private Long bid;
     private String bgroup;
+    private ProxyDynamicConfSnapshot dynamicConfSnapshot;
 
     public ChannelInfo() {
         this.consid = null;
@@ -139,6 +142,7 @@ public class ChannelInfo {
 
     public void setBid(Long bid) {
         this.bid = bid;
+        this.dynamicConfSnapshot = null;
     }
 
     public String getBgroup() {
@@ -151,6 +155,17 @@ public class ChannelInfo {
 
     public void setBgroup(String bgroup) {
         this.bgroup = bgroup;
+        this.dynamicConfSnapshot = null;
+    }
+
+    //当前bid/bgroup下的动态配置快照，配置变更或者bid/bgroup变化后会重新获取
+    public ProxyDynamicConfSnapshot getDynamicConfSnapshot() {
+        ProxyDynamicConfSnapshot snapshot = this.dynamicConfSnapshot;
+        if (snapshot == null || snapshot.getVersion() != ProxyDynamicConf.getSnapshotVersion()) {
+            snapshot = ProxyDynamicConf.getSnapshot(bid, bgroup);
+            this.dynamicConfSnapshot = snapshot;
+        }
+        return snapshot;
     }
 
     public RedisClient getBindClient() {
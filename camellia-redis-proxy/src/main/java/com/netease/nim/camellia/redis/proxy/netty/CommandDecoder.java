@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis.proxy.netty;
 
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.monitor.RedisMonitor;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -15,6 +16,7 @@ public class CommandDecoder extends ReplayingDecoder<Void> {
     private List<Command> commands;
     private byte[][] bytes;
     private int index = 0;
+    private long decodeNanoTime = 0;
 
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
@@ -56,6 +58,7 @@ public class CommandDecoder extends ReplayingDecoder<Void> {
                 }
                 try {
                     Command command = new Command(bytes);
+                    command.setDecodeNanoTime(decodeNanoTime);
                     commands.add(command);
                     if (commands.size() >= commandDecodeMaxBatchSize) {
                         out.add(commands);
@@ -64,6 +67,7 @@ public class CommandDecoder extends ReplayingDecoder<Void> {
                 } finally {
                     bytes = null;
                     index = 0;
+                    decodeNanoTime = 0;
                 }
                 decode(ctx, in, out);
             } else if (in.readByte() == '*') {
@@ -76,6 +80,9 @@ public class CommandDecoder extends ReplayingDecoder<Void> {
                     throw new IllegalArgumentException("Invalid size: " + numArgs);
                 }
                 bytes = new byte[numArgs][];
+                if (RedisMonitor.isCommandStageSpendTimeMonitorEnable()) {
+                    decodeNanoTime = System.nanoTime();
+                }
                 checkpoint();
                 decode(ctx, in, out);
             } else {
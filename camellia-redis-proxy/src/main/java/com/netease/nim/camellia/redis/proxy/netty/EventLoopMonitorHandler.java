@@ -0,0 +1,66 @@
+package com.netease.nim.camellia.redis.proxy.netty;
+
+import com.netease.nim.camellia.redis.proxy.monitor.EventLoopMonitor;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * 放在pipeline的最前面，统计每个EventLoop上的连接数、读写字节数、处理读事件的耗时等
+ */
+@ChannelHandler.Sharable
+public class EventLoopMonitorHandler extends ChannelDuplexHandler {
+
+    //该连接是否被计入了nonWritableChannels，连接关闭后isWritable总是false，不能用来判断
+    private static final AttributeKey<Boolean> NON_WRITABLE = AttributeKey.valueOf("NW");
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        EventLoopMonitor.getEventLoopStats(ctx.channel().eventLoop()).channelActive();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Boolean nonWritable = ctx.channel().attr(NON_WRITABLE).getAndSet(Boolean.FALSE);
+        EventLoopMonitor.getEventLoopStats(ctx.channel().eventLoop()).channelInactive(nonWritable != null && nonWritable);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isActive()) {
+            boolean writable = ctx.channel().isWritable();
+            Attribute<Boolean> attr = ctx.channel().attr(NON_WRITABLE);
+            Boolean old = attr.getAndSet(!writable);
+            //只在状态真正变化时更新计数
+            if ((old != null && old) == writable) {
+                EventLoopMonitor.getEventLoopStats(ctx.channel().eventLoop()).writabilityChanged(writable);
+            }
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        int bytes = msg instanceof ByteBuf ? ((ByteBuf) msg).readableBytes() : 0;
+        long startNanoTime = System.nanoTime();
+        try {
+            ctx.fireChannelRead(msg);
+        } finally {
+            EventLoopMonitor.getEventLoopStats(ctx.channel().eventLoop()).read(bytes, System.nanoTime() - startNanoTime);
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            EventLoopMonitor.getEventLoopStats(ctx.channel().eventLoop()).write(((ByteBuf) msg).readableBytes());
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -0,0 +1,57 @@
+package com.netease.nim.camellia.redis.proxy.netty;
+
+import com.netease.nim.camellia.redis.proxy.monitor.EventLoopMonitor;
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 替代netty默认的round-robin策略，新连接会被分配到负载最低的EventLoop上，负载评分见EventLoopMonitor.loadScore
+ * 需要配合EventLoopMonitorHandler使用
+ */
+public class LeastLoadedEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    public static final LeastLoadedEventExecutorChooserFactory INSTANCE = new LeastLoadedEventExecutorChooserFactory();
+
+    private LeastLoadedEventExecutorChooserFactory() {
+    }
+
+    public static NioEventLoopGroup newEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+        return new NioEventLoopGroup(nThreads, new ThreadPerTaskExecutor(threadFactory), INSTANCE,
+                SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE);
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        return new LeastLoadedEventExecutorChooser(executors);
+    }
+
+    private static class LeastLoadedEventExecutorChooser implements EventExecutorChooser {
+
+        private final EventExecutor[] executors;
+
+        LeastLoadedEventExecutorChooser(EventExecutor[] executors) {
+            this.executors = executors;
+        }
+
+        @Override
+        public EventExecutor next() {
+            EventExecutor target = executors[0];
+            double minScore = Double.MAX_VALUE;
+            for (EventExecutor executor : executors) {
+                double score = EventLoopMonitor.loadScore(executor);
+                if (score < minScore) {
+                    minScore = score;
+                    target = executor;
+                }
+            }
+            EventLoopMonitor.getEventLoopStats(target).assign();
+            return target;
+        }
+    }
+}
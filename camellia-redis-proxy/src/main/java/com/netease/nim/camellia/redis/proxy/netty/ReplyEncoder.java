@@ -1,5 +1,6 @@
 package com.netease.nim.camellia.redis.proxy.netty;
 
+import com.netease.nim.camellia.redis.proxy.command.async.spendtime.CommandStage;
 import com.netease.nim.camellia.redis.proxy.reply.ReplyPack;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.conf.CamelliaServerProperties;
@@ -53,11 +54,13 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
                     this.id = id;
                     Reply reply = pack.getReply();
                     reply.write(out);
+                    stageSpend(pack);
                     while (!packMap.isEmpty()) {
                         ReplyPack replyPack = packMap.get(this.id + 1);
                         if (replyPack != null) {
                             this.id = replyPack.getId();
                             replyPack.getReply().write(out);
+                            stageSpend(replyPack);
                             packMap.remove(replyPack.getId());
                         } else {
                             break;
@@ -89,4 +92,10 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
             }
         }
     }
+
+    private void stageSpend(ReplyPack pack) {
+        if (pack.getStartNanoTime() > 0) {
+            RedisMonitor.incrCommandStageSpendTime(pack.getCommand(), CommandStage.REPLY, System.nanoTime() - pack.getStartNanoTime());
+        }
+    }
 }
@@ -8,10 +8,18 @@ public class ReplyPack {
 
     private final Reply reply;
     private final long id;
+    private final String command;
+    private final long startNanoTime;
 
     public ReplyPack(Reply reply, long id) {
+        this(reply, id, null, 0);
+    }
+
+    public ReplyPack(Reply reply, long id, String command, long startNanoTime) {
         this.reply = reply;
         this.id = id;
+        this.command = command;
+        this.startNanoTime = startNanoTime;
     }
 
     public Reply getReply() {
@@ -21,4 +29,12 @@ public class ReplyPack {
     public long getId() {
         return id;
     }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public long getStartNanoTime() {
+        return startNanoTime;
+    }
 }
@@ -0,0 +1,133 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个简单的耗时直方图，分桶是固定的，用于估算分位数
+ * 默认分桶单位是ns，也可以自定义分桶的上界，用于批量大小等其他指标的分布统计
+ */
+public class SpendTimeHistogram {
+
+    //默认的各个分桶的上界，单位ns，最后一个桶表示超过1s
+    private static final long[] defaultBucketBounds = new long[] {
+            50_000L, 100_000L, 200_000L, 500_000L,
+            1_000_000L, 2_000_000L, 5_000_000L, 10_000_000L,
+            20_000_000L, 50_000_000L, 100_000_000L, 200_000_000L,
+            500_000_000L, 1_000_000_000L, Long.MAX_VALUE
+    };
+
+    private final long[] bucketBounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final MaxValue max = new MaxValue();
+
+    public SpendTimeHistogram() {
+        this(defaultBucketBounds);
+    }
+
+    /**
+     * @param bucketBounds 各个分桶的上界，需要递增，如果最后一个不是Long.MAX_VALUE会自动补上
+     */
+    public SpendTimeHistogram(long[] bucketBounds) {
+        if (bucketBounds.length == 0 || bucketBounds[bucketBounds.length - 1] != Long.MAX_VALUE) {
+            bucketBounds = Arrays.copyOf(bucketBounds, bucketBounds.length + 1);
+            bucketBounds[bucketBounds.length - 1] = Long.MAX_VALUE;
+        }
+        this.bucketBounds = bucketBounds;
+        this.buckets = new LongAdder[bucketBounds.length];
+        for (int i=0; i<buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void update(long value) {
+        if (value < 0) return;
+        int index = 0;
+        while (value > bucketBounds[index]) {
+            index ++;
+        }
+        buckets[index].increment();
+        count.increment();
+        total.add(value);
+        max.update(value);
+    }
+
+    /**
+     * 获取快照并且重置
+     */
+    public Snapshot snapshotAndReset() {
+        long[] bucketCounts = new long[buckets.length];
+        for (int i=0; i<buckets.length; i++) {
+            bucketCounts[i] = buckets[i].sumThenReset();
+        }
+        return new Snapshot(count.sumThenReset(), total.sumThenReset(), max.getAndSet(0), bucketBounds, bucketCounts);
+    }
+
+    public static class Snapshot {
+        private final long count;
+        private final long totalNanoTime;
+        private final long maxNanoTime;
+        private final long[] bucketBounds;
+        private final long[] bucketCounts;
+
+        private Snapshot(long count, long totalNanoTime, long maxNanoTime, long[] bucketBounds, long[] bucketCounts) {
+            this.count = count;
+            this.totalNanoTime = totalNanoTime;
+            this.maxNanoTime = maxNanoTime;
+            this.bucketBounds = bucketBounds;
+            this.bucketCounts = bucketCounts;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotal() {
+            return totalNanoTime;
+        }
+
+        public long getMax() {
+            return maxNanoTime;
+        }
+
+        public long[] getBucketBounds() {
+            return bucketBounds;
+        }
+
+        public long[] getBucketCounts() {
+            return bucketCounts;
+        }
+
+        public double getAvgSpendMs() {
+            if (count == 0) return 0.0;
+            return totalNanoTime / (1000000.0 * count);
+        }
+
+        public double getMaxSpendMs() {
+            return maxNanoTime / 1000000.0;
+        }
+
+        /**
+         * 估算分位数，返回所在分桶的上界（不会超过最大值），单位ms
+         * @param percentile 0-1之间
+         */
+        public double getPercentileSpendMs(double percentile) {
+            long bucketSum = 0;
+            for (long bucketCount : bucketCounts) {
+                bucketSum += bucketCount;
+            }
+            if (bucketSum == 0) return 0.0;
+            long threshold = (long) Math.ceil(bucketSum * percentile);
+            long cumulative = 0;
+            for (int i=0; i<bucketCounts.length; i++) {
+                cumulative += bucketCounts[i];
+                if (cumulative >= threshold) {
+                    return Math.min(bucketBounds[i], maxNanoTime) / 1000000.0;
+                }
+            }
+            return getMaxSpendMs();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis;
 
 import com.netease.nim.camellia.core.api.*;
 import com.netease.nim.camellia.core.client.env.Monitor;
+import com.netease.nim.camellia.core.client.env.MultiWriteMode;
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
 import com.netease.nim.camellia.core.client.hub.standard.StandardProxyGenerator;
 import com.netease.nim.camellia.core.model.Resource;
@@ -139,8 +140,10 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
         ProxyEnv env = factory.getEnv();
         //pipeline的proxy对象在分片和双写场景下，不能使用分片并发和多写并发，因为在某些场景下可能有并发问题（获取Client、Client发出指令、把Response对象放到ResponseQueable这三个操作）
         //并且由于pipeline下，只有在调用sync方法时才会真正发出请求，因此使用分片并发和多写并发本身也没有什么意义
+        //同理，多写也不能使用FIRST_RESOURCE_ONLY的异步写
         ProxyEnv pipelineProxyEnv = new ProxyEnv.Builder(env)
-                .shadingConcurrentEnable(false).multiWriteConcurrentEnable(false).build();
+                .shadingConcurrentEnable(false).multiWriteConcurrentEnable(false)
+                .multiWriteMode(MultiWriteMode.ALL_RESOURCES_CHECK_ERROR).build();
         StandardProxyGenerator<CamelliaRedisPipelineImpl> generator = new StandardProxyGenerator<>(CamelliaRedisPipelineImpl.class,
                 resourceTable, null, pipelineProxyEnv);
         CamelliaRedisPipelineImpl pipelineProxy = generator.generate();
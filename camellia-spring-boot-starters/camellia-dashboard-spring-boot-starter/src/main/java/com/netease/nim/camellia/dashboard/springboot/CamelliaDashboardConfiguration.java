@@ -18,6 +18,12 @@ public class CamelliaDashboardConfiguration {
 
     private int daoCacheExpireSeconds = 86400;
 
+    private long watchCheckIntervalMillis = 1000;
+
+    private long watchMaxTimeoutMillis = 60000;
+
+    private int batchMaxSize = 1000;
+
     public int getLocalCacheExpireSeconds() {
         return localCacheExpireSeconds;
     }
@@ -49,5 +55,28 @@ public class CamelliaDashboardConfiguration {
     public void setDaoCacheExpireSeconds(int daoCacheExpireSeconds) {
         this.daoCacheExpireSeconds = daoCacheExpireSeconds;
     }
-}
 
+    public long getWatchCheckIntervalMillis() {
+        return watchCheckIntervalMillis;
+    }
+
+    public void setWatchCheckIntervalMillis(long watchCheckIntervalMillis) {
+        this.watchCheckIntervalMillis = watchCheckIntervalMillis;
+    }
+
+    public long getWatchMaxTimeoutMillis() {
+        return watchMaxTimeoutMillis;
+    }
+
+    public void setWatchMaxTimeoutMillis(long watchMaxTimeoutMillis) {
+        this.watchMaxTimeoutMillis = watchMaxTimeoutMillis;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+}
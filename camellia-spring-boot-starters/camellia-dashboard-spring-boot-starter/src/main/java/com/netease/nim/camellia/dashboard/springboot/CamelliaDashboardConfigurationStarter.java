@@ -20,6 +20,9 @@ public class CamelliaDashboardConfigurationStarter {
         dashboardProperties.setStatsExpireSeconds(configuration.getStatsExpireSeconds());
         dashboardProperties.setStatsKeyExpireHours(configuration.getStatsKeyExpireHours());
         dashboardProperties.setDaoCacheExpireSeconds(configuration.getDaoCacheExpireSeconds());
+        dashboardProperties.setWatchCheckIntervalMillis(configuration.getWatchCheckIntervalMillis());
+        dashboardProperties.setWatchMaxTimeoutMillis(configuration.getWatchMaxTimeoutMillis());
+        dashboardProperties.setBatchMaxSize(configuration.getBatchMaxSize());
         return dashboardProperties;
     }
 }
@@ -7,6 +7,7 @@ import com.netease.nim.camellia.redis.proxy.conf.CamelliaTranspondProperties;
 import com.netease.nim.camellia.redis.proxy.console.ConsoleService;
 import com.netease.nim.camellia.redis.proxy.console.ConsoleServiceAdaptor;
 import com.netease.nim.camellia.redis.proxy.netty.GlobalRedisProxyEnv;
+import com.netease.nim.camellia.redis.proxy.netty.LeastLoadedEventExecutorChooserFactory;
 import com.netease.nim.camellia.redis.proxy.springboot.conf.CamelliaRedisProxyProperties;
 import com.netease.nim.camellia.redis.proxy.springboot.conf.NettyProperties;
 import com.netease.nim.camellia.redis.proxy.springboot.conf.TranspondProperties;
@@ -77,6 +78,9 @@ public class CamelliaRedisProxyConfiguration {
         int workThread = serverProperties.getWorkThread();
         logger.info("CamelliaRedisProxyServer init, workThread = {}", workThread);
         GlobalRedisProxyEnv.workThread = workThread;
+        if (serverProperties.isLeastLoadedEventLoopChooserEnable()) {
+            return new EventLoopGroupGetter(LeastLoadedEventExecutorChooserFactory.newEventLoopGroup(workThread, new DefaultThreadFactory("camellia-work-group")));
+        }
         return new EventLoopGroupGetter(new NioEventLoopGroup(workThread, new DefaultThreadFactory("camellia-work-group")));
     }
 
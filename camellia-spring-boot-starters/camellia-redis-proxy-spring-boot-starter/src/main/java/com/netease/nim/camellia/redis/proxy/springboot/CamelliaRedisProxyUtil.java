@@ -58,6 +58,7 @@ public class CamelliaRedisProxyUtil {
         serverProperties.setSoSndbuf(netty.getSoSndbuf());
         serverProperties.setWriteBufferWaterMarkLow(netty.getWriteBufferWaterMarkLow());
         serverProperties.setWriteBufferWaterMarkHigh(netty.getWriteBufferWaterMarkHigh());
+        serverProperties.setLeastLoadedEventLoopChooserEnable(netty.isLeastLoadedEventLoopChooserEnable());
 
         CamelliaRedisProxyProperties.HotKeyMonitorConfig hotKeyMonitorConfig = properties.getHotKeyMonitorConfig();
         CamelliaServerProperties.HotKeyMonitorConfig config = new CamelliaServerProperties.HotKeyMonitorConfig();
@@ -95,6 +96,7 @@ public class CamelliaRedisProxyUtil {
         serverProperties.setBigKeyMonitorEnable(properties.isBigKeyMonitorEnable());
         serverProperties.setProxyDynamicConfHookClassName(properties.getProxyDynamicConfHookClassName());
         serverProperties.setMonitorDataMaskPassword(properties.isMonitorDataMaskPassword());
+        serverProperties.setEventLoopMonitorEnable(properties.isEventLoopMonitorEnable());
         return serverProperties;
     }
 
@@ -187,6 +189,10 @@ public class CamelliaRedisProxyUtil {
         remoteProperties.setCheckIntervalMillis(properties.getCheckIntervalMillis());
         remoteProperties.setConnectTimeoutMillis(properties.getConnectTimeoutMillis());
         remoteProperties.setReadTimeoutMillis(properties.getReadTimeoutMillis());
+        remoteProperties.setWatchEnable(properties.isWatchEnable());
+        remoteProperties.setWatchTimeoutMillis(properties.getWatchTimeoutMillis());
+        remoteProperties.setBatchLoadEnable(properties.isBatchLoadEnable());
+        remoteProperties.setPreloadBgroups(properties.getPreloadBgroups());
         return remoteProperties;
     }
 
@@ -106,6 +106,11 @@ public class CamelliaRedisProxyProperties {
      */
     private boolean monitorDataMaskPassword = Constants.Server.monitorDataMaskPassword;
 
+    /**
+     * 是否开启work-group中各个EventLoop的负载监控（积压任务数、任务调度延迟、繁忙度、连接数、读写字节数等）
+     */
+    private boolean eventLoopMonitorEnable = Constants.Server.eventLoopMonitorEnable;
+
     /**
      * netty相关参数
      */
@@ -276,6 +281,14 @@ public class CamelliaRedisProxyProperties {
         this.proxyDynamicConfHookClassName = proxyDynamicConfHookClassName;
     }
 
+    public boolean isEventLoopMonitorEnable() {
+        return eventLoopMonitorEnable;
+    }
+
+    public void setEventLoopMonitorEnable(boolean eventLoopMonitorEnable) {
+        this.eventLoopMonitorEnable = eventLoopMonitorEnable;
+    }
+
     public boolean isMonitorDataMaskPassword() {
         return monitorDataMaskPassword;
     }
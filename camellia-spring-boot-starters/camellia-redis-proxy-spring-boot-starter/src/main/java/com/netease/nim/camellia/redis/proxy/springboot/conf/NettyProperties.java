@@ -18,6 +18,7 @@ public class NettyProperties {
     private int writeBufferWaterMarkHigh = Constants.Server.writeBufferWaterMarkHigh;
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private boolean leastLoadedEventLoopChooserEnable = Constants.Server.leastLoadedEventLoopChooserEnable;
 
     public int getBossThread() {
         return bossThread;
@@ -90,4 +91,12 @@ public class NettyProperties {
     public void setWriteBufferWaterMarkHigh(int writeBufferWaterMarkHigh) {
         this.writeBufferWaterMarkHigh = writeBufferWaterMarkHigh;
     }
+
+    public boolean isLeastLoadedEventLoopChooserEnable() {
+        return leastLoadedEventLoopChooserEnable;
+    }
+
+    public void setLeastLoadedEventLoopChooserEnable(boolean leastLoadedEventLoopChooserEnable) {
+        this.leastLoadedEventLoopChooserEnable = leastLoadedEventLoopChooserEnable;
+    }
 }
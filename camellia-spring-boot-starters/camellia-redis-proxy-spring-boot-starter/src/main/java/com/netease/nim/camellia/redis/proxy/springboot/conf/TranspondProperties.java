@@ -281,6 +281,26 @@ public class TranspondProperties {
          */
         private int readTimeoutMillis = Constants.Remote.readTimeoutMillis;
 
+        /**
+         * 是否通过dashboard的长轮询接口监听资源表变更（一个连接覆盖所有bid/bgroup），需要dashboard支持，失败时会退化为按checkIntervalMillis轮询
+         */
+        private boolean watchEnable = Constants.Remote.watchEnable;
+
+        /**
+         * 长轮询时dashboard最多hold住请求的时间
+         */
+        private long watchTimeoutMillis = Constants.Remote.watchTimeoutMillis;
+
+        /**
+         * 是否使用dashboard的批量接口，开启后所有bid/bgroup的资源表在一次请求里完成检查，且预加载时也只需要一次请求（watchEnable=true时只用于预加载）
+         */
+        private boolean batchLoadEnable = Constants.Remote.batchLoadEnable;
+
+        /**
+         * 启动时预加载的bid/bgroup，格式：1|default,2|default，只有dynamic=true时有效
+         */
+        private String preloadBgroups;
+
         public String getUrl() {
             return url;
         }
@@ -344,6 +364,38 @@ public class TranspondProperties {
         public void setReadTimeoutMillis(int readTimeoutMillis) {
             this.readTimeoutMillis = readTimeoutMillis;
         }
+
+        public boolean isWatchEnable() {
+            return watchEnable;
+        }
+
+        public void setWatchEnable(boolean watchEnable) {
+            this.watchEnable = watchEnable;
+        }
+
+        public long getWatchTimeoutMillis() {
+            return watchTimeoutMillis;
+        }
+
+        public void setWatchTimeoutMillis(long watchTimeoutMillis) {
+            this.watchTimeoutMillis = watchTimeoutMillis;
+        }
+
+        public boolean isBatchLoadEnable() {
+            return batchLoadEnable;
+        }
+
+        public void setBatchLoadEnable(boolean batchLoadEnable) {
+            this.batchLoadEnable = batchLoadEnable;
+        }
+
+        public String getPreloadBgroups() {
+            return preloadBgroups;
+        }
+
+        public void setPreloadBgroups(String preloadBgroups) {
+            this.preloadBgroups = preloadBgroups;
+        }
     }
 
     public static class RedisConfProperties {